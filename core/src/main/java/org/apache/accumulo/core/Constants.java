@@ -90,6 +90,14 @@ public class Constants {
   // fetching the next batch.
   public static final long SCANNER_DEFAULT_READAHEAD_THRESHOLD = 3l;
 
+  // Scan execution hints are sent to tablet servers with the server side iterator options under this reserved name
+  public static final String SCAN_EXECUTION_HINTS = "__execution.hints__";
+
+  // The time range of a scan is sent to tablet servers with the server side iterator options under this reserved name, with the options below
+  public static final String SCAN_TIME_RANGE = "__time.range__";
+  public static final String SCAN_TIME_RANGE_MIN = "min";
+  public static final String SCAN_TIME_RANGE_MAX = "max";
+
   // Security configuration
   public static final String PW_HASH_ALGORITHM = "SHA-256";
 
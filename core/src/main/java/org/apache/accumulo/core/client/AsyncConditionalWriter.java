@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client;
+
+import java.util.Iterator;
+import java.util.concurrent.Future;
+
+import org.apache.accumulo.core.data.ConditionalMutation;
+
+/**
+ * A {@link ConditionalWriter} whose callers do not block waiting for results. Results are delivered through futures or to a receiver as tablet servers return
+ * them, so a few threads can keep many conditional mutations in flight. To send more than one batch to a tablet server at a time, see
+ * {@link ConditionalWriterConfig#setMaxBatchesInFlight(int)}.
+ * 
+ * @since 1.7.0
+ */
+public interface AsyncConditionalWriter extends ConditionalWriter {
+
+  /**
+   * Receives the results of conditional mutations written with {@link AsyncConditionalWriter#write(Iterator, ResultReceiver)}.
+   */
+  public static interface ResultReceiver {
+    /**
+     * Called once for each mutation, usually from one of the conditional writer's threads, so it should not block. Results of mutations with a condition that
+     * can never be seen are received before {@code write} returns, by the thread that called it.
+     */
+    public void receive(Result result);
+  }
+
+  /**
+   * Queues a conditional mutation to be written. This method is thread safe and does not block.
+   * 
+   * @return a future for the result of the mutation. If the writer is closed before the result is known, getting the result throws a
+   *         {@link java.util.concurrent.CancellationException}.
+   */
+  public Future<Result> writeAsync(ConditionalMutation mutation);
+
+  /**
+   * Queues conditional mutations to be written, passing the result of each one to the receiver when it is known. This method is thread safe and does not
+   * block. Results are not received for mutations still in flight when the writer is closed.
+   */
+  public void write(Iterator<ConditionalMutation> mutations, ResultReceiver receiver);
+}
@@ -156,6 +156,9 @@ public class ClientSideIteratorScanner extends ScannerOptions implements Scanner
     smi.scanner.setBatchSize(size);
     smi.scanner.setTimeout(timeOut, TimeUnit.MILLISECONDS);
     smi.scanner.setReadaheadThreshold(readaheadThreshold);
+    if (!executionHints.isEmpty())
+      smi.scanner.setExecutionHints(executionHints);
+    smi.scanner.setTimeRange(minTimestamp, maxTimestamp);
     if (isolated)
       smi.scanner.enableIsolation();
     else
@@ -33,6 +33,9 @@ public class ConditionalWriterConfig {
   private static final Integer DEFAULT_MAX_WRITE_THREADS = 3;
   private Integer maxWriteThreads = null;
   
+  private static final Integer DEFAULT_MAX_BATCHES_IN_FLIGHT = 1;
+  private Integer maxBatchesInFlight = null;
+  
   private Authorizations auths = Authorizations.EMPTY;
   
   /**
@@ -104,6 +107,29 @@ public class ConditionalWriterConfig {
     return this;
   }
   
+  /**
+   * Sets the maximum number of batches of conditional mutations sent to one tablet server at the same time. While a batch is being processed, mutations for
+   * the same server are queued and sent together when it returns. Sending more than one batch at a time keeps a server busy while results are returned to the
+   * client, at the cost of smaller batches and a session on the server for each batch in flight.
+   * 
+   * <p>
+   * <b>Default:</b> 1
+   * 
+   * @param maxBatchesInFlight
+   *          the maximum batches sent to each tablet server at a time
+   * @throws IllegalArgumentException
+   *           if {@code maxBatchesInFlight} is non-positive
+   * @return {@code this} to allow chaining of set methods
+   * @since 1.7.0
+   */
+  public ConditionalWriterConfig setMaxBatchesInFlight(int maxBatchesInFlight) {
+    if (maxBatchesInFlight <= 0)
+      throw new IllegalArgumentException("Max batches in flight must be positive " + maxBatchesInFlight);
+    
+    this.maxBatchesInFlight = maxBatchesInFlight;
+    return this;
+  }
+  
   public Authorizations getAuthorizations() {
     return auths;
   }
@@ -115,4 +141,12 @@ public class ConditionalWriterConfig {
   public int getMaxWriteThreads() {
     return maxWriteThreads != null ? maxWriteThreads : DEFAULT_MAX_WRITE_THREADS;
   }
+  
+  /**
+   * @return the maximum batches sent to each tablet server at a time
+   * @since 1.7.0
+   */
+  public int getMaxBatchesInFlight() {
+    return maxBatchesInFlight != null ? maxBatchesInFlight : DEFAULT_MAX_BATCHES_IN_FLIGHT;
+  }
 }
@@ -189,6 +189,21 @@ public abstract class Connector {
    */
   public abstract ConditionalWriter createConditionalWriter(String tableName, ConditionalWriterConfig config) throws TableNotFoundException;
 
+  /**
+   * Factory method to create a ConditionalWriter connected to Accumulo, that returns results through futures or a receiver instead of blocking.
+   * 
+   * @param tableName
+   *          the name of the table to query data from
+   * @param config
+   *          configuration used to create conditional writer
+   * 
+   * @return AsyncConditionalWriter object for writing ConditionalMutations
+   * @throws TableNotFoundException
+   *           when the specified table doesn't exist
+   * @since 1.7.0
+   */
+  public abstract AsyncConditionalWriter createAsyncConditionalWriter(String tableName, ConditionalWriterConfig config) throws TableNotFoundException;
+
   /**
    * Accessor method for internal instance object.
    * 
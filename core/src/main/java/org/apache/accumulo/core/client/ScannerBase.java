@@ -17,6 +17,7 @@
 package org.apache.accumulo.core.client;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
 
@@ -127,4 +128,31 @@ public interface ScannerBase extends Iterable<Entry<Key,Value>> {
    * @since 1.5.0
    */
   public void close();
+
+  /**
+   * Sets hints that tablet servers use to decide how to execute this scan. The hint <code>executor</code> names the scan executor that should run the scan,
+   * and the hint <code>priority</code> is an integer used by prioritizers that support it, where lower values run first. The hint
+   * <code>first.batch.time</code> is the most milliseconds a tablet server should spend filling the first batch, and the hint <code>stream.window</code> is
+   * how many batches a tablet server may read ahead while the client consumes earlier ones. The hint <code>compression</code>, either <code>none</code> or
+   * <code>deflate</code>, has the tablet server send each batch in a compact encoding, compressed if requested, that is decoded as it is read. Hints a tablet
+   * server does not recognize are ignored. Replaces any previously set hints.
+   * 
+   * @param hints
+   *          the hints, an empty map clears them
+   * @since 1.7.0
+   */
+  public void setExecutionHints(Map<String,String> hints);
+
+  /**
+   * Limits the scan to keys with timestamps in the range, inclusive. The range is applied on the tablet server before the table's iterators and any scan
+   * iterators see the data, so for example the versioning iterator returns the newest version in the range. A delete newer than the range still hides the keys
+   * it deletes in the range. Tablet servers use the range to skip files and blocks of files that hold no data in it without reading them.
+   * 
+   * @param minTimestamp
+   *          the smallest timestamp to return, {@link Long#MIN_VALUE} for no lower bound
+   * @param maxTimestamp
+   *          the largest timestamp to return, {@link Long#MAX_VALUE} for no upper bound
+   * @since 1.7.0
+   */
+  public void setTimeRange(long minTimestamp, long maxTimestamp);
 }
@@ -28,17 +28,22 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.DelayQueue;
 import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.accumulo.core.Constants;
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
-import org.apache.accumulo.core.client.ConditionalWriter;
+import org.apache.accumulo.core.client.AsyncConditionalWriter;
 import org.apache.accumulo.core.client.ConditionalWriterConfig;
 import org.apache.accumulo.core.client.Instance;
 import org.apache.accumulo.core.client.TableDeletedException;
@@ -87,7 +92,7 @@ import org.apache.thrift.TException;
 import org.apache.thrift.TServiceClient;
 import org.apache.thrift.transport.TTransportException;
 
-class ConditionalWriterImpl implements ConditionalWriter {
+class ConditionalWriterImpl implements AsyncConditionalWriter {
   
   private static ThreadPoolExecutor cleanupThreadPool = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
   
@@ -108,10 +113,11 @@ class ConditionalWriterImpl implements ConditionalWriter {
   private TabletLocator locator;
   private String tableId;
   private long timeout;
+  private int maxBatchesInFlight;
   
   private static class ServerQueue {
     BlockingQueue<TabletServerMutations<QCMutation>> queue = new LinkedBlockingQueue<TabletServerMutations<QCMutation>>();
-    boolean taskQueued = false;
+    int tasksQueued = 0;
   }
   
   private Map<String,ServerQueue> serverQueues;
@@ -162,15 +168,93 @@ class ConditionalWriterImpl implements ConditionalWriter {
     
   }
   
+  private static class QueueReceiver implements ResultReceiver {
+    private BlockingQueue<Result> resultQueue = new LinkedBlockingQueue<Result>();
+    
+    @Override
+    public void receive(Result result) {
+      resultQueue.add(result);
+    }
+  }
+  
+  private class FutureResult implements Future<Result>, ResultReceiver {
+    
+    private CountDownLatch done = new CountDownLatch(1);
+    private volatile Result result;
+    
+    @Override
+    public void receive(Result result) {
+      this.result = result;
+      done.countDown();
+    }
+    
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      return false;
+    }
+    
+    @Override
+    public boolean isCancelled() {
+      return false;
+    }
+    
+    @Override
+    public boolean isDone() {
+      return done.getCount() == 0;
+    }
+    
+    @Override
+    public Result get() throws InterruptedException, ExecutionException {
+      while (!done.await(1, TimeUnit.SECONDS)) {
+        if (threadPool.isShutdown() && !isDone())
+          throw new CancellationException("ConditionalWriter closed");
+      }
+      return result;
+    }
+    
+    @Override
+    public Result get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+      long waitTime = Math.min(unit.toMillis(timeout), 1000);
+      long endTime = System.currentTimeMillis() + unit.toMillis(timeout);
+      while (!done.await(waitTime, TimeUnit.MILLISECONDS)) {
+        if (threadPool.isShutdown() && !isDone())
+          throw new CancellationException("ConditionalWriter closed");
+        waitTime = Math.min(endTime - System.currentTimeMillis(), 1000);
+        if (waitTime <= 0)
+          throw new TimeoutException();
+      }
+      return result;
+    }
+  }
+  
+  private static class CallbackReceiver implements ResultReceiver {
+    
+    private ResultReceiver receiver;
+    
+    CallbackReceiver(ResultReceiver receiver) {
+      this.receiver = receiver;
+    }
+    
+    @Override
+    public void receive(Result result) {
+      try {
+        receiver.receive(result);
+      } catch (RuntimeException e) {
+        // do not let a receiver kill the thread sending to a tablet server
+        log.warn("Conditional mutation result receiver failed", e);
+      }
+    }
+  }
+  
   private static class QCMutation extends ConditionalMutation implements Delayed {
-    private BlockingQueue<Result> resultQueue;
+    private ResultReceiver receiver;
     private long resetTime;
     private long delay = 50;
     private long entryTime;
     
-    QCMutation(ConditionalMutation cm, BlockingQueue<Result> resultQueue, long entryTime) {
+    QCMutation(ConditionalMutation cm, ResultReceiver receiver, long entryTime) {
       super(cm);
-      this.resultQueue = resultQueue;
+      this.receiver = receiver;
       this.entryTime = entryTime;
     }
     
@@ -191,7 +275,7 @@ class ConditionalWriterImpl implements ConditionalWriter {
     }
     
     void queueResult(Result result) {
-      resultQueue.add(result);
+      receiver.receive(result);
     }
   }
   
@@ -305,10 +389,10 @@ class ConditionalWriterImpl implements ConditionalWriter {
     
     synchronized (serverQueue) {
       serverQueue.queue.add(mutations);
-      // never execute more than one task per server
-      if (!serverQueue.taskQueued) {
+      // never execute more tasks per server than batches allowed in flight
+      if (serverQueue.tasksQueued < maxBatchesInFlight) {
         threadPool.execute(new LoggingRunnable(log, Trace.wrap(new SendTask(location))));
-        serverQueue.taskQueued = true;
+        serverQueue.tasksQueued++;
       }
     }
     
@@ -326,7 +410,7 @@ class ConditionalWriterImpl implements ConditionalWriter {
       if (serverQueue.queue.size() > 0)
         threadPool.execute(new LoggingRunnable(log, Trace.wrap(task)));
       else
-        serverQueue.taskQueued = false;
+        serverQueue.tasksQueued--;
     }
     
   }
@@ -373,6 +457,7 @@ class ConditionalWriterImpl implements ConditionalWriter {
     this.serverQueues = new HashMap<String,ServerQueue>();
     this.tableId = tableId;
     this.timeout = config.getTimeout(TimeUnit.MILLISECONDS);
+    this.maxBatchesInFlight = config.getMaxBatchesInFlight();
     
     Runnable failureHandler = new Runnable() {
       
@@ -392,8 +477,27 @@ class ConditionalWriterImpl implements ConditionalWriter {
   
   @Override
   public Iterator<Result> write(Iterator<ConditionalMutation> mutations) {
-    
-    BlockingQueue<Result> resultQueue = new LinkedBlockingQueue<Result>();
+    QueueReceiver receiver = new QueueReceiver();
+    int count = submit(mutations, receiver);
+    return new RQIterator(receiver.resultQueue, count);
+  }
+  
+  @Override
+  public void write(Iterator<ConditionalMutation> mutations, ResultReceiver receiver) {
+    submit(mutations, new CallbackReceiver(receiver));
+  }
+  
+  @Override
+  public Future<Result> writeAsync(ConditionalMutation mutation) {
+    FutureResult future = new FutureResult();
+    submit(Collections.singleton(mutation).iterator(), future);
+    return future;
+  }
+  
+  /**
+   * @return the number of mutations submitted
+   */
+  private int submit(Iterator<ConditionalMutation> mutations, ResultReceiver receiver) {
     
     List<QCMutation> mutationList = new ArrayList<QCMutation>();
     
@@ -410,19 +514,18 @@ class ConditionalWriterImpl implements ConditionalWriter {
 
       for (Condition cond : mut.getConditions()) {
         if (!isVisible(cond.getVisibility())) {
-          resultQueue.add(new Result(Status.INVISIBLE_VISIBILITY, mut, null));
+          receiver.receive(new Result(Status.INVISIBLE_VISIBILITY, mut, null));
           continue mloop;
         }
       }
       
       // copy the mutations so that even if caller changes it, it will not matter
-      mutationList.add(new QCMutation(mut, resultQueue, entryTime));
+      mutationList.add(new QCMutation(mut, receiver, entryTime));
     }
     
     queue(mutationList);
     
-    return new RQIterator(resultQueue, count);
-    
+    return count;
   }
   
   private class SendTask implements Runnable {
@@ -470,21 +573,25 @@ class ConditionalWriterImpl implements ConditionalWriter {
     }
   }
   
-  private HashMap<String,SessionID> cachedSessionIDs = new HashMap<String,SessionID>();
+  // a server has a session for each batch that was in flight at the same time
+  private HashMap<String,List<SessionID>> cachedSessionIDs = new HashMap<String,List<SessionID>>();
   
   private SessionID reserveSessionID(String location, TabletClientService.Iface client, TInfo tinfo) throws ThriftSecurityException, TException {
     // avoid cost of repeatedly making RPC to create sessions, reuse sessions
     synchronized (cachedSessionIDs) {
-      SessionID sid = cachedSessionIDs.get(location);
-      if (sid != null) {
-        if (sid.reserved)
-          throw new IllegalStateException();
-        
-        if (!sid.isActive()) {
-          cachedSessionIDs.remove(location);
-        } else {
-          sid.reserved = true;
-          return sid;
+      List<SessionID> sids = cachedSessionIDs.get(location);
+      if (sids != null) {
+        for (Iterator<SessionID> iter = sids.iterator(); iter.hasNext();) {
+          SessionID sid = iter.next();
+          if (sid.reserved)
+            continue;
+          
+          if (!sid.isActive()) {
+            iter.remove();
+          } else {
+            sid.reserved = true;
+            return sid;
+          }
         }
       }
     }
@@ -499,38 +606,45 @@ class ConditionalWriterImpl implements ConditionalWriter {
       sid.lockId = tcs.tserverLock;
       sid.ttl = tcs.ttl;
       sid.location = location;
-      if (cachedSessionIDs.put(location, sid) != null)
-        throw new IllegalStateException();
+      
+      List<SessionID> sids = cachedSessionIDs.get(location);
+      if (sids == null) {
+        sids = new ArrayList<SessionID>();
+        cachedSessionIDs.put(location, sids);
+      }
+      sids.add(sid);
       
       return sid;
     }
     
   }
   
-  private void invalidateSessionID(String location) {
+  private void invalidateSessionID(SessionID sid) {
     synchronized (cachedSessionIDs) {
-      cachedSessionIDs.remove(location);
+      List<SessionID> sids = cachedSessionIDs.get(sid.location);
+      if (sids != null)
+        sids.remove(sid);
     }
     
   }
   
-  private void unreserveSessionID(String location) {
+  private void unreserveSessionID(SessionID sid) {
     synchronized (cachedSessionIDs) {
-      SessionID sid = cachedSessionIDs.get(location);
-      if (sid != null) {
-        if (!sid.reserved)
-          throw new IllegalStateException();
-        sid.reserved = false;
-        sid.lastAccessTime = System.currentTimeMillis();
-      }
+      if (!sid.reserved)
+        throw new IllegalStateException();
+      sid.reserved = false;
+      sid.lastAccessTime = System.currentTimeMillis();
     }
   }
   
   List<SessionID> getActiveSessions() {
     ArrayList<SessionID> activeSessions = new ArrayList<SessionID>();
-    for (SessionID sid : cachedSessionIDs.values())
-      if (sid.isActive())
-        activeSessions.add(sid);
+    synchronized (cachedSessionIDs) {
+      for (List<SessionID> sids : cachedSessionIDs.values())
+        for (SessionID sid : sids)
+          if (sid.isActive())
+            activeSessions.add(sid);
+    }
     return activeSessions;
   }
   
@@ -568,8 +682,9 @@ class ConditionalWriterImpl implements ConditionalWriter {
           sessionId = reserveSessionID(location, client, tinfo);
           tresults = client.conditionalUpdate(tinfo, sessionId.sessionID, tmutations, compressedIters.getSymbolTable());
         } catch (NoSuchScanIDException nssie) {
+          invalidateSessionID(sessionId);
+          unreserveSessionID(sessionId);
           sessionId = null;
-          invalidateSessionID(location);
         }
       }
       
@@ -609,7 +724,8 @@ class ConditionalWriterImpl implements ConditionalWriter {
     } catch (Exception e) {
       queueException(location, cmidToCm, e);
     } finally {
-      unreserveSessionID(location);
+      if (sessionId != null)
+        unreserveSessionID(sessionId);
       ThriftUtil.returnClient((TServiceClient) client);
     }
   }
@@ -20,6 +20,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.AsyncConditionalWriter;
 import org.apache.accumulo.core.client.BatchDeleter;
 import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.BatchWriter;
@@ -141,6 +142,11 @@ public class ConnectorImpl extends Connector {
   public ConditionalWriter createConditionalWriter(String tableName, ConditionalWriterConfig config) throws TableNotFoundException {
     return new ConditionalWriterImpl(instance, credentials, getTableId(tableName), config);
   }
+
+  @Override
+  public AsyncConditionalWriter createAsyncConditionalWriter(String tableName, ConditionalWriterConfig config) throws TableNotFoundException {
+    return new ConditionalWriterImpl(instance, credentials, getTableId(tableName), config);
+  }
   
   @Override
   public Scanner createScanner(String tableName, Authorizations authorizations) throws TableNotFoundException {
@@ -51,6 +51,7 @@ import org.apache.accumulo.core.iterators.system.ColumnFamilySkippingIterator;
 import org.apache.accumulo.core.iterators.system.ColumnQualifierFilter;
 import org.apache.accumulo.core.iterators.system.DeletingIterator;
 import org.apache.accumulo.core.iterators.system.MultiIterator;
+import org.apache.accumulo.core.iterators.system.TimestampRangeFilter;
 import org.apache.accumulo.core.iterators.system.VisibilityFilter;
 import org.apache.accumulo.core.master.state.tables.TableState;
 import org.apache.accumulo.core.metadata.MetadataTable;
@@ -311,6 +312,7 @@ class OfflineIterator implements Iterator<Entry<Key,Value>> {
         fs = new Path(file).getFileSystem(conf);
 
       FileSKVIterator reader = FileOperations.getInstance().openReader(file, false, fs, conf, acuTableConf, null, null);
+      reader.setTimeRange(options.minTimestamp, options.maxTimestamp);
       readers.add(reader);
     }
     
@@ -318,7 +320,10 @@ class OfflineIterator implements Iterator<Entry<Key,Value>> {
     
     OfflineIteratorEnvironment iterEnv = new OfflineIteratorEnvironment();
     
-    DeletingIterator delIter = new DeletingIterator(multiIter, false);
+    SortedKeyValueIterator<Key,Value> delIter = new DeletingIterator(multiIter, false);
+    
+    if (TimestampRangeFilter.isLimited(options.minTimestamp, options.maxTimestamp))
+      delIter = new TimestampRangeFilter(delIter, options.minTimestamp, options.maxTimestamp);
     
     ColumnFamilySkippingIterator cfsi = new ColumnFamilySkippingIterator(delIter);
     
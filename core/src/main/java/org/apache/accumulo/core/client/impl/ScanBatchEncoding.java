@@ -0,0 +1,344 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.KeyValue;
+import org.apache.accumulo.core.data.thrift.TKeyValue;
+import org.apache.accumulo.core.util.ByteBufferUtil;
+import org.apache.accumulo.core.util.UnsynchronizedBuffer;
+
+/**
+ * Encodes a batch of scan results into a single compact, optionally compressed, buffer. Rows and column qualifiers are front coded against the previous entry,
+ * and column families, column visibilities and timestamps equal to those of the previous entry are not repeated.
+ * <p>
+ * The encoded batch is sent as the only {@link TKeyValue} of a scan result, one without a key, which no plain scan result can contain. A client asks for
+ * encoded batches with the {@value #COMPRESSION_HINT} execution hint and decodes any result that is encoded, so it still works with tablet servers that
+ * ignore the hint. Entries are decoded lazily, as the returned list is read.
+ */
+public class ScanBatchEncoding {
+
+  /**
+   * The execution hint naming the compression a tablet server should use for the batches it returns, either {@value #NONE} or {@value #DEFLATE}.
+   */
+  public static final String COMPRESSION_HINT = "compression";
+
+  /**
+   * Encode batches without compressing them.
+   */
+  public static final String NONE = "none";
+
+  /**
+   * Encode batches and compress them with deflate.
+   */
+  public static final String DEFLATE = "deflate";
+
+  private static final byte VERSION = 1;
+
+  private static final byte CODEC_NONE = 0;
+  private static final byte CODEC_DEFLATE = 1;
+
+  private static final int SAME_FAMILY = 0x01;
+  private static final int SAME_VISIBILITY = 0x02;
+  private static final int SAME_TIMESTAMP = 0x04;
+  private static final int DELETED = 0x08;
+
+  /**
+   * @return true if batches can be encoded with the named compression
+   */
+  public static boolean isSupported(String compression) {
+    return NONE.equals(compression) || DEFLATE.equals(compression);
+  }
+
+  /**
+   * @return true if the results of a scan are an encoded batch
+   */
+  public static boolean isEncoded(List<TKeyValue> results) {
+    return results.size() == 1 && results.get(0).key == null;
+  }
+
+  /**
+   * @return the number of entries in scan results, whether or not they are encoded
+   */
+  public static int getEntryCount(List<TKeyValue> results) {
+    if (!isEncoded(results))
+      return results.size();
+    // only copy the header, which holds the count
+    ByteBuffer value = results.get(0).value.duplicate();
+    byte[] header = new byte[Math.min(value.remaining(), 11)];
+    value.get(header);
+    UnsynchronizedBuffer.Reader in = new UnsynchronizedBuffer.Reader(header);
+    in.readBytes(new byte[2]);
+    return in.readVInt();
+  }
+
+  private static int commonPrefix(ByteSequence prev, ByteSequence cur) {
+    if (prev == null)
+      return 0;
+    int len = Math.min(prev.length(), cur.length());
+    int i = 0;
+    while (i < len && prev.byteAt(i) == cur.byteAt(i))
+      i++;
+    return i;
+  }
+
+  private static void writeBytes(UnsynchronizedBuffer.Writer out, ByteSequence bytes, int offset) {
+    out.writeVInt(bytes.length() - offset);
+    out.add(bytes.getBackingArray(), bytes.offset() + offset, bytes.length() - offset);
+  }
+
+  private static void writeBytes(UnsynchronizedBuffer.Writer out, byte[] bytes) {
+    out.writeVInt(bytes.length);
+    out.add(bytes, 0, bytes.length);
+  }
+
+  private static void writeKey(UnsynchronizedBuffer.Writer out, Key key) {
+    writeBytes(out, key.getRowData(), 0);
+    writeBytes(out, key.getColumnFamilyData(), 0);
+    writeBytes(out, key.getColumnQualifierData(), 0);
+    writeBytes(out, key.getColumnVisibilityData(), 0);
+    out.writeVLong(key.getTimestamp());
+    out.add(key.isDeleted());
+  }
+
+  /**
+   * Encodes a batch of scan results.
+   *
+   * @param compression
+   *          one of {@value #NONE} or {@value #DEFLATE}
+   * @return the single entry to send in place of the results
+   */
+  public static TKeyValue encode(List<? extends KeyValue> batch, String compression) {
+    if (!isSupported(compression))
+      throw new IllegalArgumentException("Unsupported scan batch compression " + compression);
+
+    UnsynchronizedBuffer.Writer body = new UnsynchronizedBuffer.Writer(batch.size() * 32 + 16);
+
+    // the last key is written up front, so the client can continue the scan without decoding the batch
+    if (batch.size() > 0)
+      writeKey(body, batch.get(batch.size() - 1).key);
+
+    Key prev = null;
+    for (KeyValue kv : batch) {
+      Key key = kv.key;
+      int flags = 0;
+      if (prev != null && prev.getColumnFamilyData().equals(key.getColumnFamilyData()))
+        flags |= SAME_FAMILY;
+      if (prev != null && prev.getColumnVisibilityData().equals(key.getColumnVisibilityData()))
+        flags |= SAME_VISIBILITY;
+      if (prev != null && prev.getTimestamp() == key.getTimestamp())
+        flags |= SAME_TIMESTAMP;
+      if (key.isDeleted())
+        flags |= DELETED;
+      body.writeVInt(flags);
+
+      int rowPrefix = commonPrefix(prev == null ? null : prev.getRowData(), key.getRowData());
+      body.writeVInt(rowPrefix);
+      writeBytes(body, key.getRowData(), rowPrefix);
+      if ((flags & SAME_FAMILY) == 0)
+        writeBytes(body, key.getColumnFamilyData(), 0);
+      int qualPrefix = commonPrefix(prev == null ? null : prev.getColumnQualifierData(), key.getColumnQualifierData());
+      body.writeVInt(qualPrefix);
+      writeBytes(body, key.getColumnQualifierData(), qualPrefix);
+      if ((flags & SAME_VISIBILITY) == 0)
+        writeBytes(body, key.getColumnVisibilityData(), 0);
+      if ((flags & SAME_TIMESTAMP) == 0)
+        body.writeVLong(key.getTimestamp());
+      writeBytes(body, kv.value);
+
+      prev = key;
+    }
+
+    byte[] raw = body.toArray();
+
+    UnsynchronizedBuffer.Writer out = new UnsynchronizedBuffer.Writer(raw.length + 16);
+    out.add(new byte[] {VERSION, DEFLATE.equals(compression) ? CODEC_DEFLATE : CODEC_NONE}, 0, 2);
+    out.writeVInt(batch.size());
+    out.writeVInt(raw.length);
+
+    if (DEFLATE.equals(compression)) {
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(raw.length / 2 + 16);
+        DeflaterOutputStream dos = new DeflaterOutputStream(baos, deflater);
+        dos.write(raw);
+        dos.close();
+        byte[] compressed = baos.toByteArray();
+        out.add(compressed, 0, compressed.length);
+      } catch (IOException e) {
+        // not possible when writing to memory
+        throw new RuntimeException(e);
+      } finally {
+        deflater.end();
+      }
+    } else {
+      out.add(raw, 0, raw.length);
+    }
+
+    return new TKeyValue(null, out.toByteBuffer());
+  }
+
+  private static byte[] inflate(byte[] data, int offset, int uncompressedLength) {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(data, offset, data.length - offset);
+      byte[] raw = new byte[uncompressedLength];
+      int len = 0;
+      while (len < raw.length) {
+        int n = inflater.inflate(raw, len, raw.length - len);
+        if (n == 0 && (inflater.finished() || inflater.needsInput()))
+          break;
+        len += n;
+      }
+      if (len != raw.length)
+        throw new IllegalStateException("Scan batch decompressed to " + len + " bytes, expected " + raw.length);
+      return raw;
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Corrupt scan batch", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * An encoded batch, decoded as its entries are read. Reading the entries in order decodes each of them once.
+   */
+  public static class EncodedBatch extends AbstractList<KeyValue> {
+
+    private final UnsynchronizedBuffer.Reader in;
+    private final KeyValue[] decoded;
+    private final Key lastKey;
+    private int numDecoded = 0;
+
+    private byte[] row;
+    private byte[] family;
+    private byte[] qualifier;
+    private byte[] visibility;
+    private long timestamp;
+
+    private EncodedBatch(TKeyValue encoded) {
+      byte[] data = ByteBufferUtil.toBytes(encoded.value);
+      UnsynchronizedBuffer.Reader header = new UnsynchronizedBuffer.Reader(data);
+      byte[] versionAndCodec = new byte[2];
+      header.readBytes(versionAndCodec);
+      if (versionAndCodec[0] != VERSION)
+        throw new IllegalStateException("Unknown scan batch version " + versionAndCodec[0]);
+      int count = header.readVInt();
+      int rawLength = header.readVInt();
+
+      byte[] raw;
+      switch (versionAndCodec[1]) {
+        case CODEC_NONE:
+          raw = Arrays.copyOfRange(data, header.getOffset(), header.getOffset() + rawLength);
+          break;
+        case CODEC_DEFLATE:
+          raw = inflate(data, header.getOffset(), rawLength);
+          break;
+        default:
+          throw new IllegalStateException("Unknown scan batch codec " + versionAndCodec[1]);
+      }
+
+      in = new UnsynchronizedBuffer.Reader(raw);
+      decoded = new KeyValue[count];
+      lastKey = count == 0 ? null : new Key(readBytes(0, null), readBytes(0, null), readBytes(0, null), readBytes(0, null), in.readVLong(),
+          in.readBoolean(), false);
+    }
+
+    private byte[] readBytes(int prefix, byte[] prev) {
+      byte[] bytes = new byte[prefix + in.readVInt()];
+      if (prefix > 0)
+        System.arraycopy(prev, 0, bytes, 0, prefix);
+      in.readBytes(bytes, prefix, bytes.length - prefix);
+      return bytes;
+    }
+
+    private void decodeNext() {
+      int flags = in.readVInt();
+      row = readBytes(in.readVInt(), row);
+      if ((flags & SAME_FAMILY) == 0)
+        family = readBytes(0, null);
+      qualifier = readBytes(in.readVInt(), qualifier);
+      if ((flags & SAME_VISIBILITY) == 0)
+        visibility = readBytes(0, null);
+      if ((flags & SAME_TIMESTAMP) == 0)
+        timestamp = in.readVLong();
+      byte[] value = readBytes(0, null);
+      // entries that share a column family or visibility share the same array, keys do not modify them
+      decoded[numDecoded++] = new KeyValue(new Key(row, family, qualifier, visibility, timestamp, (flags & DELETED) != 0, false), value);
+    }
+
+    @Override
+    public KeyValue get(int index) {
+      if (index < 0 || index >= decoded.length)
+        throw new IndexOutOfBoundsException(index + " " + decoded.length);
+      while (numDecoded <= index)
+        decodeNext();
+      return decoded[index];
+    }
+
+    @Override
+    public int size() {
+      return decoded.length;
+    }
+
+    /**
+     * @return the last key in the batch, without decoding the rest of the batch
+     */
+    public Key getLastKey() {
+      return lastKey;
+    }
+  }
+
+  /**
+   * Decodes an encoded batch.
+   *
+   * @see #isEncoded(List)
+   */
+  public static EncodedBatch decode(List<TKeyValue> results) {
+    if (!isEncoded(results))
+      throw new IllegalArgumentException("Scan results are not an encoded batch");
+    return new EncodedBatch(results.get(0));
+  }
+
+  /**
+   * Converts scan results to key values, whether or not they are encoded. Results that are not encoded are expected to be relative to each other, as sent
+   * by {@link Key#compress(List)}.
+   */
+  public static List<KeyValue> toKeyValues(List<TKeyValue> results) {
+    if (isEncoded(results))
+      return decode(results);
+
+    Key.decompress(results);
+    List<KeyValue> kvs = new ArrayList<KeyValue>(results.size());
+    for (TKeyValue tkv : results)
+      kvs.add(new KeyValue(new Key(tkv.key), tkv.value));
+    return kvs;
+  }
+}
@@ -145,7 +145,7 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
     }
     
     scanState = new ScanState(instance, credentials, tableId, authorizations, new Range(range), options.fetchedColumns, size, options.serverSideIteratorList,
-        options.serverSideIteratorOptions, isolated, readaheadThreshold);
+        options.getServerSideIteratorOptions(), isolated, readaheadThreshold);
     
     // If we want to start readahead immediately, don't wait for hasNext to be called
     if (0l == readaheadThreshold) {
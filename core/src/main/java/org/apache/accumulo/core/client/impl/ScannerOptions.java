@@ -28,12 +28,14 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.accumulo.core.Constants;
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.ScannerBase;
 import org.apache.accumulo.core.data.Column;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.data.thrift.IterInfo;
+import org.apache.accumulo.core.iterators.system.TimestampRangeFilter;
 import org.apache.accumulo.core.util.ArgumentChecker;
 import org.apache.accumulo.core.util.TextUtil;
 import org.apache.hadoop.io.Text;
@@ -47,6 +49,11 @@ public class ScannerOptions implements ScannerBase {
   
   protected long timeOut = Long.MAX_VALUE;
   
+  protected Map<String,String> executionHints = Collections.emptyMap();
+  
+  protected long minTimestamp = Long.MIN_VALUE;
+  protected long maxTimestamp = Long.MAX_VALUE;
+  
   private String regexIterName = null;
   
   protected ScannerOptions() {}
@@ -169,6 +176,9 @@ public class ScannerOptions implements ScannerBase {
     synchronized (dst) {
       synchronized (src) {
         dst.regexIterName = src.regexIterName;
+        dst.executionHints = src.executionHints;
+        dst.minTimestamp = src.minTimestamp;
+        dst.maxTimestamp = src.maxTimestamp;
         dst.fetchedColumns = new TreeSet<Column>(src.fetchedColumns);
         dst.serverSideIteratorList = new ArrayList<IterInfo>(src.serverSideIteratorList);
         
@@ -180,6 +190,38 @@ public class ScannerOptions implements ScannerBase {
     }
   }
   
+  /**
+   * @return the server side iterator options to send to a tablet server, including any execution hints and time range
+   */
+  synchronized Map<String,Map<String,String>> getServerSideIteratorOptions() {
+    boolean timeLimited = TimestampRangeFilter.isLimited(minTimestamp, maxTimestamp);
+    if (executionHints.isEmpty() && !timeLimited)
+      return serverSideIteratorOptions;
+    
+    Map<String,Map<String,String>> ssio = new HashMap<String,Map<String,String>>(serverSideIteratorOptions);
+    if (!executionHints.isEmpty())
+      ssio.put(Constants.SCAN_EXECUTION_HINTS, executionHints);
+    if (timeLimited) {
+      Map<String,String> timeRange = new HashMap<String,String>();
+      timeRange.put(Constants.SCAN_TIME_RANGE_MIN, Long.toString(minTimestamp));
+      timeRange.put(Constants.SCAN_TIME_RANGE_MAX, Long.toString(maxTimestamp));
+      ssio.put(Constants.SCAN_TIME_RANGE, timeRange);
+    }
+    return ssio;
+  }
+  
+  /**
+   * Parses the time range a client sent with the server side iterator options.
+   * 
+   * @return the smallest and largest timestamps to return, or null if the scan is not limited to a time range
+   */
+  public static long[] getTimeRange(Map<String,Map<String,String>> ssio) {
+    Map<String,String> timeRange = ssio == null ? null : ssio.get(Constants.SCAN_TIME_RANGE);
+    if (timeRange == null)
+      return null;
+    return new long[] {Long.parseLong(timeRange.get(Constants.SCAN_TIME_RANGE_MIN)), Long.parseLong(timeRange.get(Constants.SCAN_TIME_RANGE_MAX))};
+  }
+  
   @Override
   public Iterator<Entry<Key,Value>> iterator() {
     throw new UnsupportedOperationException();
@@ -202,6 +244,23 @@ public class ScannerOptions implements ScannerBase {
     return timeunit.convert(timeOut, TimeUnit.MILLISECONDS);
   }
   
+  @Override
+  public synchronized void setExecutionHints(Map<String,String> hints) {
+    ArgumentChecker.notNull(hints);
+    if (hints.isEmpty())
+      this.executionHints = Collections.emptyMap();
+    else
+      this.executionHints = Collections.unmodifiableMap(new HashMap<String,String>(hints));
+  }
+  
+  @Override
+  public synchronized void setTimeRange(long minTimestamp, long maxTimestamp) {
+    if (minTimestamp > maxTimestamp)
+      throw new IllegalArgumentException("Minimum timestamp " + minTimestamp + " is greater than maximum timestamp " + maxTimestamp);
+    this.minTimestamp = minTimestamp;
+    this.maxTimestamp = maxTimestamp;
+  }
+  
   @Override
   public void close() {
     // Nothing needs to be closed
@@ -604,6 +604,18 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
     }
   }
   
+  private static List<Entry<Key,Value>> toEntries(List<TKeyValue> results) {
+    if (ScanBatchEncoding.isEncoded(results))
+      // decoded as the entries are read
+      return Collections.<Entry<Key,Value>> unmodifiableList(ScanBatchEncoding.decode(results));
+    
+    ArrayList<Entry<Key,Value>> entries = new ArrayList<Map.Entry<Key,Value>>(results.size());
+    for (TKeyValue kv : results) {
+      entries.add(new MyEntry(new Key(kv.key), new Value(kv.value)));
+    }
+    return entries;
+  }
+  
   public static void doLookup(Instance instance, Credentials credentials, String server, Map<KeyExtent,List<Range>> requested,
       Map<KeyExtent,List<Range>> failures, Map<KeyExtent,List<Range>> unscanned, ResultReceiver receiver, List<Column> columns, ScannerOptions options,
       Authorizations authorizations, AccumuloConfiguration conf) throws IOException, AccumuloSecurityException, AccumuloServerException {
@@ -648,20 +660,17 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
         Map<TKeyExtent,List<TRange>> thriftTabletRanges = Translator.translate(requested, Translator.KET, new Translator.ListTranslator<Range,TRange>(
             Translator.RT));
         InitialMultiScan imsr = client.startMultiScan(Tracer.traceInfo(), credentials.toThrift(instance), thriftTabletRanges,
-            Translator.translate(columns, Translator.CT), options.serverSideIteratorList, options.serverSideIteratorOptions,
+            Translator.translate(columns, Translator.CT), options.serverSideIteratorList, options.getServerSideIteratorOptions(),
             ByteBufferUtil.toByteBuffers(authorizations.getAuthorizations()), waitForWrites);
         if (waitForWrites)
           ThriftScanner.serversWaitedForWrites.get(ttype).add(server);
         
         MultiScanResult scanResult = imsr.result;
         
-        opTimer.stop("Got 1st multi scan results, #results=" + scanResult.results.size() + (scanResult.more ? "  scanID=" + imsr.scanID : "")
-            + " in %DURATION%");
+        opTimer.stop("Got 1st multi scan results, #results=" + ScanBatchEncoding.getEntryCount(scanResult.results)
+            + (scanResult.more ? "  scanID=" + imsr.scanID : "") + " in %DURATION%");
         
-        ArrayList<Entry<Key,Value>> entries = new ArrayList<Map.Entry<Key,Value>>(scanResult.results.size());
-        for (TKeyValue kv : scanResult.results) {
-          entries.add(new MyEntry(new Key(kv.key), new Value(kv.value)));
-        }
+        List<Entry<Key,Value>> entries = toEntries(scanResult.results);
         
         if (entries.size() > 0)
           receiver.receive(entries);
@@ -677,13 +686,10 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
           
           opTimer.start("Continuing multi scan, scanid=" + imsr.scanID);
           scanResult = client.continueMultiScan(Tracer.traceInfo(), imsr.scanID);
-          opTimer.stop("Got more multi scan results, #results=" + scanResult.results.size() + (scanResult.more ? "  scanID=" + imsr.scanID : "")
-              + " in %DURATION%");
+          opTimer.stop("Got more multi scan results, #results=" + ScanBatchEncoding.getEntryCount(scanResult.results)
+              + (scanResult.more ? "  scanID=" + imsr.scanID : "") + " in %DURATION%");
           
-          entries = new ArrayList<Map.Entry<Key,Value>>(scanResult.results.size());
-          for (TKeyValue kv : scanResult.results) {
-            entries.add(new MyEntry(new Key(kv.key), new Value(kv.value)));
-          }
+          entries = toEntries(scanResult.results);
           
           if (entries.size() > 0)
             receiver.receive(entries);
@@ -47,7 +47,6 @@ import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.data.thrift.InitialScan;
 import org.apache.accumulo.core.data.thrift.IterInfo;
 import org.apache.accumulo.core.data.thrift.ScanResult;
-import org.apache.accumulo.core.data.thrift.TKeyValue;
 import org.apache.accumulo.core.master.state.tables.TableState;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.core.security.Credentials;
@@ -102,10 +101,8 @@ public class ThriftScanner {
         if (waitForWrites)
           serversWaitedForWrites.get(ttype).add(server);
         
-        Key.decompress(isr.result.results);
-        
-        for (TKeyValue kv : isr.result.results)
-          results.put(new Key(kv.key), new Value(kv.value));
+        for (KeyValue kv : ScanBatchEncoding.toKeyValues(isr.result.results))
+          results.put(kv.key, kv.getValue());
         
         client.closeScan(tinfo, isr.scanID);
         
@@ -426,27 +423,24 @@ public class ThriftScanner {
         // log.debug("No more : tab end row = "+loc.tablet_extent.getEndRow()+" range = "+scanState.range);
         if (loc.tablet_extent.getEndRow() == null) {
           scanState.finished = true;
-          opTimer.stop("Completely finished scan in %DURATION% #results=" + sr.results.size());
+          opTimer.stop("Completely finished scan in %DURATION% #results=" + ScanBatchEncoding.getEntryCount(sr.results));
         } else if (scanState.range.getEndKey() == null || !scanState.range.afterEndKey(new Key(loc.tablet_extent.getEndRow()).followingKey(PartialKey.ROW))) {
           scanState.startRow = loc.tablet_extent.getEndRow();
           scanState.skipStartRow = true;
-          opTimer.stop("Finished scanning tablet in %DURATION% #results=" + sr.results.size());
+          opTimer.stop("Finished scanning tablet in %DURATION% #results=" + ScanBatchEncoding.getEntryCount(sr.results));
         } else {
           scanState.finished = true;
-          opTimer.stop("Completely finished scan in %DURATION% #results=" + sr.results.size());
+          opTimer.stop("Completely finished scan in %DURATION% #results=" + ScanBatchEncoding.getEntryCount(sr.results));
         }
       } else {
-        opTimer.stop("Finished scan in %DURATION% #results=" + sr.results.size() + " scanid=" + scanState.scanID);
+        opTimer.stop("Finished scan in %DURATION% #results=" + ScanBatchEncoding.getEntryCount(sr.results) + " scanid=" + scanState.scanID);
       }
       
-      Key.decompress(sr.results);
-      
-      if (sr.results.size() > 0 && !scanState.finished)
-        scanState.range = new Range(new Key(sr.results.get(sr.results.size() - 1).key), false, scanState.range.getEndKey(), scanState.range.isEndKeyInclusive());
+      List<KeyValue> results = ScanBatchEncoding.toKeyValues(sr.results);
       
-      List<KeyValue> results = new ArrayList<KeyValue>(sr.results.size());
-      for (TKeyValue tkv : sr.results)
-        results.add(new KeyValue(new Key(tkv.key), tkv.value));
+      if (results.size() > 0 && !scanState.finished) {
+        scanState.range = new Range(getLastKey(results), false, scanState.range.getEndKey(), scanState.range.isEndKeyInclusive());
+      }
       
       return results;
       
@@ -457,4 +451,11 @@ public class ThriftScanner {
       Thread.currentThread().setName(old);
     }
   }
+
+  private static Key getLastKey(List<KeyValue> results) {
+    // avoid decoding an encoded batch here, the scanner iterator decodes it as it is read
+    if (results instanceof ScanBatchEncoding.EncodedBatch)
+      return ((ScanBatchEncoding.EncodedBatch) results).getLastKey();
+    return results.get(results.size() - 1).key;
+  }
 }
@@ -19,6 +19,7 @@ package org.apache.accumulo.core.client.mock;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.AsyncConditionalWriter;
 import org.apache.accumulo.core.client.BatchDeleter;
 import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.BatchWriter;
@@ -148,4 +149,9 @@ public class MockConnector extends Connector {
     throw new UnsupportedOperationException();
   }
   
+  @Override
+  public AsyncConditionalWriter createAsyncConditionalWriter(String tableName, ConditionalWriterConfig config) throws TableNotFoundException {
+    throw new UnsupportedOperationException();
+  }
+  
 }
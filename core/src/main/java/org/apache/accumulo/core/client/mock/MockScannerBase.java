@@ -39,6 +39,7 @@ import org.apache.accumulo.core.iterators.system.ColumnFamilySkippingIterator;
 import org.apache.accumulo.core.iterators.system.ColumnQualifierFilter;
 import org.apache.accumulo.core.iterators.system.DeletingIterator;
 import org.apache.accumulo.core.iterators.system.MultiIterator;
+import org.apache.accumulo.core.iterators.system.TimestampRangeFilter;
 import org.apache.accumulo.core.iterators.system.VisibilityFilter;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.lang.NotImplementedException;
@@ -100,7 +101,10 @@ public class MockScannerBase extends ScannerOptions implements ScannerBase {
   
   public SortedKeyValueIterator<Key,Value> createFilter(SortedKeyValueIterator<Key,Value> inner) throws IOException {
     byte[] defaultLabels = {};
-    inner = new ColumnFamilySkippingIterator(new DeletingIterator(inner, false));
+    inner = new DeletingIterator(inner, false);
+    if (TimestampRangeFilter.isLimited(minTimestamp, maxTimestamp))
+      inner = new TimestampRangeFilter(inner, minTimestamp, maxTimestamp);
+    inner = new ColumnFamilySkippingIterator(inner);
     ColumnQualifierFilter cqf = new ColumnQualifierFilter(inner, new HashSet<Column>(fetchedColumns));
     VisibilityFilter vf = new VisibilityFilter(cqf, auths, defaultLabels);
     AccumuloConfiguration conf = new MockConfiguration(table.settings);
@@ -123,6 +123,10 @@ public enum Property {
       "The authorizor class that accumulo will use to determine what labels a user has privilege to see"),
   INSTANCE_SECURITY_PERMISSION_HANDLER("instance.security.permissionHandler", "org.apache.accumulo.server.security.handler.ZKPermHandler",
       PropertyType.CLASSNAME, "The permission handler class that accumulo will use to determine if a user has privilege to perform an action"),
+  INSTANCE_SECURITY_CACHE_MAXAGE("instance.security.cache.age.max", "10s", PropertyType.TIMEDURATION,
+      "The longest time servers remember that credentials were authenticated and the results of table, namespace and system permission checks.  Cached "
+          + "results are dropped as soon as zookeeper reports a change for the user, so this only bounds how long a missed change could go unnoticed.  "
+          + "Only used with the zookeeper authenticator and permission handler, and a value of zero disables caching."),
   INSTANCE_RPC_SSL_ENABLED("instance.rpc.ssl.enabled", "false", PropertyType.BOOLEAN, "Use SSL for socket connections from clients and among accumulo services"),
   INSTANCE_RPC_SSL_CLIENT_AUTH("instance.rpc.ssl.clientAuth", "false", PropertyType.BOOLEAN, "Require clients to present certs signed by a trusted root"),
 
@@ -205,12 +209,39 @@ public enum Property {
           + " limits the number of long running scans that can run concurrently per tserver."),
   TSERV_METADATA_READ_AHEAD_MAXCONCURRENT("tserver.metadata.readahead.concurrent.max", "8", PropertyType.COUNT,
       "The maximum number of concurrent metadata read ahead that will execute."),
+  TSERV_SCAN_BATCH_GROWTH_MAX("tserver.scan.batch.growth.max", "16", PropertyType.COUNT,
+      "Scan batches grow, up to this many times the client's batch size, while they fill up and the client asks for the next batch quickly.  They never "
+          + "hold more than table.scan.max.memory.  They shrink, down to the same factor below those sizes, while the tablet server is under memory "
+          + "pressure.  Set to 1 to always use the configured sizes."),
+  TSERV_SCAN_BATCH_TIME_MAX("tserver.scan.batch.time.max", "4s", PropertyType.TIMEDURATION,
+      "The most time a scan spends filling one batch, so that long running scans do not monopolize the read ahead threads.  Clients can ask for a "
+          + "shorter first batch with the first.batch.time hint."),
+  TSERV_SCAN_STREAM_WINDOW_MAX("tserver.scan.stream.window.max", "16", PropertyType.COUNT,
+      "The most batches a scan may read ahead of its client, as requested with the stream.window hint.  Batches read ahead are returned together "
+          + "the next time the client asks for more, and reading resumes as the client consumes them."),
+  TSERV_SCAN_RESULT_CACHE_SIZE("tserver.scan.cache.size", "0", PropertyType.MEMORY,
+      "Specifies the size of the cache for the results of small scans.  A scan whose complete results fit in its first batch is answered from the cache "
+          + "when it is repeated with the same range, columns, authorizations and iterators, until the tablet is written to, its files change or "
+          + "tserver.scan.cache.age.max elapses.  Set to 0 to disable."),
+  TSERV_SCAN_RESULT_CACHE_MAXAGE("tserver.scan.cache.age.max", "1s", PropertyType.TIMEDURATION,
+      "The longest time cached scan results are returned after they were read, which bounds how stale results of iterators that depend on the "
+          + "current time, like the AgeOffFilter, can be."),
+  TSERV_SCAN_EXECUTORS_PREFIX("tserver.scan.executors.", null, PropertyType.PREFIX,
+      "Properties in this category define named scan executors, each with its own threads.  For an executor named foo, set "
+          + "tserver.scan.executors.foo.threads to the number of threads, tserver.scan.executors.foo.prioritizer to the class name of a ScanPrioritizer "
+          + "that orders its queued scans, and tserver.scan.executors.foo.prioritizer.opts.* to options for that prioritizer.  The executor named "
+          + "default runs all scans not dispatched elsewhere, and uses tserver.readahead.concurrent.max threads unless configured.  Threads are resized "
+          + "while running, but new executors are only created when the tablet server starts."),
   TSERV_MIGRATE_MAXCONCURRENT("tserver.migrations.concurrent.max", "1", PropertyType.COUNT,
       "The maximum number of concurrent tablet migrations for a tablet server"),
   TSERV_MAJC_MAXCONCURRENT("tserver.compaction.major.concurrent.max", "3", PropertyType.COUNT,
       "The maximum number of concurrent major compactions for a tablet server"),
   TSERV_MINC_MAXCONCURRENT("tserver.compaction.minor.concurrent.max", "4", PropertyType.COUNT,
       "The maximum number of concurrent minor compactions for a tablet server"),
+  TSERV_MINC_MINCONCURRENT("tserver.compaction.minor.concurrent.min", "1", PropertyType.COUNT,
+      "The minimum number of concurrent minor compactions for a tablet server.  Concurrency is adjusted between this and "
+          + "tserver.compaction.minor.concurrent.max based on memory pressure, held commits, measured minor compaction throughput and scan load.  "
+          + "Set it to the maximum for a fixed number of concurrent minor compactions."),
   TSERV_COMPACTION_WARN_TIME("tserver.compaction.warn.time", "10m", PropertyType.TIMEDURATION,
       "When a compaction has not made progress for this time period, a warning will be logged"),
   TSERV_BLOOM_LOAD_MAXCONCURRENT("tserver.bloom.load.concurrent.max", "4", PropertyType.COUNT,
@@ -315,6 +346,14 @@ public enum Property {
           + "of its files compacted into one.  There is no guarantee an idle tablet will be compacted. "
           + "Compactions of idle tablets are only started when regular compactions are not running. Idle "
           + "compactions only take place for tablets that have one or more files."),
+  TABLE_MAJC_BLOCK_COPY("table.compaction.major.blockcopy", "true", PropertyType.BOOLEAN,
+      "When no compaction iterators are configured and the files being major compacted do not overlap, merge them by copying their compressed data "
+          + "blocks instead of decoding and encoding every key value pair.  Only done for files without delete entries or locality groups that use the "
+          + "same compression as the output file and are not encrypted."),
+  TABLE_MAJC_PARTITION_RATIO("table.compaction.major.partition.ratio", "0.8", PropertyType.FRACTION,
+      "When a major compaction of all of a tablet's files starts and the tablet is larger than this fraction of table.split.threshold, the output is "
+          + "written as two files partitioned at the row the tablet would split at.  When the tablet later splits at that row, neither child shares a file "
+          + "with the other, so the children do not need to rewrite the parent's data.  Set to 0 to disable."),
   TABLE_SPLIT_THRESHOLD("table.split.threshold", "1G", PropertyType.MEMORY, "When combined size of files exceeds this amount a tablet is split."),
   TABLE_MINC_LOGS_MAX("table.compaction.minor.logs.threshold", "3", PropertyType.COUNT,
       "When there are more than this many write-ahead logs against a tablet, it will be minor compacted.  See comment for property tserver.memory.maps.max"),
@@ -324,6 +363,9 @@ public enum Property {
   TABLE_SCAN_MAXMEM("table.scan.max.memory", "512K", PropertyType.MEMORY,
       "The maximum amount of memory that will be used to cache results of a client query/scan. "
           + "Once this limit is reached, the buffered data is sent to the client."),
+  TABLE_SCAN_EXECUTOR("table.scan.executor", "default", PropertyType.STRING,
+      "The name of the scan executor, defined by tserver.scan.executors.*, that runs scans of this table.  A scan may choose a different executor "
+          + "by passing an executor hint.  When no executor with the name exists, the default executor is used."),
   TABLE_FILE_TYPE("table.file.type", RFile.EXTENSION, PropertyType.STRING, "Change the type of file a table writes"),
   TABLE_LOAD_BALANCER("table.balancer", "org.apache.accumulo.server.master.balancer.DefaultLoadBalancer", PropertyType.STRING,
       "This property can be set to allow the LoadBalanceByTable load balancer to change the called Load Balancer for this table"),
@@ -758,33 +758,17 @@ public class Key implements WritableComparable<Key>, Cloneable {
       KeyValue kv = param.get(i);
       Key key = kv.key;
       
-      TKey newKey = null;
-      
-      if (isEqual(prevKey.row, key.row)) {
-        newKey = key.toThrift();
-        newKey.row = null;
-      }
-      
-      if (isEqual(prevKey.colFamily, key.colFamily)) {
-        if (newKey == null)
-          newKey = key.toThrift();
-        newKey.colFamily = null;
-      }
-      
-      if (isEqual(prevKey.colQualifier, key.colQualifier)) {
-        if (newKey == null)
-          newKey = key.toThrift();
-        newKey.colQualifier = null;
-      }
-      
-      if (isEqual(prevKey.colVisibility, key.colVisibility)) {
-        if (newKey == null)
-          newKey = key.toThrift();
-        newKey.colVisibility = null;
-      }
-      
-      if (newKey == null)
-        newKey = key.toThrift();
+      // only wrap the fields that differ from the previous key
+      TKey newKey = new TKey();
+      if (!isEqual(prevKey.row, key.row))
+        newKey.setRow(key.row);
+      if (!isEqual(prevKey.colFamily, key.colFamily))
+        newKey.setColFamily(key.colFamily);
+      if (!isEqual(prevKey.colQualifier, key.colQualifier))
+        newKey.setColQualifier(key.colQualifier);
+      if (!isEqual(prevKey.colVisibility, key.colVisibility))
+        newKey.setColVisibility(key.colVisibility);
+      newKey.setTimestamp(key.timestamp);
       
       tkvl.set(i, new TKeyValue(newKey, ByteBuffer.wrap(kv.value)));
     }
@@ -48,6 +48,7 @@ import org.apache.accumulo.core.file.keyfunctor.KeyFunctor;
 import org.apache.accumulo.core.file.rfile.RFile;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.core.util.CachedConfiguration;
 import org.apache.accumulo.core.util.LoggingRunnable;
 import org.apache.accumulo.core.util.NamingThreadFactory;
@@ -400,6 +401,16 @@ public class BloomFilterLayer {
       reader.setInterruptFlag(flag);
     }
     
+    @Override
+    public void setTimeRange(long minTimestamp, long maxTimestamp) {
+      reader.setTimeRange(minTimestamp, maxTimestamp);
+    }
+    
+    @Override
+    public void setAuthorizations(Authorizations authorizations, byte[] defaultVisibility) {
+      reader.setAuthorizations(authorizations, defaultVisibility);
+    }
+    
   }
   
   public static void main(String[] args) throws IOException {
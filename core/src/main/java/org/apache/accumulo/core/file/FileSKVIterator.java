@@ -21,6 +21,7 @@ import java.io.IOException;
 
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.iterators.system.InterruptibleIterator;
+import org.apache.accumulo.core.security.Authorizations;
 
 public interface FileSKVIterator extends InterruptibleIterator {
   public Key getFirstKey() throws IOException;
@@ -31,5 +32,22 @@ public interface FileSKVIterator extends InterruptibleIterator {
   
   public void closeDeepCopies() throws IOException;
   
+  /**
+   * Tells the reader that only keys with timestamps in the range, inclusive, are wanted, so data that can not affect those keys may be skipped without being
+   * read. Keys outside the range may still be returned, so the caller has to filter them. Applies to seeks after this call, and to deep copies made after it.
+   */
+  public void setTimeRange(long minTimestamp, long maxTimestamp);
+  
+  /**
+   * Tells the reader which authorizations the scan has, so data holding nothing those authorizations can see may be skipped without being read. Keys that are
+   * not visible may still be returned, so the caller has to filter them. Applies to seeks after this call, and to deep copies made after it.
+   * 
+   * @param authorizations
+   *          the authorizations of the scan, or null to read data regardless of its visibility
+   * @param defaultVisibility
+   *          the visibility that keys with an empty visibility are given
+   */
+  public void setAuthorizations(Authorizations authorizations, byte[] defaultVisibility);
+  
   public void close() throws IOException;
 }
@@ -17,6 +17,7 @@
 package org.apache.accumulo.core.file.blockfile;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * 
@@ -38,4 +39,13 @@ public interface BlockFileReader {
   
   public ABlockReader getDataBlock(long offset, long compressedSize, long rawSize) throws IOException;
   
+  /**
+   * Get the compressed bytes of a data block, so that it can be copied to another file without decompressing it.
+   */
+  public InputStream getRawDataBlock(long offset, long compressedSize) throws IOException;
+  
+  public String getCompressionName() throws IOException;
+  
+  public boolean isEncrypted() throws IOException;
+  
 }
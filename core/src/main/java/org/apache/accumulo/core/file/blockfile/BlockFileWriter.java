@@ -17,6 +17,7 @@
 package org.apache.accumulo.core.file.blockfile;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * 
@@ -34,5 +35,16 @@ public interface BlockFileWriter {
   
   public ABlockWriter prepareDataBlock() throws IOException;
   
+  /**
+   * Append a data block whose compressed bytes were obtained from {@link BlockFileReader#getRawDataBlock(long, long)}.
+   * 
+   * @return the offset of the appended block
+   */
+  public long appendRawDataBlock(InputStream in, long compressedSize, long rawSize) throws IOException;
+  
+  public String getCompressionName();
+  
+  public boolean isEncrypted();
+  
   public void close() throws IOException;
 }
@@ -84,6 +84,21 @@ public class CachableBlockFile {
       return _bw;
     }
     
+    @Override
+    public long appendRawDataBlock(InputStream in, long compressedSize, long rawSize) throws IOException {
+      return _bc.appendRawDataBlock(in, compressedSize, rawSize);
+    }
+    
+    @Override
+    public String getCompressionName() {
+      return _bc.getDefaultCompressionName();
+    }
+    
+    @Override
+    public boolean isEncrypted() {
+      return _bc.isEncrypted();
+    }
+    
     public void close() throws IOException {
       
       _bw.close();
@@ -393,6 +408,21 @@ public class CachableBlockFile {
       return getBlock(_lookup, _dCache, new RawBlockLoader(offset, compressedSize, rawSize));
     }
     
+    @Override
+    public InputStream getRawDataBlock(long offset, long compressedSize) throws IOException {
+      return getBCFile().getRawDataBlock(offset, compressedSize);
+    }
+    
+    @Override
+    public String getCompressionName() throws IOException {
+      return getBCFile().getDefaultCompressionName();
+    }
+    
+    @Override
+    public boolean isEncrypted() throws IOException {
+      return getBCFile().isEncrypted();
+    }
+    
     public synchronized void close() throws IOException {
       if (closed)
         return;
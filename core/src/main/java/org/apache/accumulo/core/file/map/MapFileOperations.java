@@ -37,6 +37,7 @@ import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.system.MapFileIterator;
 import org.apache.accumulo.core.iterators.system.SequenceFileIterator;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -132,6 +133,16 @@ public class MapFileOperations extends FileOperations {
     public void setInterruptFlag(AtomicBoolean flag) {
       ((FileSKVIterator) reader).setInterruptFlag(flag);
     }
+    
+    @Override
+    public void setTimeRange(long minTimestamp, long maxTimestamp) {
+      ((FileSKVIterator) reader).setTimeRange(minTimestamp, maxTimestamp);
+    }
+    
+    @Override
+    public void setAuthorizations(Authorizations authorizations, byte[] defaultVisibility) {
+      ((FileSKVIterator) reader).setAuthorizations(authorizations, defaultVisibility);
+    }
   }
   
   @Override
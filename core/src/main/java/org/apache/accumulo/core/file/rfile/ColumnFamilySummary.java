@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.file.rfile.bcfile.Utils;
+
+/**
+ * The column families present in a data block, stored with the block's index entry so that seeks fetching specific column families can skip blocks that
+ * contain none of them without reading them. Blocks with few column families store them exactly, blocks with many store a small bloom filter, which may
+ * report that a family is present when it is not but never the reverse.
+ */
+public class ColumnFamilySummary {
+
+  /**
+   * Blocks with more column families than this, or whose column families take up more than {@link #MAX_SET_BYTES}, store a bloom filter.
+   */
+  static final int MAX_SET_SIZE = 16;
+  static final int MAX_SET_BYTES = 512;
+
+  private static final int BLOOM_WORDS = 4;
+  private static final int BLOOM_BITS = BLOOM_WORDS * 64;
+  private static final int BLOOM_HASHES = 3;
+
+  private static final byte TYPE_SET = 1;
+  private static final byte TYPE_BLOOM = 2;
+
+  // exactly the column families in the block, or null when the bloom filter is used
+  private final ByteSequence[] families;
+  private final long[] bloom;
+
+  private ColumnFamilySummary(ByteSequence[] families, long[] bloom) {
+    this.families = families;
+    this.bloom = bloom;
+  }
+
+  /**
+   * Collects the column families appended to a block.
+   */
+  static class Builder {
+    private List<ByteSequence> families = new ArrayList<ByteSequence>();
+    private int familyBytes = 0;
+    private long[] bloom = null;
+    private ByteSequence lastFamily = null;
+
+    void add(ByteSequence cf) {
+      // column families usually repeat for consecutive keys
+      if (lastFamily != null && lastFamily.equals(cf))
+        return;
+
+      if (bloom != null) {
+        setBits(bloom, cf);
+        lastFamily = copy(cf);
+        return;
+      }
+
+      for (ByteSequence family : families) {
+        if (family.equals(cf)) {
+          lastFamily = family;
+          return;
+        }
+      }
+
+      lastFamily = copy(cf);
+      families.add(lastFamily);
+      familyBytes += cf.length();
+
+      if (families.size() > MAX_SET_SIZE || familyBytes > MAX_SET_BYTES) {
+        bloom = new long[BLOOM_WORDS];
+        for (ByteSequence family : families)
+          setBits(bloom, family);
+        families = null;
+      }
+    }
+
+    ColumnFamilySummary build() {
+      if (bloom != null)
+        return new ColumnFamilySummary(null, bloom);
+      return new ColumnFamilySummary(families.toArray(new ByteSequence[families.size()]), null);
+    }
+
+    void reset() {
+      families = new ArrayList<ByteSequence>();
+      familyBytes = 0;
+      bloom = null;
+      lastFamily = null;
+    }
+
+    private static ByteSequence copy(ByteSequence cf) {
+      return new ArrayByteSequence(cf.toArray());
+    }
+  }
+
+  private static int bit(int hash, int i) {
+    // double hashing, using the high bits of the mixed hash as the second hash
+    int h1 = hash * 0x9E3779B9;
+    int h2 = (h1 >>> 16) | 1;
+    return ((h1 + i * h2) >>> 1) % BLOOM_BITS;
+  }
+
+  private static void setBits(long[] bloom, ByteSequence cf) {
+    int hash = cf.hashCode();
+    for (int i = 0; i < BLOOM_HASHES; i++) {
+      int bit = bit(hash, i);
+      bloom[bit >>> 6] |= 1L << (bit & 63);
+    }
+  }
+
+  /**
+   * @return false if the block definitely does not contain the column family
+   */
+  public boolean mightContain(ByteSequence cf) {
+    if (families != null) {
+      for (ByteSequence family : families)
+        if (family.equals(cf))
+          return true;
+      return false;
+    }
+
+    int hash = cf.hashCode();
+    for (int i = 0; i < BLOOM_HASHES; i++) {
+      int bit = bit(hash, i);
+      if ((bloom[bit >>> 6] & (1L << (bit & 63))) == 0)
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return false if the block definitely contains none of the column families
+   */
+  public boolean mightContainAny(Collection<ByteSequence> cfs) {
+    if (families != null && families.length < cfs.size()) {
+      for (ByteSequence family : families)
+        if (cfs.contains(family))
+          return true;
+      return false;
+    }
+
+    for (ByteSequence cf : cfs)
+      if (mightContain(cf))
+        return true;
+    return false;
+  }
+
+  /**
+   * @return true if the block definitely contains only column families in the given set
+   */
+  public boolean containsOnly(Collection<ByteSequence> cfs) {
+    if (families == null)
+      return false;
+    for (ByteSequence family : families)
+      if (!cfs.contains(family))
+        return false;
+    return true;
+  }
+
+  /**
+   * @return the column families in the block, or null when only a bloom filter of them is known
+   */
+  public ByteSequence[] getColumnFamilies() {
+    return families;
+  }
+
+  void write(DataOutput out) throws IOException {
+    if (families != null) {
+      out.writeByte(TYPE_SET);
+      Utils.writeVInt(out, families.length);
+      for (ByteSequence family : families) {
+        Utils.writeVInt(out, family.length());
+        out.write(family.getBackingArray(), family.offset(), family.length());
+      }
+    } else {
+      out.writeByte(TYPE_BLOOM);
+      Utils.writeVInt(out, bloom.length);
+      for (long word : bloom)
+        out.writeLong(word);
+    }
+  }
+
+  static ColumnFamilySummary read(DataInput in) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case TYPE_SET:
+        ByteSequence[] families = new ByteSequence[Utils.readVInt(in)];
+        for (int i = 0; i < families.length; i++) {
+          byte[] family = new byte[Utils.readVInt(in)];
+          in.readFully(family);
+          families[i] = new ArrayByteSequence(family);
+        }
+        return new ColumnFamilySummary(families, null);
+      case TYPE_BLOOM:
+        long[] bloom = new long[Utils.readVInt(in)];
+        for (int i = 0; i < bloom.length; i++)
+          bloom[i] = in.readLong();
+        return new ColumnFamilySummary(null, bloom);
+      default:
+        throw new IOException("Unknown column family summary type " + type);
+    }
+  }
+
+  @Override
+  public String toString() {
+    if (families == null)
+      return "<BLOOM>";
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < families.length; i++) {
+      if (i > 0)
+        sb.append(", ");
+      sb.append(families[i]);
+    }
+    return sb.append("]").toString();
+  }
+}
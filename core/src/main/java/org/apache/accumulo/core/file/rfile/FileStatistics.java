@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.NoSuchMetaStoreException;
+import org.apache.commons.lang.mutable.MutableLong;
+import org.apache.hadoop.io.Writable;
+
+/**
+ * Statistics about the entries in a file, gathered as the file is written and stored in its own meta block. These are cheap to read compared to scanning the
+ * file, so they can be used when deciding which files to compact.
+ */
+public class FileStatistics implements Writable {
+
+  public static final String META_NAME = "RFile.stats";
+
+  private static final int VERSION = 1;
+
+  /**
+   * Stop tracking column families once this many distinct families are seen, same as the default locality group does.
+   */
+  public static final int MAX_CF = RFile.Writer.MAX_CF_IN_DLG;
+
+  private long creationTime;
+  private long entries = 0;
+  private long deletes = 0;
+  private long minTimestamp = Long.MAX_VALUE;
+  private long maxTimestamp = Long.MIN_VALUE;
+  private Map<ByteSequence,MutableLong> columnFamilies = new HashMap<ByteSequence,MutableLong>();
+
+  public FileStatistics() {
+    this(System.currentTimeMillis());
+  }
+
+  public FileStatistics(long creationTime) {
+    this.creationTime = creationTime;
+  }
+
+  public void update(Key key) {
+    entries++;
+    if (key.isDeleted())
+      deletes++;
+
+    long ts = key.getTimestamp();
+    if (ts < minTimestamp)
+      minTimestamp = ts;
+    if (ts > maxTimestamp)
+      maxTimestamp = ts;
+
+    if (columnFamilies == null)
+      return;
+
+    ByteSequence cf = key.getColumnFamilyData();
+    MutableLong count = columnFamilies.get(cf);
+    if (count == null) {
+      if (columnFamilies.size() >= MAX_CF) {
+        // stop keeping track, there are too many
+        columnFamilies = null;
+        return;
+      }
+      count = new MutableLong(0);
+      columnFamilies.put(new ArrayByteSequence(cf.toArray()), count);
+    }
+    count.increment();
+  }
+
+  /**
+   * Adds the statistics of another file to these, used when the entries of that file are copied into the file these statistics describe.
+   */
+  public void merge(FileStatistics other) {
+    entries += other.entries;
+    deletes += other.deletes;
+    minTimestamp = Math.min(minTimestamp, other.minTimestamp);
+    maxTimestamp = Math.max(maxTimestamp, other.maxTimestamp);
+
+    if (columnFamilies == null)
+      return;
+
+    if (other.columnFamilies == null) {
+      columnFamilies = null;
+      return;
+    }
+
+    for (Entry<ByteSequence,MutableLong> entry : other.columnFamilies.entrySet()) {
+      MutableLong count = columnFamilies.get(entry.getKey());
+      if (count == null) {
+        if (columnFamilies.size() >= MAX_CF) {
+          columnFamilies = null;
+          return;
+        }
+        count = new MutableLong(0);
+        columnFamilies.put(entry.getKey(), count);
+      }
+      count.add(entry.getValue().longValue());
+    }
+  }
+
+  /**
+   * @return the time at which the file started being written
+   */
+  public long getCreationTime() {
+    return creationTime;
+  }
+
+  public long getNumEntries() {
+    return entries;
+  }
+
+  public long getNumDeletes() {
+    return deletes;
+  }
+
+  /**
+   * @return the smallest timestamp in the file, or Long.MAX_VALUE if the file is empty
+   */
+  public long getMinTimestamp() {
+    return minTimestamp;
+  }
+
+  /**
+   * @return the largest timestamp in the file, or Long.MIN_VALUE if the file is empty
+   */
+  public long getMaxTimestamp() {
+    return maxTimestamp;
+  }
+
+  /**
+   * @return the number of entries per column family, or null if the file had too many column families to track
+   */
+  public Map<ByteSequence,Long> getColumnFamilyCounts() {
+    if (columnFamilies == null)
+      return null;
+
+    Map<ByteSequence,Long> counts = new HashMap<ByteSequence,Long>();
+    for (Entry<ByteSequence,MutableLong> entry : columnFamilies.entrySet())
+      counts.put(entry.getKey(), entry.getValue().toLong());
+    return Collections.unmodifiableMap(counts);
+  }
+
+  /**
+   * @return the fraction of entries in the file that are delete markers
+   */
+  public double getDeleteRatio() {
+    if (entries == 0)
+      return 0;
+    return deletes / (double) entries;
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    int version = in.readInt();
+    if (version != VERSION)
+      throw new IOException("Unexpected file statistics version " + version);
+
+    creationTime = in.readLong();
+    entries = in.readLong();
+    deletes = in.readLong();
+    minTimestamp = in.readLong();
+    maxTimestamp = in.readLong();
+
+    int size = in.readInt();
+    if (size == -1) {
+      columnFamilies = null;
+    } else {
+      columnFamilies = new HashMap<ByteSequence,MutableLong>();
+      for (int i = 0; i < size; i++) {
+        byte cf[] = new byte[in.readInt()];
+        in.readFully(cf);
+        columnFamilies.put(new ArrayByteSequence(cf), new MutableLong(in.readLong()));
+      }
+    }
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(VERSION);
+    out.writeLong(creationTime);
+    out.writeLong(entries);
+    out.writeLong(deletes);
+    out.writeLong(minTimestamp);
+    out.writeLong(maxTimestamp);
+
+    if (columnFamilies == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(columnFamilies.size());
+      for (Entry<ByteSequence,MutableLong> entry : columnFamilies.entrySet()) {
+        out.writeInt(entry.getKey().length());
+        out.write(entry.getKey().getBackingArray(), entry.getKey().offset(), entry.getKey().length());
+        out.writeLong(entry.getValue().longValue());
+      }
+    }
+  }
+
+  /**
+   * Reads the statistics stored in a file.
+   *
+   * @return the statistics, or null if the file was written before statistics were recorded
+   */
+  public static FileStatistics read(FileSKVIterator reader) throws IOException {
+    DataInputStream in;
+    try {
+      in = reader.getMetaStore(META_NAME);
+    } catch (NoSuchMetaStoreException e) {
+      return null;
+    }
+
+    if (in == null)
+      return null;
+
+    try {
+      FileStatistics stats = new FileStatistics();
+      stats.readFields(in);
+      return stats;
+    } finally {
+      in.close();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "entries:" + entries + " deletes:" + deletes + " minTimestamp:" + minTimestamp + " maxTimestamp:" + maxTimestamp + " columnFamilies:"
+        + (columnFamilies == null ? "<UNKNOWN>" : columnFamilies.size());
+  }
+}
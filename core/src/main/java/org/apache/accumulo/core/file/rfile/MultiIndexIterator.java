@@ -33,6 +33,7 @@ import org.apache.accumulo.core.file.rfile.MultiLevelIndex.IndexEntry;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.system.HeapIterator;
+import org.apache.accumulo.core.security.Authorizations;
 
 class MultiIndexIterator extends HeapIterator implements FileSKVIterator {
   
@@ -93,4 +94,14 @@ class MultiIndexIterator extends HeapIterator implements FileSKVIterator {
     throw new UnsupportedOperationException();
   }
   
+  @Override
+  public void setTimeRange(long minTimestamp, long maxTimestamp) {
+    throw new UnsupportedOperationException();
+  }
+  
+  @Override
+  public void setAuthorizations(Authorizations authorizations, byte[] defaultVisibility) {
+    throw new UnsupportedOperationException();
+  }
+  
 }
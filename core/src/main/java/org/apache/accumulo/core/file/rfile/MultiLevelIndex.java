@@ -42,25 +42,48 @@ import org.apache.hadoop.io.WritableComparable;
 
 public class MultiLevelIndex {
   
+  // flags for the summaries of a block stored with its index entry
+  private static final int HAS_COLUMN_FAMILIES = 0x01;
+  private static final int HAS_TIMESTAMPS = 0x02;
+  private static final int HAS_VISIBILITIES = 0x04;
+  
   public static class IndexEntry implements WritableComparable<IndexEntry> {
     private Key key;
     private int entries;
     private long offset;
     private long compressedSize;
     private long rawSize;
+    private ColumnFamilySummary columnFamilies;
+    private TimestampSummary timestamps;
+    private VisibilitySummary visibilities;
     private boolean newFormat;
+    private boolean hasSummaries;
     
     IndexEntry(Key k, int e, long offset, long compressedSize, long rawSize) {
+      this(k, e, offset, compressedSize, rawSize, null, null, null);
+    }
+    
+    IndexEntry(Key k, int e, long offset, long compressedSize, long rawSize, ColumnFamilySummary columnFamilies, TimestampSummary timestamps,
+        VisibilitySummary visibilities) {
       this.key = k;
       this.entries = e;
       this.offset = offset;
       this.compressedSize = compressedSize;
       this.rawSize = rawSize;
+      this.columnFamilies = columnFamilies;
+      this.timestamps = timestamps;
+      this.visibilities = visibilities;
       newFormat = true;
+      hasSummaries = true;
     }
     
     public IndexEntry(boolean newFormat) {
+      this(newFormat, false);
+    }
+    
+    IndexEntry(boolean newFormat, boolean hasSummaries) {
       this.newFormat = newFormat;
+      this.hasSummaries = hasSummaries;
     }
     
     @Override
@@ -77,6 +100,18 @@ public class MultiLevelIndex {
         compressedSize = -1;
         rawSize = -1;
       }
+      columnFamilies = null;
+      timestamps = null;
+      visibilities = null;
+      if (hasSummaries) {
+        byte summaries = in.readByte();
+        if ((summaries & HAS_COLUMN_FAMILIES) != 0)
+          columnFamilies = ColumnFamilySummary.read(in);
+        if ((summaries & HAS_TIMESTAMPS) != 0)
+          timestamps = TimestampSummary.read(in);
+        if ((summaries & HAS_VISIBILITIES) != 0)
+          visibilities = VisibilitySummary.read(in);
+      }
     }
     
     @Override
@@ -88,6 +123,16 @@ public class MultiLevelIndex {
         Utils.writeVLong(out, compressedSize);
         Utils.writeVLong(out, rawSize);
       }
+      if (hasSummaries) {
+        out.writeByte((columnFamilies == null ? 0 : HAS_COLUMN_FAMILIES) | (timestamps == null ? 0 : HAS_TIMESTAMPS)
+            | (visibilities == null ? 0 : HAS_VISIBILITIES));
+        if (columnFamilies != null)
+          columnFamilies.write(out);
+        if (timestamps != null)
+          timestamps.write(out);
+        if (visibilities != null)
+          visibilities.write(out);
+      }
     }
     
     public Key getKey() {
@@ -110,6 +155,27 @@ public class MultiLevelIndex {
       return rawSize;
     }
     
+    /**
+     * @return the column families in the data block, or null if they are not known
+     */
+    public ColumnFamilySummary getColumnFamilies() {
+      return columnFamilies;
+    }
+    
+    /**
+     * @return the timestamps in the data block, or in all the data blocks under the index block, or null if they are not known
+     */
+    public TimestampSummary getTimestamps() {
+      return timestamps;
+    }
+    
+    /**
+     * @return the column visibilities in the data block, or in all the data blocks under the index block, or null if they are not known
+     */
+    public VisibilitySummary getVisibilities() {
+      return visibilities;
+    }
+    
     @Override
     public int compareTo(IndexEntry o) {
       return key.compareTo(o.key);
@@ -122,11 +188,13 @@ public class MultiLevelIndex {
     private int[] offsets;
     private byte[] data;
     private boolean newFormat;
+    private boolean hasSummaries;
     
-    SerializedIndex(int[] offsets, byte[] data, boolean newFormat) {
+    SerializedIndex(int[] offsets, byte[] data, boolean newFormat, boolean hasSummaries) {
       this.offsets = offsets;
       this.data = data;
       this.newFormat = newFormat;
+      this.hasSummaries = hasSummaries;
     }
     
     @Override
@@ -140,7 +208,7 @@ public class MultiLevelIndex {
       ByteArrayInputStream bais = new ByteArrayInputStream(data, offsets[index], len);
       DataInputStream dis = new DataInputStream(bais);
       
-      IndexEntry ie = new IndexEntry(newFormat);
+      IndexEntry ie = new IndexEntry(newFormat, hasSummaries);
       try {
         ie.readFields(dis);
       } catch (IOException e) {
@@ -210,6 +278,9 @@ public class MultiLevelIndex {
     SerializedIndex index;
     KeyIndex keyIndex;
     private boolean hasNext;
+    // the timestamps of everything under the entries added to this block
+    private TimestampSummary.Builder timestamps = new TimestampSummary.Builder();
+    private VisibilitySummary.Builder visibilities = new VisibilitySummary.Builder();
     
     public IndexBlock(int level, int totalAdded) {
       // System.out.println("IndexBlock("+level+","+levelCount+","+totalAdded+")");
@@ -224,9 +295,12 @@ public class MultiLevelIndex {
     
     public IndexBlock() {}
     
-    public void add(Key key, int value, long offset, long compressedSize, long rawSize) throws IOException {
+    public void add(Key key, int value, long offset, long compressedSize, long rawSize, ColumnFamilySummary columnFamilies, TimestampSummary timestamps,
+        VisibilitySummary visibilities) throws IOException {
       offsets.add(indexOut.size());
-      new IndexEntry(key, value, offset, compressedSize, rawSize).write(indexOut);
+      new IndexEntry(key, value, offset, compressedSize, rawSize, columnFamilies, timestamps, visibilities).write(indexOut);
+      this.timestamps.add(timestamps);
+      this.visibilities.add(visibilities);
     }
     
     int getSize() {
@@ -252,7 +326,7 @@ public class MultiLevelIndex {
     
     public void readFields(DataInput in, int version) throws IOException {
       
-      if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7) {
+      if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7 || version == RFile.RINDEX_VER_8) {
         level = in.readInt();
         offset = in.readInt();
         hasNext = in.readBoolean();
@@ -267,7 +341,7 @@ public class MultiLevelIndex {
         byte[] serializedIndex = new byte[indexSize];
         in.readFully(serializedIndex);
         
-        index = new SerializedIndex(offsets, serializedIndex, true);
+        index = new SerializedIndex(offsets, serializedIndex, true, version == RFile.RINDEX_VER_8);
         keyIndex = new KeyIndex(offsets, serializedIndex);
       } else if (version == RFile.RINDEX_VER_3) {
         level = 0;
@@ -295,7 +369,7 @@ public class MultiLevelIndex {
         }
         
         byte[] serializedIndex = baos.toByteArray();
-        index = new SerializedIndex(oia, serializedIndex, false);
+        index = new SerializedIndex(oia, serializedIndex, false, false);
         keyIndex = new KeyIndex(oia, serializedIndex);
       } else if (version == RFile.RINDEX_VER_4) {
         level = 0;
@@ -312,7 +386,7 @@ public class MultiLevelIndex {
         byte[] indexData = new byte[size];
         in.readFully(indexData);
         
-        index = new SerializedIndex(offsets, indexData, false);
+        index = new SerializedIndex(offsets, indexData, false, false);
         keyIndex = new KeyIndex(offsets, indexData);
       } else {
         throw new RuntimeException("Unexpected version " + version);
@@ -344,6 +418,14 @@ public class MultiLevelIndex {
       this.hasNext = b;
     }
     
+    TimestampSummary getTimestamps() {
+      return timestamps.build();
+    }
+    
+    VisibilitySummary getVisibilities() {
+      return visibilities.build();
+    }
+    
   }
   
   /**
@@ -369,10 +451,11 @@ public class MultiLevelIndex {
       
       DataInputStream dis = new DataInputStream(new ByteArrayInputStream(baos.toByteArray()));
       
-      IndexEntry ie = new IndexEntry(true);
+      IndexEntry ie = new IndexEntry(true, true);
       for (int i = 0; i < buffered; i++) {
         ie.readFields(dis);
-        writer.add(ie.getKey(), ie.getNumEntries(), ie.getOffset(), ie.getCompressedSize(), ie.getRawSize());
+        writer.add(ie.getKey(), ie.getNumEntries(), ie.getOffset(), ie.getCompressedSize(), ie.getRawSize(), ie.getColumnFamilies(), ie.getTimestamps(),
+            ie.getVisibilities());
       }
       
       buffered = 0;
@@ -382,17 +465,27 @@ public class MultiLevelIndex {
     }
     
     public void add(Key key, int data, long offset, long compressedSize, long rawSize) throws IOException {
+      add(key, data, offset, compressedSize, rawSize, null, null, null);
+    }
+    
+    public void add(Key key, int data, long offset, long compressedSize, long rawSize, ColumnFamilySummary columnFamilies, TimestampSummary timestamps,
+        VisibilitySummary visibilities) throws IOException {
       if (buffer.size() > (10 * 1 << 20)) {
         flush();
       }
       
-      new IndexEntry(key, data, offset, compressedSize, rawSize).write(buffer);
+      new IndexEntry(key, data, offset, compressedSize, rawSize, columnFamilies, timestamps, visibilities).write(buffer);
       buffered++;
     }
     
     public void addLast(Key key, int data, long offset, long compressedSize, long rawSize) throws IOException {
+      addLast(key, data, offset, compressedSize, rawSize, null, null, null);
+    }
+    
+    public void addLast(Key key, int data, long offset, long compressedSize, long rawSize, ColumnFamilySummary columnFamilies, TimestampSummary timestamps,
+        VisibilitySummary visibilities) throws IOException {
       flush();
-      writer.addLast(key, data, offset, compressedSize, rawSize);
+      writer.addLast(key, data, offset, compressedSize, rawSize, columnFamilies, timestamps, visibilities);
     }
     
     public void close(DataOutput out) throws IOException {
@@ -417,14 +510,15 @@ public class MultiLevelIndex {
       levels = new ArrayList<IndexBlock>();
     }
     
-    private void add(int level, Key key, int data, long offset, long compressedSize, long rawSize) throws IOException {
+    private void add(int level, Key key, int data, long offset, long compressedSize, long rawSize, ColumnFamilySummary columnFamilies,
+        TimestampSummary timestamps, VisibilitySummary visibilities) throws IOException {
       if (level == levels.size()) {
         levels.add(new IndexBlock(level, 0));
       }
       
       IndexBlock iblock = levels.get(level);
       
-      iblock.add(key, data, offset, compressedSize, rawSize);
+      iblock.add(key, data, offset, compressedSize, rawSize, columnFamilies, timestamps, visibilities);
     }
     
     private void flush(int level, Key lastKey, boolean last) throws IOException {
@@ -439,7 +533,7 @@ public class MultiLevelIndex {
         iblock.write(out);
         out.close();
         
-        add(level + 1, lastKey, 0, out.getStartPos(), out.getCompressedSize(), out.getRawSize());
+        add(level + 1, lastKey, 0, out.getStartPos(), out.getCompressedSize(), out.getRawSize(), null, iblock.getTimestamps(), iblock.getVisibilities());
         flush(level + 1, lastKey, last);
         
         if (last)
@@ -449,18 +543,20 @@ public class MultiLevelIndex {
       }
     }
     
-    public void add(Key key, int data, long offset, long compressedSize, long rawSize) throws IOException {
+    public void add(Key key, int data, long offset, long compressedSize, long rawSize, ColumnFamilySummary columnFamilies, TimestampSummary timestamps,
+        VisibilitySummary visibilities) throws IOException {
       totalAdded++;
-      add(0, key, data, offset, compressedSize, rawSize);
+      add(0, key, data, offset, compressedSize, rawSize, columnFamilies, timestamps, visibilities);
       flush(0, key, false);
     }
     
-    public void addLast(Key key, int data, long offset, long compressedSize, long rawSize) throws IOException {
+    public void addLast(Key key, int data, long offset, long compressedSize, long rawSize, ColumnFamilySummary columnFamilies, TimestampSummary timestamps,
+        VisibilitySummary visibilities) throws IOException {
       if (addedLast)
         throw new IllegalStateException("already added last");
       
       totalAdded++;
-      add(0, key, data, offset, compressedSize, rawSize);
+      add(0, key, data, offset, compressedSize, rawSize, columnFamilies, timestamps, visibilities);
       flush(0, key, true);
       addedLast = true;
       
@@ -723,7 +819,7 @@ public class MultiLevelIndex {
       
       size = 0;
       
-      if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7) {
+      if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7 || version == RFile.RINDEX_VER_8) {
         size = in.readInt();
       }
       
@@ -769,6 +865,35 @@ public class MultiLevelIndex {
     public Key getLastKey() {
       return rootBlock.getIndex().get(rootBlock.getIndex().size() - 1).getKey();
     }
+    
+    /**
+     * @return the timestamps of all the data in the index, or null if they are not known
+     */
+    public TimestampSummary getTimestamps() {
+      if (size == 0)
+        return null;
+      
+      TimestampSummary.Builder builder = new TimestampSummary.Builder();
+      for (IndexEntry ie : rootBlock.getIndex()) {
+        if (ie.getTimestamps() == null)
+          return null;
+        builder.add(ie.getTimestamps());
+      }
+      return builder.build();
+    }
+    
+    /**
+     * @return the column visibilities of all the data in the index, or null if they are not known
+     */
+    public VisibilitySummary getVisibilities() {
+      if (size == 0)
+        return null;
+      
+      VisibilitySummary.Builder builder = new VisibilitySummary.Builder();
+      for (IndexEntry ie : rootBlock.getIndex())
+        builder.add(ie.getVisibilities());
+      return builder.build();
+    }
   }
   
 }
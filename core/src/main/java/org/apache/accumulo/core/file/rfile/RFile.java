@@ -21,6 +21,7 @@ import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -62,8 +63,11 @@ import org.apache.accumulo.core.iterators.system.HeapIterator;
 import org.apache.accumulo.core.iterators.system.InterruptibleIterator;
 import org.apache.accumulo.core.iterators.system.LocalityGroupIterator;
 import org.apache.accumulo.core.iterators.system.LocalityGroupIterator.LocalityGroup;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.VisibilityCache;
 import org.apache.accumulo.core.util.MutableByteSequence;
 import org.apache.commons.lang.mutable.MutableLong;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.log4j.Logger;
 
@@ -76,6 +80,8 @@ public class RFile {
   private RFile() {}
   
   private static final int RINDEX_MAGIC = 0x20637474;
+  // index entries include the column families, range of timestamps and column visibilities in blocks
+  static final int RINDEX_VER_8 = 8;
   static final int RINDEX_VER_7 = 7;
   static final int RINDEX_VER_6 = 6;
   // static final int RINDEX_VER_5 = 5; // unreleased
@@ -131,6 +137,30 @@ public class RFile {
       this.firstKey = new Key(key);
     }
     
+    private void mergeColumnCounts(LocalityGroupMetadata other) {
+      if (columnFamilies == null)
+        return;
+      
+      if (other.columnFamilies == null) {
+        // the other file stopped keeping track, so can not know the counts
+        columnFamilies = null;
+        return;
+      }
+      
+      for (Entry<ByteSequence,MutableLong> entry : other.columnFamilies.entrySet()) {
+        MutableLong count = columnFamilies.get(entry.getKey());
+        if (count == null) {
+          if (columnFamilies.size() > Writer.MAX_CF_IN_DLG) {
+            columnFamilies = null;
+            return;
+          }
+          count = new MutableLong(0);
+          columnFamilies.put(entry.getKey(), count);
+        }
+        count.add(entry.getValue().longValue());
+      }
+    }
+    
     public void updateColumnCount(Key key) {
       
       if (isDefaultLG && columnFamilies == null) {
@@ -295,6 +325,9 @@ public class RFile {
     private int nextBlock = 0;
     
     private Key lastKeyInBlock = null;
+    private ColumnFamilySummary.Builder blockColumnFamilies = new ColumnFamilySummary.Builder();
+    private TimestampSummary.Builder blockTimestamps = new TimestampSummary.Builder();
+    private VisibilitySummary.Builder blockVisibilities = new VisibilitySummary.Builder();
     
     private boolean dataClosed = false;
     private boolean closed = false;
@@ -303,6 +336,11 @@ public class RFile {
     
     private HashSet<ByteSequence> previousColumnFamilies;
     
+    private FileStatistics statistics = new FileStatistics();
+    
+    // the last block copied from another file, it is added to the index once it is known whether it is the last block of the locality group
+    private IndexEntry pendingBlock = null;
+    
     public Writer(BlockFileWriter bfw, int blockSize) throws IOException {
       this(bfw, blockSize, (int) AccumuloConfiguration.getDefaultConfiguration().getMemoryInBytes(Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE_INDEX));
     }
@@ -327,7 +365,7 @@ public class RFile {
       ABlockWriter mba = fileWriter.prepareMetaBlock("RFile.index");
       
       mba.writeInt(RINDEX_MAGIC);
-      mba.writeInt(RINDEX_VER_7);
+      mba.writeInt(RINDEX_VER_8);
       
       if (currentLocalityGroup != null)
         localityGroups.add(currentLocalityGroup);
@@ -340,6 +378,12 @@ public class RFile {
       
       mba.close();
       
+      if (statistics != null) {
+        ABlockWriter sba = fileWriter.prepareMetaBlock(FileStatistics.META_NAME);
+        statistics.write(sba);
+        sba.close();
+      }
+      
       fileWriter.close();
       
       closed = true;
@@ -355,6 +399,8 @@ public class RFile {
       
       if (blockWriter != null) {
         closeBlock(lastKeyInBlock, true);
+      } else {
+        flushPendingBlock(true);
       }
     }
     
@@ -370,12 +416,15 @@ public class RFile {
       }
       
       currentLocalityGroup.updateColumnCount(key);
+      if (statistics != null)
+        statistics.update(key);
       
       if (currentLocalityGroup.getFirstKey() == null) {
         currentLocalityGroup.setFirstKey(key);
       }
       
       if (blockWriter == null) {
+        flushPendingBlock(false);
         blockWriter = fileWriter.prepareDataBlock();
       } else if (blockWriter.getRawSize() > blockSize) {
         closeBlock(prevKey, false);
@@ -386,6 +435,9 @@ public class RFile {
       
       rk.write(blockWriter);
       value.write(blockWriter);
+      blockColumnFamilies.add(key.getColumnFamilyData());
+      blockTimestamps.add(key);
+      blockVisibilities.add(key.getColumnVisibilityData());
       entries++;
       
       prevKey = new Key(key);
@@ -396,17 +448,130 @@ public class RFile {
     private void closeBlock(Key key, boolean lastBlock) throws IOException {
       blockWriter.close();
       
+      ColumnFamilySummary columnFamilies = blockColumnFamilies.build();
+      TimestampSummary timestamps = blockTimestamps.build();
+      VisibilitySummary visibilities = blockVisibilities.build();
       if (lastBlock)
-        currentLocalityGroup.indexWriter.addLast(key, entries, blockWriter.getStartPos(), blockWriter.getCompressedSize(), blockWriter.getRawSize());
+        currentLocalityGroup.indexWriter.addLast(key, entries, blockWriter.getStartPos(), blockWriter.getCompressedSize(), blockWriter.getRawSize(),
+            columnFamilies, timestamps, visibilities);
       else
-        currentLocalityGroup.indexWriter.add(key, entries, blockWriter.getStartPos(), blockWriter.getCompressedSize(), blockWriter.getRawSize());
+        currentLocalityGroup.indexWriter.add(key, entries, blockWriter.getStartPos(), blockWriter.getCompressedSize(), blockWriter.getRawSize(),
+            columnFamilies, timestamps, visibilities);
       
+      blockColumnFamilies.reset();
+      blockTimestamps.reset();
+      blockVisibilities.reset();
       blockWriter = null;
       lastKeyInBlock = null;
       entries = 0;
       nextBlock++;
     }
     
+    private void flushPendingBlock(boolean lastBlock) throws IOException {
+      if (pendingBlock == null)
+        return;
+      
+      if (lastBlock)
+        currentLocalityGroup.indexWriter.addLast(pendingBlock.getKey(), pendingBlock.getNumEntries(), pendingBlock.getOffset(),
+            pendingBlock.getCompressedSize(), pendingBlock.getRawSize(), pendingBlock.getColumnFamilies(), pendingBlock.getTimestamps(),
+            pendingBlock.getVisibilities());
+      else
+        currentLocalityGroup.indexWriter.add(pendingBlock.getKey(), pendingBlock.getNumEntries(), pendingBlock.getOffset(), pendingBlock.getCompressedSize(),
+            pendingBlock.getRawSize(), pendingBlock.getColumnFamilies(), pendingBlock.getTimestamps(),
+            pendingBlock.getVisibilities());
+      
+      pendingBlock = null;
+    }
+    
+    /**
+     * Determines if {@link #appendDataBlocks(Reader)} can be used to copy the data of a file. This requires that both files only have a default locality group,
+     * use the same compression, and are not encrypted. This file must either be writing its default locality group or not have started any locality group.
+     */
+    public boolean canAppendDataBlocks(Reader reader) throws IOException {
+      if (dataClosed || !previousColumnFamilies.isEmpty())
+        return false;
+      
+      if (currentLocalityGroup != null && !currentLocalityGroup.isDefaultLG)
+        return false;
+      
+      if (reader.version != RINDEX_VER_6 && reader.version != RINDEX_VER_7 && reader.version != RINDEX_VER_8)
+        return false;
+      
+      if (reader.localityGroups.size() != 1 || !reader.localityGroups.get(0).isDefaultLG)
+        return false;
+      
+      if (fileWriter.isEncrypted() || reader.reader.isEncrypted())
+        return false;
+      
+      return fileWriter.getCompressionName().equals(reader.reader.getCompressionName());
+    }
+    
+    /**
+     * Appends all of the data in a file by copying its compressed data blocks, without decoding any keys. The keys in the file must sort after any keys
+     * previously appended. Only the index is rebuilt, so this is much cheaper than appending each key value pair when merging files that do not overlap. Starts
+     * the default locality group if no locality group was started.
+     * 
+     * @see #canAppendDataBlocks(Reader)
+     */
+    public void appendDataBlocks(Reader reader) throws IOException {
+      if (!canAppendDataBlocks(reader)) {
+        throw new IllegalArgumentException("Can not copy data blocks of file");
+      }
+      
+      if (currentLocalityGroup == null) {
+        startDefaultLocalityGroup();
+      }
+      
+      LocalityGroupMetadata lgm = reader.localityGroups.get(0);
+      if (lgm.indexReader.size() == 0) {
+        return;
+      }
+      
+      Key firstKey = lgm.getFirstKey();
+      if (firstKey.compareTo(prevKey) < 0) {
+        throw new IllegalStateException("Keys appended out-of-order.  New key " + firstKey + ", previous key " + prevKey);
+      }
+      
+      if (blockWriter != null) {
+        closeBlock(prevKey, false);
+      }
+      
+      currentLocalityGroup.mergeColumnCounts(lgm);
+      if (currentLocalityGroup.getFirstKey() == null) {
+        currentLocalityGroup.setFirstKey(firstKey);
+      }
+      
+      IndexIterator indexIter = lgm.indexReader.lookup(new Key());
+      while (indexIter.hasNext()) {
+        IndexEntry ie = indexIter.next();
+        
+        long offset;
+        InputStream in = reader.reader.getRawDataBlock(ie.getOffset(), ie.getCompressedSize());
+        try {
+          offset = fileWriter.appendRawDataBlock(in, ie.getCompressedSize(), ie.getRawSize());
+        } finally {
+          in.close();
+        }
+        
+        flushPendingBlock(false);
+        // blocks copied from older files do not know their column families, timestamps or visibilities
+        pendingBlock = new IndexEntry(ie.getKey(), ie.getNumEntries(), offset, ie.getCompressedSize(), ie.getRawSize(), ie.getColumnFamilies(),
+            ie.getTimestamps(), ie.getVisibilities());
+        nextBlock++;
+      }
+      
+      // the key of the last index entry is the last key in the file
+      prevKey = new Key(pendingBlock.getKey());
+      
+      if (statistics != null) {
+        FileStatistics readerStats = FileStatistics.read(reader);
+        if (readerStats == null)
+          statistics = null;
+        else
+          statistics.merge(readerStats);
+      }
+    }
+    
     @Override
     public DataOutputStream createMetaStore(String name) throws IOException {
       closeData();
@@ -425,6 +590,8 @@ public class RFile {
       
       if (blockWriter != null) {
         closeBlock(lastKeyInBlock, true);
+      } else {
+        flushPendingBlock(true);
       }
       
       if (currentLocalityGroup != null) {
@@ -484,6 +651,8 @@ public class RFile {
       this.startBlock = lgm.startBlock;
       blockCount = index.size();
       this.version = version;
+      this.timestamps = index.getTimestamps();
+      this.visibilities = index.getVisibilities();
       
       this.reader = reader;
       
@@ -497,6 +666,12 @@ public class RFile {
       this.blockCount = lgr.blockCount;
       this.reader = lgr.reader;
       this.version = lgr.version;
+      this.timestamps = lgr.timestamps;
+      this.minTimestamp = lgr.minTimestamp;
+      this.maxTimestamp = lgr.maxTimestamp;
+      this.visibilities = lgr.visibilities;
+      this.visibilityEvaluator = lgr.visibilityEvaluator;
+      this.defaultVisibility = lgr.defaultVisibility;
     }
     
     Iterator<IndexEntry> getIndex() throws IOException {
@@ -521,6 +696,18 @@ public class RFile {
     private Range range = null;
     private boolean hasTop = false;
     private AtomicBoolean interruptFlag;
+    // the column families passed to the last seek, used to skip data blocks that contain none of the wanted column families
+    private Set<ByteSequence> seekColumnFamilies = null;
+    private boolean seekInclusive = false;
+    // the timestamps of everything in the locality group, or null if not known
+    private TimestampSummary timestamps;
+    private long minTimestamp = Long.MIN_VALUE;
+    private long maxTimestamp = Long.MAX_VALUE;
+    // the column visibilities of everything in the locality group, or null if not known
+    private VisibilitySummary visibilities;
+    // decides which visibilities the scan can see, or null when blocks should not be skipped by visibility
+    private VisibilityCache.Evaluator visibilityEvaluator = null;
+    private Text defaultVisibility = null;
     
     @Override
     public Key getTopKey() {
@@ -552,11 +739,25 @@ public class RFile {
       if (!hasTop)
         throw new IllegalStateException();
       
+      Key lastKey = rk.getKey();
+      
       if (entriesLeft == 0) {
         currBlock.close();
         
-        if (iiter.hasNext()) {
-          IndexEntry indexEntry = iiter.next();
+        IndexEntry indexEntry = null;
+        while (iiter.hasNext()) {
+          indexEntry = iiter.next();
+          if (!canSkip(indexEntry))
+            break;
+          
+          // the last key of a skipped block becomes the previous key, so nothing is assumed about the keys in the block
+          lastKey = indexEntry.getKey();
+          indexEntry = null;
+          if (range.afterEndKey(lastKey))
+            break;
+        }
+        
+        if (indexEntry != null) {
           entriesLeft = indexEntry.getNumEntries();
           currBlock = getDataBlock(indexEntry);
           
@@ -572,7 +773,7 @@ public class RFile {
         }
       }
       
-      prevKey = rk.getKey();
+      prevKey = lastKey;
       rk.readFields(currBlock);
       val.readFields(currBlock);
       entriesLeft--;
@@ -580,6 +781,26 @@ public class RFile {
         hasTop = !range.afterEndKey(rk.getKey());
     }
     
+    /**
+     * @return true if the data block holds nothing in the time range, nothing the scan is allowed to see, or none of the column families wanted by the last
+     *         seek
+     */
+    private boolean canSkip(IndexEntry indexEntry) {
+      if (indexEntry.getTimestamps() != null && indexEntry.getTimestamps().canSkip(minTimestamp, maxTimestamp))
+        return true;
+      
+      VisibilitySummary blockVisibilities = indexEntry.getVisibilities();
+      if (visibilityEvaluator != null && blockVisibilities != null && !blockVisibilities.anyVisible(visibilityEvaluator, defaultVisibility))
+        return true;
+      
+      if (seekColumnFamilies == null || indexEntry.getColumnFamilies() == null)
+        return false;
+      
+      if (seekInclusive)
+        return !indexEntry.getColumnFamilies().mightContainAny(seekColumnFamilies);
+      return indexEntry.getColumnFamilies().containsOnly(seekColumnFamilies);
+    }
+    
     private ABlockReader getDataBlock(IndexEntry indexEntry) throws IOException {
       if (interruptFlag != null && interruptFlag.get())
         throw new IterationInterruptedException();
@@ -597,8 +818,15 @@ public class RFile {
       if (closed)
         throw new IllegalStateException("Locality group reader closed");
       
-      if (columnFamilies.size() != 0 || inclusive)
-        throw new IllegalArgumentException("I do not know how to filter column families");
+      // column families are only used to skip data blocks, the caller still has to filter the column families that are returned
+      if (columnFamilies.size() == 0) {
+        seekColumnFamilies = null;
+      } else if (columnFamilies instanceof Set<?>) {
+        seekColumnFamilies = (Set<ByteSequence>) columnFamilies;
+      } else {
+        seekColumnFamilies = new HashSet<ByteSequence>(columnFamilies);
+      }
+      seekInclusive = inclusive;
       
       if (interruptFlag != null && interruptFlag.get())
         throw new IterationInterruptedException();
@@ -638,6 +866,18 @@ public class RFile {
         return;
       }
       
+      if (timestamps != null && timestamps.canSkip(minTimestamp, maxTimestamp)) {
+        // nothing in the locality group is in the time range
+        reset();
+        return;
+      }
+      
+      if (visibilityEvaluator != null && visibilities != null && !visibilities.anyVisible(visibilityEvaluator, defaultVisibility)) {
+        // nothing in the locality group is visible to the scan
+        reset();
+        return;
+      }
+      
       Key startKey = range.getStartKey();
       if (startKey == null)
         startKey = new Key();
@@ -711,6 +951,20 @@ public class RFile {
             prevKey = new Key(); // first block in the file, so set prev key to minimal key
             
           IndexEntry indexEntry = iiter.next();
+          while (canSkip(indexEntry)) {
+            prevKey = new Key(indexEntry.getKey());
+            if (range.afterEndKey(prevKey) || !iiter.hasNext()) {
+              indexEntry = null;
+              break;
+            }
+            indexEntry = iiter.next();
+          }
+        
+          if (indexEntry == null) {
+            // no block in the range contains wanted column families
+            return;
+          }
+          
           entriesLeft = indexEntry.getNumEntries();
           currBlock = getDataBlock(indexEntry);
 
@@ -762,6 +1016,28 @@ public class RFile {
       }
     }
     
+    @Override
+    protected void seekIterator(Range range, Set<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+      seek(range, columnFamilies, inclusive);
+    }
+    
+    @Override
+    public void setTimeRange(long minTimestamp, long maxTimestamp) {
+      this.minTimestamp = minTimestamp;
+      this.maxTimestamp = maxTimestamp;
+    }
+    
+    @Override
+    public void setAuthorizations(Authorizations authorizations, byte[] defaultVisibility) {
+      if (authorizations == null) {
+        this.visibilityEvaluator = null;
+        this.defaultVisibility = null;
+      } else {
+        this.visibilityEvaluator = VisibilityCache.getEvaluator(authorizations);
+        this.defaultVisibility = new Text(defaultVisibility == null ? new byte[0] : defaultVisibility);
+      }
+    }
+    
     @Override
     public Key getFirstKey() throws IOException {
       return firstKey;
@@ -819,6 +1095,8 @@ public class RFile {
     
     private AtomicBoolean interruptFlag;
     
+    private int version;
+    
     public Reader(BlockFileReader rdr) throws IOException {
       this.reader = rdr;
       
@@ -829,9 +1107,11 @@ public class RFile {
       
       if (magic != RINDEX_MAGIC)
         throw new IOException("Did not see expected magic number, saw " + magic);
-      if (ver != RINDEX_VER_7 && ver != RINDEX_VER_6 && ver != RINDEX_VER_4 && ver != RINDEX_VER_3)
+      if (ver != RINDEX_VER_8 && ver != RINDEX_VER_7 && ver != RINDEX_VER_6 && ver != RINDEX_VER_4 && ver != RINDEX_VER_3)
         throw new IOException("Did not see expected version, saw " + ver);
       
+      this.version = ver;
+      
       int size = mb.readInt();
       lgReaders = new LocalityGroupReader[size];
       
@@ -859,6 +1139,7 @@ public class RFile {
     private Reader(Reader r) {
       super(r.lgReaders.length);
       this.reader = r.reader;
+      this.version = r.version;
       this.nonDefaultColumnFamilies = r.nonDefaultColumnFamilies;
       this.lgReaders = new LocalityGroupReader[r.lgReaders.length];
       this.deepCopies = r.deepCopies;
@@ -999,6 +1280,33 @@ public class RFile {
         lgm.printInfo();
       }
       
+      FileStatistics stats = FileStatistics.read(this);
+      if (stats != null) {
+        PrintStream out = System.out;
+        out.println("Statistics             : ");
+        out.println("\tNum entries          : " + String.format("%,d", stats.getNumEntries()));
+        out.println("\tNum deletes          : " + String.format("%,d", stats.getNumDeletes()));
+        if (stats.getNumEntries() > 0) {
+          out.println("\tMin timestamp        : " + stats.getMinTimestamp());
+          out.println("\tMax timestamp        : " + stats.getMaxTimestamp());
+        }
+        Map<ByteSequence,Long> cfCounts = stats.getColumnFamilyCounts();
+        out.println("\tColumn families      : " + (cfCounts == null ? "<UNKNOWN>" : cfCounts.size()));
+      }
+    }
+    
+    @Override
+    public void setTimeRange(long minTimestamp, long maxTimestamp) {
+      // deep copies made after this copy the time range of the locality groups
+      for (LocalityGroupReader lgr : lgReaders)
+        lgr.setTimeRange(minTimestamp, maxTimestamp);
+    }
+    
+    @Override
+    public void setAuthorizations(Authorizations authorizations, byte[] defaultVisibility) {
+      // deep copies made after this copy the authorizations of the locality groups
+      for (LocalityGroupReader lgr : lgReaders)
+        lgr.setAuthorizations(authorizations, defaultVisibility);
     }
     
     @Override
@@ -162,6 +162,15 @@ public class RelativeKey implements Writable {
     this.prevKey = pk;
   }
   
+  /**
+   * Keys never modify the arrays they hold, so a field that is the same as in the previous key can use the same array instead of a copy.
+   */
+  private static byte[] share(ByteSequence bs) {
+    if (bs.offset() == 0 && bs.length() == bs.getBackingArray().length)
+      return bs.getBackingArray();
+    return bs.toArray();
+  }
+  
   @Override
   public void readFields(DataInput in) throws IOException {
     fieldsSame = in.readByte();
@@ -175,7 +184,7 @@ public class RelativeKey implements Writable {
     long ts;
     
     if ((fieldsSame & ROW_SAME) == ROW_SAME) {
-      row = prevKey.getRowData().toArray();
+      row = share(prevKey.getRowData());
     } else if ((fieldsPrefixed & ROW_COMMON_PREFIX) == ROW_COMMON_PREFIX) {
       row = readPrefix(in, prevKey.getRowData());
     } else {
@@ -183,7 +192,7 @@ public class RelativeKey implements Writable {
     }
     
     if ((fieldsSame & CF_SAME) == CF_SAME) {
-      cf = prevKey.getColumnFamilyData().toArray();
+      cf = share(prevKey.getColumnFamilyData());
     } else if ((fieldsPrefixed & CF_COMMON_PREFIX) == CF_COMMON_PREFIX) {
       cf = readPrefix(in, prevKey.getColumnFamilyData());
     } else {
@@ -191,7 +200,7 @@ public class RelativeKey implements Writable {
     }
     
     if ((fieldsSame & CQ_SAME) == CQ_SAME) {
-      cq = prevKey.getColumnQualifierData().toArray();
+      cq = share(prevKey.getColumnQualifierData());
     } else if ((fieldsPrefixed & CQ_COMMON_PREFIX) == CQ_COMMON_PREFIX) {
       cq = readPrefix(in, prevKey.getColumnQualifierData());
     } else {
@@ -199,7 +208,7 @@ public class RelativeKey implements Writable {
     }
     
     if ((fieldsSame & CV_SAME) == CV_SAME) {
-      cv = prevKey.getColumnVisibilityData().toArray();
+      cv = share(prevKey.getColumnVisibilityData());
     } else if ((fieldsPrefixed & CV_COMMON_PREFIX) == CV_COMMON_PREFIX) {
       cv = readPrefix(in, prevKey.getColumnVisibilityData());
     } else {
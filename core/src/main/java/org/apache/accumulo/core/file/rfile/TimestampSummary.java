@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.file.rfile.bcfile.Utils;
+
+/**
+ * The range of timestamps in a data block, or in all of the data blocks under an index block, and whether any of the keys are deletes. Stored with index
+ * entries so that scans limited to a range of timestamps can skip blocks without reading them.
+ */
+public class TimestampSummary {
+
+  private final long minTimestamp;
+  private final long maxTimestamp;
+  private final boolean hasDeletes;
+
+  TimestampSummary(long minTimestamp, long maxTimestamp, boolean hasDeletes) {
+    this.minTimestamp = minTimestamp;
+    this.maxTimestamp = maxTimestamp;
+    this.hasDeletes = hasDeletes;
+  }
+
+  /**
+   * Collects the timestamps of the keys appended to a block.
+   */
+  static class Builder {
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+    private boolean hasDeletes = false;
+    private boolean empty = true;
+
+    void add(Key key) {
+      long ts = key.getTimestamp();
+      if (ts < minTimestamp)
+        minTimestamp = ts;
+      if (ts > maxTimestamp)
+        maxTimestamp = ts;
+      hasDeletes |= key.isDeleted();
+      empty = false;
+    }
+
+    /**
+     * Adds the timestamps of an index entry, which are unknown when it has none.
+     */
+    void add(TimestampSummary summary) {
+      if (summary == null) {
+        minTimestamp = Long.MIN_VALUE;
+        maxTimestamp = Long.MAX_VALUE;
+        hasDeletes = true;
+      } else {
+        minTimestamp = Math.min(minTimestamp, summary.minTimestamp);
+        maxTimestamp = Math.max(maxTimestamp, summary.maxTimestamp);
+        hasDeletes |= summary.hasDeletes;
+      }
+      empty = false;
+    }
+
+    /**
+     * @return the summary, or null if nothing was added
+     */
+    TimestampSummary build() {
+      if (empty)
+        return null;
+      return new TimestampSummary(minTimestamp, maxTimestamp, hasDeletes);
+    }
+
+    void reset() {
+      minTimestamp = Long.MAX_VALUE;
+      maxTimestamp = Long.MIN_VALUE;
+      hasDeletes = false;
+      empty = true;
+    }
+  }
+
+  public long getMinTimestamp() {
+    return minTimestamp;
+  }
+
+  public long getMaxTimestamp() {
+    return maxTimestamp;
+  }
+
+  public boolean hasDeletes() {
+    return hasDeletes;
+  }
+
+  /**
+   * Determines if nothing summarized can change the result of a scan that only returns keys with timestamps in the given range. Keys outside the range are
+   * never returned, but a delete newer than the range still hides the keys it deletes in the range, so data newer than the range can only be skipped when it
+   * has no deletes.
+   */
+  public boolean canSkip(long scanMinTimestamp, long scanMaxTimestamp) {
+    if (maxTimestamp < scanMinTimestamp)
+      return true;
+    return minTimestamp > scanMaxTimestamp && !hasDeletes;
+  }
+
+  void write(DataOutput out) throws IOException {
+    Utils.writeVLong(out, maxTimestamp);
+    // usually much smaller than the timestamps themselves
+    Utils.writeVLong(out, maxTimestamp - minTimestamp);
+    out.writeBoolean(hasDeletes);
+  }
+
+  static TimestampSummary read(DataInput in) throws IOException {
+    long maxTimestamp = Utils.readVLong(in);
+    long minTimestamp = maxTimestamp - Utils.readVLong(in);
+    return new TimestampSummary(minTimestamp, maxTimestamp, in.readBoolean());
+  }
+
+  @Override
+  public String toString() {
+    return "[" + minTimestamp + ", " + maxTimestamp + "]" + (hasDeletes ? " with deletes" : "");
+  }
+}
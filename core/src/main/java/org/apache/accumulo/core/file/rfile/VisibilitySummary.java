@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.file.rfile.bcfile.Utils;
+import org.apache.accumulo.core.security.VisibilityCache;
+import org.apache.accumulo.core.security.VisibilityParseException;
+import org.apache.accumulo.core.util.BadArgumentException;
+import org.apache.hadoop.io.Text;
+
+/**
+ * The distinct column visibilities in a data block, or in all of the data blocks under an index block, stored with index entries so that scans can skip
+ * blocks holding nothing the scanning user is allowed to see. Only blocks with a few distinct visibilities have a summary, since a block with many is
+ * unlikely to be skipped.
+ */
+public class VisibilitySummary {
+
+  /**
+   * Blocks with more visibilities than this, or whose visibilities take up more than {@link #MAX_BYTES}, have no summary.
+   */
+  static final int MAX_SIZE = 16;
+  static final int MAX_BYTES = 1024;
+
+  private final Text[] visibilities;
+
+  private VisibilitySummary(Text[] visibilities) {
+    this.visibilities = visibilities;
+  }
+
+  /**
+   * Collects the visibilities of the keys appended to a block.
+   */
+  static class Builder {
+    private List<ByteSequence> visibilities = new ArrayList<ByteSequence>();
+    private int bytes = 0;
+    private boolean tooMany = false;
+    private ByteSequence last = null;
+
+    void add(ByteSequence visibility) {
+      // visibilities usually repeat for consecutive keys
+      if (tooMany || (last != null && last.equals(visibility)))
+        return;
+
+      for (ByteSequence existing : visibilities) {
+        if (existing.equals(visibility)) {
+          last = existing;
+          return;
+        }
+      }
+
+      last = new ArrayByteSequence(visibility.toArray());
+      visibilities.add(last);
+      bytes += last.length();
+      if (visibilities.size() > MAX_SIZE || bytes > MAX_BYTES)
+        setTooMany();
+    }
+
+    private void setTooMany() {
+      tooMany = true;
+      visibilities.clear();
+      last = null;
+    }
+
+    /**
+     * Adds the visibilities of an index entry, which are unknown when it has none.
+     */
+    void add(VisibilitySummary summary) {
+      if (summary == null) {
+        setTooMany();
+        return;
+      }
+      for (Text visibility : summary.visibilities)
+        add(new ArrayByteSequence(visibility.getBytes(), 0, visibility.getLength()));
+    }
+
+    /**
+     * @return the summary, or null if nothing was added or there were too many visibilities
+     */
+    VisibilitySummary build() {
+      if (tooMany || visibilities.isEmpty())
+        return null;
+      Text[] texts = new Text[visibilities.size()];
+      for (int i = 0; i < texts.length; i++)
+        texts[i] = new Text(visibilities.get(i).toArray());
+      return new VisibilitySummary(texts);
+    }
+
+    void reset() {
+      visibilities = new ArrayList<ByteSequence>();
+      bytes = 0;
+      tooMany = false;
+      last = null;
+    }
+  }
+
+  public Text[] getVisibilities() {
+    return visibilities;
+  }
+
+  /**
+   * Determines if anything summarized might be visible to a scan, the same way the visibility filter decides.
+   * 
+   * @param defaultVisibility
+   *          the visibility that keys with an empty visibility are given
+   */
+  public boolean anyVisible(VisibilityCache.Evaluator evaluator, Text defaultVisibility) {
+    for (Text visibility : visibilities) {
+      if (visibility.getLength() == 0) {
+        if (defaultVisibility.getLength() == 0)
+          return true;
+        visibility = defaultVisibility;
+      }
+
+      try {
+        if (evaluator.evaluate(visibility))
+          return true;
+      } catch (VisibilityParseException e) {
+        // the visibility filter drops keys it can not parse
+      } catch (BadArgumentException e) {
+        // same as above
+      }
+    }
+    return false;
+  }
+
+  void write(DataOutput out) throws IOException {
+    Utils.writeVInt(out, visibilities.length);
+    for (Text visibility : visibilities) {
+      Utils.writeVInt(out, visibility.getLength());
+      out.write(visibility.getBytes(), 0, visibility.getLength());
+    }
+  }
+
+  static VisibilitySummary read(DataInput in) throws IOException {
+    Text[] visibilities = new Text[Utils.readVInt(in)];
+    for (int i = 0; i < visibilities.length; i++) {
+      byte[] bytes = new byte[Utils.readVInt(in)];
+      in.readFully(bytes);
+      visibilities[i] = new Text(bytes);
+    }
+    return new VisibilitySummary(visibilities);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < visibilities.length; i++)
+      sb.append(i == 0 ? "" : ", ").append(visibilities[i]);
+    return sb.append("]").toString();
+  }
+}
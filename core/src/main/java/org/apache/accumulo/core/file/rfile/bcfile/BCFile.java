@@ -506,6 +506,62 @@ public final class BCFile {
       return ba;
     }
 
+    /**
+     * Get the name of the compression algorithm used for data blocks.
+     */
+    public String getDefaultCompressionName() {
+      return getDefaultCompressionAlgorithm().getName();
+    }
+
+    /**
+     * @return true if blocks written to this file are encrypted
+     */
+    public boolean isEncrypted() {
+      return !(cryptoParams.getAlgorithmName() == null || cryptoParams.getAlgorithmName().equals(Property.CRYPTO_CIPHER_SUITE.getDefaultValue()));
+    }
+
+    /**
+     * Append a data block that was already compressed, copying its bytes as is. The block must have been compressed with the same algorithm as this file uses
+     * for data blocks and must not be encrypted. Data Blocks may not be appended after the first Meta Blocks.
+     * 
+     * @param in
+     *          stream of the compressed block
+     * @param compressedSize
+     *          the number of bytes to copy from the stream
+     * @param rawSize
+     *          the uncompressed size of the block
+     * @return the offset of the block in this file
+     */
+    public long appendRawDataBlock(InputStream in, long compressedSize, long rawSize) throws IOException {
+      if (blkInProgress == true) {
+        throw new IllegalStateException("Cannot append Data Block until previous block is closed.");
+      }
+
+      if (metaBlkSeen == true) {
+        throw new IllegalStateException("Cannot append Data Block after Meta Blocks.");
+      }
+
+      if (isEncrypted()) {
+        throw new IllegalStateException("Cannot append raw Data Block to an encrypted file.");
+      }
+
+      long posStart = out.getPos();
+
+      fsOutputBuffer.setCapacity(getFSOutputBufferSize(conf));
+      byte[] buffer = fsOutputBuffer.getBytes();
+      long remaining = compressedSize;
+      while (remaining > 0) {
+        int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+        if (read < 0)
+          throw new IOException("Unexpected end of block, " + remaining + " bytes remaining");
+        out.write(buffer, 0, read);
+        remaining -= read;
+      }
+
+      dataIndex.addBlockRegion(new BlockRegion(posStart, compressedSize, rawSize));
+      return posStart;
+    }
+
     /**
      * Callback to make sure a meta block is added to the internal list when its stream is closed.
      */
@@ -974,6 +1030,22 @@ public final class BCFile {
       return dataIndex.getDefaultCompressionAlgorithm().getName();
     }
 
+    /**
+     * @return true if the blocks of the file being read are encrypted
+     */
+    public boolean isEncrypted() {
+      return cryptoParams != null && cryptoModule != null;
+    }
+
+    /**
+     * Stream access to the compressed bytes of a Data Block, without decompressing them. Only useful for unencrypted files.
+     * 
+     * @return stream of the compressed bytes of the block
+     */
+    public InputStream getRawDataBlock(long offset, long compressedSize) {
+      return new BoundedRangeFileInputStream(in, offset, compressedSize);
+    }
+
     /**
      * Get version of BCFile file being read.
      * 
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators;
+
+import java.io.IOException;
+
+/**
+ * An optional interface for iterators that can return many entries in one call. Passing entries through an iterator stack a batch at a time saves the
+ * per entry calls to {@link SortedKeyValueIterator#hasTop()}, {@link SortedKeyValueIterator#getTopKey()}, {@link SortedKeyValueIterator#getTopValue()} and
+ * {@link SortedKeyValueIterator#next()} at each level, and lets an iterator do its per entry bookkeeping once per batch.
+ * <p>
+ * Use {@link KeyValueBatch#fill(SortedKeyValueIterator)} to read a batch from any iterator, it falls back to reading one entry at a time from iterators that
+ * do not implement this interface.
+ * 
+ * @since 1.7.0
+ */
+public interface BatchingIterator {
+
+  /**
+   * Appends entries to a batch, starting with the current top entry, until the batch is full or the iterator has no more entries. Afterwards the iterator is
+   * positioned at the first entry that was not appended, as if {@link SortedKeyValueIterator#next()} had been called once for each appended entry.
+   * <p>
+   * Entries appended to the batch must not be modified by the iterator afterwards.
+   * 
+   * @return the number of entries appended
+   */
+  int nextBatch(KeyValueBatch batch) throws IOException;
+}
@@ -78,6 +78,32 @@ public abstract class Filter extends WrappingIterator implements OptionDescriber
     }
   }
   
+  /**
+   * Fills a batch with accepted entries, reading batches from the source. Subclasses implementing {@link BatchingIterator} can use this when their
+   * {@link #accept(Key, Value)} only looks at the key and value it is passed, because entries are checked after the source has moved past them.
+   * 
+   * @return the number of entries appended
+   */
+  protected int nextAcceptedBatch(KeyValueBatch batch) throws IOException {
+    int start = batch.size();
+    while (!batch.isFull() && getSource().hasTop()) {
+      int from = batch.size();
+      batch.fill(getSource());
+
+      // remove the entries that are not accepted, in place
+      int to = from;
+      for (int i = from; i < batch.size(); i++) {
+        Key k = batch.getKey(i);
+        Value v = batch.getValue(i);
+        if (k.isDeleted() || negate != accept(k, v))
+          batch.set(to++, k, v);
+      }
+      batch.truncate(to);
+    }
+    findTop();
+    return batch.size() - start;
+  }
+  
   /**
    * @return <tt>true</tt> if the key/value pair is accepted by the filter.
    */
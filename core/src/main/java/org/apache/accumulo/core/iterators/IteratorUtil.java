@@ -99,6 +99,15 @@ public class IteratorUtil {
     return max;
   }
   
+  /**
+   * @return the iterators configured for a scope, sorted by priority
+   */
+  public static List<IterInfo> getIterators(IteratorScope scope, AccumuloConfiguration conf) {
+    List<IterInfo> iters = new ArrayList<IterInfo>();
+    parseIterConf(scope, iters, new HashMap<String,Map<String,String>>(), conf);
+    return iters;
+  }
+  
   private static void parseIterConf(IteratorScope scope, List<IterInfo> iters, Map<String,Map<String,String>> allOptions, AccumuloConfiguration conf) {
     for (Entry<String,String> entry : conf.getAllPropertiesWithPrefix(Property.TABLE_ITERATOR_PREFIX).entrySet()) {
 
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+/**
+ * A reusable buffer of key/value pairs read from an iterator by {@link BatchingIterator#nextBatch(KeyValueBatch)}.
+ * 
+ * @since 1.7.0
+ */
+public class KeyValueBatch {
+
+  private final Key[] keys;
+  private final Value[] values;
+  private final boolean copyValues;
+  private int size = 0;
+
+  /**
+   * @param capacity
+   *          the most entries the batch holds
+   * @param copyValues
+   *          whether the contents of values read from iterators that do not implement {@link BatchingIterator} are copied, because such an iterator may
+   *          reuse the array of a value it already returned. May be false when the caller knows no such iterator modifies values.
+   */
+  public KeyValueBatch(int capacity, boolean copyValues) {
+    if (capacity < 1)
+      throw new IllegalArgumentException("capacity must be positive " + capacity);
+    this.keys = new Key[capacity];
+    this.values = new Value[capacity];
+    this.copyValues = copyValues;
+  }
+
+  public KeyValueBatch(int capacity) {
+    this(capacity, true);
+  }
+
+  public int capacity() {
+    return keys.length;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean isFull() {
+    return size == keys.length;
+  }
+
+  public boolean isCopyingValues() {
+    return copyValues;
+  }
+
+  public Key getKey(int index) {
+    checkIndex(index);
+    return keys[index];
+  }
+
+  public Value getValue(int index) {
+    checkIndex(index);
+    return values[index];
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException(index + " " + size);
+  }
+
+  /**
+   * Appends an entry the caller will not modify.
+   */
+  public void add(Key key, Value value) {
+    if (size == keys.length)
+      throw new IllegalStateException("batch is full");
+    keys[size] = key;
+    values[size] = value;
+    size++;
+  }
+
+  /**
+   * Appends a copy of an entry an iterator may reuse once it moves on. The key object is copied, keys never modify their arrays, and the value is copied
+   * unless this batch was created not to copy values.
+   */
+  public void addCopy(Key key, Value value) {
+    add(new Key(key), new Value(value.get(), copyValues));
+  }
+
+  /**
+   * Replaces an entry, used by filters to remove entries from a batch in place.
+   */
+  public void set(int index, Key key, Value value) {
+    checkIndex(index);
+    keys[index] = key;
+    values[index] = value;
+  }
+
+  /**
+   * Removes the entries at and after an index.
+   */
+  public void truncate(int newSize) {
+    if (newSize < 0 || newSize > size)
+      throw new IllegalArgumentException(newSize + " " + size);
+    Arrays.fill(keys, newSize, size, null);
+    Arrays.fill(values, newSize, size, null);
+    size = newSize;
+  }
+
+  public void clear() {
+    truncate(0);
+  }
+
+  /**
+   * Appends entries from an iterator until this batch is full or the iterator has no more entries, leaving the iterator at the first entry that was not
+   * appended. Reads a batch from iterators that implement {@link BatchingIterator} and one entry at a time from any other iterator.
+   * 
+   * @return the number of entries appended
+   */
+  public int fill(SortedKeyValueIterator<Key,Value> iter) throws IOException {
+    if (iter instanceof BatchingIterator)
+      return ((BatchingIterator) iter).nextBatch(this);
+
+    int start = size;
+    while (size < keys.length && iter.hasTop()) {
+      addCopy(iter.getTopKey(), iter.getTopValue());
+      iter.next();
+    }
+    return size - start;
+  }
+}
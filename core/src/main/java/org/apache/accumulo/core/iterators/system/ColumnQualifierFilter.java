@@ -16,6 +16,7 @@
  */
 package org.apache.accumulo.core.iterators.system;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -26,11 +27,13 @@ import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Column;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.BatchingIterator;
 import org.apache.accumulo.core.iterators.Filter;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.KeyValueBatch;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 
-public class ColumnQualifierFilter extends Filter {
+public class ColumnQualifierFilter extends Filter implements BatchingIterator {
   private boolean scanColumns;
   private HashSet<ByteSequence> columnFamilies;
   private HashMap<ByteSequence,HashSet<ByteSequence>> columnsQualifiers;
@@ -50,6 +53,11 @@ public class ColumnQualifierFilter extends Filter {
     this.scanColumns = scanColumns;
   }
   
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    return nextAcceptedBatch(batch);
+  }
+  
   public boolean accept(Key key, Value v) {
     if (!scanColumns)
       return true;
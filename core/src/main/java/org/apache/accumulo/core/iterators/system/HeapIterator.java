@@ -17,99 +17,246 @@
 package org.apache.accumulo.core.iterators.system;
 
 import java.io.IOException;
+import java.util.Arrays;
 
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
-import org.apache.commons.collections.buffer.PriorityBuffer;
 
+/**
+ * Merges sorted sources using a loser tree. Each internal node of the tree holds the source that lost the comparison made there, so when the source with the
+ * smallest key moves on only the comparisons on its path to the root are repeated, one per level, instead of removing and adding it to a heap.
+ * <p>
+ * When one source keeps supplying the smallest keys, as happens when files or the in memory map hold distinct ranges, the source that would be next smallest
+ * is remembered and the merge only compares against it until the current source falls behind. Comparisons first look at the first eight bytes of the rows,
+ * cached for each source, and only compare the whole keys when those are equal.
+ */
 public abstract class HeapIterator implements SortedKeyValueIterator<Key,Value> {
-  private PriorityBuffer heap;
+
+  // the next smallest source is not known
+  private static final int UNKNOWN = -1;
+  // there is no other source with entries
+  private static final int NONE = -2;
+
+  @SuppressWarnings("unchecked")
+  private SortedKeyValueIterator<Key,Value>[] sources = new SortedKeyValueIterator[0];
+  // the top key of each source, null when the source has no more entries
+  private Key[] keys = new Key[0];
+  private long[] rowPrefixes = new long[0];
+  private int numSources = 0;
+
+  // tree[0] is the source with the smallest key, tree[1..numSources-1] hold the losers of each comparison
+  private int[] tree = new int[0];
+  private boolean built = false;
+  private int runnerUp = UNKNOWN;
+
   private SortedKeyValueIterator<Key,Value> currentIter;
-  
-  private static class Index implements Comparable<Index> {
-    SortedKeyValueIterator<Key,Value> iter;
-    
-    public Index(SortedKeyValueIterator<Key,Value> iter) {
-      this.iter = iter;
-    }
-    
-    public int compareTo(Index o) {
-      return iter.getTopKey().compareTo(o.iter.getTopKey());
-    }
-  }
-  
-  protected HeapIterator() {
-    heap = null;
-  }
-  
+  private Key currentKey;
+
+  protected HeapIterator() {}
+
   protected HeapIterator(int maxSize) {
     createHeap(maxSize);
   }
-  
+
+  @SuppressWarnings("unchecked")
   protected void createHeap(int maxSize) {
-    if (heap != null)
+    if (sources.length > 0)
       throw new IllegalStateException("heap already exist");
-    
-    heap = new PriorityBuffer(maxSize == 0 ? 1 : maxSize);
+
+    int size = maxSize == 0 ? 1 : maxSize;
+    sources = new SortedKeyValueIterator[size];
+    keys = new Key[size];
+    rowPrefixes = new long[size];
+    tree = new int[size];
   }
-  
+
   @Override
   final public Key getTopKey() {
-    return currentIter.getTopKey();
+    if (!built)
+      build();
+    return currentKey;
   }
-  
+
   @Override
   final public Value getTopValue() {
+    if (!built)
+      build();
     return currentIter.getTopValue();
   }
-  
+
   @Override
   final public boolean hasTop() {
-    return heap.size() > 0;
+    if (!built)
+      build();
+    return currentKey != null;
   }
-  
+
   @Override
   final public void next() throws IOException {
-    switch (heap.size()) {
-      case 0:
-        throw new IllegalStateException("Called next() when there is no top");
-      case 1:
-        // optimization for case when heap contains one entry,
-        // avoids remove and add
-        currentIter.next();
-        if (!currentIter.hasTop()) {
-          heap.remove();
-          currentIter = null;
-        }
-        break;
-      default:
-        Index idx = (Index) heap.remove();
-        idx.iter.next();
-        if (idx.iter.hasTop()) {
-          heap.add(idx);
-        }
-        // to get to the default case heap has at least
-        // two entries, therefore there must be at least
-        // one entry when get() is called below
-        currentIter = ((Index) heap.get()).iter;
+    if (!built)
+      build();
+    if (currentKey == null)
+      throw new IllegalStateException("Called next() when there is no top");
+
+    int winner = tree[0];
+    currentIter.next();
+    setKey(winner);
+
+    // the source is still the smallest, so none of the comparisons in the tree changed
+    if (runnerUp != UNKNOWN && keys[winner] != null && (runnerUp == NONE || compare(winner, runnerUp) <= 0)) {
+      currentKey = keys[winner];
+      return;
     }
+
+    replay(winner);
+
+    // only look for the next smallest source when the same source stayed on top, which suggests it will again
+    if (tree[0] == winner && keys[winner] != null)
+      runnerUp = findRunnerUp();
+    else
+      runnerUp = UNKNOWN;
+
+    setCurrent();
   }
-  
+
   final protected void clear() {
-    heap.clear();
+    Arrays.fill(sources, 0, numSources, null);
+    Arrays.fill(keys, 0, numSources, null);
+    numSources = 0;
+    built = false;
     currentIter = null;
+    currentKey = null;
   }
-  
+
   final protected void addSource(SortedKeyValueIterator<Key,Value> source) {
-    
-    if (source.hasTop())
-      heap.add(new Index(source));
-    
-    if (heap.size() > 0)
-      currentIter = ((Index) heap.get()).iter;
-    else
+    if (!source.hasTop())
+      return;
+
+    if (numSources == sources.length) {
+      int size = Math.max(1, sources.length * 2);
+      sources = Arrays.copyOf(sources, size);
+      keys = Arrays.copyOf(keys, size);
+      rowPrefixes = Arrays.copyOf(rowPrefixes, size);
+      tree = Arrays.copyOf(tree, size);
+    }
+
+    sources[numSources] = source;
+    setKey(numSources);
+    numSources++;
+    built = false;
+  }
+
+  private void setKey(int index) {
+    SortedKeyValueIterator<Key,Value> source = sources[index];
+    if (source.hasTop()) {
+      Key key = source.getTopKey();
+      keys[index] = key;
+      rowPrefixes[index] = rowPrefix(key);
+    } else {
+      keys[index] = null;
+    }
+  }
+
+  /**
+   * @return the first eight bytes of the row as an unsigned number, padded with zeros, so that comparing prefixes orders rows the same way as comparing the
+   *         rows whenever the prefixes differ
+   */
+  static long rowPrefix(Key key) {
+    ByteSequence row = key.getRowData();
+    int len = Math.min(8, row.length());
+    long prefix = 0;
+    for (int i = 0; i < len; i++)
+      prefix = (prefix << 8) | (row.byteAt(i) & 0xff);
+    return prefix << (8 * (8 - len));
+  }
+
+  /**
+   * Compares the top keys of two sources, where a source with no more entries is larger than any other.
+   */
+  private int compare(int s1, int s2) {
+    Key k1 = keys[s1];
+    Key k2 = keys[s2];
+    if (k1 == null)
+      return k2 == null ? 0 : 1;
+    if (k2 == null)
+      return -1;
+
+    long p1 = rowPrefixes[s1];
+    long p2 = rowPrefixes[s2];
+    if (p1 != p2)
+      return (p1 + Long.MIN_VALUE) < (p2 + Long.MIN_VALUE) ? -1 : 1;
+
+    return k1.compareTo(k2);
+  }
+
+  private void build() {
+    built = true;
+    runnerUp = UNKNOWN;
+
+    if (numSources == 0) {
       currentIter = null;
+      currentKey = null;
+      return;
+    }
+
+    // winners of each comparison, with the sources as leaves at numSources..2*numSources-1
+    int[] winners = new int[numSources * 2];
+    for (int i = 0; i < numSources; i++)
+      winners[numSources + i] = i;
+    for (int node = numSources - 1; node > 0; node--) {
+      int left = winners[2 * node];
+      int right = winners[2 * node + 1];
+      if (compare(left, right) <= 0) {
+        winners[node] = left;
+        tree[node] = right;
+      } else {
+        winners[node] = right;
+        tree[node] = left;
+      }
+    }
+    tree[0] = numSources == 1 ? 0 : winners[1];
+
+    setCurrent();
+  }
+
+  /**
+   * Repeats the comparisons on the path from a source to the root after its key changed.
+   */
+  private void replay(int source) {
+    int candidate = source;
+    for (int node = (source + numSources) / 2; node > 0; node /= 2) {
+      if (compare(tree[node], candidate) < 0) {
+        int loser = candidate;
+        candidate = tree[node];
+        tree[node] = loser;
+      }
+    }
+    tree[0] = candidate;
+  }
+
+  /**
+   * The next smallest source lost only to the smallest, so it is the smallest of the losers on the path from the smallest source to the root.
+   */
+  private int findRunnerUp() {
+    int best = NONE;
+    for (int node = (tree[0] + numSources) / 2; node > 0; node /= 2) {
+      int loser = tree[node];
+      if (keys[loser] != null && (best == NONE || compare(loser, best) < 0))
+        best = loser;
+    }
+    return best;
+  }
+
+  private void setCurrent() {
+    int winner = tree[0];
+    if (keys[winner] == null) {
+      currentIter = null;
+      currentKey = null;
+    } else {
+      currentIter = sources[winner];
+      currentKey = keys[winner];
+    }
   }
-  
 }
@@ -64,6 +64,14 @@ public class LocalityGroupIterator extends HeapIterator implements Interruptible
       return iterator;
     }
 
+    /**
+     * Seeks the iterator of this group once it is known to contain wanted column families. The column families are not passed to the iterator, because it
+     * returns every column family in the group. Groups whose iterator can use them to skip data that holds none of the wanted column families override this.
+     */
+    protected void seekIterator(Range range, Set<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+      getIterator().seek(range, EMPTY_CF_SET, false);
+    }
+
     protected boolean isDefaultLocalityGroup;
     protected Map<ByteSequence,MutableLong> columnFamilies;
     private InterruptibleIterator iterator;
@@ -139,7 +147,7 @@ public class LocalityGroupIterator extends HeapIterator implements Interruptible
       }
 
       if (include) {
-        lgr.getIterator().seek(range, EMPTY_CF_SET, false);
+        lgr.seekIterator(range, cfSet, inclusive);
         hiter.addSource(lgr.getIterator());
         numLGSeeked++;
       }// every column family is excluded, zero count, or not present
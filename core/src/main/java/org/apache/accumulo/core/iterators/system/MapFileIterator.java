@@ -33,6 +33,7 @@ import org.apache.accumulo.core.file.map.MapFileUtil;
 import org.apache.accumulo.core.iterators.IterationInterruptedException;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -68,6 +69,16 @@ public class MapFileIterator implements FileSKVIterator {
     this.interruptFlag = flag;
   }
   
+  @Override
+  public void setTimeRange(long minTimestamp, long maxTimestamp) {
+    // map files do not know the timestamps of their data
+  }
+  
+  @Override
+  public void setAuthorizations(Authorizations authorizations, byte[] defaultVisibility) {
+    // map files do not know the visibilities of their data
+  }
+  
   @Override
   public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
     throw new UnsupportedOperationException();
@@ -29,6 +29,7 @@ import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.file.FileSKVIterator;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.SequenceFile.Reader;
 
@@ -120,4 +121,14 @@ public class SequenceFileIterator implements FileSKVIterator {
   public void setInterruptFlag(AtomicBoolean flag) {
     throw new UnsupportedOperationException();
   }
+  
+  @Override
+  public void setTimeRange(long minTimestamp, long maxTimestamp) {
+    throw new UnsupportedOperationException();
+  }
+  
+  @Override
+  public void setAuthorizations(Authorizations authorizations, byte[] defaultVisibility) {
+    throw new UnsupportedOperationException();
+  }
 }
@@ -29,10 +29,12 @@ import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.BatchingIterator;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.KeyValueBatch;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 
-public class SourceSwitchingIterator implements SortedKeyValueIterator<Key,Value>, InterruptibleIterator {
+public class SourceSwitchingIterator implements SortedKeyValueIterator<Key,Value>, InterruptibleIterator, BatchingIterator {
   
   public interface DataSource {
     boolean isCurrent();
@@ -124,6 +126,10 @@ public class SourceSwitchingIterator implements SortedKeyValueIterator<Key,Value
       }
     }
     
+    setTop();
+  }
+  
+  private void setTop() throws IOException {
     if (iter.hasTop()) {
       Key nextKey = iter.getTopKey();
       Value nextVal = iter.getTopValue();
@@ -140,6 +146,36 @@ public class SourceSwitchingIterator implements SortedKeyValueIterator<Key,Value
     }
   }
   
+  @Override
+  public synchronized int nextBatch(KeyValueBatch batch) throws IOException {
+    int start = batch.size();
+    
+    if (onlySwitchAfterRow) {
+      // the source can only be switched between rows, which has to be checked for each entry
+      while (key != null && !batch.isFull()) {
+        batch.addCopy(key, val);
+        readNext(false);
+      }
+      return batch.size() - start;
+    }
+    
+    if (key == null || batch.isFull())
+      return 0;
+    
+    batch.addCopy(key, val);
+    
+    // only check for a new data source once for the whole batch
+    if (switchSource())
+      iter.seek(new Range(key, false, range.getEndKey(), range.isEndKeyInclusive()), columnFamilies, inclusive);
+    else
+      iter.next();
+    
+    batch.fill(iter);
+    setTop();
+    
+    return batch.size() - start;
+  }
+  
   private boolean switchSource() throws IOException {
     while (!source.isCurrent()) {
       source = source.getNewDataSource();
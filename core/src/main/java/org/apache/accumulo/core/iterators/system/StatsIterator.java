@@ -24,14 +24,16 @@ import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.BatchingIterator;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.KeyValueBatch;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.WrappingIterator;
 
 /**
  * 
  */
-public class StatsIterator extends WrappingIterator {
+public class StatsIterator extends WrappingIterator implements BatchingIterator {
   
   private int numRead = 0;
   private AtomicLong seekCounter;
@@ -54,6 +56,18 @@ public class StatsIterator extends WrappingIterator {
     }
   }
   
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    int read = batch.fill(getSource());
+    numRead += read;
+    
+    if (numRead >= 23) {
+      readCounter.addAndGet(numRead);
+      numRead = 0;
+    }
+    return read;
+  }
+  
   @Override
   public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
     return new StatsIterator(getSource().deepCopy(env), seekCounter, readCounter);
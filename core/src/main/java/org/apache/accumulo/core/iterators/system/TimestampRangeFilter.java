@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators.system;
+
+import java.io.IOException;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.BatchingIterator;
+import org.apache.accumulo.core.iterators.Filter;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.KeyValueBatch;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+
+/**
+ * Only passes keys with timestamps in a range, inclusive. Used below the table's iterators for scans limited to a time range, after deletes are processed, so
+ * that a delete newer than the range still hides the keys it deletes.
+ */
+public class TimestampRangeFilter extends Filter implements BatchingIterator {
+  private long minTimestamp;
+  private long maxTimestamp;
+
+  public TimestampRangeFilter() {}
+
+  public TimestampRangeFilter(SortedKeyValueIterator<Key,Value> iterator, long minTimestamp, long maxTimestamp) {
+    setSource(iterator);
+    this.minTimestamp = minTimestamp;
+    this.maxTimestamp = maxTimestamp;
+  }
+
+  @Override
+  public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+    return new TimestampRangeFilter(getSource().deepCopy(env), minTimestamp, maxTimestamp);
+  }
+
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    return nextAcceptedBatch(batch);
+  }
+
+  @Override
+  public boolean accept(Key k, Value v) {
+    long ts = k.getTimestamp();
+    return ts >= minTimestamp && ts <= maxTimestamp;
+  }
+
+  /**
+   * @return true if the range excludes some timestamps
+   */
+  public static boolean isLimited(long minTimestamp, long maxTimestamp) {
+    return minTimestamp != Long.MIN_VALUE || maxTimestamp != Long.MAX_VALUE;
+  }
+}
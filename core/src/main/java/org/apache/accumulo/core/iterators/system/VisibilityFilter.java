@@ -16,14 +16,17 @@
  */
 package org.apache.accumulo.core.iterators.system;
 
+import java.io.IOException;
+
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.BatchingIterator;
 import org.apache.accumulo.core.iterators.Filter;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.KeyValueBatch;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.security.Authorizations;
-import org.apache.accumulo.core.security.ColumnVisibility;
-import org.apache.accumulo.core.security.VisibilityEvaluator;
+import org.apache.accumulo.core.security.VisibilityCache;
 import org.apache.accumulo.core.security.VisibilityParseException;
 import org.apache.accumulo.core.util.BadArgumentException;
 import org.apache.accumulo.core.util.TextUtil;
@@ -31,8 +34,12 @@ import org.apache.commons.collections.map.LRUMap;
 import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 
-public class VisibilityFilter extends Filter {
-  protected VisibilityEvaluator ve;
+/**
+ * Filters out entries whose column visibility is not satisfied by the authorizations. The results of evaluating visibilities are kept by each filter, and
+ * are shared through the {@link VisibilityCache} with every other filter that uses the same authorizations.
+ */
+public class VisibilityFilter extends Filter implements BatchingIterator {
+  protected VisibilityCache.Evaluator evaluator;
   protected Text defaultVisibility;
   protected LRUMap cache;
   protected Text tmpVis;
@@ -44,7 +51,7 @@ public class VisibilityFilter extends Filter {
   
   public VisibilityFilter(SortedKeyValueIterator<Key,Value> iterator, Authorizations authorizations, byte[] defaultVisibility) {
     setSource(iterator);
-    this.ve = new VisibilityEvaluator(authorizations);
+    this.evaluator = VisibilityCache.getEvaluator(authorizations);
     this.authorizations = authorizations;
     this.defaultVisibility = new Text(defaultVisibility);
     this.cache = new LRUMap(1000);
@@ -56,6 +63,11 @@ public class VisibilityFilter extends Filter {
     return new VisibilityFilter(getSource().deepCopy(env), authorizations, TextUtil.getBytes(defaultVisibility));
   }
   
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    return nextAcceptedBatch(batch);
+  }
+  
   @Override
   public boolean accept(Key k, Value v) {
     Text testVis = k.getColumnVisibility(tmpVis);
@@ -70,7 +82,7 @@ public class VisibilityFilter extends Filter {
       return b;
     
     try {
-      Boolean bb = ve.evaluate(new ColumnVisibility(testVis));
+      Boolean bb = evaluator.evaluate(testVis);
       cache.put(new Text(testVis), bb);
       return bb;
     } catch (VisibilityParseException e) {
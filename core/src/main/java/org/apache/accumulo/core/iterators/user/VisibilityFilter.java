@@ -27,8 +27,7 @@ import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.OptionDescriber;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.security.Authorizations;
-import org.apache.accumulo.core.security.ColumnVisibility;
-import org.apache.accumulo.core.security.VisibilityEvaluator;
+import org.apache.accumulo.core.security.VisibilityCache;
 import org.apache.accumulo.core.util.BadArgumentException;
 import org.apache.commons.collections.map.LRUMap;
 import org.apache.hadoop.io.Text;
@@ -59,7 +58,7 @@ public class VisibilityFilter extends org.apache.accumulo.core.iterators.system.
     if (!filterInvalid) {
       String auths = options.get(AUTHS);
       Authorizations authObj = auths == null || auths.isEmpty() ? new Authorizations() : new Authorizations(auths.getBytes(Constants.UTF8));
-      this.ve = new VisibilityEvaluator(authObj);
+      this.evaluator = VisibilityCache.getEvaluator(authObj);
       this.defaultVisibility = new Text();
     }
     this.cache = new LRUMap(1000);
@@ -74,7 +73,7 @@ public class VisibilityFilter extends org.apache.accumulo.core.iterators.system.
       if (b != null)
         return b;
       try {
-        new ColumnVisibility(testVis);
+        VisibilityCache.getColumnVisibility(testVis);
         cache.put(new Text(testVis), true);
         return true;
       } catch (BadArgumentException e) {
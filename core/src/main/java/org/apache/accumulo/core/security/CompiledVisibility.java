@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.security.ColumnVisibility.Node;
+import org.apache.accumulo.core.security.ColumnVisibility.NodeType;
+
+/**
+ * A column visibility compiled into a form that is quick to evaluate. Each distinct term of the expression is given a bit, and the expression is rewritten
+ * as an OR of clauses, each an AND of terms represented as a mask of term bits. Evaluating it against authorizations looks up each distinct term once, then
+ * checks whether the mask of authorized terms covers any clause, without walking the parse tree or allocating.
+ * <p>
+ * Terms are also numbered in a dictionary shared by the process, so authorizations can be mapped to a bit set of term numbers once, see
+ * {@link #toTermBits(Authorizations)}. Evaluating against that bit set tests bits instead of looking up each term.
+ * <p>
+ * Expressions with more than {@value #MAX_TERMS} distinct terms, or that expand to more than {@value #MAX_CLAUSES} clauses, are not compiled and are
+ * evaluated by walking their parse tree.
+ */
+public class CompiledVisibility {
+
+  static final int MAX_TERMS = 64;
+  static final int MAX_CLAUSES = 64;
+
+  /**
+   * The most terms numbered. Expressions with terms that can not be numbered are still compiled, but are evaluated by looking up their terms.
+   */
+  static final int MAX_TERM_NUMBERS = 1 << 16;
+
+  private static final ConcurrentHashMap<ByteSequence,Integer> termNumbers = new ConcurrentHashMap<ByteSequence,Integer>();
+
+  private final ColumnVisibility visibility;
+  private final ByteSequence[] terms;
+  // null when some term could not be numbered
+  private final int[] termNumberArray;
+  private final long[] clauses;
+
+  private CompiledVisibility(ColumnVisibility visibility, ByteSequence[] terms, long[] clauses) {
+    this.visibility = visibility;
+    this.terms = terms;
+    this.clauses = clauses;
+
+    int[] numbers = null;
+    if (terms != null) {
+      numbers = new int[terms.length];
+      for (int i = 0; i < terms.length && numbers != null; i++) {
+        numbers[i] = getTermNumber(terms[i], true);
+        if (numbers[i] < 0)
+          numbers = null;
+      }
+    }
+    this.termNumberArray = numbers;
+  }
+
+  /**
+   * @return the number of the term, or -1 if it has none and one was not or could not be created
+   */
+  static int getTermNumber(ByteSequence term, boolean create) {
+    Integer number = termNumbers.get(term);
+    if (number != null)
+      return number;
+    if (!create || termNumbers.size() >= MAX_TERM_NUMBERS)
+      return -1;
+
+    synchronized (termNumbers) {
+      number = termNumbers.get(term);
+      if (number == null) {
+        number = termNumbers.size();
+        termNumbers.put(new ArrayByteSequence(term.toArray()), number);
+      }
+      return number;
+    }
+  }
+
+  /**
+   * Maps authorizations, escaped like the terms of expressions, to a bit set of term numbers. Authorizations that no expression has used yet are numbered, so
+   * an expression compiled later with the same term gets the same number.
+   * 
+   * @return the bits, or null if some authorization could not be numbered
+   */
+  static long[] toTermBits(Authorizations escapedAuthorizations) {
+    long[] bits = new long[0];
+    for (byte[] auth : escapedAuthorizations.getAuthorizations()) {
+      int number = getTermNumber(new ArrayByteSequence(auth), true);
+      if (number < 0)
+        return null;
+      if ((number >>> 6) >= bits.length) {
+        long[] grown = new long[(number >>> 6) + 1];
+        System.arraycopy(bits, 0, grown, 0, bits.length);
+        bits = grown;
+      }
+      bits[number >>> 6] |= 1L << number;
+    }
+    return bits;
+  }
+
+  public ColumnVisibility getColumnVisibility() {
+    return visibility;
+  }
+
+  /**
+   * @return false if the expression could not be compiled, and is evaluated by walking its parse tree
+   */
+  public boolean isCompiled() {
+    return clauses != null;
+  }
+
+  ByteSequence[] getTerms() {
+    return terms;
+  }
+
+  /**
+   * @return the number of each term, or null if they could not all be numbered
+   */
+  int[] getTermNumbers() {
+    return termNumberArray;
+  }
+
+  long[] getClauses() {
+    return clauses;
+  }
+
+  public static CompiledVisibility compile(ColumnVisibility visibility) {
+    byte[] expression = visibility.getExpression();
+    if (expression.length == 0)
+      // a clause with no terms is always satisfied
+      return new CompiledVisibility(visibility, new ByteSequence[0], new long[] {0});
+
+    List<ByteSequence> terms = new ArrayList<ByteSequence>();
+    List<Long> clauses = toClauses(expression, visibility.getParseTree(), terms);
+    if (clauses == null)
+      return new CompiledVisibility(visibility, null, null);
+
+    long[] clauseArray = new long[clauses.size()];
+    for (int i = 0; i < clauseArray.length; i++)
+      clauseArray[i] = clauses.get(i);
+    return new CompiledVisibility(visibility, terms.toArray(new ByteSequence[terms.size()]), clauseArray);
+  }
+
+  /**
+   * @return the clauses the node is equivalent to, or null if it can not be compiled
+   */
+  private static List<Long> toClauses(byte[] expression, Node node, List<ByteSequence> terms) {
+    if (node.getType() == NodeType.TERM) {
+      ByteSequence term = node.getTerm(expression);
+      int bit = terms.indexOf(term);
+      if (bit < 0) {
+        if (terms.size() == MAX_TERMS)
+          return null;
+        bit = terms.size();
+        terms.add(term);
+      }
+      List<Long> clauses = new ArrayList<Long>(1);
+      clauses.add(1L << bit);
+      return clauses;
+    }
+
+    // malformed nodes are left to the parse tree evaluation, which reports them
+    List<Node> children = node.getChildren();
+    if ((node.getType() != NodeType.AND && node.getType() != NodeType.OR) || children == null || children.size() < 2)
+      return null;
+
+    List<Long> result = null;
+    for (Node child : children) {
+      List<Long> childClauses = toClauses(expression, child, terms);
+      if (childClauses == null)
+        return null;
+
+      if (result == null) {
+        result = childClauses;
+      } else if (node.getType() == NodeType.OR) {
+        for (Long clause : childClauses)
+          addClause(result, clause);
+      } else {
+        List<Long> product = new ArrayList<Long>(result.size() * childClauses.size());
+        for (Long c1 : result)
+          for (Long c2 : childClauses)
+            addClause(product, c1 | c2);
+        result = product;
+      }
+
+      if (result.size() > MAX_CLAUSES)
+        return null;
+    }
+    return result;
+  }
+
+  /**
+   * Adds a clause, leaving out clauses that require more terms than another clause requires.
+   */
+  private static void addClause(List<Long> clauses, long clause) {
+    for (int i = clauses.size() - 1; i >= 0; i--) {
+      long existing = clauses.get(i);
+      if ((existing & clause) == existing)
+        return;
+      if ((existing & clause) == clause)
+        clauses.remove(i);
+    }
+    clauses.add(clause);
+  }
+
+  @Override
+  public String toString() {
+    return visibility.toString();
+  }
+}
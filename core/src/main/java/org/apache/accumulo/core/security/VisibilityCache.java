@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.Text;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Caches shared by everything in a process that filters data by visibility, so that each scan does not parse and evaluate the same column visibility
+ * expressions again. Parsed and compiled expressions are shared by all scans, and the results of evaluating them are shared by all scans with the same
+ * authorizations. Results for all authorizations are kept in one cache, so the memory they use is bounded no matter how many sets of authorizations scan.
+ */
+public class VisibilityCache {
+
+  /**
+   * The most compiled expressions kept.
+   */
+  static final int MAX_EXPRESSIONS = 100000;
+
+  /**
+   * The most sets of authorizations results are kept for. Sets not used for {@value #AUTHORIZATIONS_EXPIRATION_MINUTES} minutes are also dropped.
+   */
+  static final int MAX_AUTHORIZATION_SETS = 1000;
+
+  static final int AUTHORIZATIONS_EXPIRATION_MINUTES = 10;
+
+  /**
+   * The most results kept, over all sets of authorizations.
+   */
+  static final int MAX_RESULTS = 100000;
+
+  private static final Cache<Text,CompiledVisibility> expressions = CacheBuilder.newBuilder().maximumSize(MAX_EXPRESSIONS).concurrencyLevel(16).build();
+
+  private static final LoadingCache<Authorizations,Evaluator> evaluators = CacheBuilder.newBuilder().maximumSize(MAX_AUTHORIZATION_SETS)
+      .expireAfterAccess(AUTHORIZATIONS_EXPIRATION_MINUTES, TimeUnit.MINUTES).concurrencyLevel(16).build(new CacheLoader<Authorizations,Evaluator>() {
+        @Override
+        public Evaluator load(Authorizations authorizations) {
+          return new Evaluator(authorizations);
+        }
+      });
+
+  private static final Cache<ResultKey,Boolean> results = CacheBuilder.newBuilder().maximumSize(MAX_RESULTS).concurrencyLevel(16).build();
+
+  /**
+   * Identifies the result of evaluating an expression against a set of authorizations.
+   */
+  private static class ResultKey {
+    private final Authorizations authorizations;
+    private final Text expression;
+    private final int hashCode;
+
+    ResultKey(Authorizations authorizations, int authorizationsHash, Text expression) {
+      this.authorizations = authorizations;
+      this.expression = expression;
+      this.hashCode = 31 * authorizationsHash + expression.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (!(o instanceof ResultKey))
+        return false;
+      ResultKey other = (ResultKey) o;
+      return hashCode == other.hashCode && expression.equals(other.expression)
+          && (authorizations == other.authorizations || authorizations.equals(other.authorizations));
+    }
+  }
+
+  /**
+   * Evaluates column visibility expressions against one set of authorizations, remembering the results. Safe to use from many threads.
+   */
+  public static class Evaluator {
+    private final VisibilityEvaluator ve;
+    private final Authorizations authorizations;
+    private final int authorizationsHash;
+
+    Evaluator(Authorizations authorizations) {
+      this.ve = new VisibilityEvaluator(authorizations);
+      this.authorizations = authorizations;
+      this.authorizationsHash = authorizations.hashCode();
+    }
+
+    /**
+     * @param expression
+     *          a column visibility expression, which is copied if it needs to be kept
+     */
+    public boolean evaluate(Text expression) throws VisibilityParseException {
+      Boolean result = results.getIfPresent(new ResultKey(authorizations, authorizationsHash, expression));
+      if (result == null) {
+        result = ve.evaluate(getCompiledVisibility(expression));
+        results.put(new ResultKey(authorizations, authorizationsHash, new Text(expression)), result);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Parses a column visibility expression, or returns it already parsed. The returned visibility is shared, so its parse tree must not be modified.
+   * 
+   * @param expression
+   *          a column visibility expression, which is copied if it needs to be kept
+   */
+  public static ColumnVisibility getColumnVisibility(Text expression) {
+    return getCompiledVisibility(expression).getColumnVisibility();
+  }
+
+  /**
+   * Parses and compiles a column visibility expression, or returns it already compiled.
+   * 
+   * @param expression
+   *          a column visibility expression, which is copied if it needs to be kept
+   */
+  public static CompiledVisibility getCompiledVisibility(Text expression) {
+    CompiledVisibility cv = expressions.getIfPresent(expression);
+    if (cv == null) {
+      Text copy = new Text(expression);
+      cv = CompiledVisibility.compile(new ColumnVisibility(copy));
+      expressions.put(copy, cv);
+    }
+    return cv;
+  }
+
+  /**
+   * @return an evaluator for the authorizations, shared with everything else using the same authorizations
+   */
+  public static Evaluator getEvaluator(Authorizations authorizations) {
+    try {
+      return evaluators.get(authorizations);
+    } catch (ExecutionException e) {
+      // the loader does not throw checked exceptions
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * @return the number of results kept, over all sets of authorizations
+   */
+  static long getResultCount() {
+    results.cleanUp();
+    return results.size();
+  }
+}
@@ -19,10 +19,13 @@ package org.apache.accumulo.core.security;
 import java.util.ArrayList;
 
 import org.apache.accumulo.core.constraints.Constraint.Environment;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.security.ColumnVisibility.Node;
 
 public class VisibilityEvaluator {
   private AuthorizationContainer auths;
+  // the authorizations as a bit set of term numbers, or null when not known
+  private long[] termBits;
   
   static Authorizations escape(Authorizations auths) {
     ArrayList<byte[]> retAuths = new ArrayList<byte[]>(auths.getAuthorizations().size());
@@ -67,13 +70,44 @@ public class VisibilityEvaluator {
    * The VisibilityEvaluator computes a trie from the given Authorizations, that ColumnVisibility expressions can be evaluated against.
    */
   public VisibilityEvaluator(Authorizations authorizations) {
-      this.auths = escape((Authorizations) authorizations);
+      Authorizations escaped = escape((Authorizations) authorizations);
+      this.auths = escaped;
+      this.termBits = CompiledVisibility.toTermBits(escaped);
   }
   
   public boolean evaluate(ColumnVisibility visibility) throws VisibilityParseException {
     return evaluate(visibility.getExpression(), visibility.getParseTree());
   }
   
+  /**
+   * Evaluates a compiled visibility, testing each of its distinct terms once instead of walking its parse tree.
+   */
+  public boolean evaluate(CompiledVisibility visibility) throws VisibilityParseException {
+    if (!visibility.isCompiled())
+      return evaluate(visibility.getColumnVisibility());
+
+    long authorized = 0;
+    int[] numbers = visibility.getTermNumbers();
+    if (termBits != null && numbers != null) {
+      long[] bits = termBits;
+      for (int i = 0; i < numbers.length; i++) {
+        int word = numbers[i] >>> 6;
+        if (word < bits.length && (bits[word] & (1L << numbers[i])) != 0)
+          authorized |= 1L << i;
+      }
+    } else {
+      ByteSequence[] terms = visibility.getTerms();
+      for (int i = 0; i < terms.length; i++)
+        if (auths.contains(terms[i]))
+          authorized |= 1L << i;
+    }
+
+    for (long clause : visibility.getClauses())
+      if ((clause & authorized) == clause)
+        return true;
+    return false;
+  }
+  
   private final boolean evaluate(final byte[] expression, final Node root) throws VisibilityParseException {
     if (expression.length == 0)
       return true;
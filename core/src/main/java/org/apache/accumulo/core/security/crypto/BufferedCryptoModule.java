@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security.crypto;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.crypto.Cipher;
+
+/**
+ * A {@link DefaultCryptoModule} whose streams encrypt and decrypt whole buffers at a time with {@link Cipher#update(byte[], int, int, byte[], int)}, into
+ * buffers that are pooled across streams, instead of going through {@link javax.crypto.CipherOutputStream} and {@link javax.crypto.CipherInputStream}. This
+ * matters most for RFiles, where a new stream is opened for every block.
+ * <p>
+ * Files and logs written by either module can be read by the other, since both write the same parameters and ciphertext. A stream cipher mode such as
+ * {@code AES/CTR/NoPadding} works best: the JCE encrypts large buffers with AES instructions when the processor has them, and nothing is held back on flush.
+ * <p>
+ * To use it, set {@code crypto.module.class} to {@code org.apache.accumulo.core.security.crypto.BufferedCryptoModule}.
+ */
+public class BufferedCryptoModule extends DefaultCryptoModule {
+
+  @Override
+  protected OutputStream wrapEncryptingStream(OutputStream out, Cipher cipher) {
+    return new CipherUpdateOutputStream(out, cipher);
+  }
+
+  @Override
+  protected InputStream wrapDecryptingStream(InputStream in, Cipher cipher) {
+    return new CipherUpdateInputStream(in, cipher);
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security.crypto;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of the buffers used by {@link CipherUpdateOutputStream} and {@link CipherUpdateInputStream}. A stream is opened for every block of an encrypted file,
+ * so without a pool each block would allocate its own buffers.
+ */
+class CipherBufferPool {
+
+  static final int BUFFER_SIZE = 32 * 1024;
+
+  /**
+   * The most buffers kept in the pool, others are left to the garbage collector when released.
+   */
+  static final int MAX_POOLED = 256;
+
+  private static final ConcurrentLinkedQueue<byte[]> pool = new ConcurrentLinkedQueue<byte[]>();
+  private static final AtomicInteger pooled = new AtomicInteger(0);
+
+  /**
+   * @return a buffer of at least the requested size, whose contents are undefined
+   */
+  static byte[] get(int minSize) {
+    if (minSize <= BUFFER_SIZE) {
+      byte[] buffer = pool.poll();
+      if (buffer != null) {
+        pooled.decrementAndGet();
+        return buffer;
+      }
+      return new byte[BUFFER_SIZE];
+    }
+    return new byte[minSize];
+  }
+
+  static void release(byte[] buffer) {
+    if (buffer == null || buffer.length != BUFFER_SIZE)
+      return;
+    if (pooled.incrementAndGet() <= MAX_POOLED)
+      pool.offer(buffer);
+    else
+      pooled.decrementAndGet();
+  }
+}
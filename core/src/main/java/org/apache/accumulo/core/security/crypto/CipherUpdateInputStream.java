@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security.crypto;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+
+/**
+ * Decrypts everything read from it, like a {@link CipherInputStream} with a buffer in front of it, but reads and decrypts whole buffers at a time with
+ * {@link Cipher#update(byte[], int, int, byte[], int)}. Reads larger than the buffer are decrypted straight into the caller's array, and the buffers are
+ * pooled so that opening a stream for every block of a file does not allocate them again.
+ */
+public class CipherUpdateInputStream extends FilterInputStream {
+
+  private final Cipher cipher;
+  private byte[] encrypted;
+  private byte[] buffer;
+  private int pos = 0;
+  private int count = 0;
+  private boolean finished = false;
+  private boolean closed = false;
+
+  public CipherUpdateInputStream(InputStream in, Cipher cipher) {
+    super(in);
+    this.cipher = cipher;
+    this.encrypted = CipherBufferPool.get(CipherBufferPool.BUFFER_SIZE);
+    this.buffer = CipherBufferPool.get(cipher.getOutputSize(encrypted.length));
+  }
+
+  /**
+   * Decrypts more data, into the caller's array when it has room for everything the cipher could return.
+   * 
+   * @return the number of bytes decrypted into the caller's array, or -1 if they were decrypted into the buffer, which may still be empty
+   */
+  private int decrypt(byte[] b, int off, int len) throws IOException {
+    try {
+      int read = in.read(encrypted, 0, encrypted.length);
+      if (read < 0) {
+        finished = true;
+        byte[] last = cipher.doFinal();
+        buffer = last == null ? buffer : ensureCapacity(last.length);
+        if (last != null)
+          System.arraycopy(last, 0, buffer, 0, last.length);
+        pos = 0;
+        count = last == null ? 0 : last.length;
+        return -1;
+      }
+
+      if (b != null && len >= cipher.getOutputSize(read))
+        return cipher.update(encrypted, 0, read, b, off);
+
+      buffer = ensureCapacity(cipher.getOutputSize(read));
+      pos = 0;
+      count = cipher.update(encrypted, 0, read, buffer, 0);
+      return -1;
+    } catch (GeneralSecurityException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private byte[] ensureCapacity(int size) {
+    if (buffer.length >= size)
+      return buffer;
+    CipherBufferPool.release(buffer);
+    return CipherBufferPool.get(size);
+  }
+
+  @Override
+  public int read() throws IOException {
+    while (pos == count) {
+      if (finished)
+        return -1;
+      decrypt(null, 0, 0);
+    }
+    return buffer[pos++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0)
+      return 0;
+
+    while (pos == count) {
+      if (finished)
+        return -1;
+      int n = decrypt(b, off, len);
+      if (n > 0)
+        return n;
+    }
+
+    int n = Math.min(len, count - pos);
+    System.arraycopy(buffer, pos, b, off, n);
+    pos += n;
+    return n;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = 0;
+    while (skipped < n) {
+      if (pos == count) {
+        if (finished)
+          break;
+        decrypt(null, 0, 0);
+        continue;
+      }
+      int s = (int) Math.min(n - skipped, count - pos);
+      pos += s;
+      skipped += s;
+    }
+    return skipped;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return count - pos;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public void mark(int readlimit) {}
+
+  @Override
+  public void reset() throws IOException {
+    throw new IOException("mark/reset not supported");
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed)
+      return;
+    closed = true;
+    CipherBufferPool.release(encrypted);
+    CipherBufferPool.release(buffer);
+    encrypted = null;
+    buffer = null;
+    in.close();
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security.crypto;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherOutputStream;
+
+/**
+ * Encrypts everything written to it, like a {@link CipherOutputStream} with a buffer in front of it, but encrypts whole buffers at a time with
+ * {@link Cipher#update(byte[], int, int, byte[], int)} into a reused output buffer instead of allocating a new array for every write. Writes larger than the
+ * buffer are encrypted straight from the caller's array.
+ * <p>
+ * Flushing encrypts everything written so far and flushes the underlying stream, so with a stream cipher mode like CTR nothing is held back. Closing finishes
+ * the cipher, writing any padding, and closes the underlying stream.
+ */
+public class CipherUpdateOutputStream extends FilterOutputStream {
+
+  private final Cipher cipher;
+  private byte[] buffer;
+  private int count = 0;
+  private byte[] encrypted;
+  private boolean closed = false;
+
+  public CipherUpdateOutputStream(OutputStream out, Cipher cipher) {
+    super(out);
+    this.cipher = cipher;
+    this.buffer = CipherBufferPool.get(CipherBufferPool.BUFFER_SIZE);
+    this.encrypted = CipherBufferPool.get(cipher.getOutputSize(buffer.length));
+  }
+
+  private void encrypt(byte[] b, int off, int len) throws IOException {
+    if (len == 0)
+      return;
+    try {
+      int n = cipher.update(b, off, len, encrypted, 0);
+      out.write(encrypted, 0, n);
+    } catch (GeneralSecurityException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private void encryptBuffer() throws IOException {
+    encrypt(buffer, 0, count);
+    count = 0;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (count == buffer.length)
+      encryptBuffer();
+    buffer[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (len >= buffer.length) {
+      encryptBuffer();
+      while (len > 0) {
+        int chunk = Math.min(len, buffer.length);
+        encrypt(b, off, chunk);
+        off += chunk;
+        len -= chunk;
+      }
+      return;
+    }
+
+    if (len > buffer.length - count)
+      encryptBuffer();
+    System.arraycopy(b, off, buffer, count, len);
+    count += len;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    encryptBuffer();
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed)
+      return;
+    closed = true;
+    try {
+      encryptBuffer();
+      byte[] last = cipher.doFinal();
+      if (last != null)
+        out.write(last);
+      out.flush();
+    } catch (GeneralSecurityException e) {
+      throw new IOException(e);
+    } finally {
+      CipherBufferPool.release(buffer);
+      CipherBufferPool.release(encrypted);
+      buffer = null;
+      encrypted = null;
+      out.close();
+    }
+  }
+}
@@ -22,6 +22,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PushbackInputStream;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
@@ -222,18 +224,18 @@ public class DefaultCryptoModule implements CryptoModule {
     
     // Get the secret key
     
-    SecureRandom secureRandom = DefaultCryptoModuleUtils.getSecureRandom(params.getRandomNumberGenerator(), params.getRandomNumberGeneratorProvider());
-    
     if (params.getPlaintextKey() == null) {
-      byte[] randomKey = new byte[params.getKeyLength() / 8];
-      secureRandom.nextBytes(randomKey);
-      params.setPlaintextKey(randomKey);
+      generateNewRandomSessionKey(params);
+      params.setEncryptedKey(null);
     }
     
-    // Encrypt the secret key
+    // Encrypt the secret key, unless that was already done. Callers that encrypt many blocks with one key, like the BCFile writer, encrypt the key once
+    // up front, and the key encryption strategy may have to read the key encryption key from HDFS.
     
-    SecretKeyEncryptionStrategy keyEncryptionStrategy = CryptoModuleFactory.getSecretKeyEncryptionStrategy(params.getKeyEncryptionStrategyClass());
-    params = keyEncryptionStrategy.encryptSecretKey(params);
+    if (params.getEncryptedKey() == null) {
+      SecretKeyEncryptionStrategy keyEncryptionStrategy = CryptoModuleFactory.getSecretKeyEncryptionStrategy(params.getKeyEncryptionStrategyClass());
+      params = keyEncryptionStrategy.encryptSecretKey(params);
+    }
     
     // Now the encrypted version of the key and any opaque ID are within the params object.  Initialize the cipher.
     
@@ -248,10 +250,7 @@ public class DefaultCryptoModule implements CryptoModule {
       initializeCipher(params);
     }
     
-    CipherOutputStream cipherOutputStream = new CipherOutputStream(params.getPlaintextOutputStream(), params.getCipher());
-    BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(cipherOutputStream);    
-    
-    params.setEncryptedOutputStream(bufferedOutputStream);
+    params.setEncryptedOutputStream(wrapEncryptingStream(params.getPlaintextOutputStream(), params.getCipher()));
     
     if (params.getRecordParametersToStream()) {
       DataOutputStream dataOut = new DataOutputStream(params.getPlaintextOutputStream());
@@ -391,15 +390,30 @@ public class DefaultCryptoModule implements CryptoModule {
     }   
     
     
-    BufferedInputStream bufferedDecryptingInputStream = new BufferedInputStream(new CipherInputStream(params.getEncryptedInputStream(), cipher));
+    InputStream decryptingInputStream = wrapDecryptingStream(params.getEncryptedInputStream(), cipher);
 
     log.trace("Initialized cipher input stream with transformation ["+getCipherTransformation(params)+"]");
     
-    params.setPlaintextInputStream(bufferedDecryptingInputStream);
+    params.setPlaintextInputStream(decryptingInputStream);
 
     return params;
   }
 
+  /**
+   * Wraps a stream with one that encrypts everything written to it using an initialized cipher. Closing the returned stream has to write out any padding and
+   * close the given stream.
+   */
+  protected OutputStream wrapEncryptingStream(OutputStream out, Cipher cipher) {
+    return new BufferedOutputStream(new CipherOutputStream(out, cipher));
+  }
+  
+  /**
+   * Wraps a stream with one that decrypts everything read from it using an initialized cipher.
+   */
+  protected InputStream wrapDecryptingStream(InputStream in, Cipher cipher) {
+    return new BufferedInputStream(new CipherInputStream(in, cipher));
+  }
+  
   @Override
   public CryptoModuleParameters generateNewRandomSessionKey(CryptoModuleParameters params) {
 
@@ -140,6 +140,18 @@ public class UnsynchronizedBuffer {
       System.arraycopy(data, offset, b, 0, b.length);
       offset += b.length;
     }
+
+    public void readBytes(byte b[], int off, int len) {
+      System.arraycopy(data, offset, b, off, len);
+      offset += len;
+    }
+
+    /**
+     * @return the position of the next byte to be read in the underlying array
+     */
+    public int getOffset() {
+      return offset;
+    }
     
     public boolean readBoolean() {
       return (data[offset++] == 1);
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.KeyValue;
+import org.apache.accumulo.core.data.thrift.TKeyValue;
+import org.junit.Test;
+
+public class ScanBatchEncodingTest {
+
+  private static List<KeyValue> createBatch(boolean deletes) {
+    List<KeyValue> batch = new ArrayList<KeyValue>();
+    for (int r = 0; r < 50; r++) {
+      for (int c = 0; c < 4; c++) {
+        Key key = new Key(String.format("row_%05d", r).getBytes(), ("fam" + (c / 2)).getBytes(), ("qual" + c).getBytes(), (c == 3 ? "A&B" : "").getBytes(),
+            c == 2 ? 7 : 42, deletes && r == 7 && c == 1);
+        batch.add(new KeyValue(key, ("value" + r + "_" + c).getBytes()));
+      }
+    }
+    // a row that shares nothing with the previous one, and empty fields
+    batch.add(new KeyValue(new Key(new byte[0], new byte[0], new byte[0], new byte[0], -5, false), new byte[0]));
+    return batch;
+  }
+
+  private static void assertSame(List<KeyValue> expected, List<KeyValue> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).key, actual.get(i).key);
+      assertEquals(expected.get(i).key.isDeleted(), actual.get(i).key.isDeleted());
+      assertArrayEquals(expected.get(i).value, actual.get(i).value);
+    }
+  }
+
+  private void runTest(String compression) {
+    List<KeyValue> batch = createBatch(true);
+    List<TKeyValue> results = Collections.singletonList(ScanBatchEncoding.encode(batch, compression));
+
+    assertTrue(ScanBatchEncoding.isEncoded(results));
+    assertEquals(batch.size(), ScanBatchEncoding.getEntryCount(results));
+
+    ScanBatchEncoding.EncodedBatch decoded = ScanBatchEncoding.decode(results);
+    assertEquals(batch.get(batch.size() - 1).key, decoded.getLastKey());
+    // random access decodes everything before the entry
+    assertEquals(batch.get(10).key, decoded.get(10).key);
+    assertSame(batch, decoded);
+    assertSame(batch, ScanBatchEncoding.toKeyValues(results));
+  }
+
+  @Test
+  public void testNone() {
+    runTest(ScanBatchEncoding.NONE);
+  }
+
+  @Test
+  public void testDeflate() {
+    runTest(ScanBatchEncoding.DEFLATE);
+
+    List<KeyValue> batch = createBatch(true);
+    int none = ScanBatchEncoding.encode(batch, ScanBatchEncoding.NONE).value.remaining();
+    int deflate = ScanBatchEncoding.encode(batch, ScanBatchEncoding.DEFLATE).value.remaining();
+    assertTrue(deflate < none);
+  }
+
+  @Test
+  public void testEmpty() {
+    List<TKeyValue> results = Collections.singletonList(ScanBatchEncoding.encode(new ArrayList<KeyValue>(), ScanBatchEncoding.DEFLATE));
+    assertEquals(0, ScanBatchEncoding.getEntryCount(results));
+    assertEquals(0, ScanBatchEncoding.toKeyValues(results).size());
+  }
+
+  @Test
+  public void testPlainResults() {
+    // thrift keys do not carry the delete flag
+    List<KeyValue> batch = createBatch(false);
+    List<TKeyValue> results = Key.compress(batch);
+    assertFalse(ScanBatchEncoding.isEncoded(results));
+    assertEquals(batch.size(), ScanBatchEncoding.getEntryCount(results));
+    assertSame(batch, ScanBatchEncoding.toKeyValues(results));
+
+    List<TKeyValue> single = Collections.singletonList(new TKeyValue(batch.get(0).key.toThrift(), ByteBuffer.wrap(batch.get(0).value)));
+    assertFalse(ScanBatchEncoding.isEncoded(single));
+    assertEquals(1, ScanBatchEncoding.toKeyValues(single).size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupported() {
+    ScanBatchEncoding.encode(createBatch(true), "lz77");
+  }
+}
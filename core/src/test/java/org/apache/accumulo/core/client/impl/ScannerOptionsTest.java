@@ -17,8 +17,13 @@
 package org.apache.accumulo.core.client.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.accumulo.core.Constants;
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.iterators.DebugIterator;
 import org.apache.accumulo.core.iterators.user.WholeRowIterator;
@@ -56,4 +61,26 @@ public class ScannerOptionsTest {
       fail();
     } catch (IllegalArgumentException e) {}
   }
+  
+  @Test
+  public void testExecutionHints() {
+    ScannerOptions options = new ScannerOptions();
+    options.addScanIterator(new IteratorSetting(1, "NAME", DebugIterator.class));
+    assertSame(options.serverSideIteratorOptions, options.getServerSideIteratorOptions());
+    
+    options.setExecutionHints(Collections.singletonMap("executor", "fast"));
+    Map<String,Map<String,String>> ssio = options.getServerSideIteratorOptions();
+    assertEquals(2, ssio.size());
+    assertEquals(Collections.singletonMap("executor", "fast"), ssio.get(Constants.SCAN_EXECUTION_HINTS));
+    // hints are not sent as options of a real iterator
+    assertEquals(1, options.serverSideIteratorOptions.size());
+    
+    // hints survive copying and clearing iterators
+    ScannerOptions copy = new ScannerOptions(options);
+    copy.clearScanIterators();
+    assertEquals(Collections.singletonMap(Constants.SCAN_EXECUTION_HINTS, Collections.singletonMap("executor", "fast")), copy.getServerSideIteratorOptions());
+    
+    options.setExecutionHints(Collections.<String,String> emptyMap());
+    assertEquals(1, options.getServerSideIteratorOptions().size());
+  }
 }
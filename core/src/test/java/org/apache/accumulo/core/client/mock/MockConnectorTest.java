@@ -387,4 +387,38 @@ public class MockConnectorTest {
     assertEquals(name, mockInstance.getConnector("foo", new PasswordToken("bar")).getInstance().getInstanceName());
   }
   
+  @Test
+  public void testTimeRange() throws Exception {
+    Connector c = new MockConnector("root", new MockInstance());
+    c.tableOperations().create("test");
+    BatchWriter bw = c.createBatchWriter("test", new BatchWriterConfig());
+    Mutation m = new Mutation("r");
+    for (long ts = 10; ts <= 30; ts += 10) {
+      m.put("cf", "cq1", ts, new Value(("v" + ts).getBytes()));
+      m.put("cf", "cq2", ts, new Value(("v" + ts).getBytes()));
+    }
+    // a delete newer than the time range still hides what it deletes
+    m.putDelete("cf", "cq2", 40);
+    bw.addMutation(m);
+    bw.close();
+
+    Scanner s = c.createScanner("test", Authorizations.EMPTY);
+    s.setTimeRange(10, 20);
+    Iterator<Entry<Key,Value>> iter = s.iterator();
+    assertTrue(iter.hasNext());
+    Entry<Key,Value> entry = iter.next();
+    assertEquals("cq1", entry.getKey().getColumnQualifier().toString());
+    assertEquals(20, entry.getKey().getTimestamp());
+    assertFalse(iter.hasNext());
+
+    s.setTimeRange(Long.MIN_VALUE, Long.MAX_VALUE);
+    iter = s.iterator();
+    assertEquals(30, iter.next().getKey().getTimestamp());
+    assertFalse(iter.hasNext());
+
+    try {
+      s.setTimeRange(20, 10);
+      Assert.fail("setTimeRange should throw IAE for an empty range");
+    } catch (IllegalArgumentException iae) {}
+  }
 }
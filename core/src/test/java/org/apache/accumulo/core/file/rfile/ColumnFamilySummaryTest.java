@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.junit.Test;
+
+public class ColumnFamilySummaryTest {
+
+  private static ColumnFamilySummary roundTrip(ColumnFamilySummary summary) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    summary.write(new DataOutputStream(baos));
+    return ColumnFamilySummary.read(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+  }
+
+  private static Set<ByteSequence> set(String... cfs) {
+    Set<ByteSequence> set = new HashSet<ByteSequence>();
+    for (String cf : cfs)
+      set.add(new ArrayByteSequence(cf));
+    return set;
+  }
+
+  @Test
+  public void testSet() throws IOException {
+    ColumnFamilySummary.Builder builder = new ColumnFamilySummary.Builder();
+    for (String cf : new String[] {"a", "a", "b", "a", "c", "c"})
+      builder.add(new ArrayByteSequence(cf));
+
+    ColumnFamilySummary summary = roundTrip(builder.build());
+    assertArrayEquals(new ByteSequence[] {new ArrayByteSequence("a"), new ArrayByteSequence("b"), new ArrayByteSequence("c")}, summary.getColumnFamilies());
+    assertTrue(summary.mightContain(new ArrayByteSequence("b")));
+    assertFalse(summary.mightContain(new ArrayByteSequence("d")));
+    assertTrue(summary.mightContainAny(set("d", "c")));
+    assertFalse(summary.mightContainAny(set("d", "e", "f", "g")));
+    assertTrue(summary.containsOnly(set("a", "b", "c", "d")));
+    assertFalse(summary.containsOnly(set("a", "b")));
+
+    builder.reset();
+    builder.add(new ArrayByteSequence("x"));
+    assertEquals(Arrays.<ByteSequence> asList(new ArrayByteSequence("x")), Arrays.asList(builder.build().getColumnFamilies()));
+  }
+
+  @Test
+  public void testBloom() throws IOException {
+    ColumnFamilySummary.Builder builder = new ColumnFamilySummary.Builder();
+    for (int i = 0; i < 100; i++)
+      builder.add(new ArrayByteSequence("cf" + i));
+
+    ColumnFamilySummary summary = roundTrip(builder.build());
+    assertNull(summary.getColumnFamilies());
+    // a bloom filter never misses a column family that is present
+    for (int i = 0; i < 100; i++)
+      assertTrue(summary.mightContain(new ArrayByteSequence("cf" + i)));
+    assertFalse(summary.containsOnly(set("cf1")));
+
+    int falsePositives = 0;
+    for (int i = 100; i < 1100; i++)
+      if (summary.mightContain(new ArrayByteSequence("cf" + i)))
+        falsePositives++;
+    assertTrue("false positives " + falsePositives, falsePositives < 600);
+
+    // a few families in a bloom filter rarely match others
+    builder.reset();
+    for (int i = 0; i < 20; i++)
+      builder.add(new ArrayByteSequence("family" + i));
+    summary = builder.build();
+    assertNull(summary.getColumnFamilies());
+    falsePositives = 0;
+    for (int i = 0; i < 1000; i++)
+      if (summary.mightContain(new ArrayByteSequence("other" + i)))
+        falsePositives++;
+    assertTrue("false positives " + falsePositives, falsePositives < 50);
+  }
+}
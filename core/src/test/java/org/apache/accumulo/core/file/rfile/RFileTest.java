@@ -18,7 +18,9 @@ package org.apache.accumulo.core.file.rfile;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
@@ -31,6 +33,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -57,6 +60,7 @@ import org.apache.accumulo.core.iterators.system.ColumnFamilySkippingIterator;
 import org.apache.accumulo.core.metadata.MetadataTable;
 import org.apache.accumulo.core.metadata.schema.MetadataSchema;
 import org.apache.accumulo.core.metadata.schema.MetadataSchema.TabletsSection;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.core.security.crypto.CryptoTest;
 import org.apache.accumulo.core.util.CachedConfiguration;
 import org.apache.hadoop.conf.Configuration;
@@ -1540,6 +1544,341 @@ public class RFileTest {
     trf.closeReader();
   }
 
+  @Test
+  public void testFileStatistics() throws Exception {
+    TestRFile trf = new TestRFile();
+
+    trf.openWriter();
+
+    for (int i = 0; i < 100; i++) {
+      Key k = nk(nf("r_", i), i % 2 == 0 ? "cf1" : "cf2", "cq1", "L1", 10 + i);
+      k.setDeleted(i % 4 == 0);
+      trf.writer.append(k, nv("foo" + i));
+    }
+
+    trf.closeWriter();
+    trf.openReader();
+
+    FileStatistics stats = FileStatistics.read(trf.reader);
+    assertEquals(100, stats.getNumEntries());
+    assertEquals(25, stats.getNumDeletes());
+    assertEquals(.25, stats.getDeleteRatio(), 0.0);
+    assertEquals(10, stats.getMinTimestamp());
+    assertEquals(109, stats.getMaxTimestamp());
+    assertEquals(2, stats.getColumnFamilyCounts().size());
+    assertEquals(50l, (long) stats.getColumnFamilyCounts().get(new ArrayByteSequence("cf1")));
+    assertEquals(50l, (long) stats.getColumnFamilyCounts().get(new ArrayByteSequence("cf2")));
+
+    trf.closeReader();
+  }
+
+  @Test
+  public void testAppendDataBlocks() throws Exception {
+    // three files with disjoint rows, each spanning many blocks
+    TestRFile sources[] = new TestRFile[3];
+    for (int f = 0; f < sources.length; f++) {
+      sources[f] = new TestRFile();
+      sources[f].openWriter();
+      for (int i = 0; i < 1000; i++) {
+        sources[f].writer.append(nk(nf("r" + f + "_", i), "cf" + (i % 3), "cq", "", 5 + i), nv("v" + f + "_" + i));
+      }
+      sources[f].closeWriter();
+      sources[f].openReader();
+    }
+
+    TestRFile trf = new TestRFile();
+    trf.openWriter();
+
+    // mix normally appended keys with copied blocks
+    trf.writer.append(nk("r", "cf", "cq", "", 1), nv("first"));
+    for (TestRFile source : sources) {
+      assertTrue(trf.writer.canAppendDataBlocks(source.reader));
+      trf.writer.appendDataBlocks(source.reader);
+    }
+    trf.writer.append(nk("s", "cf", "cq", "", 2), nv("last"));
+
+    try {
+      trf.writer.appendDataBlocks(sources[0].reader);
+      fail();
+    } catch (IllegalStateException ise) {}
+
+    trf.closeWriter();
+
+    for (TestRFile source : sources)
+      source.closeReader();
+
+    trf.openReader();
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+
+    assertTrue(trf.iter.hasTop());
+    assertEquals(nk("r", "cf", "cq", "", 1), trf.iter.getTopKey());
+    trf.iter.next();
+    for (int f = 0; f < sources.length; f++) {
+      for (int i = 0; i < 1000; i++) {
+        assertTrue(trf.iter.hasTop());
+        assertEquals(nk(nf("r" + f + "_", i), "cf" + (i % 3), "cq", "", 5 + i), trf.iter.getTopKey());
+        assertEquals(nv("v" + f + "_" + i), trf.iter.getTopValue());
+        trf.iter.next();
+      }
+    }
+    assertEquals(nk("s", "cf", "cq", "", 2), trf.iter.getTopKey());
+    trf.iter.next();
+    assertFalse(trf.iter.hasTop());
+
+    // seeking into copied blocks uses the rebuilt index
+    trf.seek(nk(nf("r1_", 500), "", "", "", Long.MAX_VALUE));
+    assertEquals(nk(nf("r1_", 500), "cf2", "cq", "", 505), trf.iter.getTopKey());
+
+    assertEquals(nk("r", "cf", "cq", "", 1), trf.reader.getFirstKey());
+    assertEquals(nk("s", "cf", "cq", "", 2), trf.reader.getLastKey());
+
+    FileStatistics stats = FileStatistics.read(trf.reader);
+    assertEquals(3002, stats.getNumEntries());
+    assertEquals(1, stats.getMinTimestamp());
+    assertEquals(1004, stats.getMaxTimestamp());
+    assertEquals(1002l, (long) stats.getColumnFamilyCounts().get(new ArrayByteSequence("cf0")));
+
+    trf.closeReader();
+  }
+
+  @Test
+  public void testAppendDataBlocksWithoutLocalityGroup() throws Exception {
+    TestRFile source = new TestRFile();
+    source.openWriter();
+    for (int i = 0; i < 1000; i++) {
+      source.writer.append(nk(nf("r", i), "cf", "cq", "", 1), nv("v" + i));
+    }
+    source.closeWriter();
+    source.openReader();
+
+    // a writer that has not started a locality group can copy blocks into its default locality group
+    TestRFile trf = new TestRFile();
+    trf.openWriter(false);
+    assertTrue(trf.writer.canAppendDataBlocks(source.reader));
+    trf.writer.appendDataBlocks(source.reader);
+    trf.closeWriter();
+    source.closeReader();
+
+    trf.openReader();
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(trf.iter.hasTop());
+      assertEquals(nk(nf("r", i), "cf", "cq", "", 1), trf.iter.getTopKey());
+      assertEquals(nv("v" + i), trf.iter.getTopValue());
+      trf.iter.next();
+    }
+    assertFalse(trf.iter.hasTop());
+    trf.closeReader();
+
+    // once a named locality group is started, blocks can not be copied
+    source = new TestRFile();
+    source.openWriter();
+    source.writer.append(nk("r", "cf", "cq", "", 1), nv("v"));
+    source.closeWriter();
+    source.openReader();
+
+    trf = new TestRFile();
+    trf.openWriter(false);
+    trf.writer.startNewLocalityGroup("lg1", ncfs("cf1"));
+    assertFalse(trf.writer.canAppendDataBlocks(source.reader));
+    trf.writer.startDefaultLocalityGroup();
+    assertFalse(trf.writer.canAppendDataBlocks(source.reader));
+    source.closeReader();
+  }
+
+  @Test
+  public void testColumnFamilyBlockSkipping() throws Exception {
+    TestRFile trf = new TestRFile();
+    trf.openWriter();
+
+    // a column family present in only a few rows, among wide rows spanning many blocks
+    int total = 0;
+    for (int r = 0; r < 2000; r++) {
+      for (int q = 0; q < 5; q++) {
+        trf.writer.append(nk(nf("r", r), "data", "cq" + q, "", 1), nv("d" + r));
+        total++;
+      }
+      if (r % 500 == 250) {
+        trf.writer.append(nk(nf("r", r), "sparse", "cq", "", 1), nv("s" + r));
+        total++;
+      }
+    }
+
+    trf.closeWriter();
+    trf.openReader();
+
+    Set<ByteSequence> sparse = Collections.<ByteSequence> singleton(new ArrayByteSequence("sparse"));
+    Set<ByteSequence> data = Collections.<ByteSequence> singleton(new ArrayByteSequence("data"));
+
+    // the reader only skips blocks, so count what it reads without filtering
+    trf.reader.seek(new Range(), sparse, true);
+    int read = 0;
+    int found = 0;
+    while (trf.reader.hasTop()) {
+      if (trf.reader.getTopKey().getColumnFamilyData().equals(new ArrayByteSequence("sparse")))
+        found++;
+      read++;
+      trf.reader.next();
+    }
+    assertEquals(4, found);
+    assertTrue("read " + read + " of " + total, read < total / 10);
+
+    for (boolean inclusive : new boolean[] {true, false}) {
+      for (Range range : new Range[] {new Range(), new Range(nf("r", 250), nf("r", 1300)), new Range(nf("r", 251), nf("r", 700))}) {
+        trf.iter.seek(range, inclusive ? sparse : data, inclusive);
+        for (int r = 250; r < 2000; r += 500) {
+          Key expected = nk(nf("r", r), "sparse", "cq", "", 1);
+          if (!range.contains(expected))
+            continue;
+          assertTrue(trf.iter.hasTop());
+          assertEquals(expected, trf.iter.getTopKey());
+          assertEquals(nv("s" + r), trf.iter.getTopValue());
+          trf.iter.next();
+        }
+        assertFalse(trf.iter.hasTop());
+      }
+    }
+
+    // seeking without column families after skipping blocks still finds everything
+    trf.iter.seek(new Range(nf("r", 600), nf("r", 601)), EMPTY_COL_FAMS, false);
+    int count = 0;
+    while (trf.iter.hasTop()) {
+      count++;
+      trf.iter.next();
+    }
+    assertEquals(10, count);
+
+    trf.closeReader();
+  }
+
+  private static int countTimeRange(TestRFile trf, long min, long max, Range range) throws IOException {
+    trf.reader.setTimeRange(min, max);
+    trf.reader.seek(range, EMPTY_COL_FAMS, false);
+    int read = 0;
+    while (trf.reader.hasTop()) {
+      read++;
+      trf.reader.next();
+    }
+    return read;
+  }
+
+  @Test
+  public void testTimeRangeBlockSkipping() throws Exception {
+    TestRFile trf = new TestRFile();
+    trf.openWriter();
+
+    // timestamps grow with the row, so each block covers a narrow time range
+    int total = 0;
+    for (int r = 0; r < 2000; r++) {
+      if (r == 1500) {
+        // a delete newer than any window below must still be seen
+        Key del = nk(nf("r", r), "data", "cq0", "", 5000);
+        del.setDeleted(true);
+        trf.writer.append(del, nv(""));
+        total++;
+      }
+      for (int q = 0; q < 5; q++) {
+        trf.writer.append(nk(nf("r", r), "data", "cq" + q, "", r), nv("d" + r));
+        total++;
+      }
+    }
+
+    trf.closeWriter();
+    trf.openReader();
+
+    // the reader only skips blocks, so it returns more than the window
+    trf.reader.setTimeRange(1000, 1099);
+    trf.reader.seek(new Range(), EMPTY_COL_FAMS, false);
+    int read = 0;
+    int inWindow = 0;
+    boolean sawDelete = false;
+    while (trf.reader.hasTop()) {
+      Key key = trf.reader.getTopKey();
+      if (key.isDeleted())
+        sawDelete = true;
+      else
+        assertTrue(key.toString(), key.getTimestamp() >= 900);
+      if (key.getTimestamp() >= 1000 && key.getTimestamp() <= 1099)
+        inWindow++;
+      read++;
+      trf.reader.next();
+    }
+    assertEquals(500, inWindow);
+    assertTrue(sawDelete);
+    assertTrue("read " + read + " of " + total, read < total / 5);
+
+    // seeking into the window
+    assertEquals(5, countTimeRange(trf, 1000, 1099, new Range(nf("r", 1050))));
+
+    // a window newer than everything, only the block with the delete can not be skipped
+    read = countTimeRange(trf, 10000, 20000, new Range());
+    assertEquals(0, read);
+    read = countTimeRange(trf, 4000, 4500, new Range());
+    assertTrue(read > 0 && read < total / 20);
+
+    // a window older than everything
+    assertTrue(countTimeRange(trf, -100, -1, new Range()) < total / 20);
+
+    // removing the time range reads everything again
+    assertEquals(total, countTimeRange(trf, Long.MIN_VALUE, Long.MAX_VALUE, new Range()));
+
+    trf.closeReader();
+  }
+
+  private static int countVisible(TestRFile trf, Authorizations auths, String defaultVisibility, Set<String> seen) throws IOException {
+    trf.reader.setAuthorizations(auths, defaultVisibility.getBytes());
+    trf.reader.seek(new Range(), EMPTY_COL_FAMS, false);
+    int read = 0;
+    while (trf.reader.hasTop()) {
+      seen.add(trf.reader.getTopKey().getColumnVisibility().toString());
+      read++;
+      trf.reader.next();
+    }
+    return read;
+  }
+
+  @Test
+  public void testVisibilityBlockSkipping() throws Exception {
+    TestRFile trf = new TestRFile();
+    trf.openWriter();
+
+    // visibilities change with the row, so each block holds only one or two of them
+    String[] visibilities = new String[] {"A", "B", "", "A|B"};
+    int total = 0;
+    for (int r = 0; r < 2000; r++) {
+      for (int q = 0; q < 5; q++) {
+        trf.writer.append(nk(nf("r", r), "data", "cq" + q, visibilities[r / 500], 1), nv("d" + r));
+        total++;
+      }
+    }
+
+    trf.closeWriter();
+    trf.openReader();
+
+    // the reader only skips blocks, so it may return keys that are not visible
+    Set<String> seen = new HashSet<String>();
+    int read = countVisible(trf, new Authorizations("A"), "", seen);
+    assertTrue("read " + read + " of " + total, read >= total * 3 / 4 && read < total * 4 / 5);
+    assertTrue(seen.toString(), seen.containsAll(Arrays.asList("A", "", "A|B")));
+
+    // keys with an empty visibility are given the default visibility
+    seen.clear();
+    read = countVisible(trf, new Authorizations(), "", seen);
+    assertTrue("read " + read + " of " + total, read >= total / 4 && read < total / 3);
+    assertTrue(seen.contains(""));
+    seen.clear();
+    read = countVisible(trf, new Authorizations(), "C", seen);
+    assertTrue("read " + read + " of " + total, read < total / 20);
+    seen.clear();
+    read = countVisible(trf, new Authorizations("C"), "C", seen);
+    assertTrue(seen.contains(""));
+
+    // without authorizations everything is read
+    assertEquals(total, countVisible(trf, null, "", seen));
+
+    trf.closeReader();
+  }
+
   @Test(expected = NullPointerException.class)
   public void testMissingUnreleasedVersions() throws Exception {
     runVersionTest(5);
@@ -1603,6 +1942,9 @@ public class RFileTest {
       assertFalse(iter.hasTop());
     }
 
+    // files written before statistics were recorded do not have any
+    assertNull(FileStatistics.read(reader));
+
     reader.close();
   }
 
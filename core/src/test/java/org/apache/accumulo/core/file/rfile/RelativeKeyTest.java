@@ -17,6 +17,7 @@
 package org.apache.accumulo.core.file.rfile;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -109,6 +110,24 @@ public class RelativeKeyTest {
     assertEquals(expected.getKey(), actual.getKey());
   }
   
+  @Test
+  public void testSameFieldsShareArrays() throws IOException {
+    Key prevKey = new Key("row1", "columnfamily1", "columnqualifier1", "columnvisibility1", 1000);
+    Key newKey = new Key("row1", "columnfamily1", "columnqualifier2", "columnvisibility1", 1000);
+    
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    new RelativeKey(prevKey, newKey).write(new DataOutputStream(baos));
+    
+    RelativeKey actual = new RelativeKey();
+    actual.setPrevKey(prevKey);
+    actual.readFields(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+    
+    assertEquals(newKey, actual.getKey());
+    assertSame(prevKey.getRowData().getBackingArray(), actual.getKey().getRowData().getBackingArray());
+    assertSame(prevKey.getColumnFamilyData().getBackingArray(), actual.getKey().getColumnFamilyData().getBackingArray());
+    assertSame(prevKey.getColumnVisibilityData().getBackingArray(), actual.getKey().getColumnVisibilityData().getBackingArray());
+  }
+  
   private static ArrayList<Key> expectedKeys;
   private static ArrayList<Value> expectedValues;
   private static ArrayList<Integer> expectedPositions;
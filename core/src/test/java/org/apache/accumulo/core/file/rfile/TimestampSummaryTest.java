@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.accumulo.core.data.Key;
+import org.junit.Test;
+
+public class TimestampSummaryTest {
+
+  private static TimestampSummary roundTrip(TimestampSummary summary) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    summary.write(new DataOutputStream(baos));
+    return TimestampSummary.read(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+  }
+
+  private static Key key(long ts, boolean deleted) {
+    Key key = new Key("r", "f", "q", ts);
+    key.setDeleted(deleted);
+    return key;
+  }
+
+  @Test
+  public void testBuilder() throws IOException {
+    TimestampSummary.Builder builder = new TimestampSummary.Builder();
+    assertNull(builder.build());
+
+    builder.add(key(20, false));
+    builder.add(key(10, false));
+    builder.add(key(30, false));
+    TimestampSummary summary = roundTrip(builder.build());
+    assertEquals(10, summary.getMinTimestamp());
+    assertEquals(30, summary.getMaxTimestamp());
+    assertFalse(summary.hasDeletes());
+
+    builder.reset();
+    assertNull(builder.build());
+    builder.add(key(5, true));
+    assertTrue(roundTrip(builder.build()).hasDeletes());
+  }
+
+  @Test
+  public void testUnknown() throws IOException {
+    TimestampSummary.Builder builder = new TimestampSummary.Builder();
+    builder.add(new TimestampSummary(10, 30, false));
+    builder.add((TimestampSummary) null);
+    TimestampSummary summary = roundTrip(builder.build());
+    assertEquals(Long.MIN_VALUE, summary.getMinTimestamp());
+    assertEquals(Long.MAX_VALUE, summary.getMaxTimestamp());
+    assertFalse(summary.canSkip(0, 0));
+    assertFalse(summary.canSkip(Long.MAX_VALUE, Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testCanSkip() {
+    TimestampSummary summary = new TimestampSummary(10, 30, false);
+    assertTrue(summary.canSkip(31, 40));
+    assertTrue(summary.canSkip(0, 9));
+    assertFalse(summary.canSkip(30, 40));
+    assertFalse(summary.canSkip(0, 10));
+    assertFalse(summary.canSkip(15, 20));
+
+    // a delete newer than the range may hide keys in the range
+    summary = new TimestampSummary(10, 30, true);
+    assertTrue(summary.canSkip(31, 40));
+    assertFalse(summary.canSkip(0, 9));
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.VisibilityCache;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class VisibilitySummaryTest {
+
+  private static VisibilitySummary roundTrip(VisibilitySummary summary) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    summary.write(new DataOutputStream(baos));
+    return VisibilitySummary.read(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+  }
+
+  private static VisibilitySummary summary(String... visibilities) {
+    VisibilitySummary.Builder builder = new VisibilitySummary.Builder();
+    for (String visibility : visibilities)
+      builder.add(new ArrayByteSequence(visibility));
+    return builder.build();
+  }
+
+  @Test
+  public void testBuilder() throws IOException {
+    VisibilitySummary.Builder builder = new VisibilitySummary.Builder();
+    assertNull(builder.build());
+
+    VisibilitySummary summary = roundTrip(summary("A", "A", "B&C", "", "A", "B&C"));
+    assertEquals(Arrays.asList(new Text("A"), new Text("B&C"), new Text("")), Arrays.asList(summary.getVisibilities()));
+
+    // merging summaries
+    builder.add(summary);
+    builder.add(summary("D"));
+    assertEquals(4, builder.build().getVisibilities().length);
+
+    // a summary that is not known makes the merged summary unknown
+    builder.add((VisibilitySummary) null);
+    assertNull(builder.build());
+
+    builder.reset();
+    builder.add(new ArrayByteSequence("A"));
+    assertEquals(1, builder.build().getVisibilities().length);
+  }
+
+  @Test
+  public void testTooMany() {
+    String[] visibilities = new String[VisibilitySummary.MAX_SIZE + 1];
+    for (int i = 0; i < visibilities.length; i++)
+      visibilities[i] = "V" + i;
+    assertNull(summary(visibilities));
+    assertEquals(VisibilitySummary.MAX_SIZE, summary(Arrays.copyOf(visibilities, VisibilitySummary.MAX_SIZE)).getVisibilities().length);
+
+    char[] large = new char[VisibilitySummary.MAX_BYTES / 2 + 1];
+    Arrays.fill(large, 'a');
+    assertNull(summary(new String(large), new String(large).toUpperCase()));
+  }
+
+  @Test
+  public void testAnyVisible() {
+    VisibilityCache.Evaluator a = VisibilityCache.getEvaluator(new Authorizations("A"));
+    VisibilityCache.Evaluator none = VisibilityCache.getEvaluator(new Authorizations());
+
+    assertTrue(summary("B", "A|B").anyVisible(a, new Text()));
+    assertFalse(summary("B", "A&B").anyVisible(a, new Text()));
+
+    // an empty visibility is given the default
+    assertTrue(summary("B", "").anyVisible(none, new Text()));
+    assertFalse(summary("B", "").anyVisible(none, new Text("A")));
+    assertTrue(summary("B", "").anyVisible(a, new Text("A")));
+
+    // visibilities that can not be parsed are never visible
+    assertFalse(summary("A&").anyVisible(a, new Text()));
+  }
+}
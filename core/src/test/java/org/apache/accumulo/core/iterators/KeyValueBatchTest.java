@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Column;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.system.ColumnQualifierFilter;
+import org.apache.accumulo.core.iterators.system.SourceSwitchingIterator;
+import org.apache.accumulo.core.iterators.system.SourceSwitchingIterator.DataSource;
+import org.apache.accumulo.core.iterators.system.StatsIterator;
+import org.apache.accumulo.core.iterators.system.VisibilityFilter;
+import org.apache.accumulo.core.security.Authorizations;
+import org.junit.Test;
+
+public class KeyValueBatchTest {
+
+  private static class SimpleDataSource implements DataSource {
+    SortedKeyValueIterator<Key,Value> iter;
+
+    SimpleDataSource(SortedKeyValueIterator<Key,Value> iter) {
+      this.iter = iter;
+    }
+
+    @Override
+    public boolean isCurrent() {
+      return true;
+    }
+
+    @Override
+    public DataSource getNewDataSource() {
+      return this;
+    }
+
+    @Override
+    public DataSource getDeepCopyDataSource(IteratorEnvironment env) {
+      return new SimpleDataSource(iter.deepCopy(env));
+    }
+
+    @Override
+    public SortedKeyValueIterator<Key,Value> iterator() {
+      return iter;
+    }
+  }
+
+  /**
+   * An iterator that returns the same key and value objects, with the same value array, for every entry.
+   */
+  private static class ReusingIterator extends WrappingIterator {
+    private Key key = new Key();
+    private byte[] bytes = new byte[8];
+    private Value value = new Value(bytes, false);
+
+    ReusingIterator(SortedKeyValueIterator<Key,Value> source) {
+      setSource(source);
+    }
+
+    @Override
+    public Key getTopKey() {
+      key.set(getSource().getTopKey());
+      return key;
+    }
+
+    @Override
+    public Value getTopValue() {
+      byte[] v = getSource().getTopValue().get();
+      System.arraycopy(v, 0, bytes, 0, Math.min(v.length, bytes.length));
+      return value;
+    }
+  }
+
+  private static TreeMap<Key,Value> createData() {
+    TreeMap<Key,Value> tm = new TreeMap<Key,Value>();
+    String[] visibilities = {"", "A", "B", "A&B"};
+    for (int r = 0; r < 100; r++) {
+      for (int c = 0; c < 4; c++) {
+        Key k = new Key(String.format("r%03d", r), "cf" + (c % 2), "cq" + c, visibilities[(r + c) % visibilities.length], 5);
+        k.setDeleted(r % 17 == 0 && c == 0);
+        tm.put(k, new Value(String.format("v%03d_%d", r, c).getBytes()));
+      }
+    }
+    return tm;
+  }
+
+  private static SortedKeyValueIterator<Key,Value> createStack(TreeMap<Key,Value> tm) {
+    ColumnQualifierFilter cqf = new ColumnQualifierFilter(new SortedMapIterator(tm),
+        Collections.singleton(new Column("cf1".getBytes(), "cq1".getBytes(), null)));
+    VisibilityFilter vf = new VisibilityFilter(new StatsIterator(cqf, new AtomicLong(), new AtomicLong()),
+        new Authorizations("A"), new byte[0]);
+    return new SourceSwitchingIterator(new SimpleDataSource(vf));
+  }
+
+  private static List<Entry<Key,Value>> readEntries(SortedKeyValueIterator<Key,Value> iter, Range range) throws IOException {
+    List<Entry<Key,Value>> entries = new ArrayList<Entry<Key,Value>>();
+    iter.seek(range, Collections.<ByteSequence> emptySet(), false);
+    while (iter.hasTop()) {
+      entries.add(new SimpleImmutableEntry<Key,Value>(new Key(iter.getTopKey()), new Value(iter.getTopValue())));
+      iter.next();
+    }
+    return entries;
+  }
+
+  private static List<Entry<Key,Value>> readBatches(SortedKeyValueIterator<Key,Value> iter, Range range, int batchSize) throws IOException {
+    List<Entry<Key,Value>> entries = new ArrayList<Entry<Key,Value>>();
+    iter.seek(range, Collections.<ByteSequence> emptySet(), false);
+    KeyValueBatch batch = new KeyValueBatch(batchSize);
+    while (true) {
+      batch.clear();
+      int read = batch.fill(iter);
+      assertEquals(batch.size(), read);
+      if (read == 0)
+        break;
+      for (int i = 0; i < batch.size(); i++)
+        entries.add(new SimpleImmutableEntry<Key,Value>(batch.getKey(i), batch.getValue(i)));
+    }
+    assertFalse(iter.hasTop());
+    return entries;
+  }
+
+  private static void assertSameEntries(List<Entry<Key,Value>> expected, List<Entry<Key,Value>> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).getKey(), actual.get(i).getKey());
+      assertEquals(expected.get(i).getKey().isDeleted(), actual.get(i).getKey().isDeleted());
+      assertEquals(expected.get(i).getValue(), actual.get(i).getValue());
+    }
+  }
+
+  @Test
+  public void testSystemStack() throws IOException {
+    TreeMap<Key,Value> tm = createData();
+    Range[] ranges = {new Range(), new Range("r010", "r020"), new Range(new Key("r050", "cf1", "cq1"), null)};
+    for (Range range : ranges) {
+      List<Entry<Key,Value>> expected = readEntries(createStack(tm), range);
+      for (int batchSize : new int[] {1, 2, 7, 16, 1000}) {
+        assertSameEntries(expected, readBatches(createStack(tm), range, batchSize));
+      }
+    }
+  }
+
+  @Test
+  public void testMixedCalls() throws IOException {
+    TreeMap<Key,Value> tm = createData();
+    List<Entry<Key,Value>> expected = readEntries(createStack(tm), new Range());
+
+    // interleaving batches with single entries leaves the iterator in the right place
+    SortedKeyValueIterator<Key,Value> iter = createStack(tm);
+    iter.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+    List<Entry<Key,Value>> actual = new ArrayList<Entry<Key,Value>>();
+    KeyValueBatch batch = new KeyValueBatch(5);
+    while (iter.hasTop()) {
+      actual.add(new SimpleImmutableEntry<Key,Value>(new Key(iter.getTopKey()), new Value(iter.getTopValue())));
+      iter.next();
+      batch.clear();
+      batch.fill(iter);
+      for (int i = 0; i < batch.size(); i++)
+        actual.add(new SimpleImmutableEntry<Key,Value>(batch.getKey(i), batch.getValue(i)));
+    }
+    assertSameEntries(expected, actual);
+  }
+
+  @Test
+  public void testAdapterCopies() throws IOException {
+    TreeMap<Key,Value> tm = createData();
+    List<Entry<Key,Value>> expected = readEntries(new ReusingIterator(new SortedMapIterator(tm)), new Range());
+    assertSameEntries(expected, readBatches(new ReusingIterator(new SortedMapIterator(tm)), new Range(), 10));
+
+    SortedKeyValueIterator<Key,Value> iter = new ReusingIterator(new SortedMapIterator(tm));
+    iter.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+    KeyValueBatch batch = new KeyValueBatch(2);
+    batch.fill(iter);
+    assertNotSame(batch.getKey(0), batch.getKey(1));
+    assertNotSame(batch.getValue(0).get(), batch.getValue(1).get());
+
+    // when told values are never reused, their arrays are not copied
+    iter.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+    batch = new KeyValueBatch(2, false);
+    batch.fill(iter);
+    assertSame(batch.getValue(0).get(), batch.getValue(1).get());
+  }
+}
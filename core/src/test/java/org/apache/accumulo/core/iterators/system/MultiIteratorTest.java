@@ -20,6 +20,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
 import java.util.TreeMap;
 
 import junit.framework.TestCase;
@@ -399,4 +401,56 @@ public class MultiIteratorTest extends TestCase {
     mi.seek(r7, EMPTY_COL_FAMS, false);
     assertFalse(mi.hasTop());
   }
+
+  public void testManySources() throws IOException {
+    Random random = new Random(42);
+    for (int numSources : new int[] {1, 2, 3, 5, 8, 13}) {
+      for (boolean runs : new boolean[] {true, false}) {
+        List<TreeMap<Key,Value>> maps = new ArrayList<TreeMap<Key,Value>>();
+        TreeMap<Key,Value> expected = new TreeMap<Key,Value>();
+        for (int s = 0; s < numSources; s++) {
+          TreeMap<Key,Value> tm = new TreeMap<Key,Value>();
+          // some sources are empty and runs put the rows of each source next to each other
+          int count = s % 4 == 3 ? 0 : random.nextInt(200);
+          for (int i = 0; i < count; i++) {
+            int row = runs ? s * 1000 + i : random.nextInt(500);
+            Key k = new Key(new Text(String.format("r%08d", row)), new Text("cf"), new Text(String.format("cq%d", random.nextInt(3))), s);
+            Value v = new Value(("v" + s + "_" + i).getBytes());
+            tm.put(k, v);
+            expected.put(k, v);
+          }
+          maps.add(tm);
+        }
+
+        List<SortedKeyValueIterator<Key,Value>> iters = new ArrayList<SortedKeyValueIterator<Key,Value>>();
+        for (TreeMap<Key,Value> map : maps)
+          iters.add(new SortedMapIterator(map));
+        MultiIterator mi = new MultiIterator(iters, true);
+
+        for (int seekRow : new int[] {-1, 100, 2500}) {
+          Range range = seekRow < 0 ? new Range() : new Range(new Text(String.format("r%08d", seekRow)), null);
+          mi.seek(range, EMPTY_COL_FAMS, false);
+          int checked = 0;
+          for (Entry<Key,Value> entry : expected.entrySet()) {
+            if (!range.contains(entry.getKey()))
+              continue;
+            assertTrue(mi.hasTop());
+            assertEquals(entry.getKey(), mi.getTopKey());
+            assertEquals(entry.getValue(), mi.getTopValue());
+            mi.next();
+            checked++;
+          }
+          assertFalse("sources=" + numSources + " runs=" + runs + " checked=" + checked, mi.hasTop());
+        }
+      }
+    }
+  }
+
+  public void testRowPrefix() {
+    assertTrue(HeapIterator.rowPrefix(new Key("a")) < HeapIterator.rowPrefix(new Key("b")));
+    assertEquals(HeapIterator.rowPrefix(new Key("abcdefgh1")), HeapIterator.rowPrefix(new Key("abcdefgh2")));
+    assertEquals(0, HeapIterator.rowPrefix(new Key("")));
+    // bytes are compared unsigned, so the prefix of a row starting with 0xff is negative
+    assertTrue(HeapIterator.rowPrefix(new Key(new Text(new byte[] {(byte) 0xff}))) < 0);
+  }
 }
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security;
+
+import static org.apache.accumulo.core.security.ColumnVisibility.quote;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CompiledVisibilityTest {
+
+  private static CompiledVisibility compile(String expression) {
+    return CompiledVisibility.compile(new ColumnVisibility(expression));
+  }
+
+  @Test
+  public void testClauses() {
+    CompiledVisibility cv = compile("(A|B)&(C|A)");
+    assertTrue(cv.isCompiled());
+    assertEquals(3, cv.getTerms().length);
+    // A, B&C ... A&C is left out because A alone is enough
+    assertEquals(2, cv.getClauses().length);
+
+    assertEquals(1, compile("A|A|A").getClauses().length);
+    assertEquals(0, compile("").getTerms().length);
+  }
+
+  @Test
+  public void testTermNumbers() throws VisibilityParseException {
+    // terms numbered before the authorizations and after them
+    CompiledVisibility before = compile("numbered1&numbered2");
+    VisibilityEvaluator ve = new VisibilityEvaluator(new Authorizations("numbered1", "numbered2", "numbered3"));
+    CompiledVisibility after = compile("numbered3|numbered4");
+    assertTrue(before.getTermNumbers() != null && after.getTermNumbers() != null);
+    assertTrue(ve.evaluate(before));
+    assertTrue(ve.evaluate(after));
+    assertFalse(ve.evaluate(compile("numbered4|numbered5")));
+    assertFalse(new VisibilityEvaluator(new Authorizations("numbered1")).evaluate(before));
+  }
+
+  @Test
+  public void testNotCompiled() throws VisibilityParseException {
+    // expands to 2^7 clauses
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 7; i++)
+      sb.append(i == 0 ? "" : "&").append("(a" + i + "|b" + i + ")");
+    CompiledVisibility cv = compile(sb.toString());
+    assertFalse(cv.isCompiled());
+
+    StringBuilder auths = new StringBuilder();
+    for (int i = 0; i < 7; i++)
+      auths.append(i == 0 ? "" : ",").append(i % 2 == 0 ? "a" : "b").append(i);
+    assertTrue(new VisibilityEvaluator(new Authorizations(auths.toString().split(","))).evaluate(cv));
+    assertFalse(new VisibilityEvaluator(new Authorizations("a0", "a1")).evaluate(cv));
+
+    sb = new StringBuilder();
+    for (int i = 0; i < 65; i++)
+      sb.append(i == 0 ? "" : "|").append("t" + i);
+    assertFalse(compile(sb.toString()).isCompiled());
+  }
+
+  @Test
+  public void testQuoted() throws VisibilityParseException {
+    VisibilityEvaluator ve = new VisibilityEvaluator(new Authorizations("A#C", "A\"C", "A\\C", "AC"));
+    assertTrue(ve.evaluate(compile(quote("A#C") + "|" + quote("A?C"))));
+    assertTrue(ve.evaluate(compile(quote("A\"C") + "&" + quote("A\\C"))));
+    assertTrue(ve.evaluate(compile("(" + quote("A\"C") + "|B)&(" + quote("A#C") + "|D)")));
+    assertFalse(ve.evaluate(compile(quote("A#C") + "&B")));
+  }
+
+  private static String randomExpression(Random random, int depth) {
+    if (depth == 0 || random.nextInt(3) == 0)
+      return "t" + random.nextInt(8);
+    int children = 2 + random.nextInt(3);
+    String op = random.nextBoolean() ? "&" : "|";
+    StringBuilder sb = new StringBuilder("(");
+    for (int i = 0; i < children; i++)
+      sb.append(i == 0 ? "" : op).append(randomExpression(random, depth - 1));
+    return sb.append(")").toString();
+  }
+
+  @Test
+  public void testSameAsParseTree() throws VisibilityParseException {
+    Random random = new Random(42);
+    List<VisibilityEvaluator> evaluators = new ArrayList<VisibilityEvaluator>();
+    for (int i = 0; i < 20; i++) {
+      List<String> auths = new ArrayList<String>();
+      for (int t = 0; t < 8; t++)
+        if (random.nextBoolean())
+          auths.add("t" + t);
+      evaluators.add(new VisibilityEvaluator(new Authorizations(auths.toArray(new String[auths.size()]))));
+    }
+
+    for (int i = 0; i < 500; i++) {
+      ColumnVisibility cv = new ColumnVisibility(randomExpression(random, 4));
+      CompiledVisibility compiled = CompiledVisibility.compile(cv);
+      for (VisibilityEvaluator ve : evaluators)
+        assertEquals(cv.toString(), ve.evaluate(cv), ve.evaluate(compiled));
+    }
+  }
+}
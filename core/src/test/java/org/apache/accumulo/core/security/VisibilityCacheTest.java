@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.accumulo.core.util.BadArgumentException;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class VisibilityCacheTest {
+
+  @Test
+  public void testSharedExpressions() {
+    Text expression = new Text("A&(B|C)");
+    ColumnVisibility cv = VisibilityCache.getColumnVisibility(expression);
+    assertEquals("A&(B|C)", new String(cv.getExpression()));
+    assertSame(cv, VisibilityCache.getColumnVisibility(new Text("A&(B|C)")));
+
+    // the cache keeps its own copy of the expression
+    expression.set("D");
+    assertSame(cv, VisibilityCache.getColumnVisibility(new Text("A&(B|C)")));
+    assertEquals("D", new String(VisibilityCache.getColumnVisibility(expression).getExpression()));
+  }
+
+  @Test
+  public void testSharedEvaluators() throws VisibilityParseException {
+    VisibilityCache.Evaluator evaluator = VisibilityCache.getEvaluator(new Authorizations("A", "B"));
+    assertSame(evaluator, VisibilityCache.getEvaluator(new Authorizations("B", "A")));
+    assertNotSame(evaluator, VisibilityCache.getEvaluator(new Authorizations("A")));
+
+    Text expression = new Text("A&B");
+    assertTrue(evaluator.evaluate(expression));
+    assertFalse(VisibilityCache.getEvaluator(new Authorizations("A")).evaluate(expression));
+    assertTrue(evaluator.evaluate(new Text("C|B")));
+    assertFalse(evaluator.evaluate(new Text("A&C")));
+    assertTrue(evaluator.evaluate(new Text("")));
+
+    // results are kept by expression, not by the text object passed in
+    expression.set("C");
+    assertFalse(evaluator.evaluate(expression));
+    assertTrue(evaluator.evaluate(new Text("A&B")));
+  }
+
+  @Test
+  public void testBadExpression() throws VisibilityParseException {
+    VisibilityCache.Evaluator evaluator = VisibilityCache.getEvaluator(new Authorizations("A"));
+    for (int i = 0; i < 2; i++) {
+      try {
+        evaluator.evaluate(new Text("A&"));
+        fail("expected parse error");
+      } catch (BadArgumentException e) {}
+    }
+  }
+
+  @Test
+  public void testResultsBounded() throws VisibilityParseException {
+    // evaluate more distinct expressions than the bound, spread over several sets of authorizations
+    int sets = 4;
+    int perSet = VisibilityCache.MAX_RESULTS / sets + 1000;
+    for (int s = 0; s < sets; s++) {
+      VisibilityCache.Evaluator evaluator = VisibilityCache.getEvaluator(new Authorizations("A", "bound" + s));
+      for (int i = 0; i < perSet; i++) {
+        assertEquals(i % 2 == 0, evaluator.evaluate(new Text(i % 2 == 0 ? "A|x" + i : "A&x" + i)));
+      }
+      assertTrue(VisibilityCache.getResultCount() <= VisibilityCache.MAX_RESULTS);
+    }
+    assertTrue(VisibilityCache.getResultCount() <= VisibilityCache.MAX_RESULTS);
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.accumulo.core.conf.Property;
+import org.junit.Test;
+
+public class BufferedCryptoModuleTest {
+
+  private static final String[] SUITES = new String[] {"AES/CTR/NoPadding", "AES/CFB/PKCS5Padding", "AES/CBC/PKCS5Padding"};
+
+  private static CryptoModuleParameters params(String suite) {
+    Map<String,String> options = new HashMap<String,String>();
+    options.put(Property.CRYPTO_CIPHER_SUITE.getKey(), suite);
+    options.put(Property.CRYPTO_CIPHER_ALGORITHM_NAME.getKey(), "AES");
+    options.put(Property.CRYPTO_CIPHER_KEY_LENGTH.getKey(), "128");
+    options.put(Property.CRYPTO_SECURE_RNG.getKey(), "SHA1PRNG");
+    options.put(Property.CRYPTO_SECURE_RNG_PROVIDER.getKey(), "SUN");
+    options.put(Property.CRYPTO_SECRET_KEY_ENCRYPTION_STRATEGY_CLASS.getKey(), "NullSecretKeyEncryptionStrategy");
+    return CryptoModuleFactory.fillParamsObjectFromStringMap(new CryptoModuleParameters(), options);
+  }
+
+  private static byte[] data(int size) {
+    byte[] data = new byte[size];
+    new Random(42).nextBytes(data);
+    return data;
+  }
+
+  private static byte[] encrypt(CryptoModule module, String suite, byte[] data) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    CryptoModuleParameters params = params(suite);
+    params.setPlaintextOutputStream(baos);
+    OutputStream out = module.getEncryptingOutputStream(params).getEncryptedOutputStream();
+
+    // mix single bytes, small writes and writes larger than the buffer
+    Random random = new Random(7);
+    int off = 0;
+    while (off < data.length) {
+      int len = Math.min(data.length - off, random.nextInt(3) == 0 ? 1 : random.nextInt(3 * CipherBufferPool.BUFFER_SIZE));
+      if (len == 1)
+        out.write(data[off]);
+      else
+        out.write(data, off, len);
+      off += len;
+      if (random.nextInt(10) == 0)
+        out.flush();
+    }
+    out.close();
+    return baos.toByteArray();
+  }
+
+  private static byte[] decrypt(CryptoModule module, String suite, byte[] encrypted, int size) throws IOException {
+    CryptoModuleParameters params = params(suite);
+    params.setEncryptedInputStream(new ByteArrayInputStream(encrypted));
+    InputStream in = module.getDecryptingInputStream(params).getPlaintextInputStream();
+
+    byte[] data = new byte[size];
+    Random random = new Random(11);
+    int off = 0;
+    while (off < size) {
+      int choice = random.nextInt(4);
+      if (choice == 0) {
+        int b = in.read();
+        assertFalse(b == -1);
+        data[off++] = (byte) b;
+      } else {
+        int n = in.read(data, off, Math.min(size - off, choice == 1 ? 10 : random.nextInt(3 * CipherBufferPool.BUFFER_SIZE) + 1));
+        assertFalse(n == -1);
+        off += n;
+      }
+    }
+    assertEquals(-1, in.read());
+    in.close();
+    return data;
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    CryptoModule buffered = new BufferedCryptoModule();
+    for (String suite : SUITES) {
+      for (int size : new int[] {0, 1, 15, 16, 17, 1000, CipherBufferPool.BUFFER_SIZE, 5 * CipherBufferPool.BUFFER_SIZE + 3}) {
+        byte[] data = data(size);
+        byte[] encrypted = encrypt(buffered, suite, data);
+        assertFalse(size > 16 && Arrays.equals(data, Arrays.copyOfRange(encrypted, encrypted.length - size, encrypted.length)));
+        assertArrayEquals(suite + " " + size, data, decrypt(buffered, suite, encrypted, size));
+      }
+    }
+  }
+
+  @Test
+  public void testCompatibleWithDefaultModule() throws IOException {
+    CryptoModule buffered = new BufferedCryptoModule();
+    CryptoModule standard = new DefaultCryptoModule();
+    byte[] data = data(3 * CipherBufferPool.BUFFER_SIZE + 100);
+    for (String suite : SUITES) {
+      assertArrayEquals(data, decrypt(standard, suite, encrypt(buffered, suite, data), data.length));
+      assertArrayEquals(data, decrypt(buffered, suite, encrypt(standard, suite, data), data.length));
+    }
+  }
+
+  @Test
+  public void testSkip() throws IOException {
+    byte[] data = data(4 * CipherBufferPool.BUFFER_SIZE);
+    CryptoModule buffered = new BufferedCryptoModule();
+    CryptoModuleParameters params = params(SUITES[0]);
+    params.setEncryptedInputStream(new ByteArrayInputStream(encrypt(buffered, SUITES[0], data)));
+    DataInputStream in = new DataInputStream(buffered.getDecryptingInputStream(params).getPlaintextInputStream());
+    assertEquals(CipherBufferPool.BUFFER_SIZE + 5, in.skip(CipherBufferPool.BUFFER_SIZE + 5));
+    assertEquals(data[CipherBufferPool.BUFFER_SIZE + 5], in.readByte());
+    assertEquals(data.length - CipherBufferPool.BUFFER_SIZE - 6, in.skip(data.length));
+    assertEquals(-1, in.read());
+    in.close();
+  }
+}
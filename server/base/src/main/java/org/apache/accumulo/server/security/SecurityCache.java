@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.security;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.security.thrift.TCredentials;
+import org.apache.log4j.Logger;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.Watcher.Event.EventType;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Remembers which credentials were authenticated and the results of permission checks for a short time, so that frequent small requests do not authenticate
+ * and look up permissions again every time.
+ * <p>
+ * This is a {@link Watcher} for the users node in zookeeper. Whoever fills the cache has to compute results by reading through the zookeeper cache that reports
+ * to this watcher, so that any change under a user's node drops what was cached for that user. That zookeeper cache forgets a changed node before this watcher
+ * is told, so a result computed after something was dropped never sees the old data. Results are put with the generation read before they were computed, and
+ * are not kept when something was dropped in between. Losing the zookeeper connection drops everything.
+ */
+public class SecurityCache implements Watcher {
+
+  private static final Logger log = Logger.getLogger(SecurityCache.class);
+
+  /**
+   * The most credentials, and separately the most permission checks, that are kept.
+   */
+  static final int MAX_ENTRIES = 10000;
+
+  private static class CredentialKey {
+    final String principal;
+    final String tokenClassName;
+    final ByteBuffer token;
+    final int hashCode;
+
+    CredentialKey(String principal, String tokenClassName, ByteBuffer token) {
+      this.principal = principal;
+      this.tokenClassName = tokenClassName;
+      this.token = token;
+      this.hashCode = principal.hashCode() + 31 * tokenClassName.hashCode() + 961 * token.hashCode();
+    }
+
+    CredentialKey(TCredentials credentials) {
+      this(credentials.getPrincipal(), credentials.getTokenClassName(), credentials.bufferForToken());
+    }
+
+    /**
+     * @return a key that does not share the token with the credentials it was made from
+     */
+    CredentialKey copy() {
+      byte[] bytes = new byte[token.remaining()];
+      token.duplicate().get(bytes);
+      return new CredentialKey(principal, tokenClassName, ByteBuffer.wrap(bytes));
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof CredentialKey) {
+        CredentialKey ok = (CredentialKey) o;
+        return principal.equals(ok.principal) && tokenClassName.equals(ok.tokenClassName) && token.equals(ok.token);
+      }
+      return false;
+    }
+  }
+
+  private final String usersPath;
+  private final Cache<CredentialKey,Boolean> authenticated;
+  // keyed by user, then what was checked, separated by slashes which user names and table and namespace ids can not contain
+  private final Cache<String,Boolean> permissions;
+  private final AtomicLong generation = new AtomicLong(0);
+
+  /**
+   * @param usersPath
+   *          the zookeeper node holding a node for each user
+   * @param maxAge
+   *          the most milliseconds anything is kept
+   */
+  public SecurityCache(String usersPath, long maxAge) {
+    this(usersPath, maxAge, Ticker.systemTicker());
+  }
+
+  SecurityCache(String usersPath, long maxAge, Ticker ticker) {
+    this.usersPath = usersPath;
+    this.authenticated = CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES).expireAfterWrite(maxAge, TimeUnit.MILLISECONDS).ticker(ticker).build();
+    this.permissions = CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES).expireAfterWrite(maxAge, TimeUnit.MILLISECONDS).ticker(ticker).build();
+  }
+
+  /**
+   * @return the path of the zookeeper node that has to be watched for results about the user
+   */
+  public String getUserPath(String user) {
+    return usersPath + "/" + user;
+  }
+
+  /**
+   * @return a number to pass to the put methods, read before setting watches and computing the result
+   */
+  public long getGeneration() {
+    return generation.get();
+  }
+
+  public boolean isAuthenticated(TCredentials credentials) {
+    return authenticated.getIfPresent(new CredentialKey(credentials)) != null;
+  }
+
+  public void putAuthenticated(TCredentials credentials, long generation) {
+    CredentialKey key = new CredentialKey(credentials).copy();
+    authenticated.put(key, Boolean.TRUE);
+    // something was dropped while the credentials were being checked, so they may have been checked against old data
+    if (this.generation.get() != generation)
+      authenticated.invalidate(key);
+  }
+
+  static String permissionKey(String user, String type, String name, Enum<?> permission) {
+    return user + "/" + type + "/" + name + "/" + permission.name();
+  }
+
+  /**
+   * @return the cached result of a permission check, or null if it is not cached
+   */
+  public Boolean getPermission(String user, String type, String name, Enum<?> permission) {
+    return permissions.getIfPresent(permissionKey(user, type, name, permission));
+  }
+
+  public void putPermission(String user, String type, String name, Enum<?> permission, boolean result, long generation) {
+    String key = permissionKey(user, type, name, permission);
+    permissions.put(key, result);
+    if (this.generation.get() != generation)
+      permissions.invalidate(key);
+  }
+
+  /**
+   * Drops everything cached about a user.
+   */
+  public void invalidate(String user) {
+    generation.incrementAndGet();
+    for (Iterator<CredentialKey> iter = authenticated.asMap().keySet().iterator(); iter.hasNext();)
+      if (iter.next().principal.equals(user))
+        iter.remove();
+    String prefix = user + "/";
+    for (Iterator<String> iter = permissions.asMap().keySet().iterator(); iter.hasNext();)
+      if (iter.next().startsWith(prefix))
+        iter.remove();
+  }
+
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    authenticated.invalidateAll();
+    permissions.invalidateAll();
+  }
+
+  @Override
+  public void process(WatchedEvent event) {
+    String path = event.getPath();
+    if (event.getType() == EventType.None || path == null) {
+      // the connection changed state, and changes may have been missed
+      invalidateAll();
+    } else if (path.equals(usersPath)) {
+      invalidateAll();
+    } else if (path.startsWith(usersPath + "/")) {
+      String user = path.substring(usersPath.length() + 1);
+      int slash = user.indexOf('/');
+      if (slash >= 0)
+        user = user.substring(0, slash);
+      if (log.isTraceEnabled())
+        log.trace("Dropping cached security information for " + user + " after " + event);
+      invalidate(user);
+    }
+  }
+}
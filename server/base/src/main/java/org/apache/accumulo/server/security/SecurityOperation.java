@@ -32,6 +32,7 @@ import org.apache.accumulo.core.client.impl.thrift.SecurityErrorCode;
 import org.apache.accumulo.core.client.impl.thrift.ThriftSecurityException;
 import org.apache.accumulo.core.client.security.tokens.AuthenticationToken;
 import org.apache.accumulo.core.client.security.tokens.AuthenticationToken.AuthenticationTokenSerializer;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
 import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.thrift.IterInfo;
 import org.apache.accumulo.core.data.thrift.TColumn;
@@ -70,6 +71,11 @@ public class SecurityOperation {
   private static String rootUserName = null;
   private final ZooCache zooCache;
   private final String ZKUserPath;
+  // null when caching is disabled
+  private final SecurityCache securityCache;
+  // the cache can only be used with handlers that keep everything under the users node in zookeeper, where changes are watched
+  private boolean cacheAuthentication = false;
+  private boolean cachePermissions = false;
 
   protected static SecurityOperation instance;
 
@@ -109,7 +115,10 @@ public class SecurityOperation {
 
   protected SecurityOperation(String instanceId) {
     ZKUserPath = Constants.ZROOT + "/" + instanceId + "/users";
-    zooCache = new ZooCache();
+    long maxAge = ServerConfiguration.getSiteConfiguration().getTimeInMillis(Property.INSTANCE_SECURITY_CACHE_MAXAGE);
+    securityCache = maxAge > 0 ? new SecurityCache(ZKUserPath, maxAge) : null;
+    // changes to the nodes this reads are reported to the cache
+    zooCache = new ZooCache(securityCache);
   }
 
   public SecurityOperation(Authorizor author, Authenticator authent, PermissionHandler pm, String instanceId) {
@@ -122,6 +131,24 @@ public class SecurityOperation {
         || !permHandle.validSecurityHandlers(authent, author))
       throw new RuntimeException(authorizor + ", " + authenticator + ", and " + pm
           + " do not play nice with eachother. Please choose authentication and authorization mechanisms that are compatible with one another.");
+    
+    cacheAuthentication = securityCache != null && authenticator instanceof ZKAuthenticator;
+    // a subclass may keep permissions somewhere else
+    cachePermissions = securityCache != null && permHandle.getClass() == ZKPermHandler.class;
+  }
+  
+  /**
+   * Makes sure zookeeper reports changes to a user's node, and to a node under it, to the cache. Has to be called before computing something to cache.
+   * 
+   * @return the generation to put the result in the cache with
+   */
+  private long watch(String user, String subPath) {
+    long generation = securityCache.getGeneration();
+    String userPath = securityCache.getUserPath(user);
+    zooCache.get(userPath);
+    if (subPath != null)
+      zooCache.get(userPath + subPath);
+    return generation;
   }
 
   public void initializeSecurity(TCredentials credentials, String rootPrincipal, byte[] token) throws AccumuloSecurityException, ThriftSecurityException {
@@ -158,9 +185,17 @@ public class SecurityOperation {
     if (isSystemUser(credentials)) {
       authenticateSystemUser(credentials);
     } else {
+      if (cacheAuthentication && securityCache.isAuthenticated(credentials))
+        return;
       try {
         AuthenticationToken token = AuthenticationTokenSerializer.deserialize(credentials.getTokenClassName(), credentials.getToken());
-        if (!authenticator.authenticateUser(credentials.getPrincipal(), token)) {
+        if (cacheAuthentication && token instanceof PasswordToken) {
+          // checked through the zookeeper cache whose watches invalidate the result, so the result is never older than the invalidation
+          long generation = watch(credentials.getPrincipal(), null);
+          if (!ZKAuthenticator.authenticateUser(zooCache, ZKUserPath, credentials.getPrincipal(), (PasswordToken) token))
+            throw new ThriftSecurityException(credentials.getPrincipal(), SecurityErrorCode.BAD_CREDENTIALS);
+          securityCache.putAuthenticated(credentials, generation);
+        } else if (!authenticator.authenticateUser(credentials.getPrincipal(), token)) {
           throw new ThriftSecurityException(credentials.getPrincipal(), SecurityErrorCode.BAD_CREDENTIALS);
         }
       } catch (AccumuloSecurityException e) {
@@ -292,12 +327,26 @@ public class SecurityOperation {
    * @return true if a user exists and has permission; false otherwise
    */
   protected boolean _hasTablePermission(String user, String table, TablePermission permission, boolean useCached) throws ThriftSecurityException {
+    long generation = 0;
+    if (useCached && cachePermissions) {
+      Boolean cached = securityCache.getPermission(user, "table", table, permission);
+      if (cached != null)
+        return cached;
+      generation = watch(user, ZKPermHandler.ZKUserTablePerms + "/" + table);
+    }
+
     targetUserExists(user);
 
     if ((table.equals(MetadataTable.ID) || table.equals(RootTable.ID)) && permission.equals(TablePermission.READ))
       return true;
 
     try {
+      if (useCached && cachePermissions) {
+        // read through the zookeeper cache whose watches invalidate the result, not the handler's own
+        boolean result = ZKPermHandler.hasCachedTablePermission(zooCache, ZKUserPath, user, table, permission);
+        securityCache.putPermission(user, "table", table, permission, result, generation);
+        return result;
+      }
       if (useCached)
         return permHandle.hasCachedTablePermission(user, table, permission);
       return permHandle.hasTablePermission(user, table, permission);
@@ -354,12 +403,25 @@ public class SecurityOperation {
    * @return true if a user exists and has permission; false otherwise
    */
   protected boolean _hasNamespacePermission(String user, String namespace, NamespacePermission permission, boolean useCached) throws ThriftSecurityException {
+    long generation = 0;
+    if (useCached && cachePermissions) {
+      Boolean cached = securityCache.getPermission(user, "namespace", namespace, permission);
+      if (cached != null)
+        return cached;
+      generation = watch(user, ZKPermHandler.ZKUserNamespacePerms + "/" + namespace);
+    }
+
     targetUserExists(user);
 
     if (namespace.equals(Constants.ACCUMULO_NAMESPACE_ID) && permission.equals(NamespacePermission.READ))
       return true;
 
     try {
+      if (useCached && cachePermissions) {
+        boolean result = ZKPermHandler.hasCachedNamespacePermission(zooCache, ZKUserPath, user, namespace, permission);
+        securityCache.putPermission(user, "namespace", namespace, permission, result, generation);
+        return result;
+      }
       if (useCached)
         return permHandle.hasCachedNamespacePermission(user, namespace, permission);
       return permHandle.hasNamespacePermission(user, namespace, permission);
@@ -187,15 +187,21 @@ public final class ZKAuthenticator implements Authenticator {
   public boolean authenticateUser(String principal, AuthenticationToken token) throws AccumuloSecurityException {
     if (!(token instanceof PasswordToken))
       throw new AccumuloSecurityException(principal, SecurityErrorCode.INVALID_TOKEN);
-    PasswordToken pt = (PasswordToken) token;
+    return authenticateUser(zooCache, ZKUserPath, principal, (PasswordToken) token);
+  }
+  
+  /**
+   * Checks a password against what is stored in zookeeper, reading it through the given cache.
+   */
+  public static boolean authenticateUser(org.apache.accumulo.fate.zookeeper.ZooCache zooCache, String usersPath, String principal, PasswordToken token) {
     byte[] pass;
-    String zpath = ZKUserPath + "/" + principal;
+    String zpath = usersPath + "/" + principal;
     pass = zooCache.get(zpath);
-    boolean result = ZKSecurityTool.checkPass(pt.getPassword(), pass);
+    boolean result = ZKSecurityTool.checkPass(token.getPassword(), pass);
     if (!result) {
       zooCache.clear(zpath);
       pass = zooCache.get(zpath);
-      result = ZKSecurityTool.checkPass(pt.getPassword(), pass);
+      result = ZKSecurityTool.checkPass(token.getPassword(), pass);
     }
     return result;
   }
@@ -54,9 +54,9 @@ public class ZKPermHandler implements PermissionHandler {
   private String ZKTablePath;
   private String ZKNamespacePath;
   private final ZooCache zooCache;
-  private final String ZKUserSysPerms = "/System";
-  private final String ZKUserTablePerms = "/Tables";
-  private final String ZKUserNamespacePerms = "/Namespaces";
+  public static final String ZKUserSysPerms = "/System";
+  public static final String ZKUserTablePerms = "/Tables";
+  public static final String ZKUserNamespacePerms = "/Namespaces";
 
   public static synchronized PermissionHandler getInstance() {
     if (zkPermHandlerInstance == null)
@@ -116,7 +116,15 @@ public class ZKPermHandler implements PermissionHandler {
 
   @Override
   public boolean hasCachedTablePermission(String user, String table, TablePermission permission) throws AccumuloSecurityException, TableNotFoundException {
-    byte[] serializedPerms = zooCache.get(ZKUserPath + "/" + user + ZKUserTablePerms + "/" + table);
+    return hasCachedTablePermission(zooCache, ZKUserPath, user, table, permission);
+  }
+
+  /**
+   * Checks a table permission stored in zookeeper, reading it through the given cache.
+   */
+  public static boolean hasCachedTablePermission(org.apache.accumulo.fate.zookeeper.ZooCache zooCache, String usersPath, String user, String table,
+      TablePermission permission) {
+    byte[] serializedPerms = zooCache.get(usersPath + "/" + user + ZKUserTablePerms + "/" + table);
     if (serializedPerms != null) {
       return ZKSecurityTool.convertTablePermissions(serializedPerms).contains(permission);
     }
@@ -165,7 +173,15 @@ public class ZKPermHandler implements PermissionHandler {
   @Override
   public boolean hasCachedNamespacePermission(String user, String namespace, NamespacePermission permission) throws AccumuloSecurityException,
       NamespaceNotFoundException {
-    byte[] serializedPerms = zooCache.get(ZKUserPath + "/" + user + ZKUserNamespacePerms + "/" + namespace);
+    return hasCachedNamespacePermission(zooCache, ZKUserPath, user, namespace, permission);
+  }
+
+  /**
+   * Checks a namespace permission stored in zookeeper, reading it through the given cache.
+   */
+  public static boolean hasCachedNamespacePermission(org.apache.accumulo.fate.zookeeper.ZooCache zooCache, String usersPath, String user, String namespace,
+      NamespacePermission permission) {
+    byte[] serializedPerms = zooCache.get(usersPath + "/" + user + ZKUserNamespacePerms + "/" + namespace);
     if (serializedPerms != null) {
       return ZKSecurityTool.convertNamespacePermissions(serializedPerms).contains(permission);
     }
@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.KeyExtent;
+import org.apache.accumulo.server.conf.ServerConfiguration;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+/**
+ * A memory manager that models the ingest rate of each tablet to decide which tablets to minor compact. Using the aggregate ingest rate and how long minor
+ * compactions have been taking, it predicts how full memory will be by the time a minor compaction started now could finish. When that prediction exceeds
+ * {@value #TARGET_THRESHOLD} of the memory, it starts as many minor compactions as needed to bring it back down, instead of one at a time.
+ * <p>
+ * Tablets are ranked by the memory they will be holding by then, weighted by how many write ahead logs they reference relative to
+ * {@link Property#TABLE_MINC_LOGS_MAX}, because flushing a tablet is what allows old logs to be released. Tablets that reached that limit are always flushed
+ * first and idle tablets are flushed when there is nothing else to do, like {@link LargestFirstMemoryManager} does.
+ */
+public class IngestRateMemoryManager implements MemoryManager {
+
+  private static final Logger log = Logger.getLogger(IngestRateMemoryManager.class);
+
+  private static final int NUM_WAITING_MULTIPLIER = 2;
+
+  /**
+   * The fraction of memory the predicted usage should stay under, leaving room before the tablet server holds commits at 95%.
+   */
+  static final double TARGET_THRESHOLD = 0.80;
+
+  /**
+   * Ingest rates are averaged over roughly this many milliseconds.
+   */
+  static final long RATE_WINDOW = 10000;
+
+  /**
+   * How long a minor compaction is assumed to take before any have been observed.
+   */
+  static final long DEFAULT_MINC_DURATION = 5000;
+
+  static class TabletModel {
+    long lastSampleTime = -1;
+    long lastSize = 0;
+    // bytes per millisecond
+    double rate = 0;
+    long mincStartTime = -1;
+
+    /**
+     * @return the duration of a minor compaction that finished since the last update, or -1
+     */
+    long update(long now, long memTableSize, long mincMemTableSize) {
+      if (lastSampleTime >= 0 && now > lastSampleTime) {
+        long elapsed = now - lastSampleTime;
+        double sampleRate = growth(lastSize, memTableSize) / (double) elapsed;
+        double alpha = 1 - Math.exp(-elapsed / (double) RATE_WINDOW);
+        rate += alpha * (sampleRate - rate);
+      }
+      lastSampleTime = now;
+      lastSize = memTableSize;
+
+      long mincDuration = -1;
+      if (mincMemTableSize > 0 && mincStartTime < 0) {
+        mincStartTime = now;
+      } else if (mincMemTableSize == 0 && mincStartTime >= 0) {
+        mincDuration = now - mincStartTime;
+        mincStartTime = -1;
+      }
+      return mincDuration;
+    }
+  }
+
+  /**
+   * Estimates how much was written to a tablet between two observations of the size of its in memory map. When the size went down, the map was minor
+   * compacted and everything in the new map was written since.
+   */
+  static long growth(long previousSize, long currentSize) {
+    if (currentSize >= previousSize)
+      return currentSize - previousSize;
+    return currentSize;
+  }
+
+  private static class Candidate {
+    TabletState state;
+    double score;
+
+    Candidate(TabletState state, double score) {
+      this.state = state;
+      this.score = score;
+    }
+  }
+
+  private static final Comparator<Candidate> HIGHEST_SCORE_FIRST = new Comparator<Candidate>() {
+    @Override
+    public int compare(Candidate c1, Candidate c2) {
+      return Double.compare(c2.score, c1.score);
+    }
+  };
+
+  private long maxMemory = -1;
+  private int maxConcurrentMincs;
+  private ServerConfiguration config = null;
+  private final Map<KeyExtent,TabletModel> models = new HashMap<KeyExtent,TabletModel>();
+  private final Map<Text,Long> mincIdleThresholds = new HashMap<Text,Long>();
+  private final Map<Text,Integer> maxLogs = new HashMap<Text,Integer>();
+  private long mincDuration = DEFAULT_MINC_DURATION;
+  private static final long zerotime = System.currentTimeMillis();
+
+  public IngestRateMemoryManager() {}
+
+  IngestRateMemoryManager(long maxMemory, int maxConcurrentMincs) {
+    this.maxMemory = maxMemory;
+    this.maxConcurrentMincs = maxConcurrentMincs;
+  }
+
+  @Override
+  public void init(ServerConfiguration conf) {
+    this.config = conf;
+    maxMemory = conf.getConfiguration().getMemoryInBytes(Property.TSERV_MAXMEM);
+    maxConcurrentMincs = conf.getConfiguration().getCount(Property.TSERV_MINC_MAXCONCURRENT);
+  }
+
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private AccumuloConfiguration getTableConfiguration(Text tableId) {
+    if (config == null)
+      return AccumuloConfiguration.getDefaultConfiguration();
+    return config.getTableConfiguration(tableId.toString());
+  }
+
+  protected long getMinCIdleThreshold(KeyExtent extent) {
+    Text tableId = extent.getTableId();
+    Long threshold = mincIdleThresholds.get(tableId);
+    if (threshold == null) {
+      threshold = getTableConfiguration(tableId).getTimeInMillis(Property.TABLE_MINC_COMPACT_IDLETIME);
+      mincIdleThresholds.put(tableId, threshold);
+    }
+    return threshold;
+  }
+
+  protected int getMaxLogs(KeyExtent extent) {
+    Text tableId = extent.getTableId();
+    Integer max = maxLogs.get(tableId);
+    if (max == null) {
+      max = getTableConfiguration(tableId).getCount(Property.TABLE_MINC_LOGS_MAX);
+      maxLogs.put(tableId, max);
+    }
+    return max;
+  }
+
+  /**
+   * @return the estimated time a minor compaction takes, in milliseconds
+   */
+  synchronized long getMinCDuration() {
+    return mincDuration;
+  }
+
+  /**
+   * @return the estimated rate a tablet is being written to, in bytes per millisecond
+   */
+  synchronized double getIngestRate(KeyExtent extent) {
+    TabletModel model = models.get(extent);
+    return model == null ? 0 : model.rate;
+  }
+
+  @Override
+  public synchronized MemoryManagementActions getMemoryManagementActions(List<TabletState> tablets) {
+    if (maxMemory < 0)
+      throw new IllegalStateException("need to initialize " + getClass().getSimpleName());
+
+    // table configuration may change, so only cache it for one pass
+    mincIdleThresholds.clear();
+    maxLogs.clear();
+
+    long now = currentTimeMillis();
+    long ingestMemory = 0;
+    long compactionMemory = 0;
+    int numWaitingMincs = 0;
+    double totalRate = 0;
+
+    Set<KeyExtent> seen = new HashSet<KeyExtent>();
+    for (TabletState ts : tablets) {
+      TabletModel model = models.get(ts.getExtent());
+      if (model == null) {
+        model = new TabletModel();
+        models.put(ts.getExtent(), model);
+      }
+      seen.add(ts.getExtent());
+
+      long duration = model.update(now, ts.getMemTableSize(), ts.getMinorCompactingMemTableSize());
+      if (duration >= 0)
+        mincDuration = (mincDuration + duration) / 2;
+
+      ingestMemory += ts.getMemTableSize();
+      compactionMemory += ts.getMinorCompactingMemTableSize();
+      if (ts.getMinorCompactingMemTableSize() > 0)
+        numWaitingMincs++;
+      totalRate += model.rate;
+    }
+
+    // forget tablets that are no longer reported
+    for (Iterator<KeyExtent> iter = models.keySet().iterator(); iter.hasNext();) {
+      if (!seen.contains(iter.next()))
+        iter.remove();
+    }
+
+    long horizon = Math.max(mincDuration, 1);
+    double predicted = ingestMemory + compactionMemory + totalRate * horizon;
+
+    List<Candidate> walFull = new ArrayList<Candidate>();
+    List<Candidate> candidates = new ArrayList<Candidate>();
+    TabletState largestIdle = null;
+
+    for (TabletState ts : tablets) {
+      long mts = ts.getMemTableSize();
+      if (mts == 0 || ts.getMinorCompactingMemTableSize() > 0)
+        continue;
+
+      int tabletMaxLogs = Math.max(1, getMaxLogs(ts.getExtent()));
+      double projected = mts + models.get(ts.getExtent()).rate * horizon;
+      Candidate candidate = new Candidate(ts, projected * (1 + ts.getLogCount() / (double) tabletMaxLogs));
+
+      if (ts.getLogCount() >= tabletMaxLogs)
+        walFull.add(candidate);
+      else
+        candidates.add(candidate);
+
+      long idleTime = now - (ts.getLastCommitTime() > 0 ? ts.getLastCommitTime() : zerotime);
+      if (idleTime > getMinCIdleThreshold(ts.getExtent()) && (largestIdle == null || mts > largestIdle.getMemTableSize()))
+        largestIdle = ts;
+    }
+
+    MemoryManagementActions mma = new MemoryManagementActions();
+    mma.tabletsToMinorCompact = new ArrayList<KeyExtent>();
+
+    int slots = maxConcurrentMincs * NUM_WAITING_MULTIPLIER - numWaitingMincs;
+
+    Collections.sort(walFull, HIGHEST_SCORE_FIRST);
+    for (Candidate candidate : walFull) {
+      if (slots <= 0)
+        break;
+      mma.tabletsToMinorCompact.add(candidate.state.getExtent());
+      predicted -= candidate.state.getMemTableSize();
+      slots--;
+      log.debug("Minor compacting " + candidate.state.getExtent() + " because it has " + candidate.state.getLogCount() + " write ahead logs");
+    }
+
+    if (predicted > TARGET_THRESHOLD * maxMemory) {
+      Collections.sort(candidates, HIGHEST_SCORE_FIRST);
+      for (Candidate candidate : candidates) {
+        if (slots <= 0 || predicted <= TARGET_THRESHOLD * maxMemory)
+          break;
+        mma.tabletsToMinorCompact.add(candidate.state.getExtent());
+        predicted -= candidate.state.getMemTableSize();
+        slots--;
+      }
+
+      log.debug(String.format("Minor compacting %d tablets, total = %,d ingestMemory = %,d ingestRate = %,.0f bytes/s mincDuration = %,d ms",
+          mma.tabletsToMinorCompact.size(), ingestMemory + compactionMemory, ingestMemory, totalRate * 1000, mincDuration));
+    } else if (mma.tabletsToMinorCompact.isEmpty() && largestIdle != null && slots > 0) {
+      mma.tabletsToMinorCompact.add(largestIdle.getExtent());
+      log.debug("IDLE minor compaction chosen " + largestIdle.getExtent());
+    }
+
+    return mma;
+  }
+
+  @Override
+  public synchronized void tabletClosed(KeyExtent extent) {
+    models.remove(extent);
+  }
+}
@@ -63,6 +63,17 @@ public class LargestFirstMemoryManager implements MemoryManager {
     mincIdleThresholds = new HashMap<Text,Long>();
   }
   
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+  
+  protected long getMinCIdleThreshold(KeyExtent extent) {
+    Text tableId = extent.getTableId();
+    if (!mincIdleThresholds.containsKey(tableId))
+      mincIdleThresholds.put(tableId, config.getTableConfiguration(tableId.toString()).getTimeInMillis(Property.TABLE_MINC_COMPACT_IDLETIME));
+    return mincIdleThresholds.get(tableId);
+  }
+  
   @Override
   public MemoryManagementActions getMemoryManagementActions(List<TabletState> tablets) {
     if (maxMemory < 0)
@@ -79,7 +90,7 @@ public class LargestFirstMemoryManager implements MemoryManager {
     int numWaitingMincs = 0;
     long idleTime;
     long tml;
-    long ct = System.currentTimeMillis();
+    long ct = currentTimeMillis();
     
     long largestMemTableIdleTime = -1, largestMemTableSize = -1;
     long largestIdleMemTableIdleTime = -1, largestIdleMemTableSize = -1;
@@ -100,10 +111,7 @@ public class LargestFirstMemoryManager implements MemoryManager {
           largestMemTableSize = mts;
           largestMemTableIdleTime = idleTime;
         }
-        Text tableId = ts.getExtent().getTableId();
-        if (!mincIdleThresholds.containsKey(tableId))
-          mincIdleThresholds.put(tableId, config.getTableConfiguration(tableId.toString()).getTimeInMillis(Property.TABLE_MINC_COMPACT_IDLETIME));
-        if (idleTime > mincIdleThresholds.get(tableId) && tml > largestIdleMemTableLoad) {
+        if (idleTime > getMinCIdleThreshold(ts.getExtent()) && tml > largestIdleMemTableLoad) {
           largestIdleMemTableLoad = tml;
           largestIdleMemTablet = ts.getExtent();
           largestIdleMemTableSize = mts;
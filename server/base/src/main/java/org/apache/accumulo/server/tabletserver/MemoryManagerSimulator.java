@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.Constants;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.KeyExtent;
+import org.apache.accumulo.core.util.TextUtil;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+/**
+ * Replays a recording of the tablet states a tablet server reported to its memory manager against different memory managers, to compare how often each
+ * would have caused the tablet server to hold commits.
+ * <p>
+ * The tablet server records samples when the {@value #SAMPLE_LOGGER} logger is set to TRACE. The ingest of each tablet is derived from how much its in memory
+ * map grew between samples. That ingest is replayed against a simulated tablet server, where the memory manager being evaluated decides which tablets to minor
+ * compact, minor compactions write out memory at a fixed rate, write ahead logs roll after a fixed amount of data, and commits are held while memory is more
+ * than 95% full.
+ */
+public class MemoryManagerSimulator {
+
+  public static final String SAMPLE_LOGGER = "org.apache.accumulo.server.tabletserver.MemoryManagerSimulator.samples";
+
+  public static final Logger sampleLog = Logger.getLogger(SAMPLE_LOGGER);
+
+  private static final double HOLD_THRESHOLD = 0.95;
+
+  /**
+   * Formats a tablet state as a line that {@link #parseSample(String)} can read.
+   */
+  public static String formatSample(long time, TabletState state) {
+    String extent = new String(Base64.encodeBase64(TextUtil.getBytes(state.getExtent().getMetadataEntry())), Constants.UTF8);
+    return time + "\t" + extent + "\t" + state.getMemTableSize() + "\t" + state.getMinorCompactingMemTableSize() + "\t" + state.getLastCommitTime() + "\t"
+        + state.getLogCount();
+  }
+
+  static class Sample {
+    long time;
+    KeyExtent extent;
+    long memTableSize;
+    long mincMemTableSize;
+  }
+
+  /**
+   * Parses a line written by {@link #formatSample(long, TabletState)}, which may be preceded by other text added by the log layout.
+   */
+  static Sample parseSample(String line) {
+    String[] fields = line.trim().split("\t");
+    if (fields.length < 6)
+      throw new IllegalArgumentException("Malformed sample " + line);
+
+    int first = fields.length - 6;
+    String time = fields[first];
+    // the log layout may prefix the time with other text
+    int space = time.lastIndexOf(' ');
+    if (space >= 0)
+      time = time.substring(space + 1);
+
+    Sample sample = new Sample();
+    sample.time = Long.parseLong(time);
+    sample.extent = new KeyExtent(new Text(Base64.decodeBase64(fields[first + 1].getBytes(Constants.UTF8))), (Text) null);
+    sample.memTableSize = Long.parseLong(fields[first + 2]);
+    sample.mincMemTableSize = Long.parseLong(fields[first + 3]);
+    return sample;
+  }
+
+  /**
+   * Converts samples into the amount written to each tablet at each sample time.
+   */
+  static SortedMap<Long,Map<KeyExtent,Long>> toIngest(List<Sample> samples) {
+    SortedMap<Long,Map<KeyExtent,Long>> ingest = new TreeMap<Long,Map<KeyExtent,Long>>();
+    Map<KeyExtent,Long> lastSize = new HashMap<KeyExtent,Long>();
+    for (Sample sample : samples) {
+      Long previous = lastSize.put(sample.extent, sample.memTableSize);
+      long growth = IngestRateMemoryManager.growth(previous == null ? 0 : previous, sample.memTableSize);
+
+      Map<KeyExtent,Long> atTime = ingest.get(sample.time);
+      if (atTime == null) {
+        atTime = new LinkedHashMap<KeyExtent,Long>();
+        ingest.put(sample.time, atTime);
+      }
+      Long current = atTime.get(sample.extent);
+      atTime.put(sample.extent, (current == null ? 0 : current) + growth);
+    }
+    return ingest;
+  }
+
+  private static class SimulatedTablet implements TabletState {
+    KeyExtent extent;
+    long memTableSize = 0;
+    long mincMemTableSize = 0;
+    long lastCommitTime = 0;
+    long firstLog = -1;
+    long currentLog = 0;
+
+    @Override
+    public KeyExtent getExtent() {
+      return extent;
+    }
+
+    @Override
+    public long getLastCommitTime() {
+      return lastCommitTime;
+    }
+
+    @Override
+    public long getMemTableSize() {
+      return memTableSize;
+    }
+
+    @Override
+    public long getMinorCompactingMemTableSize() {
+      return mincMemTableSize;
+    }
+
+    @Override
+    public int getLogCount() {
+      return firstLog < 0 ? 0 : (int) (currentLog - firstLog + 1);
+    }
+  }
+
+  public static class Result {
+    public long heldTime = 0;
+    public long minorCompactions = 0;
+    public long bytesFlushed = 0;
+    public long peakMemory = 0;
+    public int maxLogCount = 0;
+
+    @Override
+    public String toString() {
+      return String.format("held %,d ms, %,d minor compactions averaging %,d bytes, peak memory %,d, max logs per tablet %d", heldTime, minorCompactions,
+          minorCompactions == 0 ? 0 : bytesFlushed / minorCompactions, peakMemory, maxLogCount);
+    }
+  }
+
+  private final long maxMemory;
+  private final int maxConcurrentMincs;
+  private final long flushRate;
+  private final long walSize;
+
+  /**
+   * @param flushRate
+   *          bytes per second written by each minor compaction
+   * @param walSize
+   *          bytes written to a write ahead log before it rolls
+   */
+  public MemoryManagerSimulator(long maxMemory, int maxConcurrentMincs, long flushRate, long walSize) {
+    this.maxMemory = maxMemory;
+    this.maxConcurrentMincs = maxConcurrentMincs;
+    this.flushRate = flushRate;
+    this.walSize = walSize;
+  }
+
+  private static class Clock {
+    long time;
+  }
+
+  /**
+   * Creates the memory managers to compare. They read the simulated time from the clock and use the default table configuration.
+   */
+  Map<String,MemoryManager> createMemoryManagers(final Clock clock) {
+    final long idleThreshold = AccumuloConfiguration.getDefaultConfiguration().getTimeInMillis(Property.TABLE_MINC_COMPACT_IDLETIME);
+
+    Map<String,MemoryManager> managers = new LinkedHashMap<String,MemoryManager>();
+    managers.put(LargestFirstMemoryManager.class.getSimpleName(), new LargestFirstMemoryManager(maxMemory, maxConcurrentMincs, 2) {
+      @Override
+      protected long currentTimeMillis() {
+        return clock.time;
+      }
+
+      @Override
+      protected long getMinCIdleThreshold(KeyExtent extent) {
+        return idleThreshold;
+      }
+    });
+    managers.put(IngestRateMemoryManager.class.getSimpleName(), new IngestRateMemoryManager(maxMemory, maxConcurrentMincs) {
+      @Override
+      protected long currentTimeMillis() {
+        return clock.time;
+      }
+    });
+    return managers;
+  }
+
+  Result simulate(MemoryManager manager, Clock clock, SortedMap<Long,Map<KeyExtent,Long>> ingest) {
+    Result result = new Result();
+    Map<KeyExtent,SimulatedTablet> tablets = new LinkedHashMap<KeyExtent,SimulatedTablet>();
+    LinkedList<SimulatedTablet> mincQueue = new LinkedList<SimulatedTablet>();
+    Map<KeyExtent,Long> backlog = new HashMap<KeyExtent,Long>();
+    long log = 0;
+    long logBytes = 0;
+    long lastTime = -1;
+
+    for (Entry<Long,Map<KeyExtent,Long>> step : ingest.entrySet()) {
+      long time = step.getKey();
+      long elapsed = lastTime < 0 ? 0 : time - lastTime;
+      lastTime = time;
+      clock.time = time;
+
+      // minor compactions that are running write out data
+      long flushBudget = flushRate * elapsed / 1000;
+      int running = 0;
+      for (Iterator<SimulatedTablet> iter = mincQueue.iterator(); iter.hasNext() && running < maxConcurrentMincs; running++) {
+        SimulatedTablet tablet = iter.next();
+        tablet.mincMemTableSize = Math.max(0, tablet.mincMemTableSize - flushBudget);
+        if (tablet.mincMemTableSize == 0) {
+          iter.remove();
+          running--;
+        }
+      }
+
+      long used = 0;
+      for (SimulatedTablet tablet : tablets.values())
+        used += tablet.memTableSize + tablet.mincMemTableSize;
+
+      boolean held = used > HOLD_THRESHOLD * maxMemory;
+      if (held)
+        result.heldTime += elapsed;
+
+      for (Entry<KeyExtent,Long> entry : step.getValue().entrySet()) {
+        SimulatedTablet tablet = tablets.get(entry.getKey());
+        if (tablet == null) {
+          tablet = new SimulatedTablet();
+          tablet.extent = entry.getKey();
+          tablets.put(entry.getKey(), tablet);
+        }
+
+        Long pending = backlog.remove(entry.getKey());
+        long bytes = entry.getValue() + (pending == null ? 0 : pending);
+        if (held) {
+          // clients retry held writes later
+          if (bytes > 0)
+            backlog.put(entry.getKey(), bytes);
+          continue;
+        }
+
+        if (bytes > 0) {
+          tablet.memTableSize += bytes;
+          tablet.lastCommitTime = time;
+          if (tablet.firstLog < 0)
+            tablet.firstLog = log;
+          logBytes += bytes;
+          while (logBytes > walSize) {
+            logBytes -= walSize;
+            log++;
+          }
+        }
+      }
+
+      for (SimulatedTablet tablet : tablets.values()) {
+        tablet.currentLog = log;
+        result.maxLogCount = Math.max(result.maxLogCount, tablet.getLogCount());
+      }
+
+      used = 0;
+      for (SimulatedTablet tablet : tablets.values())
+        used += tablet.memTableSize + tablet.mincMemTableSize;
+      result.peakMemory = Math.max(result.peakMemory, used);
+
+      MemoryManagementActions mma = manager.getMemoryManagementActions(new ArrayList<TabletState>(tablets.values()));
+      if (mma != null && mma.tabletsToMinorCompact != null) {
+        for (KeyExtent extent : mma.tabletsToMinorCompact) {
+          SimulatedTablet tablet = tablets.get(extent);
+          if (tablet == null || tablet.mincMemTableSize > 0 || tablet.memTableSize == 0)
+            continue;
+          tablet.mincMemTableSize = tablet.memTableSize;
+          tablet.memTableSize = 0;
+          tablet.firstLog = -1;
+          mincQueue.add(tablet);
+          result.minorCompactions++;
+          result.bytesFlushed += tablet.mincMemTableSize;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Replays samples against each memory manager.
+   *
+   * @return the result for each memory manager, by name
+   */
+  public Map<String,Result> run(List<Sample> samples) {
+    SortedMap<Long,Map<KeyExtent,Long>> ingest = toIngest(samples);
+    Map<String,Result> results = new LinkedHashMap<String,Result>();
+    Clock clock = new Clock();
+    for (Entry<String,MemoryManager> entry : createMemoryManagers(clock).entrySet())
+      results.put(entry.getKey(), simulate(entry.getValue(), clock, ingest));
+    return results;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 5) {
+      System.err.println("Usage: " + MemoryManagerSimulator.class.getName()
+          + " <sample file> <max memory> <max concurrent mincs> <flush bytes/sec> <walog size>");
+      System.exit(1);
+    }
+
+    List<Sample> samples = new ArrayList<Sample>();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]), Constants.UTF8));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.trim().length() > 0)
+          samples.add(parseSample(line));
+      }
+    } finally {
+      reader.close();
+    }
+
+    MemoryManagerSimulator simulator = new MemoryManagerSimulator(AccumuloConfiguration.getMemoryInBytes(args[1]), Integer.parseInt(args[2]),
+        AccumuloConfiguration.getMemoryInBytes(args[3]), AccumuloConfiguration.getMemoryInBytes(args[4]));
+    for (Entry<String,Result> entry : simulator.run(samples).entrySet())
+      System.out.println(entry.getKey() + " : " + entry.getValue());
+  }
+}
@@ -26,4 +26,9 @@ public interface TabletState {
   long getMemTableSize();
   
   long getMinorCompactingMemTableSize();
+  
+  /**
+   * @return the number of write ahead logs that hold data for the tablet that has not been minor compacted
+   */
+  int getLogCount();
 }
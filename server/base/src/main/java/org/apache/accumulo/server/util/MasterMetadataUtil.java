@@ -18,6 +18,7 @@ package org.apache.accumulo.server.util;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -202,6 +203,16 @@ public class MasterMetadataUtil {
   
   public static void replaceDatafiles(KeyExtent extent, Set<FileRef> datafilesToDelete, Set<FileRef> scanFiles, FileRef path, Long compactionId,
       DataFileValue size, Credentials credentials, String address, TServerInstance lastLocation, ZooLock zooLock, boolean insertDeleteFlags) throws IOException {
+    replaceDatafiles(extent, datafilesToDelete, scanFiles, Collections.singletonMap(path, size), compactionId, credentials, address, lastLocation, zooLock,
+        insertDeleteFlags);
+  }
+  
+  /**
+   * Replaces data files with any number of new data files in a single update of the metadata table. New files with no entries are not added.
+   */
+  public static void replaceDatafiles(KeyExtent extent, Set<FileRef> datafilesToDelete, Set<FileRef> scanFiles, Map<FileRef,DataFileValue> newFiles,
+      Long compactionId, Credentials credentials, String address, TServerInstance lastLocation, ZooLock zooLock, boolean insertDeleteFlags)
+      throws IOException {
     
     if (insertDeleteFlags) {
       // add delete flags for those paths before the data file reference is removed
@@ -217,8 +228,10 @@ public class MasterMetadataUtil {
     for (FileRef scanFile : scanFiles)
       m.put(ScanFileColumnFamily.NAME, scanFile.meta(), new Value("".getBytes()));
     
-    if (size.getNumEntries() > 0)
-      m.put(DataFileColumnFamily.NAME, path.meta(), new Value(size.encode()));
+    for (Entry<FileRef,DataFileValue> entry : newFiles.entrySet()) {
+      if (entry.getValue().getNumEntries() > 0)
+        m.put(DataFileColumnFamily.NAME, entry.getKey().meta(), new Value(entry.getValue().encode()));
+    }
     
     if (compactionId != null)
       TabletsSection.ServerColumnFamily.COMPACT_COLUMN.put(m, new Value(("" + compactionId).getBytes()));
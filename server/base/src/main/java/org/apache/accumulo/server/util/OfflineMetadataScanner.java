@@ -42,6 +42,7 @@ import org.apache.accumulo.core.iterators.system.ColumnFamilySkippingIterator;
 import org.apache.accumulo.core.iterators.system.ColumnQualifierFilter;
 import org.apache.accumulo.core.iterators.system.DeletingIterator;
 import org.apache.accumulo.core.iterators.system.MultiIterator;
+import org.apache.accumulo.core.iterators.system.TimestampRangeFilter;
 import org.apache.accumulo.core.iterators.system.VisibilityFilter;
 import org.apache.accumulo.core.iterators.user.VersioningIterator;
 import org.apache.accumulo.core.metadata.RootTable;
@@ -80,7 +81,9 @@ public class OfflineMetadataScanner extends ScannerOptions implements Scanner {
   private SortedKeyValueIterator<Key,Value> createSystemIter(Range r, List<SortedKeyValueIterator<Key,Value>> readers, HashSet<Column> columns)
       throws IOException {
     MultiIterator multiIterator = new MultiIterator(readers, false);
-    DeletingIterator delIter = new DeletingIterator(multiIterator, false);
+    SortedKeyValueIterator<Key,Value> delIter = new DeletingIterator(multiIterator, false);
+    if (TimestampRangeFilter.isLimited(minTimestamp, maxTimestamp))
+      delIter = new TimestampRangeFilter(delIter, minTimestamp, maxTimestamp);
     ColumnFamilySkippingIterator cfsi = new ColumnFamilySkippingIterator(delIter);
     ColumnQualifierFilter colFilter = new ColumnQualifierFilter(cfsi, columns);
     VisibilityFilter visFilter = new VisibilityFilter(colFilter, Authorizations.EMPTY, new byte[0]);
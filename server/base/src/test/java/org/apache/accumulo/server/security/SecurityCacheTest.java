@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.accumulo.core.security.TablePermission;
+import org.apache.accumulo.core.security.thrift.TCredentials;
+import org.apache.accumulo.fate.zookeeper.ZooCache;
+import org.apache.accumulo.fate.zookeeper.ZooReader;
+import org.apache.accumulo.server.security.handler.ZKPermHandler;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.Watcher.Event.EventType;
+import org.apache.zookeeper.Watcher.Event.KeeperState;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+public class SecurityCacheTest {
+
+  private static final String USERS = "/accumulo/1234/users";
+
+  private static class TestTicker extends Ticker {
+    long nanos = 0;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+  }
+
+  /**
+   * Stands in for zookeeper and a zookeeper cache. Like ZooCache, it forgets a node that changed before telling its watcher.
+   */
+  private static class TestZooCache extends ZooCache {
+    final Map<String,byte[]> zookeeper = new HashMap<String,byte[]>();
+    final Map<String,byte[]> cached = new HashMap<String,byte[]>();
+    final Watcher watcher;
+
+    TestZooCache(Watcher watcher) {
+      super((ZooReader) null, watcher);
+      this.watcher = watcher;
+    }
+
+    @Override
+    public synchronized byte[] get(String zPath) {
+      if (!cached.containsKey(zPath))
+        cached.put(zPath, zookeeper.get(zPath));
+      return cached.get(zPath);
+    }
+
+    @Override
+    public synchronized void clear(String zPath) {
+      cached.remove(zPath);
+    }
+
+    void change(String zPath, byte[] data) {
+      zookeeper.put(zPath, data);
+      clear(zPath);
+      watcher.process(event(EventType.NodeDataChanged, zPath));
+    }
+  }
+
+  // what SecurityOperation does for a permission check
+  private static boolean hasTablePermission(SecurityCache cache, ZooCache zooCache, String user, String table, TablePermission permission) {
+    Boolean cached = cache.getPermission(user, "table", table, permission);
+    if (cached != null)
+      return cached;
+    long generation = cache.getGeneration();
+    boolean result = ZKPermHandler.hasCachedTablePermission(zooCache, USERS, user, table, permission);
+    cache.putPermission(user, "table", table, permission, result, generation);
+    return result;
+  }
+
+  private static TCredentials credentials(String user, String password) {
+    return new TCredentials(user, "PasswordToken", ByteBuffer.wrap(password.getBytes()), "1234");
+  }
+
+  private static WatchedEvent event(EventType type, String path) {
+    return new WatchedEvent(type, KeeperState.SyncConnected, path);
+  }
+
+  @Test
+  public void testAuthenticated() {
+    SecurityCache cache = new SecurityCache(USERS, 10000);
+    TCredentials creds = credentials("bob", "secret");
+    assertFalse(cache.isAuthenticated(creds));
+    cache.putAuthenticated(creds, cache.getGeneration());
+    assertTrue(cache.isAuthenticated(credentials("bob", "secret")));
+    assertFalse(cache.isAuthenticated(credentials("bob", "guess")));
+    assertFalse(cache.isAuthenticated(credentials("alice", "secret")));
+
+    // the cache keeps its own copy of the token
+    creds.getToken()[0] = 'x';
+    assertTrue(cache.isAuthenticated(credentials("bob", "secret")));
+  }
+
+  @Test
+  public void testPermissions() {
+    SecurityCache cache = new SecurityCache(USERS, 10000);
+    assertNull(cache.getPermission("bob", "table", "1", TablePermission.READ));
+    cache.putPermission("bob", "table", "1", TablePermission.READ, true, cache.getGeneration());
+    cache.putPermission("bob", "table", "1", TablePermission.WRITE, false, cache.getGeneration());
+    assertEquals(Boolean.TRUE, cache.getPermission("bob", "table", "1", TablePermission.READ));
+    assertEquals(Boolean.FALSE, cache.getPermission("bob", "table", "1", TablePermission.WRITE));
+    assertNull(cache.getPermission("bob", "namespace", "1", TablePermission.READ));
+    assertNull(cache.getPermission("bob", "table", "2", TablePermission.READ));
+  }
+
+  @Test
+  public void testWatchedChanges() {
+    SecurityCache cache = new SecurityCache(USERS, 10000);
+    cache.putAuthenticated(credentials("bob", "secret"), cache.getGeneration());
+    cache.putAuthenticated(credentials("alice", "secret"), cache.getGeneration());
+    cache.putPermission("bob", "table", "1", TablePermission.READ, true, cache.getGeneration());
+    cache.putPermission("alice", "table", "1", TablePermission.READ, true, cache.getGeneration());
+
+    // a permission of bob's changed
+    cache.process(event(EventType.NodeDataChanged, USERS + "/bob/Tables/1"));
+    assertFalse(cache.isAuthenticated(credentials("bob", "secret")));
+    assertNull(cache.getPermission("bob", "table", "1", TablePermission.READ));
+    assertTrue(cache.isAuthenticated(credentials("alice", "secret")));
+    assertEquals(Boolean.TRUE, cache.getPermission("alice", "table", "1", TablePermission.READ));
+
+    // alice was dropped
+    cache.process(event(EventType.NodeDeleted, USERS + "/alice"));
+    assertFalse(cache.isAuthenticated(credentials("alice", "secret")));
+    assertNull(cache.getPermission("alice", "table", "1", TablePermission.READ));
+
+    // changes elsewhere are ignored
+    cache.putPermission("bob", "table", "1", TablePermission.READ, true, cache.getGeneration());
+    cache.process(event(EventType.NodeDataChanged, "/accumulo/1234/tables/1/name"));
+    assertEquals(Boolean.TRUE, cache.getPermission("bob", "table", "1", TablePermission.READ));
+
+    // when the connection to zookeeper is lost, changes may be missed
+    cache.process(new WatchedEvent(EventType.None, KeeperState.Disconnected, null));
+    assertNull(cache.getPermission("bob", "table", "1", TablePermission.READ));
+  }
+
+  @Test
+  public void testChangeWhileChecking() {
+    SecurityCache cache = new SecurityCache(USERS, 10000);
+    long generation = cache.getGeneration();
+    // bob's password changes after the watch was set, but before the check finished
+    cache.process(event(EventType.NodeDataChanged, USERS + "/bob"));
+    cache.putAuthenticated(credentials("bob", "secret"), generation);
+    cache.putPermission("bob", "table", "1", TablePermission.READ, true, generation);
+    assertFalse(cache.isAuthenticated(credentials("bob", "secret")));
+    assertNull(cache.getPermission("bob", "table", "1", TablePermission.READ));
+  }
+
+  @Test
+  public void testExpiration() {
+    TestTicker ticker = new TestTicker();
+    SecurityCache cache = new SecurityCache(USERS, 1000, ticker);
+    cache.putAuthenticated(credentials("bob", "secret"), cache.getGeneration());
+    cache.putPermission("bob", "table", "1", TablePermission.READ, true, cache.getGeneration());
+    ticker.nanos += 999000000L;
+    assertTrue(cache.isAuthenticated(credentials("bob", "secret")));
+    ticker.nanos += 2000000L;
+    assertFalse(cache.isAuthenticated(credentials("bob", "secret")));
+    assertNull(cache.getPermission("bob", "table", "1", TablePermission.READ));
+  }
+
+  @Test
+  public void testRevoke() {
+    SecurityCache cache = new SecurityCache(USERS, 10000);
+    TestZooCache zooCache = new TestZooCache(cache);
+    String path = USERS + "/bob" + ZKPermHandler.ZKUserTablePerms + "/1";
+    zooCache.zookeeper.put(path, new byte[] {TablePermission.READ.getId(), TablePermission.WRITE.getId()});
+
+    assertTrue(hasTablePermission(cache, zooCache, "bob", "1", TablePermission.WRITE));
+    assertEquals(Boolean.TRUE, cache.getPermission("bob", "table", "1", TablePermission.WRITE));
+
+    // the permission is revoked and checked again right away
+    zooCache.change(path, new byte[] {TablePermission.READ.getId()});
+    assertFalse(hasTablePermission(cache, zooCache, "bob", "1", TablePermission.WRITE));
+    assertTrue(hasTablePermission(cache, zooCache, "bob", "1", TablePermission.READ));
+    assertEquals(Boolean.FALSE, cache.getPermission("bob", "table", "1", TablePermission.WRITE));
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.tabletserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.KeyExtent;
+import org.apache.accumulo.server.tabletserver.MemoryManagerSimulator.Result;
+import org.apache.accumulo.server.tabletserver.MemoryManagerSimulator.Sample;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class IngestRateMemoryManagerTest {
+
+  private static final long ONE_MEG = 1 << 20;
+
+  private static class State implements TabletState {
+    KeyExtent extent;
+    long mts;
+    long mcmts;
+    long lct;
+    int logs;
+
+    State(String endRow, long mts, long mcmts, long lct, int logs) {
+      this.extent = new KeyExtent(new Text("1"), endRow == null ? null : new Text(endRow), null);
+      this.mts = mts;
+      this.mcmts = mcmts;
+      this.lct = lct;
+      this.logs = logs;
+    }
+
+    @Override
+    public KeyExtent getExtent() {
+      return extent;
+    }
+
+    @Override
+    public long getLastCommitTime() {
+      return lct;
+    }
+
+    @Override
+    public long getMemTableSize() {
+      return mts;
+    }
+
+    @Override
+    public long getMinorCompactingMemTableSize() {
+      return mcmts;
+    }
+
+    @Override
+    public int getLogCount() {
+      return logs;
+    }
+  }
+
+  private static class TestMemoryManager extends IngestRateMemoryManager {
+    long time = 100000000;
+
+    TestMemoryManager(long maxMemory, int maxConcurrentMincs) {
+      super(maxMemory, maxConcurrentMincs);
+    }
+
+    @Override
+    protected long currentTimeMillis() {
+      return time;
+    }
+  }
+
+  private static List<KeyExtent> decide(IngestRateMemoryManager mm, State... states) {
+    return mm.getMemoryManagementActions(new ArrayList<TabletState>(Arrays.asList(states))).tabletsToMinorCompact;
+  }
+
+  @Test
+  public void testGrowth() {
+    assertEquals(5, IngestRateMemoryManager.growth(10, 15));
+    assertEquals(0, IngestRateMemoryManager.growth(10, 10));
+    // the map was flushed, everything in the new one is new
+    assertEquals(3, IngestRateMemoryManager.growth(10, 3));
+  }
+
+  @Test
+  public void testNothingToDo() {
+    TestMemoryManager mm = new TestMemoryManager(100 * ONE_MEG, 4);
+    assertTrue(decide(mm, new State("a", ONE_MEG, 0, mm.time, 1), new State("b", 2 * ONE_MEG, 0, mm.time, 1)).isEmpty());
+  }
+
+  @Test
+  public void testLogs() {
+    TestMemoryManager mm = new TestMemoryManager(100 * ONE_MEG, 4);
+    // a small tablet at the write ahead log limit is flushed even though memory is not full
+    List<KeyExtent> chosen = decide(mm, new State("a", ONE_MEG, 0, mm.time, 3), new State("b", 20 * ONE_MEG, 0, mm.time, 1));
+    assertEquals(Arrays.asList(new KeyExtent(new Text("1"), new Text("a"), null)), chosen);
+  }
+
+  @Test
+  public void testPrediction() {
+    TestMemoryManager mm = new TestMemoryManager(100 * ONE_MEG, 4);
+
+    State fast = new State("fast", 0, 0, mm.time, 1);
+    State slow = new State("slow", 30 * ONE_MEG, 0, mm.time, 1);
+    State other = new State("other", 20 * ONE_MEG, 0, mm.time, 1);
+
+    assertTrue(decide(mm, fast, slow, other).isEmpty());
+
+    // fast grows 10M every second, so memory is predicted to fill before a minor compaction could finish
+    for (int i = 0; i < 3; i++) {
+      mm.time += 1000;
+      fast.mts += 10 * ONE_MEG;
+      fast.lct = slow.lct = other.lct = mm.time;
+      List<KeyExtent> chosen = decide(mm, fast, slow, other);
+      if (i < 2)
+        assertTrue(chosen.isEmpty());
+      else
+        // fast is no larger than slow, but will be by the time a minor compaction could finish
+        assertEquals(Arrays.asList(fast.getExtent()), chosen);
+    }
+
+    assertTrue(mm.getIngestRate(fast.getExtent()) > 0);
+    assertEquals(0.0, mm.getIngestRate(slow.getExtent()), 0.0);
+
+    // when one minor compaction is not enough, more are started
+    fast.mcmts = fast.mts;
+    fast.mts = 0;
+    mm.time += 1000;
+    fast.mts += 10 * ONE_MEG;
+    other.mts += 20 * ONE_MEG;
+    List<KeyExtent> chosen = decide(mm, fast, slow, other);
+    assertEquals(Arrays.asList(other.getExtent(), slow.getExtent()), chosen);
+  }
+
+  @Test
+  public void testMinCDuration() {
+    TestMemoryManager mm = new TestMemoryManager(100 * ONE_MEG, 4);
+    State state = new State("a", ONE_MEG, 0, mm.time, 1);
+    decide(mm, state);
+    state.mcmts = state.mts;
+    state.mts = 0;
+    mm.time += 1000;
+    decide(mm, state);
+    state.mcmts = 0;
+    mm.time += 1000;
+    decide(mm, state);
+    assertEquals((IngestRateMemoryManager.DEFAULT_MINC_DURATION + 1000) / 2, mm.getMinCDuration());
+  }
+
+  @Test
+  public void testIdle() {
+    TestMemoryManager mm = new TestMemoryManager(100 * ONE_MEG, 4);
+    State idle = new State("idle", ONE_MEG, 0, mm.time - 3600000, 1);
+    State busy = new State("busy", 2 * ONE_MEG, 0, mm.time, 1);
+    assertEquals(Arrays.asList(idle.getExtent()), decide(mm, idle, busy));
+
+    // no free slots to minor compact
+    mm = new TestMemoryManager(100 * ONE_MEG, 1);
+    State c1 = new State("c1", 0, ONE_MEG, mm.time, 1);
+    State c2 = new State("c2", 0, ONE_MEG, mm.time, 1);
+    assertTrue(decide(mm, idle, busy, c1, c2).isEmpty());
+  }
+
+  @Test
+  public void testSampleFormat() {
+    State state = new State("a\tb c", 5, 6, 7, 2);
+    Sample sample = MemoryManagerSimulator.parseSample("2014-01-01 00:00:00,000 [samples] TRACE: " + MemoryManagerSimulator.formatSample(42, state));
+    assertEquals(42, sample.time);
+    assertEquals(state.getExtent().getMetadataEntry(), sample.extent.getMetadataEntry());
+    assertEquals(5, sample.memTableSize);
+    assertEquals(6, sample.mincMemTableSize);
+  }
+
+  @Test
+  public void testSimulation() {
+    // one tablet ingesting fast and many that ingest slowly
+    List<Sample> samples = new ArrayList<Sample>();
+    long[] sizes = new long[20];
+    for (long time = 0; time < 120000; time += 250) {
+      for (int t = 0; t < sizes.length; t++) {
+        sizes[t] += t == 0 ? 2 * ONE_MEG : ONE_MEG / 16;
+        State state = new State("t" + t, sizes[t], 0, time, 1);
+        samples.add(MemoryManagerSimulator.parseSample(MemoryManagerSimulator.formatSample(time, state)));
+      }
+    }
+
+    MemoryManagerSimulator simulator = new MemoryManagerSimulator(200 * ONE_MEG, 4, 20 * ONE_MEG, 100 * ONE_MEG);
+    Map<String,Result> results = simulator.run(samples);
+    assertEquals(new HashSet<String>(Arrays.asList("LargestFirstMemoryManager", "IngestRateMemoryManager")), results.keySet());
+
+    Result ingestRate = results.get("IngestRateMemoryManager");
+    Result largestFirst = results.get("LargestFirstMemoryManager");
+    assertTrue(ingestRate.minorCompactions > 0);
+    assertTrue(ingestRate.peakMemory <= 200 * ONE_MEG);
+    assertTrue(ingestRate + " " + largestFirst, ingestRate.heldTime <= largestFirst.heldTime);
+  }
+}
@@ -17,6 +17,7 @@
 package org.apache.accumulo.monitor.servlets.trace;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
 
@@ -47,6 +48,12 @@ public class NullScanner implements Scanner {
   @Override
   public void clearScanIterators() {}
   
+  @Override
+  public void setExecutionHints(Map<String,String> hints) {}
+
+  @Override
+  public void setTimeRange(long minTimestamp, long maxTimestamp) {}
+  
   @Deprecated
   @Override
   public void setTimeOut(int timeOut) {}
@@ -28,11 +28,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.KeyExtent;
@@ -41,6 +43,8 @@ import org.apache.accumulo.core.data.thrift.IterInfo;
 import org.apache.accumulo.core.file.FileOperations;
 import org.apache.accumulo.core.file.FileSKVIterator;
 import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.core.file.rfile.FileStatistics;
+import org.apache.accumulo.core.file.rfile.RFile;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.IteratorUtil;
 import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
@@ -350,16 +354,20 @@ public class Compactor implements Callable<CompactionStats> {
 
       HashSet<ByteSequence> allColumnFamilies = new HashSet<ByteSequence>();
 
-      if (mfw.supportsLocalityGroups()) {
-        for (Entry<String,Set<ByteSequence>> entry : lGroups.entrySet()) {
-          setLocalityGroup(entry.getKey());
-          compactLocalityGroup(entry.getKey(), entry.getValue(), true, mfw, majCStats);
-          allColumnFamilies.addAll(entry.getValue());
+      if (lGroups.isEmpty() && copyDataBlocks(mfw, majCStats)) {
+        log.debug("Compaction " + extent + " merged non overlapping files by copying data blocks");
+      } else {
+        if (mfw.supportsLocalityGroups()) {
+          for (Entry<String,Set<ByteSequence>> entry : lGroups.entrySet()) {
+            setLocalityGroup(entry.getKey());
+            compactLocalityGroup(entry.getKey(), entry.getValue(), true, mfw, majCStats);
+            allColumnFamilies.addAll(entry.getValue());
+          }
         }
-      }
 
-      setLocalityGroup("");
-      compactLocalityGroup(null, allColumnFamilies, false, mfw, majCStats);
+        setLocalityGroup("");
+        compactLocalityGroup(null, allColumnFamilies, false, mfw, majCStats);
+      }
 
       long t2 = System.currentTimeMillis();
 
@@ -459,6 +467,103 @@ public class Compactor implements Callable<CompactionStats> {
     return iters;
   }
 
+  private boolean hasConfiguredIterators(IteratorScope scope) {
+    String prefix = Property.TABLE_ITERATOR_PREFIX.getKey() + scope.name() + ".";
+    for (String key : acuTableConf.getAllPropertiesWithPrefix(Property.TABLE_ITERATOR_PREFIX).keySet()) {
+      if (key.startsWith(prefix))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * When nothing would transform the data and the files being compacted do not overlap, the output file can be created by copying the compressed data blocks
+   * of the input files in order. This avoids decoding and encoding every key value pair.
+   * 
+   * @return false if the files could not be compacted this way, in which case nothing was written
+   */
+  private boolean copyDataBlocks(FileSKVWriter mfw, CompactionStats majCStats) throws IOException, CompactionCanceledException {
+    if (imm != null || env.getIteratorScope() != IteratorScope.majc || !iterators.isEmpty() || !(mfw instanceof RFile.Writer))
+      return false;
+
+    if (!acuTableConf.getBoolean(Property.TABLE_MAJC_BLOCK_COPY) || hasConfiguredIterators(IteratorScope.majc))
+      return false;
+
+    for (DataFileValue dfv : filesToCompact.values()) {
+      if (dfv.isTimeSet())
+        return false;
+    }
+
+    RFile.Writer writer = (RFile.Writer) mfw;
+    ArrayList<FileSKVIterator> readers = new ArrayList<FileSKVIterator>(filesToCompact.size());
+    Span span = Trace.start("copyBlocks");
+    try {
+      openMapDataFiles(null, readers);
+
+      TreeMap<Key,RFile.Reader> sortedReaders = new TreeMap<Key,RFile.Reader>();
+      long entries = 0;
+      for (FileSKVIterator reader : readers) {
+        if (!(reader instanceof RFile.Reader))
+          return false;
+
+        Key first = reader.getFirstKey();
+        if (first == null)
+          continue;
+
+        // delete entries would need to be processed by the deleting iterator
+        FileStatistics stats = FileStatistics.read(reader);
+        if (stats == null || stats.getNumDeletes() > 0)
+          return false;
+
+        Key last = reader.getLastKey();
+        if (!extent.contains(first.getRow()) || !extent.contains(last.getRow()))
+          return false;
+
+        if (sortedReaders.put(first, (RFile.Reader) reader) != null)
+          return false;
+
+        entries += stats.getNumEntries();
+      }
+
+      Key prevLast = null;
+      for (RFile.Reader reader : sortedReaders.values()) {
+        if (prevLast != null && prevLast.compareTo(reader.getFirstKey()) >= 0)
+          return false;
+        if (!writer.canAppendDataBlocks(reader))
+          return false;
+        prevLast = reader.getLastKey();
+      }
+
+      writer.startDefaultLocalityGroup();
+      for (RFile.Reader reader : sortedReaders.values()) {
+        if (!env.isCompactionEnabled()) {
+          try {
+            mfw.close();
+          } catch (IOException e) {
+            log.error(e, e);
+          }
+          fs.deleteRecursively(outputFile.path());
+          throw new CompactionCanceledException();
+        }
+        writer.appendDataBlocks(reader);
+      }
+
+      entriesRead.addAndGet(entries);
+      entriesWritten.addAndGet(entries);
+      majCStats.add(new CompactionStats(entries, entries));
+      return true;
+    } finally {
+      for (FileSKVIterator reader : readers) {
+        try {
+          reader.close();
+        } catch (Throwable e) {
+          log.warn("Failed to close map file", e);
+        }
+      }
+      span.stop();
+    }
+  }
+
   private void compactLocalityGroup(String lgName, Set<ByteSequence> columnFamilies, boolean inclusive, FileSKVWriter mfw, CompactionStats majCStats)
       throws IOException, CompactionCanceledException {
     ArrayList<FileSKVIterator> readers = new ArrayList<FileSKVIterator>(filesToCompact.size());
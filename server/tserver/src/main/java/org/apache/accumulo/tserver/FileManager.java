@@ -21,11 +21,13 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.Semaphore;
 
 import org.apache.accumulo.core.conf.Property;
@@ -42,6 +44,7 @@ import org.apache.accumulo.core.iterators.system.SourceSwitchingIterator;
 import org.apache.accumulo.core.iterators.system.SourceSwitchingIterator.DataSource;
 import org.apache.accumulo.core.iterators.system.TimeSettingIterator;
 import org.apache.accumulo.core.metadata.schema.DataFileValue;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.server.conf.ServerConfiguration;
 import org.apache.accumulo.server.fs.FileRef;
 import org.apache.accumulo.server.fs.VolumeManager;
@@ -356,6 +359,9 @@ public class FileManager {
       
       for (FileSKVIterator reader : readers) {
         try {
+          // readers are shared, so do not let the next user inherit a time range or authorizations
+          reader.setTimeRange(Long.MIN_VALUE, Long.MAX_VALUE);
+          reader.setAuthorizations(null, null);
           reader.closeDeepCopies();
         } catch (IOException e) {
           log.warn(e, e);
@@ -446,6 +452,12 @@ public class FileManager {
     private ArrayList<FileSKVIterator> tabletReservedReaders;
     private KeyExtent tablet;
     private boolean continueOnFailure;
+    private long minTimestamp = Long.MIN_VALUE;
+    private long maxTimestamp = Long.MAX_VALUE;
+    // files whose timestamps are replaced when read, so their index can not be used to skip data
+    private Set<String> timeSetFiles = new HashSet<String>();
+    private Authorizations authorizations = null;
+    private byte[] defaultVisibility = null;
     
     ScanFileManager(KeyExtent tablet) {
       tabletReservedReaders = new ArrayList<FileSKVIterator>();
@@ -481,6 +493,22 @@ public class FileManager {
       return newlyReservedReaders;
     }
     
+    /**
+     * Sets the time range that files opened by this manager use to skip data, until the files are released.
+     */
+    synchronized void setTimeRange(long minTimestamp, long maxTimestamp) {
+      this.minTimestamp = minTimestamp;
+      this.maxTimestamp = maxTimestamp;
+    }
+    
+    /**
+     * Sets the authorizations that files opened by this manager use to skip data, until the files are released.
+     */
+    synchronized void setAuthorizations(Authorizations authorizations, byte[] defaultVisibility) {
+      this.authorizations = authorizations;
+      this.defaultVisibility = defaultVisibility;
+    }
+    
     synchronized List<InterruptibleIterator> openFiles(Map<FileRef,DataFileValue> files, boolean detachable) throws IOException {
       
       List<FileSKVIterator> newlyReservedReaders = openFileRefs(files.keySet());
@@ -489,6 +517,14 @@ public class FileManager {
       
       for (FileSKVIterator reader : newlyReservedReaders) {
         String filename = getReservedReadeFilename(reader);
+        DataFileValue value = files.get(new FileRef(filename));
+        if (value.isTimeSet())
+          timeSetFiles.add(filename);
+        else
+          reader.setTimeRange(minTimestamp, maxTimestamp);
+        // setting the time does not change visibilities, so any file can skip data by visibility
+        reader.setAuthorizations(authorizations, defaultVisibility);
+        
         InterruptibleIterator iter;
         if (detachable) {
           FileDataSource fds = new FileDataSource(filename, reader);
@@ -498,7 +534,6 @@ public class FileManager {
         } else {
           iter = new ProblemReportingIterator(tablet.getTableId().toString(), filename, continueOnFailure, reader);
         }
-        DataFileValue value = files.get(new FileRef(filename));
         if (value.isTimeSet()) {
           iter = new TimeSettingIterator(iter, value.getTime());
         }
@@ -541,6 +576,9 @@ public class FileManager {
       
       for (FileDataSource fds : dataSources) {
         FileSKVIterator reader = map.get(fds.file).remove(0);
+        if (!timeSetFiles.contains(fds.file))
+          reader.setTimeRange(minTimestamp, maxTimestamp);
+        reader.setAuthorizations(authorizations, defaultVisibility);
         fds.setIterator(reader);
       }
     }
@@ -549,6 +587,7 @@ public class FileManager {
       releaseReaders(tabletReservedReaders, sawIOException);
       tabletReservedReaders.clear();
       dataSources.clear();
+      timeSetFiles.clear();
     }
     
     synchronized int getNumOpenFiles() {
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import java.io.IOException;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.util.LocalityGroupUtil;
+
+/**
+ * Reads the first entry of each of a sequence of ranges in sorted order by moving one iterator forward through the tablet, instead of seeking it to every
+ * range. The iterator is seeked from the first range to the end of the tablet and is only seeked again when a range starts behind its position, or further
+ * ahead than a few calls to next reach.
+ * <p>
+ * This only gives the same results as seeking to each range when no iterator in the stack depends on the range it was seeked to, which is the case for the
+ * system iterators and the versioning iterator.
+ */
+class ForwardReader {
+
+  /**
+   * How many entries are skipped with next before seeking instead.
+   */
+  static final int MAX_NEXTS = 10;
+
+  private final SortedKeyValueIterator<Key,Value> iter;
+  private final Range tabletRange;
+  private Key lastStart = null;
+  private long seeks = 0;
+  private long nexts = 0;
+
+  ForwardReader(SortedKeyValueIterator<Key,Value> iter, Range tabletRange) {
+    this.iter = iter;
+    this.tabletRange = tabletRange;
+  }
+
+  private void seek(Key start) throws IOException {
+    iter.seek(new Range(start, true, tabletRange.getEndKey(), tabletRange.isEndKeyInclusive()), LocalityGroupUtil.EMPTY_CF_SET, false);
+    seeks++;
+  }
+
+  /**
+   * Positions the iterator at the first entry of the range.
+   * 
+   * @return true if the range contains an entry, in which case it is the top of the iterator
+   */
+  boolean read(Range range) throws IOException {
+    Key start = range.getStartKey();
+    if (start == null || !range.isStartKeyInclusive())
+      throw new IllegalArgumentException("Range must have an inclusive start key " + range);
+
+    if (lastStart == null || start.compareTo(lastStart) < 0) {
+      // the iterator may have already passed the start of the range
+      seek(start);
+    } else {
+      // nothing exists between the last start and the top of the iterator, so only move when the top is before this start
+      int count = 0;
+      while (iter.hasTop() && iter.getTopKey().compareTo(start) < 0) {
+        if (count++ == MAX_NEXTS) {
+          seek(start);
+          break;
+        }
+        iter.next();
+        nexts++;
+      }
+    }
+    lastStart = start;
+
+    return iter.hasTop() && range.contains(iter.getTopKey());
+  }
+
+  long getSeeks() {
+    return seeks;
+  }
+
+  long getNexts() {
+    return nexts;
+  }
+}
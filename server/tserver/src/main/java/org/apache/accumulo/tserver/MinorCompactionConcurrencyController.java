@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Adjusts the number of minor compactions that run concurrently between a minimum and maximum. Concurrency is increased while minor compactions are queued and
+ * memory is filling up, commits are held, or nothing else is competing for the disks. It is decreased when nothing is queued and memory is not under pressure,
+ * or when scans are saturating the read ahead threads.
+ * <p>
+ * The aggregate rate at which minor compactions write out memory is measured at each level of concurrency. When running more minor compactions did not increase
+ * that rate, the disks are assumed to be saturated and concurrency is not increased further, and it is decreased if running more made things slower.
+ */
+public class MinorCompactionConcurrencyController implements Runnable {
+
+  private static final Logger log = Logger.getLogger(MinorCompactionConcurrencyController.class);
+
+  /**
+   * Memory use, as a fraction of the maximum, above which minor compaction concurrency is increased.
+   */
+  static final double HIGH_MEMORY = 0.80;
+
+  /**
+   * Memory use, as a fraction of the maximum, below which minor compaction concurrency is decreased.
+   */
+  static final double LOW_MEMORY = 0.50;
+
+  /**
+   * Running one more minor compaction must increase throughput by this fraction for it to be considered worthwhile.
+   */
+  static final double MIN_SPEEDUP = 0.10;
+
+  /**
+   * A snapshot of the state that decides the concurrency.
+   */
+  static class State {
+    int current;
+    int min;
+    int max;
+    int queued;
+    boolean held;
+    double memoryUsed;
+    boolean scansSaturated;
+    // bytes per second measured at each level of concurrency, 0 when not measured
+    double[] throughput;
+
+    double throughputAt(int concurrency) {
+      if (throughput == null || concurrency < 0 || concurrency >= throughput.length)
+        return 0;
+      return throughput[concurrency];
+    }
+  }
+
+  /**
+   * Decides how many minor compactions should run concurrently.
+   */
+  static int computeConcurrency(State state) {
+    int min = Math.max(1, state.min);
+    int max = Math.max(min, state.max);
+    int current = Math.min(max, Math.max(min, state.current));
+
+    double atCurrent = state.throughputAt(current);
+    double atLower = state.throughputAt(current - 1);
+    boolean measured = atCurrent > 0 && atLower > 0;
+
+    if (measured && atCurrent < atLower * (1 - MIN_SPEEDUP) && current > min) {
+      // running more minor compactions made them slower overall
+      return current - 1;
+    }
+
+    boolean stalled = measured && atCurrent < atLower * (1 + MIN_SPEEDUP);
+
+    if (state.queued > 0 && !stalled && (state.held || state.memoryUsed >= HIGH_MEMORY || !state.scansSaturated)) {
+      if (state.held)
+        return Math.min(max, current * 2);
+      return Math.min(max, current + 1);
+    }
+
+    if (state.queued == 0 && !state.held && (state.memoryUsed < LOW_MEMORY || (state.scansSaturated && state.memoryUsed < HIGH_MEMORY)))
+      return Math.max(min, current - 1);
+
+    return current;
+  }
+
+  /**
+   * Supplies the information about the tablet server needed to adjust concurrency.
+   */
+  interface Environment {
+    int getMinConcurrency();
+
+    int getMaxConcurrency();
+
+    boolean isHoldingCommits();
+
+    double getMemoryUsed();
+
+    boolean areScansSaturated();
+  }
+
+  private final ThreadPoolExecutor pool;
+  private final Environment env;
+  private final AtomicLong bytesFlushed = new AtomicLong(0);
+  private final Rate flushRate = new Rate(0.3);
+  private double[] throughput = new double[0];
+  private volatile int concurrency;
+
+  MinorCompactionConcurrencyController(ThreadPoolExecutor pool, Environment env) {
+    this.pool = pool;
+    this.env = env;
+    this.concurrency = pool.getMaximumPoolSize();
+  }
+
+  /**
+   * Called when a minor compaction finishes writing out memory.
+   */
+  void minorCompactionFinished(long bytes) {
+    bytesFlushed.addAndGet(bytes);
+  }
+
+  /**
+   * @return the number of minor compactions allowed to run concurrently
+   */
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  /**
+   * @return the smoothed rate at which minor compactions write out memory, in bytes per second
+   */
+  public double getThroughput() {
+    return flushRate.rate();
+  }
+
+  static void resize(ThreadPoolExecutor pool, int size) {
+    // the core size can never exceed the maximum size
+    if (size > pool.getMaximumPoolSize()) {
+      pool.setMaximumPoolSize(size);
+      pool.setCorePoolSize(size);
+    } else {
+      pool.setCorePoolSize(size);
+      pool.setMaximumPoolSize(size);
+    }
+  }
+
+  @Override
+  public void run() {
+    try {
+      int current = concurrency;
+      double rate = flushRate.update(bytesFlushed.get());
+
+      State state = new State();
+      state.min = env.getMinConcurrency();
+      state.max = env.getMaxConcurrency();
+      state.current = current;
+      state.queued = pool.getQueue().size();
+      state.held = env.isHoldingCommits();
+      state.memoryUsed = env.getMemoryUsed();
+      state.scansSaturated = env.areScansSaturated();
+
+      // only measure throughput when all threads had work, otherwise the rate reflects demand instead of capacity
+      if (state.queued > 0 || pool.getActiveCount() >= current) {
+        if (throughput.length <= current) {
+          double[] grown = new double[Math.max(current + 1, state.max + 1)];
+          System.arraycopy(throughput, 0, grown, 0, throughput.length);
+          throughput = grown;
+        }
+        throughput[current] = throughput[current] == 0 ? rate : (throughput[current] + rate) / 2;
+      }
+      state.throughput = throughput;
+
+      int next = computeConcurrency(state);
+      if (next != current) {
+        log.debug(String.format("Changing minor compaction concurrency from %d to %d, queued = %d held = %s memory = %.2f scansSaturated = %s"
+            + " throughput = %,.0f", current, next, state.queued, state.held, state.memoryUsed, state.scansSaturated, rate));
+        resize(pool, next);
+        concurrency = next;
+      }
+    } catch (Throwable t) {
+      log.error(t, t);
+    }
+  }
+}
@@ -17,7 +17,6 @@
 package org.apache.accumulo.tserver;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -30,72 +29,80 @@ import org.apache.accumulo.tserver.ConditionalMutationSet.DeferFilter;
 import org.apache.accumulo.tserver.data.ServerConditionalMutation;
 
 /**
- * 
+ * Locks the rows of conditional mutations while their conditions are checked and they are written. Rows are hashed to a fixed table of striped locks, so
+ * acquiring and releasing a lock never touches state shared with other rows, instead of going through a map of per row locks guarded by a single monitor.
+ * Rows that hash to the same stripe share a lock, which with enough stripes rarely causes a mutation to be deferred when it did not need to be.
  */
 class RowLocks {
-  
-  private Map<ByteSequence,RowLock> rowLocks = new HashMap<ByteSequence,RowLock>();
-  
+
+  static final int DEFAULT_STRIPES = 1024;
+
+  private final ReentrantLock[] stripes;
+
   static class RowLock {
     ReentrantLock rlock;
-    int count;
     ByteSequence rowSeq;
-    
+
     RowLock(ReentrantLock rlock, ByteSequence rowSeq) {
       this.rlock = rlock;
-      this.count = 0;
       this.rowSeq = rowSeq;
     }
-    
+
     public boolean tryLock() {
       return rlock.tryLock();
     }
-    
+
     public void lock() {
       rlock.lock();
     }
-    
+
     public void unlock() {
       rlock.unlock();
     }
   }
-  
-  private RowLock getRowLock(ArrayByteSequence rowSeq) {
-      RowLock lock = rowLocks.get(rowSeq);
-      if (lock == null) {
-        lock = new RowLock(new ReentrantLock(), rowSeq);
-        rowLocks.put(rowSeq, lock);
-      }
-      
-      lock.count++;
-      return lock;
+
+  RowLocks() {
+    this(DEFAULT_STRIPES);
   }
-  
-  private void returnRowLock(RowLock lock) {
-      if (lock.count == 0)
-        throw new IllegalStateException();
-      lock.count--;
-      
-      if (lock.count == 0) {
-        rowLocks.remove(lock.rowSeq);
-      }
+
+  /**
+   * @param numStripes
+   *          the number of locks rows are hashed to, rounded up to a power of two
+   */
+  RowLocks(int numStripes) {
+    int size = 1;
+    while (size < numStripes)
+      size <<= 1;
+    stripes = new ReentrantLock[size];
+    for (int i = 0; i < size; i++)
+      stripes[i] = new ReentrantLock();
   }
-  
+
+  int getStripe(ByteSequence rowSeq) {
+    int hash = rowSeq.hashCode();
+    // spread the high bits, the hash of rows that only differ in their last bytes would otherwise collide
+    hash ^= (hash >>> 20) ^ (hash >>> 12);
+    hash ^= (hash >>> 7) ^ (hash >>> 4);
+    return hash & (stripes.length - 1);
+  }
+
+  private RowLock getRowLock(ArrayByteSequence rowSeq) {
+    return new RowLock(stripes[getStripe(rowSeq)], rowSeq);
+  }
+
   List<RowLock> acquireRowlocks(Map<KeyExtent,List<ServerConditionalMutation>> updates, Map<KeyExtent,List<ServerConditionalMutation>> deferred) {
     ArrayList<RowLock> locks = new ArrayList<RowLock>();
     
-    // assume that mutations are in sorted order to avoid deadlock
-    synchronized (rowLocks) {
-      for (List<ServerConditionalMutation> scml : updates.values()) {
-        for (ServerConditionalMutation scm : scml) {
-          locks.add(getRowLock(new ArrayByteSequence(scm.getRow())));
-        }
+    for (List<ServerConditionalMutation> scml : updates.values()) {
+      for (ServerConditionalMutation scm : scml) {
+        locks.add(getRowLock(new ArrayByteSequence(scm.getRow())));
       }
     }
     
     HashSet<ByteSequence> rowsNotLocked = null;
 
-    // acquire as many locks as possible, not blocking on rows that are already locked
+    // acquire as many locks as possible, not blocking on rows that are already locked. Only ever blocking while holding no other lock is what avoids
+    // deadlock, rows of the same batch that share a stripe are fine because the locks are reentrant.
     if (locks.size() > 1) {
       for (RowLock rowLock : locks) {
         if (!rowLock.tryLock()) {
@@ -127,20 +134,11 @@ class RowLocks {
       });
       
       ArrayList<RowLock> filteredLocks = new ArrayList<RowLock>();
-      ArrayList<RowLock> locksToReturn = new ArrayList<RowLock>();
       for (RowLock rowLock : locks) {
-        if (rowsNotLocked.contains(rowLock.rowSeq)) {
-          locksToReturn.add(rowLock);
-        } else {
+        if (!rowsNotLocked.contains(rowLock.rowSeq)) {
           filteredLocks.add(rowLock);
         }
       }
-      
-      synchronized (rowLocks) {
-        for (RowLock rowLock : locksToReturn) {
-          returnRowLock(rowLock);
-        }
-      }
 
       locks = filteredLocks;
     }
@@ -151,12 +149,6 @@ class RowLocks {
     for (RowLock rowLock : locks) {
       rowLock.unlock();
     }
-    
-    synchronized (rowLocks) {
-      for (RowLock rowLock : locks) {
-        returnRowLock(rowLock);
-      }
-    }
   }
 
 }
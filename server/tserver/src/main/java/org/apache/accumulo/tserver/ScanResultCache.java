@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.data.Column;
+import org.apache.accumulo.core.data.KeyExtent;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.thrift.IterInfo;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.tserver.Tablet.KVEntry;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+
+/**
+ * Caches the results of small scans, so that the same scan repeated against a tablet that has not changed is answered without reading its data. Results are
+ * cached with the data version of the tablet they were read from, see {@link Tablet#getDataVersion()}, and are only returned while the tablet still has that
+ * version. Because iterators may depend on the current time, results are also only returned for a limited time after they were read.
+ * <p>
+ * The cache is split into independently locked segments, so concurrent scans do not contend on one lock. Within each segment, the least recently used results
+ * are evicted when the size of its results exceeds its share of the maximum size.
+ */
+public class ScanResultCache {
+
+  /**
+   * Everything about a scan that can affect its results, other than the data in the tablet.
+   */
+  static class CacheKey {
+    final KeyExtent extent;
+    final Range range;
+    final Set<Column> columns;
+    final Authorizations authorizations;
+    final List<IterInfo> ssiList;
+    final Map<String,Map<String,String>> ssio;
+    private final int hashCode;
+
+    CacheKey(KeyExtent extent, Range range, Set<Column> columns, Authorizations authorizations, List<IterInfo> ssiList, Map<String,Map<String,String>> ssio) {
+      this.extent = extent;
+      this.range = range;
+      this.columns = columns;
+      this.authorizations = authorizations;
+      this.ssiList = ssiList;
+      this.ssio = ssio;
+
+      int hc = extent.hashCode();
+      hc = 31 * hc + range.hashCode();
+      hc = 31 * hc + columns.hashCode();
+      hc = 31 * hc + authorizations.hashCode();
+      hc = 31 * hc + ssiList.size();
+      hc = 31 * hc + ssio.hashCode();
+      this.hashCode = hc;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (!(o instanceof CacheKey))
+        return false;
+      CacheKey ck = (CacheKey) o;
+      return hashCode == ck.hashCode && extent.equals(ck.extent) && range.equals(ck.range) && columns.equals(ck.columns)
+          && authorizations.equals(ck.authorizations) && ssiList.equals(ck.ssiList) && ssio.equals(ck.ssio);
+    }
+  }
+
+  private static class CachedResult {
+    final long dataVersion;
+    final long time;
+    final List<KVEntry> results;
+    final long size;
+
+    CachedResult(long dataVersion, long time, List<KVEntry> results, long size) {
+      this.dataVersion = dataVersion;
+      this.time = time;
+      this.results = results;
+      this.size = size;
+    }
+  }
+
+  // overhead of a cache entry, its key and its list of results
+  private static final int ENTRY_OVERHEAD = 256;
+
+  /**
+   * The number of independently locked segments of the cache.
+   */
+  static final int CONCURRENCY_LEVEL = 16;
+
+  private final long maxResultSize;
+  private final long maxAge;
+  private final Cache<CacheKey,CachedResult> cache;
+  private final AtomicLong size = new AtomicLong(0);
+  private final AtomicLong hits = new AtomicLong(0);
+  private final AtomicLong misses = new AtomicLong(0);
+
+  /**
+   * @param maxSize
+   *          the most memory, in bytes, the cached results may use
+   * @param maxAge
+   *          the longest time, in milliseconds, results are returned after they were read
+   */
+  public ScanResultCache(long maxSize, long maxAge) {
+    this(maxSize, maxAge, CONCURRENCY_LEVEL);
+  }
+
+  ScanResultCache(long maxSize, long maxAge, int concurrencyLevel) {
+    this.maxAge = maxAge;
+    // the cache is split into segments that each hold their share of the maximum size, a few large results would evict everything else in one
+    this.maxResultSize = maxSize / concurrencyLevel / 8;
+    this.cache = CacheBuilder.newBuilder().maximumWeight(maxSize).concurrencyLevel(concurrencyLevel).weigher(new Weigher<CacheKey,CachedResult>() {
+      @Override
+      public int weigh(CacheKey key, CachedResult value) {
+        return (int) Math.min(Integer.MAX_VALUE, value.size);
+      }
+    }).removalListener(new RemovalListener<CacheKey,CachedResult>() {
+      @Override
+      public void onRemoval(RemovalNotification<CacheKey,CachedResult> notification) {
+        size.addAndGet(-notification.getValue().size);
+      }
+    }).build();
+  }
+
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  static long estimateSize(List<KVEntry> results) {
+    long size = ENTRY_OVERHEAD;
+    for (KVEntry entry : results)
+      size += entry.estimateMemoryUsed();
+    return size;
+  }
+
+  /**
+   * @return the cached results of the scan, or null if there are none for the given data version
+   */
+  List<KVEntry> get(CacheKey key, long dataVersion) {
+    CachedResult cached = cache.getIfPresent(key);
+    if (cached == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+
+    if (cached.dataVersion != dataVersion || currentTimeMillis() - cached.time > maxAge) {
+      // never valid again, the data version only moves forward
+      cache.asMap().remove(key, cached);
+      misses.incrementAndGet();
+      return null;
+    }
+
+    hits.incrementAndGet();
+    return cached.results;
+  }
+
+  /**
+   * Caches the complete results of a scan, read while the tablet had the given data version. The results must not be modified afterwards.
+   */
+  void put(CacheKey key, long dataVersion, List<KVEntry> results) {
+    long resultSize = estimateSize(results);
+    if (resultSize > maxResultSize)
+      return;
+
+    size.addAndGet(resultSize);
+    cache.put(key, new CachedResult(dataVersion, currentTimeMillis(), results, resultSize));
+  }
+
+  /**
+   * Removes the cached results for a tablet, for when it is unloaded.
+   */
+  void remove(KeyExtent extent) {
+    Iterator<CacheKey> iter = cache.asMap().keySet().iterator();
+    while (iter.hasNext()) {
+      if (iter.next().extent.equals(extent))
+        iter.remove();
+    }
+  }
+
+  long getSize() {
+    cache.cleanUp();
+    return size.get();
+  }
+
+  long getNumEntries() {
+    cache.cleanUp();
+    return cache.size();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+}
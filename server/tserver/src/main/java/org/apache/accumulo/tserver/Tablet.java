@@ -37,6 +37,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -46,6 +47,7 @@ import org.apache.accumulo.core.Constants;
 import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.impl.ScannerImpl;
+import org.apache.accumulo.core.client.impl.ScannerOptions;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
 import org.apache.accumulo.core.conf.ConfigurationCopy;
 import org.apache.accumulo.core.conf.ConfigurationObserver;
@@ -64,10 +66,12 @@ import org.apache.accumulo.core.data.thrift.IterInfo;
 import org.apache.accumulo.core.data.thrift.MapFileInfo;
 import org.apache.accumulo.core.file.FileOperations;
 import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.rfile.FileStatistics;
 import org.apache.accumulo.core.iterators.IterationInterruptedException;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.IteratorUtil;
 import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.KeyValueBatch;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.system.ColumnFamilySkippingIterator;
 import org.apache.accumulo.core.iterators.system.ColumnQualifierFilter;
@@ -77,7 +81,9 @@ import org.apache.accumulo.core.iterators.system.MultiIterator;
 import org.apache.accumulo.core.iterators.system.SourceSwitchingIterator;
 import org.apache.accumulo.core.iterators.system.SourceSwitchingIterator.DataSource;
 import org.apache.accumulo.core.iterators.system.StatsIterator;
+import org.apache.accumulo.core.iterators.system.TimestampRangeFilter;
 import org.apache.accumulo.core.iterators.system.VisibilityFilter;
+import org.apache.accumulo.core.iterators.user.VersioningIterator;
 import org.apache.accumulo.core.master.thrift.TabletLoadState;
 import org.apache.accumulo.core.metadata.MetadataTable;
 import org.apache.accumulo.core.metadata.RootTable;
@@ -356,6 +362,8 @@ public class Tablet {
 
     void mutate(CommitSession cm, List<Mutation> mutations) {
       cm.memTable.mutate(mutations);
+      // after the mutations are visible, so a scan that did not see them can not be cached with the new version
+      dataChanged();
     }
 
     void updateMemoryUsageStats() {
@@ -410,6 +418,11 @@ public class Tablet {
   private volatile boolean tableDirChecked = false;
 
   private AtomicLong dataSourceDeletions = new AtomicLong(0);
+  // each tablet counts data versions from its own epoch, so they are unique across tablets and a tablet that is reloaded never reuses one
+  private static final AtomicLong nextDataVersionEpoch = new AtomicLong(0);
+  private final AtomicLong dataVersion = new AtomicLong(nextDataVersionEpoch.getAndAdd(1L << 32));
+  // only the scan result cache reads data versions
+  private final boolean trackDataVersion;
   private Set<ScanDataSource> activeScans = new HashSet<ScanDataSource>();
 
   private volatile boolean closing = false;
@@ -736,6 +749,7 @@ public class Tablet {
           datafileSizes.put(tpath.getKey(), tpath.getValue());
 
         }
+        dataChanged();
 
         tabletResources.importedMapFiles();
 
@@ -905,6 +919,7 @@ public class Tablet {
         unreserveMergingMinorCompactionFile(absMergeFile);
 
         dataSourceDeletions.incrementAndGet();
+        dataChanged();
         tabletMemory.finishedMinC();
 
         lastFlushID = flushId;
@@ -944,22 +959,43 @@ public class Tablet {
 
     void bringMajorCompactionOnline(Set<FileRef> oldDatafiles, FileRef tmpDatafile, FileRef newDatafile, Long compactionId, DataFileValue dfv)
         throws IOException {
+      bringMajorCompactionOnline(oldDatafiles, Collections.singletonMap(newDatafile, tmpDatafile), compactionId, Collections.singletonMap(newDatafile, dfv));
+    }
+
+    /**
+     * Replaces the compacted files with one or more new files.
+     * 
+     * @param tmpDatafiles
+     *          maps each new file to the temporary file it was written to
+     * @param newSizes
+     *          the size of each new file
+     */
+    void bringMajorCompactionOnline(Set<FileRef> oldDatafiles, Map<FileRef,FileRef> tmpDatafiles, Long compactionId, Map<FileRef,DataFileValue> newSizes)
+        throws IOException {
       long t1, t2;
 
+      if (extent.isRootTablet() && tmpDatafiles.size() != 1)
+        throw new IllegalArgumentException("Major compaction of the root tablet must produce one file " + tmpDatafiles.keySet());
+
       if (!extent.isRootTablet()) {
 
-        if (fs.exists(newDatafile.path())) {
-          log.error("Target map file already exist " + newDatafile, new Exception());
-          throw new IllegalStateException("Target map file already exist " + newDatafile);
-        }
+        for (Entry<FileRef,FileRef> entry : tmpDatafiles.entrySet()) {
+          FileRef newDatafile = entry.getKey();
+          FileRef tmpDatafile = entry.getValue();
+
+          if (fs.exists(newDatafile.path())) {
+            log.error("Target map file already exist " + newDatafile, new Exception());
+            throw new IllegalStateException("Target map file already exist " + newDatafile);
+          }
 
-        // rename before putting in metadata table, so files in metadata table should
-        // always exist
-        if (!fs.rename(tmpDatafile.path(), newDatafile.path()))
-          log.warn("Rename of " + tmpDatafile + " to " + newDatafile + " returned false");
+          // rename before putting in metadata table, so files in metadata table should
+          // always exist
+          if (!fs.rename(tmpDatafile.path(), newDatafile.path()))
+            log.warn("Rename of " + tmpDatafile + " to " + newDatafile + " returned false");
 
-        if (dfv.getNumEntries() == 0) {
-          fs.deleteRecursively(newDatafile.path());
+          if (newSizes.get(newDatafile).getNumEntries() == 0) {
+            fs.deleteRecursively(newDatafile.path());
+          }
         }
       }
 
@@ -989,6 +1025,8 @@ public class Tablet {
           // rename the compacted map file, in case
           // the system goes down
 
+          FileRef newDatafile = tmpDatafiles.keySet().iterator().next();
+          FileRef tmpDatafile = tmpDatafiles.get(newDatafile);
           String compactName = newDatafile.path().getName();
 
           for (FileRef ref : oldDatafiles) {
@@ -1023,17 +1061,22 @@ public class Tablet {
           majorCompactingFiles.remove(oldDatafile);
         }
 
-        if (datafileSizes.containsKey(newDatafile)) {
-          log.error("Adding file that is already in set " + newDatafile);
-        }
+        for (Entry<FileRef,DataFileValue> entry : newSizes.entrySet()) {
+          FileRef newDatafile = entry.getKey();
+          if (datafileSizes.containsKey(newDatafile)) {
+            log.error("Adding file that is already in set " + newDatafile);
+          }
 
-        if (dfv.getNumEntries() > 0) {
-          datafileSizes.put(newDatafile, dfv);
-        }
+          if (entry.getValue().getNumEntries() > 0) {
+            datafileSizes.put(newDatafile, entry.getValue());
+          }
 
-        // could be used by a follow on compaction in a multipass compaction
-        majorCompactingFiles.add(newDatafile);
+          // could be used by a follow on compaction in a multipass compaction
+          majorCompactingFiles.add(newDatafile);
+        }
 
+        // compaction iterators may have removed data
+        dataChanged();
         computeNumEntries();
 
         lastLocation = Tablet.this.lastLocation;
@@ -1049,13 +1092,13 @@ public class Tablet {
         Set<FileRef> filesInUseByScans = waitForScansToFinish(oldDatafiles, false, 10000);
         if (filesInUseByScans.size() > 0)
           log.debug("Adding scan refs to metadata " + extent + " " + filesInUseByScans);
-        MasterMetadataUtil.replaceDatafiles(extent, oldDatafiles, filesInUseByScans, newDatafile, compactionId, dfv, SystemCredentials.get(),
-            tabletServer.getClientAddressString(), lastLocation, tabletServer.getLock());
+        MasterMetadataUtil.replaceDatafiles(extent, oldDatafiles, filesInUseByScans, newSizes, compactionId, SystemCredentials.get(),
+            tabletServer.getClientAddressString(), lastLocation, tabletServer.getLock(), true);
         removeFilesAfterScan(filesInUseByScans);
       }
 
       log.debug(String.format("MajC finish lock %.2f secs", (t2 - t1) / 1000.0));
-      log.log(TLevel.TABLET_HIST, extent + " MajC " + oldDatafiles + " --> " + newDatafile);
+      log.log(TLevel.TABLET_HIST, extent + " MajC " + oldDatafiles + " --> " + newSizes.keySet());
     }
 
     public SortedMap<FileRef,DataFileValue> getDatafileSizes() {
@@ -1303,6 +1346,7 @@ public class Tablet {
     }
 
     this.tabletServer = tabletServer;
+    this.trackDataVersion = tabletServer.isScanResultCacheEnabled();
     this.logId = tabletServer.createLogId(extent);
 
     this.timer = new TabletStatsKeeper();
@@ -1321,6 +1365,7 @@ public class Tablet {
 
       @Override
       public void propertiesChanged() {
+        dataChanged();
         reloadConstraints();
 
         try {
@@ -1332,6 +1377,8 @@ public class Tablet {
 
       @Override
       public void propertyChanged(String prop) {
+        // iterators configured for the table may have changed
+        dataChanged();
         if (prop.startsWith(Property.TABLE_CONSTRAINT_PREFIX.getKey()))
           reloadConstraints();
         else if (prop.equals(Property.TABLE_DEFAULT_SCANTIME_VISIBILITY.getKey())) {
@@ -1522,7 +1569,15 @@ public class Tablet {
 
   public static class KVEntry extends KeyValue {
     public KVEntry(Key k, Value v) {
-      super(new Key(k), Arrays.copyOf(v.get(), v.get().length));
+      this(k, v, true);
+    }
+
+    /**
+     * @param copyValue
+     *          false when the value's array is never modified after it is returned by an iterator, so it can be sent to the client as is
+     */
+    public KVEntry(Key k, Value v, boolean copyValue) {
+      super(new Key(k), copyValue ? Arrays.copyOf(v.get(), v.get().length) : v.get());
     }
 
     @Override
@@ -1531,16 +1586,16 @@ public class Tablet {
     }
 
     int numBytes() {
-      return key.getSize() + getValue().get().length;
+      return key.getSize() + value.length;
     }
 
     int estimateMemoryUsed() {
-      return key.getSize() + getValue().get().length + (9 * 32); // overhead is 32 per object
+      return key.getSize() + value.length + (9 * 32); // overhead is 32 per object
     }
   }
 
   private LookupResult lookup(SortedKeyValueIterator<Key,Value> mmfi, List<Range> ranges, HashSet<Column> columnSet, ArrayList<KVEntry> results,
-      long maxResultsSize) throws IOException {
+      long maxResultsSize, boolean copyValues) throws IOException {
 
     LookupResult lookupResult = new LookupResult();
 
@@ -1569,7 +1624,7 @@ public class Tablet {
         while (mmfi.hasTop()) {
           Key key = mmfi.getTopKey();
 
-          KVEntry kve = new KVEntry(key, mmfi.getTopValue());
+          KVEntry kve = new KVEntry(key, mmfi.getTopValue(), copyValues);
           results.add(kve);
           entriesAdded++;
           lookupResult.bytesAdded += kve.estimateMemoryUsed();
@@ -1669,7 +1724,7 @@ public class Tablet {
 
     try {
       SortedKeyValueIterator<Key,Value> iter = new SourceSwitchingIterator(dataSource);
-      result = lookup(iter, ranges, columns, results, maxResultSize);
+      result = lookup(iter, ranges, columns, results, maxResultSize, dataSource.options.copyValues);
       return result;
     } catch (IOException ioe) {
       dataSource.close(true);
@@ -1687,7 +1742,13 @@ public class Tablet {
     }
   }
 
-  private Batch nextBatch(SortedKeyValueIterator<Key,Value> iter, Range range, int num, Set<Column> columns) throws IOException {
+  /**
+   * How many entries are read from the iterator stack at a time by a scan.
+   */
+  private static final int ITERATOR_BATCH_SIZE = 16;
+
+  private Batch nextBatch(SortedKeyValueIterator<Key,Value> iter, Range range, int num, long maxResultsSize, long maxTime, Set<Column> columns,
+      boolean copyValues) throws IOException {
 
     // log.info("In nextBatch..");
 
@@ -1697,8 +1758,9 @@ public class Tablet {
     Value value;
     long resultSize = 0L;
     long resultBytes = 0L;
+    boolean full = false;
 
-    long maxResultsSize = acuTableConf.getMemoryInBytes(Property.TABLE_SCAN_MAXMEM);
+    long startTime = System.currentTimeMillis();
 
     if (columns.size() == 0) {
       iter.seek(range, LocalityGroupUtil.EMPTY_CF_SET, false);
@@ -1710,31 +1772,41 @@ public class Tablet {
     boolean skipContinueKey = false;
 
     boolean endOfTabletReached = false;
-    while (iter.hasTop()) {
 
-      value = iter.getTopValue();
-      key = iter.getTopKey();
+    // entries in the batch were already copied as needed when they were read from iterators that might reuse them
+    KeyValueBatch batch = new KeyValueBatch(ITERATOR_BATCH_SIZE, copyValues);
 
-      KVEntry kvEntry = new KVEntry(key, value); // copies key and value
-      results.add(kvEntry);
-      resultSize += kvEntry.estimateMemoryUsed();
-      resultBytes += kvEntry.numBytes();
-
-      if (resultSize >= maxResultsSize || results.size() >= num) {
-        continueKey = new Key(key);
-        skipContinueKey = true;
+    readLoop: while (true) {
+      batch.clear();
+      if (batch.fill(iter) == 0) {
+        endOfTabletReached = true;
         break;
       }
 
-      iter.next();
-    }
+      for (int i = 0; i < batch.size(); i++) {
+        key = batch.getKey(i);
+        value = batch.getValue(i);
 
-    if (iter.hasTop() == false) {
-      endOfTabletReached = true;
+        KVEntry kvEntry = new KVEntry(key, value, false);
+        results.add(kvEntry);
+        resultSize += kvEntry.estimateMemoryUsed();
+        resultBytes += kvEntry.numBytes();
+
+        full = resultSize >= maxResultsSize || results.size() >= num;
+
+        // check the time periodically so that the read ahead thread is not monopolized
+        if (full || (results.size() % 16 == 0 && System.currentTimeMillis() - startTime >= maxTime)) {
+          // any entries left in the batch are read again by the next batch, which seeks past this key
+          continueKey = new Key(key);
+          skipContinueKey = true;
+          break readLoop;
+        }
+      }
     }
 
     Batch retBatch = new Batch();
     retBatch.numBytes = resultBytes;
+    retBatch.full = full;
 
     if (!endOfTabletReached) {
       retBatch.continueKey = continueKey;
@@ -1773,6 +1845,28 @@ public class Tablet {
     public List<KVEntry> results;
     public Key continueKey;
     public long numBytes;
+    public boolean full;
+  }
+
+  /**
+   * Values read from files and memory are never modified once returned, and neither are values passed through the system iterators or the versioning
+   * iterator. Any other iterator could reuse the array of a value it returned, so results are only sent without copying their values when no other iterators
+   * are configured for the scan.
+   */
+  private boolean needsValueCopies(List<IterInfo> ssiList) {
+    return !onlyVersioningIterator(ssiList);
+  }
+
+  /**
+   * @return true when the scan configures no iterators and the table configures none for scans, other than the versioning iterator
+   */
+  private boolean onlyVersioningIterator(List<IterInfo> ssiList) {
+    if (ssiList != null && ssiList.size() > 0)
+      return false;
+    for (IterInfo iterInfo : IteratorUtil.getIterators(IteratorScope.scan, acuTableConf))
+      if (!iterInfo.getClassName().equals(VersioningIterator.class.getName()))
+        return false;
+    return true;
   }
 
   Scanner createScanner(Range range, int num, Set<Column> columns, Authorizations authorizations, List<IterInfo> ssiList, Map<String,Map<String,String>> ssio,
@@ -1781,18 +1875,90 @@ public class Tablet {
     // then clip will throw an exception
     extent.toDataRange().clip(range);
 
-    ScanOptions opts = new ScanOptions(num, authorizations, this.defaultSecurityLabel, columns, ssiList, ssio, interruptFlag, isolated);
+    ScanOptions opts = new ScanOptions(num, authorizations, this.defaultSecurityLabel, columns, ssiList, ssio, interruptFlag, isolated,
+        needsValueCopies(ssiList));
     return new Scanner(range, opts);
   }
 
+  /**
+   * Reads the values checked by the conditions of conditional mutations. One iterator stack is used for every condition, instead of creating a scanner with its
+   * own stack for each, and conditions must be read in sorted order. When only the versioning iterator is configured, the stack is moved forward through the
+   * tablet by a {@link ForwardReader}, otherwise it is seeked to each condition.
+   */
+  class ConditionReader {
+
+    private final ScanDataSource dataSource;
+    private final SortedKeyValueIterator<Key,Value> iter;
+    private final ForwardReader forwardReader;
+    private long entriesRead = 0;
+
+    private ConditionReader(ScanDataSource dataSource, boolean forward) {
+      this.dataSource = dataSource;
+      this.iter = new SourceSwitchingIterator(dataSource, false);
+      this.forwardReader = forward ? new ForwardReader(iter, extent.toDataRange()) : null;
+    }
+
+    /**
+     * @return the first value in the range, which must be valid until the next read, or null when there is none
+     */
+    Value read(Range range) throws IOException, TabletClosedException {
+      extent.toDataRange().clip(range);
+
+      try {
+        boolean found;
+        if (forwardReader != null) {
+          found = forwardReader.read(range);
+        } else {
+          iter.seek(range, LocalityGroupUtil.EMPTY_CF_SET, false);
+          found = iter.hasTop();
+        }
+        if (!found)
+          return null;
+        entriesRead++;
+        return iter.getTopValue();
+      } catch (IterationInterruptedException iie) {
+        if (isClosed())
+          throw new TabletClosedException(iie);
+        throw iie;
+      } catch (IOException ioe) {
+        if (shutdownInProgress()) {
+          log.debug("IOException while shutdown in progress ", ioe);
+          throw new TabletClosedException(ioe);
+        }
+        throw ioe;
+      }
+    }
+
+    void close(boolean sawErrors) {
+      dataSource.close(sawErrors);
+      synchronized (Tablet.this) {
+        queryCount += entriesRead;
+      }
+    }
+  }
+
+  ConditionReader createConditionReader(Authorizations authorizations, List<IterInfo> ssiList, Map<String,Map<String,String>> ssio,
+      AtomicBoolean interruptFlag) {
+    // the versioning iterator is the only one known to not depend on the range it is seeked to
+    boolean forward = onlyVersioningIterator(ssiList);
+    return new ConditionReader(new ScanDataSource(authorizations, this.defaultSecurityLabel, new HashSet<Column>(), ssiList, ssio, interruptFlag), forward);
+  }
+
   class ScanBatch {
     boolean more;
     List<KVEntry> results;
+    // true when the batch stopped because it reached its entry or size limit
+    boolean full;
 
     ScanBatch(List<KVEntry> results, boolean more) {
       this.results = results;
       this.more = more;
     }
+
+    ScanBatch(List<KVEntry> results, boolean more, boolean full) {
+      this(results, more);
+      this.full = full;
+    }
   }
 
   class Scanner {
@@ -1809,7 +1975,21 @@ public class Tablet {
       this.options = options;
     }
 
-    synchronized ScanBatch read() throws IOException, TabletClosedException {
+    ScanBatch read() throws IOException, TabletClosedException {
+      return read(options.num, acuTableConf.getMemoryInBytes(Property.TABLE_SCAN_MAXMEM), Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads the next batch, which stops at whichever of the limits is reached first.
+     * 
+     * @param num
+     *          the most entries to read
+     * @param maxResultsSize
+     *          the most memory the entries may use
+     * @param maxTime
+     *          the most milliseconds to spend reading, after which at least one entry is returned
+     */
+    synchronized ScanBatch read(int num, long maxResultsSize, long maxTime) throws IOException, TabletClosedException {
 
       if (sawException)
         throw new IllegalStateException("Tried to use scanner after exception occurred.");
@@ -1843,7 +2023,7 @@ public class Tablet {
           iter = new SourceSwitchingIterator(dataSource, false);
         }
 
-        results = nextBatch(iter, range, options.num, options.columnSet);
+        results = nextBatch(iter, range, num, maxResultsSize, maxTime, options.columnSet, options.copyValues);
 
         if (results.results == null) {
           range = null;
@@ -1852,7 +2032,7 @@ public class Tablet {
           return new ScanBatch(results.results, false);
         } else {
           range = new Range(results.continueKey, !results.skipContinueKey, range.getEndKey(), range.isEndKeyInclusive());
-          return new ScanBatch(results.results, true);
+          return new ScanBatch(results.results, true, results.full);
         }
 
       } catch (IterationInterruptedException iie) {
@@ -1915,9 +2095,13 @@ public class Tablet {
     AtomicBoolean interruptFlag;
     int num;
     boolean isolated;
+    // false when only iterators known to never modify returned values are configured
+    boolean copyValues;
+    long minTimestamp = Long.MIN_VALUE;
+    long maxTimestamp = Long.MAX_VALUE;
 
     ScanOptions(int num, Authorizations authorizations, byte[] defaultLabels, Set<Column> columnSet, List<IterInfo> ssiList,
-        Map<String,Map<String,String>> ssio, AtomicBoolean interruptFlag, boolean isolated) {
+        Map<String,Map<String,String>> ssio, AtomicBoolean interruptFlag, boolean isolated, boolean copyValues) {
       this.num = num;
       this.authorizations = authorizations;
       this.defaultLabels = defaultLabels;
@@ -1926,6 +2110,13 @@ public class Tablet {
       this.ssio = ssio;
       this.interruptFlag = interruptFlag;
       this.isolated = isolated;
+      this.copyValues = copyValues;
+
+      long[] timeRange = ScannerOptions.getTimeRange(ssio);
+      if (timeRange != null) {
+        this.minTimestamp = timeRange[0];
+        this.maxTimestamp = timeRange[1];
+      }
     }
 
   }
@@ -1946,7 +2137,7 @@ public class Tablet {
     ScanDataSource(Authorizations authorizations, byte[] defaultLabels, HashSet<Column> columnSet, List<IterInfo> ssiList, Map<String,Map<String,String>> ssio,
         AtomicBoolean interruptFlag) {
       expectedDeletionCount = dataSourceDeletions.get();
-      this.options = new ScanOptions(-1, authorizations, defaultLabels, columnSet, ssiList, ssio, interruptFlag, false);
+      this.options = new ScanOptions(-1, authorizations, defaultLabels, columnSet, ssiList, ssio, interruptFlag, false, needsValueCopies(ssiList));
       this.interruptFlag = interruptFlag;
     }
 
@@ -2024,6 +2215,8 @@ public class Tablet {
         files = reservation.getSecond();
       }
 
+      fileManager.setTimeRange(options.minTimestamp, options.maxTimestamp);
+      fileManager.setAuthorizations(options.authorizations, options.defaultLabels);
       Collection<InterruptibleIterator> mapfiles = fileManager.openFiles(files, options.isolated);
 
       List<SortedKeyValueIterator<Key,Value>> iters = new ArrayList<SortedKeyValueIterator<Key,Value>>(mapfiles.size() + memIters.size());
@@ -2040,7 +2233,11 @@ public class Tablet {
 
       statsIterator = new StatsIterator(multiIter, TabletServer.seekCount, scannedCount);
 
-      DeletingIterator delIter = new DeletingIterator(statsIterator, false);
+      SortedKeyValueIterator<Key,Value> delIter = new DeletingIterator(statsIterator, false);
+
+      // files and blocks outside the time range were already skipped, this removes what remains
+      if (TimestampRangeFilter.isLimited(options.minTimestamp, options.maxTimestamp))
+        delIter = new TimestampRangeFilter(delIter, options.minTimestamp, options.maxTimestamp);
 
       ColumnFamilySkippingIterator cfsi = new ColumnFamilySkippingIterator(delIter);
 
@@ -2096,12 +2293,14 @@ public class Tablet {
     timer.incrementStatusMinor();
 
     long count = 0;
+    long bytes = 0;
 
     try {
       Span span = Trace.start("write");
       CompactionStats stats;
       try {
         count = memTable.getNumEntries();
+        bytes = memTable.estimatedSizeInBytes();
 
         DataFileValue dfv = null;
         if (mergeFile != null)
@@ -2136,6 +2335,7 @@ public class Tablet {
 
       if (!failed) {
         lastMinorCompactionFinishTime = System.currentTimeMillis();
+        tabletResources.minorCompactionFinished(bytes);
       }
       if (tabletServer.mincMetrics.isEnabled())
         tabletServer.mincMetrics.add(TabletServerMinCMetrics.minc, (lastMinorCompactionFinishTime - start));
@@ -2934,6 +3134,16 @@ public class Tablet {
     return size;
   }
 
+  // statistics of the tablet's files read by compaction strategies, files are immutable so they never change
+  private final Map<FileRef,FileStatistics> fileStatistics = new ConcurrentHashMap<FileRef,FileStatistics>();
+
+  Map<FileRef,FileStatistics> getFileStatisticsCache() {
+    return fileStatistics;
+  }
+
+  // the row that the output of the last major compaction of all files was partitioned at, if any
+  private volatile Text compactionPartitionRow = null;
+
   private boolean sawBigRow = false;
   private long timeOfLastMinCWhenBigFreakinRowWasSeen = 0;
   private long timeOfLastImportWhenBigFreakinRowWasSeen = 0;
@@ -3013,17 +3223,7 @@ public class Tablet {
 
         return null;
       }
-      Key mid = keys.get(.5);
-      Text text = (mid == null) ? null : mid.getRow();
-      SortedMap<Double,Key> firstHalf = keys.headMap(.5);
-      if (firstHalf.size() > 0) {
-        Text beforeMid = firstHalf.get(firstHalf.lastKey()).getRow();
-        Text shorter = new Text();
-        int trunc = longestCommonLength(text, beforeMid);
-        shorter.set(text.getBytes(), 0, Math.min(text.getLength(), trunc + 1));
-        text = shorter;
-      }
-      return new SplitRowSpec(.5, text);
+      return new SplitRowSpec(.5, shortestMidRow(keys));
     } catch (IOException e) {
       // don't split now, but check again later
       log.error("Failed to find lastkey " + e.getMessage());
@@ -3031,6 +3231,77 @@ public class Tablet {
     }
   }
 
+  /**
+   * @return the shortest row that sorts after the row before the midpoint and no later than the midpoint
+   */
+  private static Text shortestMidRow(SortedMap<Double,Key> keys) {
+    Key mid = keys.get(.5);
+    Text text = (mid == null) ? null : mid.getRow();
+    SortedMap<Double,Key> firstHalf = keys.headMap(.5);
+    if (text != null && firstHalf.size() > 0) {
+      Text beforeMid = firstHalf.get(firstHalf.lastKey()).getRow();
+      Text shorter = new Text();
+      int trunc = longestCommonLength(text, beforeMid);
+      shorter.set(text.getBytes(), 0, Math.min(text.getLength(), trunc + 1));
+      text = shorter;
+    }
+    return text;
+  }
+
+  /**
+   * Chooses the row to partition the output of a major compaction of all of the tablet's files at, when the tablet is close to splitting. This reads the files,
+   * so it must not be called while holding the tablet lock, and unlike {@link #findSplitRow(Collection)} it does not change any split state.
+   * 
+   * @return the row, or null if the output should not be partitioned
+   */
+  private Text findCompactionPartitionRow(Map<FileRef,DataFileValue> files) {
+    double ratio = acuTableConf.getFraction(Property.TABLE_MAJC_PARTITION_RATIO);
+    if (ratio <= 0 || extent.isRootTablet())
+      return null;
+
+    long size = 0;
+    for (DataFileValue dfv : files.values())
+      size += dfv.getSize();
+    if (size <= (long) (acuTableConf.getMemoryInBytes(Property.TABLE_SPLIT_THRESHOLD) * ratio))
+      return null;
+
+    try {
+      SortedMap<Double,Key> keys = FileUtil.findMidPoint(fs, tabletServer.getSystemConfiguration(), extent.getPrevEndRow(), extent.getEndRow(), files.keySet(),
+          .25);
+      Key mid = keys.get(.5);
+      if (mid == null)
+        return null;
+
+      Text lastRow = extent.getEndRow();
+      if (lastRow == null)
+        lastRow = ((Key) FileUtil.findLastKey(fs, tabletServer.getSystemConfiguration(), files.keySet())).getRow();
+
+      // a big row at the end, the tablet is not expected to split at the midpoint
+      if (mid.compareRow(lastRow) == 0)
+        return null;
+
+      Text row = shortestMidRow(keys);
+      if (row == null || !extent.contains(row) || row.equals(extent.getEndRow()))
+        return null;
+      return row;
+    } catch (IOException e) {
+      log.warn("Failed to find compaction partition row for " + extent + " " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * @return true if no file contains rows on both sides of the row, so a split there would not leave the children sharing a file
+   */
+  private static boolean isPartitioned(Text row, Collection<FileRef> files, Map<FileRef,FileUtil.FileInfo> firstAndLastRows) {
+    for (FileRef file : files) {
+      FileUtil.FileInfo info = firstAndLastRows.get(file);
+      if (info == null || (info.getFirstRow().compareTo(row) <= 0 && info.getLastRow().compareTo(row) > 0))
+        return false;
+    }
+    return true;
+  }
+
   private static int longestCommonLength(Text text, Text beforeMid) {
     int common = 0;
     while (common < text.getLength() && common < beforeMid.getLength() && text.getBytes()[common] == beforeMid.getBytes()[common]) {
@@ -3121,6 +3392,9 @@ public class Tablet {
     } else if (reason != MajorCompactionReason.USER) {
       MajorCompactionRequest request = new MajorCompactionRequest(extent, reason, fs, acuTableConf);
       request.setFiles(datafileManager.getDatafileSizes());
+      // forget the statistics of files the tablet no longer has
+      fileStatistics.keySet().retainAll(request.getFiles().keySet());
+      request.setFileStatisticsCache(fileStatistics);
       strategy.gatherInformation(request);
     }
 
@@ -3132,6 +3406,7 @@ public class Tablet {
     CompactionPlan plan = null;
 
     boolean propogateDeletes = false;
+    Text partitionRow = null;
 
     synchronized (this) {
       // plan all that work that needs to be done in the sync block... then do the actual work
@@ -3165,6 +3440,7 @@ public class Tablet {
       } else {
         MajorCompactionRequest request = new MajorCompactionRequest(extent, reason, fs, acuTableConf);
         request.setFiles(allFiles);
+        request.setFileStatisticsCache(fileStatistics);
         plan = strategy.getCompactionPlan(request);
         if (plan != null)
           inputFiles.addAll(plan.inputFiles);
@@ -3192,6 +3468,13 @@ public class Tablet {
 
       log.debug(String.format("MajC initiate lock %.2f secs, wait %.2f secs", (t3 - t2) / 1000.0, (t2 - t1) / 1000.0));
 
+      if (!propogateDeletes) {
+        // the files are reserved, so they can be read outside of the tablet lock
+        partitionRow = findCompactionPartitionRow(filesToCompact);
+        if (partitionRow != null)
+          log.debug("Major compaction of " + extent + " partitioned at " + partitionRow);
+      }
+
       Pair<Long,List<IteratorSetting>> compactionId = null;
       if (!propogateDeletes) {
         // compacting everything, so update the compaction id in metadata
@@ -3262,6 +3545,35 @@ public class Tablet {
 
           // always propagate deletes, unless last batch
           boolean lastBatch = filesToCompact.isEmpty();
+
+          if (lastBatch && partitionRow != null) {
+            // write a file for each side of the row the tablet is expected to split at
+            Map<FileRef,FileRef> tmpFiles = new HashMap<FileRef,FileRef>();
+            Map<FileRef,DataFileValue> newSizes = new HashMap<FileRef,DataFileValue>();
+            KeyExtent[] partitions = new KeyExtent[] {new KeyExtent(extent.getTableId(), partitionRow, extent.getPrevEndRow()),
+                new KeyExtent(extent.getTableId(), extent.getEndRow(), partitionRow)};
+            for (int i = 0; i < partitions.length; i++) {
+              FileRef partitionFile = i == 0 ? fileName : getNextMapFilename("A");
+              FileRef partitionTmpFile = new FileRef(partitionFile.path().toString() + "_tmp");
+              Compactor compactor = new Compactor(conf, fs, copy, null, partitionTmpFile, propogateDeletes, tableConf, partitions[i], cenv,
+                  compactionIterators, reason);
+              CompactionStats mcs = compactor.call();
+              majCStats.add(mcs);
+              tmpFiles.put(partitionFile, partitionTmpFile);
+              newSizes.put(partitionFile, new DataFileValue(mcs.getFileSize(), mcs.getEntriesWritten()));
+            }
+
+            span.data("files", "" + smallestFiles.size());
+            span.data("partitions", "" + partitions.length);
+            compactionPartitionRow = partitionRow;
+
+            if (plan != null && plan.deleteFiles != null) {
+              smallestFiles.addAll(plan.deleteFiles);
+            }
+            datafileManager.bringMajorCompactionOnline(smallestFiles, tmpFiles, compactionId != null ? compactionId.getFirst() : null, newSizes);
+            continue;
+          }
+
           Compactor compactor = new Compactor(conf, fs, copy, null, compactTmpName, lastBatch ? propogateDeletes : true, tableConf, extent, cenv,
               compactionIterators, reason);
 
@@ -3429,6 +3741,20 @@ public class Tablet {
     return numEntries;
   }
 
+  private void dataChanged() {
+    if (trackDataVersion)
+      dataVersion.incrementAndGet();
+  }
+
+  /**
+   * Returns a version of the data in this tablet, which changes whenever the results of a scan might. That is when data is written, files are added or
+   * compacted, or the table configuration changes. Versions are never reused, even by other tablets. Versions are only tracked when the scan result cache is
+   * enabled.
+   */
+  public long getDataVersion() {
+    return dataVersion.get();
+  }
+
   public long getNumEntriesInMemory() {
     return numEntriesInMemory;
   }
@@ -3522,9 +3848,17 @@ public class Tablet {
 
       // choose a split point
       SplitRowSpec splitPoint;
-      if (sp == null)
+      if (sp == null) {
         splitPoint = findSplitRow(datafileManager.getFiles());
-      else {
+        Text partitionRow = compactionPartitionRow;
+        if (splitPoint != null && partitionRow != null && !partitionRow.equals(splitPoint.row) && extent.contains(partitionRow)
+            && !partitionRow.equals(extent.getEndRow()) && isPartitioned(partitionRow, datafileManager.getFiles(), firstAndLastRows)) {
+          // a major compaction already partitioned the files at this row, splitting here means the children will not share files
+          log.debug("Splitting " + extent + " at " + partitionRow + " where its files are partitioned instead of " + splitPoint.row);
+          splitPoint = new SplitRowSpec(FileUtil.estimatePercentageLTE(fs, tabletServer.getSystemConfiguration(), extent.getPrevEndRow(), extent.getEndRow(),
+              datafileManager.getFiles(), partitionRow), partitionRow);
+        }
+      } else {
         Text tsp = new Text(sp);
         splitPoint = new SplitRowSpec(FileUtil.estimatePercentageLTE(fs, tabletServer.getSystemConfiguration(), extent.getPrevEndRow(), extent.getEndRow(),
             datafileManager.getFiles(), tsp), tsp);
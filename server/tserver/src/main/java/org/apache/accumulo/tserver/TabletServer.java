@@ -46,6 +46,9 @@ import java.util.TreeSet;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.RunnableFuture;
@@ -66,6 +69,7 @@ import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.client.Instance;
 import org.apache.accumulo.core.client.impl.CompressedIterators;
 import org.apache.accumulo.core.client.impl.CompressedIterators.IterConfig;
+import org.apache.accumulo.core.client.impl.ScanBatchEncoding;
 import org.apache.accumulo.core.client.impl.ScannerImpl;
 import org.apache.accumulo.core.client.impl.TabletType;
 import org.apache.accumulo.core.client.impl.Translator;
@@ -192,6 +196,7 @@ import org.apache.accumulo.trace.thrift.TInfo;
 import org.apache.accumulo.tserver.Compactor.CompactionInfo;
 import org.apache.accumulo.tserver.RowLocks.RowLock;
 import org.apache.accumulo.tserver.Tablet.CommitSession;
+import org.apache.accumulo.tserver.Tablet.ConditionReader;
 import org.apache.accumulo.tserver.Tablet.KVEntry;
 import org.apache.accumulo.tserver.Tablet.LookupResult;
 import org.apache.accumulo.tserver.Tablet.MinorCompactionReason;
@@ -215,6 +220,9 @@ import org.apache.accumulo.tserver.metrics.TabletServerMBean;
 import org.apache.accumulo.tserver.metrics.TabletServerMinCMetrics;
 import org.apache.accumulo.tserver.metrics.TabletServerScanMetrics;
 import org.apache.accumulo.tserver.metrics.TabletServerUpdateMetrics;
+import org.apache.accumulo.tserver.scan.AdaptiveBatchSizer;
+import org.apache.accumulo.tserver.scan.ReadAheadStream;
+import org.apache.accumulo.tserver.scan.ScanInfo;
 import org.apache.commons.collections.map.LRUMap;
 import org.apache.hadoop.fs.FSError;
 import org.apache.hadoop.fs.FileSystem;
@@ -242,6 +250,8 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
   private static long gcTimeIncreasedCount;
 
   private static final long MAX_TIME_TO_WAIT_FOR_SCAN_RESULT_MILLIS = 1000;
+  // returned for scans answered without creating a session, never used for a session
+  static final long NO_SESSION_ID = -1;
   private static final long RECENTLY_SPLIT_MILLIES = 60 * 1000;
 
   private TabletServerLogger logger;
@@ -250,6 +260,8 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
 
   private ServerConfiguration serverConfig;
   private LogSorter logSorter = null;
+  // null when disabled
+  private final ScanResultCache scanResultCache;
 
   public TabletServer(ServerConfiguration conf, VolumeManager fs) {
     super();
@@ -257,6 +269,11 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
     this.instance = conf.getInstance();
     this.fs = fs;
     this.logSorter = new LogSorter(instance, fs, getSystemConfiguration());
+    long scanResultCacheSize = getSystemConfiguration().getMemoryInBytes(Property.TSERV_SCAN_RESULT_CACHE_SIZE);
+    if (scanResultCacheSize > 0)
+      this.scanResultCache = new ScanResultCache(scanResultCacheSize, getSystemConfiguration().getTimeInMillis(Property.TSERV_SCAN_RESULT_CACHE_MAXAGE));
+    else
+      this.scanResultCache = null;
     SimpleTimer.getInstance().schedule(new Runnable() {
       @Override
       public void run() {
@@ -338,50 +355,92 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
 
   private TabletStatsKeeper statsKeeper;
 
-  private static class Session {
-    long lastAccessTime;
+  static class Session {
+    static final int UNRESERVED = 0;
+    static final int RESERVED = 1;
+    static final int REMOVED = 2;
+
+    volatile long lastAccessTime;
     long startTime;
     String user;
     String client = TServerUtils.clientAddress.get();
-    public boolean reserved;
+    // only changed by the session manager, also the monitor threads waiting for the session to be unreserved wait on
+    final AtomicInteger state = new AtomicInteger(UNRESERVED);
+    final AtomicInteger waiters = new AtomicInteger(0);
 
     public void cleanup() {}
   }
 
-  private static class SessionManager {
+  /**
+   * Tracks the sessions of clients. Sessions are kept in a concurrent map and are reserved, unreserved and removed by changing their state atomically, so
+   * threads working with different sessions do not contend.
+   * <p>
+   * Idle sessions are found with a timer wheel, instead of examining every session. Each session is placed in the bucket of the tick when it would expire, and
+   * accessing a session only updates its access time. When the wheel reaches a bucket, sessions that were accessed or reserved since they were placed in it
+   * are moved to the bucket of their new expiration, and the rest are removed.
+   */
+  static class SessionManager {
 
-    SecureRandom random;
-    Map<Long,Session> sessions;
-    long maxIdle;
+    static final int WHEEL_SIZE = 64;
 
-    SessionManager(AccumuloConfiguration conf) {
-      random = new SecureRandom();
-      sessions = new HashMap<Long,Session>();
+    private final ThreadLocal<SecureRandom> random = new ThreadLocal<SecureRandom>() {
+      @Override
+      protected SecureRandom initialValue() {
+        return new SecureRandom();
+      }
+    };
+    final ConcurrentHashMap<Long,Session> sessions = new ConcurrentHashMap<Long,Session>();
+    private final long maxIdle;
+    private final long tickTime;
+    private final List<ConcurrentLinkedQueue<Long>> wheel = new ArrayList<ConcurrentLinkedQueue<Long>>(WHEEL_SIZE);
+    // the last tick whose bucket was swept, only advanced by the sweep
+    private volatile long sweptTick;
 
-      maxIdle = conf.getTimeInMillis(Property.TSERV_SESSION_MAXIDLE);
+    private final AtomicLong reservationConflicts = new AtomicLong(0);
+    private final AtomicLong reservationWaitTime = new AtomicLong(0);
+    private final AtomicLong expired = new AtomicLong(0);
+
+    SessionManager(AccumuloConfiguration conf) {
+      this(conf.getTimeInMillis(Property.TSERV_SESSION_MAXIDLE));
 
       Runnable r = new Runnable() {
         @Override
         public void run() {
-          sweep(maxIdle);
+          sweep(System.currentTimeMillis());
         }
       };
 
-      SimpleTimer.getInstance().schedule(r, 0, Math.max(maxIdle / 2, 1000));
+      SimpleTimer.getInstance().schedule(r, 0, tickTime);
     }
 
-    synchronized long createSession(Session session, boolean reserve) {
-      long sid = random.nextLong();
+    SessionManager(long maxIdle) {
+      this.maxIdle = maxIdle;
+      // sessions expire within a tick of becoming idle for too long, and the wheel spans several times the max idle time
+      this.tickTime = Math.max(maxIdle / 8, 250);
+      for (int i = 0; i < WHEEL_SIZE; i++)
+        wheel.add(new ConcurrentLinkedQueue<Long>());
+      this.sweptTick = System.currentTimeMillis() / tickTime;
+    }
 
-      while (sessions.containsKey(sid)) {
-        sid = random.nextLong();
-      }
+    private void scheduleExpiration(long sessionId, long expirationTime) {
+      long swept = sweptTick;
+      long tick = (expirationTime + tickTime - 1) / tickTime;
+      // never add to the bucket being swept, it may have already been drained
+      tick = Math.min(Math.max(tick, swept + 1), swept + WHEEL_SIZE - 1);
+      wheel.get((int) (tick % WHEEL_SIZE)).add(sessionId);
+    }
 
-      sessions.put(sid, session);
+    long createSession(Session session, boolean reserve) {
+      session.state.set(reserve ? Session.RESERVED : Session.UNRESERVED);
+      session.startTime = session.lastAccessTime = System.currentTimeMillis();
 
-      session.reserved = reserve;
+      long sid = random.get().nextLong();
 
-      session.startTime = session.lastAccessTime = System.currentTimeMillis();
+      while (sid == NO_SESSION_ID || sessions.putIfAbsent(sid, session) != null) {
+        sid = random.get().nextLong();
+      }
+
+      scheduleExpiration(sid, session.lastAccessTime + maxIdle);
 
       return sid;
     }
@@ -396,53 +455,75 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
      * @param sessionId
      */
 
-    synchronized Session reserveSession(long sessionId) {
+    Session reserveSession(long sessionId) {
+      return reserveSession(sessionId, false);
+    }
+
+    Session reserveSession(long sessionId, boolean wait) {
       Session session = sessions.get(sessionId);
-      if (session != null) {
-        if (session.reserved)
-          throw new IllegalStateException();
-        session.reserved = true;
-      }
+      if (session == null)
+        return null;
 
-      return session;
+      long waitStart = 0;
+      while (true) {
+        if (session.state.compareAndSet(Session.UNRESERVED, Session.RESERVED))
+          break;
 
-    }
+        int state = session.state.get();
+        if (state == Session.REMOVED) {
+          // removed after it was looked up
+          session = null;
+          break;
+        }
 
-    synchronized Session reserveSession(long sessionId, boolean wait) {
-      Session session = sessions.get(sessionId);
-      if (session != null) {
-        while (wait && session.reserved) {
+        if (state == Session.RESERVED) {
+          if (waitStart == 0) {
+            reservationConflicts.incrementAndGet();
+            waitStart = System.currentTimeMillis();
+          }
+
+          if (!wait)
+            throw new IllegalStateException();
+
+          session.waiters.incrementAndGet();
           try {
-            wait(1000);
+            synchronized (session.state) {
+              if (session.state.get() == Session.RESERVED)
+                session.state.wait(1000);
+            }
           } catch (InterruptedException e) {
             throw new RuntimeException();
+          } finally {
+            session.waiters.decrementAndGet();
           }
         }
-
-        if (session.reserved)
-          throw new IllegalStateException();
-        session.reserved = true;
       }
 
-      return session;
+      if (waitStart != 0)
+        reservationWaitTime.addAndGet(System.currentTimeMillis() - waitStart);
 
+      return session;
     }
 
-    synchronized void unreserveSession(Session session) {
-      if (!session.reserved)
-        throw new IllegalStateException();
-      notifyAll();
-      session.reserved = false;
+    void unreserveSession(Session session) {
       session.lastAccessTime = System.currentTimeMillis();
+      if (!session.state.compareAndSet(Session.RESERVED, Session.UNRESERVED))
+        throw new IllegalStateException();
+      // the waiter increments before checking the state, so it either sees the session unreserved or is seen here
+      if (session.waiters.get() > 0) {
+        synchronized (session.state) {
+          session.state.notifyAll();
+        }
+      }
     }
 
-    synchronized void unreserveSession(long sessionId) {
+    void unreserveSession(long sessionId) {
       Session session = getSession(sessionId);
       if (session != null)
         unreserveSession(session);
     }
 
-    synchronized Session getSession(long sessionId) {
+    Session getSession(long sessionId) {
       Session session = sessions.get(sessionId);
       if (session != null)
         session.lastAccessTime = System.currentTimeMillis();
@@ -454,59 +535,70 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
     }
 
     Session removeSession(long sessionId, boolean unreserve) {
-      Session session = null;
-      synchronized (this) {
-        session = sessions.remove(sessionId);
-        if (unreserve && session != null)
-          unreserveSession(session);
-      }
+      Session session = sessions.remove(sessionId);
 
-      // do clean up out side of lock..
-      if (session != null)
+      if (session != null) {
+        if (unreserve)
+          unreserveSession(session);
+        // threads that looked the session up before it was removed can no longer reserve it
+        session.state.compareAndSet(Session.UNRESERVED, Session.REMOVED);
         session.cleanup();
+      }
 
       return session;
     }
 
-    private void sweep(long maxIdle) {
-      ArrayList<Session> sessionsToCleanup = new ArrayList<Session>();
-      synchronized (this) {
-        Iterator<Session> iter = sessions.values().iterator();
-        while (iter.hasNext()) {
-          Session session = iter.next();
-          long idleTime = System.currentTimeMillis() - session.lastAccessTime;
-          if (idleTime > maxIdle && !session.reserved) {
-            iter.remove();
-            sessionsToCleanup.add(session);
+    /**
+     * Removes a session if it is not reserved and has not been accessed since the given time.
+     */
+    private boolean removeIfIdle(long sessionId, Session session, long accessTime) {
+      // once removed the session can no longer be reserved, so it is safe to clean up
+      if (session.lastAccessTime != accessTime || !session.state.compareAndSet(Session.UNRESERVED, Session.REMOVED))
+        return false;
+
+      sessions.remove(sessionId, session);
+      session.cleanup();
+      return true;
+    }
+
+    void sweep(long now) {
+      long nowTick = now / tickTime;
+      long swept = sweptTick;
+      // when the sweep fell behind by a whole revolution, every bucket is swept once
+      long first = Math.max(swept + 1, nowTick - WHEEL_SIZE + 1);
+
+      for (long tick = first; tick <= nowTick; tick++) {
+        sweptTick = tick;
+        ConcurrentLinkedQueue<Long> bucket = wheel.get((int) (tick % WHEEL_SIZE));
+
+        Long sessionId;
+        while ((sessionId = bucket.poll()) != null) {
+          Session session = sessions.get(sessionId);
+          if (session == null)
+            continue;
+
+          long accessTime = session.lastAccessTime;
+          long expirationTime = accessTime + maxIdle;
+          if (expirationTime < now && removeIfIdle(sessionId, session, accessTime)) {
+            expired.incrementAndGet();
+          } else {
+            // reserved sessions are checked again a tick later
+            scheduleExpiration(sessionId, Math.max(expirationTime, now + 1));
           }
         }
       }
-
-      // do clean up outside of lock
-      for (Session session : sessionsToCleanup) {
-        session.cleanup();
-      }
     }
 
-    synchronized void removeIfNotAccessed(final long sessionId, long delay) {
+    void removeIfNotAccessed(final long sessionId, long delay) {
       Session session = sessions.get(sessionId);
       if (session != null) {
         final long removeTime = session.lastAccessTime;
         TimerTask r = new TimerTask() {
           @Override
           public void run() {
-            Session sessionToCleanup = null;
-            synchronized (SessionManager.this) {
-              Session session2 = sessions.get(sessionId);
-              if (session2 != null && session2.lastAccessTime == removeTime && !session2.reserved) {
-                sessions.remove(sessionId);
-                sessionToCleanup = session2;
-              }
-            }
-
-            // call clean up outside of lock
-            if (sessionToCleanup != null)
-              sessionToCleanup.cleanup();
+            Session session2 = sessions.get(sessionId);
+            if (session2 != null)
+              removeIfIdle(sessionId, session2, removeTime);
           }
         };
 
@@ -514,7 +606,29 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
       }
     }
 
-    public synchronized Map<String,MapCounter<ScanRunState>> getActiveScansPerTable() {
+    int getSessionCount() {
+      return sessions.size();
+    }
+
+    /**
+     * @return the number of times a session was found reserved by another thread when reserving it
+     */
+    long getReservationConflicts() {
+      return reservationConflicts.get();
+    }
+
+    /**
+     * @return the total milliseconds spent waiting for sessions reserved by other threads
+     */
+    long getReservationWaitTime() {
+      return reservationWaitTime.get();
+    }
+
+    long getExpiredCount() {
+      return expired.get();
+    }
+
+    public Map<String,MapCounter<ScanRunState>> getActiveScansPerTable() {
       Map<String,MapCounter<ScanRunState>> counts = new HashMap<String,MapCounter<ScanRunState>>();
       for (Entry<Long,Session> entry : sessions.entrySet()) {
 
@@ -525,11 +639,11 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
 
         if (session instanceof ScanSession) {
           ScanSession ss = (ScanSession) session;
-          nbt = ss.nextBatchTask;
+          nbt = ss.nextBatchTask != null ? ss.nextBatchTask : ss.readAhead.peekLast();
           tableID = ss.extent.getTableId().toString();
         } else if (session instanceof MultiScanSession) {
           MultiScanSession mss = (MultiScanSession) session;
-          nbt = mss.lookupTask;
+          nbt = mss.lookupTask != null ? mss.lookupTask : mss.readAhead.peekLast();
           tableID = mss.threadPoolExtent.getTableId().toString();
         }
 
@@ -553,7 +667,7 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
       return counts;
     }
 
-    public synchronized List<ActiveScan> getActiveScans() {
+    public List<ActiveScan> getActiveScans() {
 
       ArrayList<ActiveScan> activeScans = new ArrayList<ActiveScan>();
 
@@ -566,7 +680,7 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
 
           ScanState state = ScanState.RUNNING;
 
-          ScanTask<ScanBatch> nbt = ss.nextBatchTask;
+          ScanTask<ScanBatch> nbt = ss.nextBatchTask != null ? ss.nextBatchTask : ss.readAhead.peekLast();
           if (nbt == null) {
             state = ScanState.IDLE;
           } else {
@@ -592,7 +706,7 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
 
           ScanState state = ScanState.RUNNING;
 
-          ScanTask<MultiScanResult> nbt = mss.lookupTask;
+          ScanTask<MultiScanResult> nbt = mss.lookupTask != null ? mss.lookupTask : mss.readAhead.peekLast();
           if (nbt == null) {
             state = ScanState.IDLE;
           } else {
@@ -756,6 +870,25 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
       return (T) r;
     }
 
+    /**
+     * @return true when the task produced a result that is not an exception and it has not been taken
+     */
+    boolean hasResult() {
+      return peekResult() != null;
+    }
+
+    /**
+     * @return the result of the task without taking it, or null when there is no result yet, it is an exception, or it was taken
+     */
+    @SuppressWarnings("unchecked")
+    T peekResult() {
+      ArrayBlockingQueue<Object> localRQ = resultQueue;
+      if (localRQ == null || state.get() != ADDED)
+        return null;
+      Object r = localRQ.peek();
+      return r == null || r instanceof Throwable ? null : (T) r;
+    }
+
     @Override
     public boolean isCancelled() {
       return state.get() == CANCELED;
@@ -815,12 +948,21 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
     public AtomicBoolean interruptFlag;
     public Scanner scanner;
     public long readaheadThreshold = Constants.SCANNER_DEFAULT_READAHEAD_THRESHOLD;
+    public ScanInfo scanInfo;
+    public AdaptiveBatchSizer batchSizer;
+    public ReadAheadStream<ScanTask<ScanBatch>> readAhead;
+    public String batchCompression;
+    // set when the results may be cached
+    public ScanResultCache.CacheKey cacheKey;
+    public long dataVersion;
 
     @Override
     public void cleanup() {
       try {
         if (nextBatchTask != null)
           nextBatchTask.cancel(true);
+        for (ScanTask<ScanBatch> task : readAhead.close())
+          task.cancel(true);
       } finally {
         if (scanner != null)
           scanner.close();
@@ -844,62 +986,99 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
 
     public volatile ScanTask<MultiScanResult> lookupTask;
     public KeyExtent threadPoolExtent;
+    public ScanInfo scanInfo;
+    public AdaptiveBatchSizer batchSizer;
+    public volatile boolean lastBatchFull;
+    long batchCount;
+    public ReadAheadStream<ScanTask<MultiScanResult>> readAhead;
+    public String batchCompression;
 
     @Override
     public void cleanup() {
       if (lookupTask != null)
         lookupTask.cancel(true);
+      for (ScanTask<MultiScanResult> task : readAhead.close())
+        task.cancel(true);
     }
   }
 
   /**
-   * This little class keeps track of writes in progress and allows readers to wait for writes that started before the read. It assumes that the operation ids
-   * are monotonically increasing.
-   * 
+   * Lets scans wait for writes that were in progress when they started. Each write takes a sequence number from a shared counter and a scan takes one when it
+   * starts, so a scan only has to wait while the lowest sequence number still in progress for its tablet type is below its own. Writes and scans do not take a
+   * lock unless a scan actually has to wait.
    */
   static class WriteTracker {
     private static AtomicLong operationCounter = new AtomicLong(1);
-    private Map<TabletType,TreeSet<Long>> inProgressWrites = new EnumMap<TabletType,TreeSet<Long>>(TabletType.class);
+
+    private static class InProgress {
+      final ConcurrentSkipListSet<Long> writes = new ConcurrentSkipListSet<Long>();
+      // the number of scans waiting, writers only need to notify when this is not zero
+      final AtomicInteger waiters = new AtomicInteger(0);
+
+      boolean overlaps(long operationId) {
+        return writes.floor(operationId) != null;
+      }
+    }
+
+    private final Map<TabletType,InProgress> inProgressWrites = new EnumMap<TabletType,InProgress>(TabletType.class);
 
     WriteTracker() {
       for (TabletType ttype : TabletType.values()) {
-        inProgressWrites.put(ttype, new TreeSet<Long>());
+        inProgressWrites.put(ttype, new InProgress());
       }
     }
 
-    synchronized long startWrite(TabletType ttype) {
+    long startWrite(TabletType ttype) {
       long operationId = operationCounter.getAndIncrement();
-      inProgressWrites.get(ttype).add(operationId);
+      inProgressWrites.get(ttype).writes.add(operationId);
       return operationId;
     }
 
-    synchronized void finishWrite(long operationId) {
+    void finishWrite(long operationId) {
       if (operationId == -1)
         return;
 
-      boolean removed = false;
+      InProgress inProgress = null;
 
       for (TabletType ttype : TabletType.values()) {
-        removed = inProgressWrites.get(ttype).remove(operationId);
-        if (removed)
+        if (inProgressWrites.get(ttype).writes.remove(operationId)) {
+          inProgress = inProgressWrites.get(ttype);
           break;
+        }
       }
 
-      if (!removed) {
+      if (inProgress == null) {
         throw new IllegalArgumentException("Attempted to finish write not in progress,  operationId " + operationId);
       }
 
-      this.notifyAll();
+      // a waiting scan increments waiters before checking for overlapping writes, so either it sees this write finished or it is notified
+      if (inProgress.waiters.get() > 0) {
+        synchronized (inProgress) {
+          inProgress.notifyAll();
+        }
+      }
     }
 
-    synchronized void waitForWrites(TabletType ttype) {
+    void waitForWrites(TabletType ttype) {
       long operationId = operationCounter.getAndIncrement();
-      while (inProgressWrites.get(ttype).floor(operationId) != null) {
-        try {
-          this.wait();
-        } catch (InterruptedException e) {
-          log.error(e, e);
+      InProgress inProgress = inProgressWrites.get(ttype);
+
+      if (!inProgress.overlaps(operationId))
+        return;
+
+      inProgress.waiters.incrementAndGet();
+      try {
+        synchronized (inProgress) {
+          while (inProgress.overlaps(operationId)) {
+            try {
+              inProgress.wait();
+            } catch (InterruptedException e) {
+              log.error(e, e);
+            }
+          }
         }
+      } finally {
+        inProgress.waiters.decrementAndGet();
       }
     }
 
@@ -916,6 +1095,10 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
     }
   }
 
+  boolean isScanResultCacheEnabled() {
+    return scanResultCache != null;
+  }
+
   public AccumuloConfiguration getSystemConfiguration() {
     return serverConfig.getConfiguration();
   }
@@ -988,10 +1171,20 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
     private class NextBatchTask extends ScanTask<ScanBatch> {
 
       private long scanID;
+      private ReadAheadStream<ScanTask<ScanBatch>> readAhead;
 
       NextBatchTask(long scanID, AtomicBoolean interruptFlag) {
+        this(scanID, interruptFlag, null);
+      }
+
+      /**
+       * @param readAhead
+       *          the stream this task reads ahead for, or null when the client is waiting for it
+       */
+      NextBatchTask(long scanID, AtomicBoolean interruptFlag, ReadAheadStream<ScanTask<ScanBatch>> readAhead) {
         this.scanID = scanID;
         this.interruptFlag = interruptFlag;
+        this.readAhead = readAhead;
 
         if (interruptFlag.get())
           cancel(true);
@@ -1002,6 +1195,7 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
 
         final ScanSession scanSession = (ScanSession) sessionManager.getSession(scanID);
         String oldThreadName = Thread.currentThread().getName();
+        ScanBatch batch = null;
 
         try {
           if (isCancelled() || scanSession == null)
@@ -1020,7 +1214,8 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
           }
 
           long t1 = System.currentTimeMillis();
-          ScanBatch batch = scanSession.scanner.read();
+          AdaptiveBatchSizer sizer = scanSession.batchSizer;
+          batch = scanSession.scanner.read(sizer.getEntryLimit(), sizer.getByteLimit(), sizer.getTimeLimit());
           long t2 = System.currentTimeMillis();
           scanSession.nbTimes.addStat(t2 - t1);
 
@@ -1045,36 +1240,106 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
         } finally {
           runState.set(ScanRunState.FINISHED);
           Thread.currentThread().setName(oldThreadName);
+          if (readAhead != null) {
+            readAhead.finished();
+            if (batch != null && batch.more && scanSession != null)
+              readAheadNextBatch(scanID, scanSession);
+          }
         }
 
       }
     }
 
+    /**
+     * Starts reading the next batch of a scan ahead of the client, if the client has credit left in its window.
+     */
+    private void readAheadNextBatch(long scanID, ScanSession scanSession) {
+      NextBatchTask task = new NextBatchTask(scanID, scanSession.interruptFlag, scanSession.readAhead);
+      if (scanSession.readAhead.offer(task))
+        resourceManager.executeReadAhead(scanSession.extent, scanSession.scanInfo, task);
+    }
+
+    private void readAheadNextLookup(long scanID, MultiScanSession session) {
+      LookupTask task = new LookupTask(scanID, session.readAhead);
+      if (session.readAhead.offer(task))
+        resourceManager.executeReadAhead(session.threadPoolExtent, session.scanInfo, task);
+    }
+
+    /**
+     * Decides how many batches may be read ahead of the client, from the {@value ScanInfo#STREAM_WINDOW_HINT} hint.
+     */
+    private int getReadAheadWindow(KeyExtent extent, ScanInfo scanInfo) {
+      // root tablet scans run in the calling thread, so can not read ahead more than one batch
+      if (extent.isRootTablet())
+        return 1;
+      String hint = scanInfo.getHints().get(ScanInfo.STREAM_WINDOW_HINT);
+      if (hint == null)
+        return 1;
+      try {
+        return Math.max(1, Math.min(Integer.parseInt(hint.trim()), acuConf.getCount(Property.TSERV_SCAN_STREAM_WINDOW_MAX)));
+      } catch (NumberFormatException nfe) {
+        return 1;
+      }
+    }
+
+    private List<TKeyValue> encodeResults(List<KVEntry> results, String batchCompression) {
+      if (batchCompression != null && results.size() > 0)
+        return Collections.singletonList(ScanBatchEncoding.encode(results, batchCompression));
+      return Key.compress(results);
+    }
+
+    /**
+     * Decides how batches are encoded for the client, from the {@value ScanBatchEncoding#COMPRESSION_HINT} hint.
+     *
+     * @return the compression to encode batches with, or null to send them as is
+     */
+    private String getBatchCompression(ScanInfo scanInfo) {
+      String hint = scanInfo.getHints().get(ScanBatchEncoding.COMPRESSION_HINT);
+      if (hint == null)
+        return null;
+      hint = hint.trim().toLowerCase();
+      if (!ScanBatchEncoding.isSupported(hint)) {
+        log.debug("Ignoring unsupported scan batch compression " + hint);
+        return null;
+      }
+      return hint;
+    }
+
     private class LookupTask extends ScanTask<MultiScanResult> {
 
       private long scanID;
+      private ReadAheadStream<ScanTask<MultiScanResult>> readAhead;
 
       LookupTask(long scanID) {
+        this(scanID, null);
+      }
+
+      /**
+       * @param readAhead
+       *          the stream this task reads ahead for, or null when the client is waiting for it
+       */
+      LookupTask(long scanID, ReadAheadStream<ScanTask<MultiScanResult>> readAhead) {
         this.scanID = scanID;
+        this.readAhead = readAhead;
       }
 
       @Override
       public void run() {
         MultiScanSession session = (MultiScanSession) sessionManager.getSession(scanID);
         String oldThreadName = Thread.currentThread().getName();
+        boolean more = false;
 
         try {
           if (isCancelled() || session == null)
             return;
 
-          TableConfiguration acuTableConf = ServerConfiguration.getTableConfiguration(instance, session.threadPoolExtent.getTableId().toString());
-          long maxResultsSize = acuTableConf.getMemoryInBytes(Property.TABLE_SCAN_MAXMEM);
+          long maxResultsSize = session.batchSizer.getByteLimit();
 
           runState.set(ScanRunState.RUNNING);
           Thread.currentThread().setName("Client: " + session.client + " User: " + session.user + " Start: " + session.startTime + " Table: ");
 
           long bytesAdded = 0;
-          long maxScanTime = 4000;
+          long maxScanTime = session.batchSizer.getTimeLimit();
 
           long startTime = System.currentTimeMillis();
 
@@ -1144,11 +1409,16 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
           long finishTime = System.currentTimeMillis();
           session.totalLookupTime += (finishTime - startTime);
           session.numEntries += results.size();
+          session.lastBatchFull = bytesAdded >= maxResultsSize;
 
           // convert everything to thrift before adding result
           List<TKeyValue> retResults = new ArrayList<TKeyValue>();
-          for (KVEntry entry : results)
-            retResults.add(new TKeyValue(entry.key.toThrift(), ByteBuffer.wrap(entry.value)));
+          if (session.batchCompression != null && results.size() > 0) {
+            retResults.add(ScanBatchEncoding.encode(results, session.batchCompression));
+          } else {
+            for (KVEntry entry : results)
+              retResults.add(new TKeyValue(entry.key.toThrift(), ByteBuffer.wrap(entry.value)));
+          }
           Map<TKeyExtent,List<TRange>> retFailures = Translator.translate(failures, Translator.KET, new Translator.ListTranslator<Range,TRange>(Translator.RT));
           List<TKeyExtent> retFullScans = Translator.translate(fullScans, Translator.KET);
           TKeyExtent retPartScan = null;
@@ -1158,7 +1428,8 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
             retPartNextKey = partNextKey.toThrift();
           }
           // add results to queue
-          addResult(new MultiScanResult(retResults, retFailures, retFullScans, retPartScan, retPartNextKey, partNextKeyInclusive, session.queries.size() != 0));
+          more = session.queries.size() != 0;
+          addResult(new MultiScanResult(retResults, retFailures, retFullScans, retPartScan, retPartNextKey, partNextKeyInclusive, more));
         } catch (IterationInterruptedException iie) {
           if (!isCancelled()) {
             log.warn("Iteration interrupted, when scan not cancelled", iie);
@@ -1170,6 +1441,11 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
         } finally {
           Thread.currentThread().setName(oldThreadName);
           runState.set(ScanRunState.FINISHED);
+          if (readAhead != null) {
+            readAhead.finished();
+            if (more)
+              readAheadNextLookup(scanID, session);
+          }
         }
       }
     }
@@ -1213,11 +1489,30 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
       scanSession.auths = new Authorizations(authorizations);
       scanSession.interruptFlag = new AtomicBoolean();
       scanSession.readaheadThreshold = readaheadThreshold;
+      scanSession.scanInfo = new ScanInfo(extent.getTableId().toString(), scanSession.user, ScanInfo.Type.SINGLE, ScanInfo.getHints(ssio),
+          System.currentTimeMillis());
+      scanSession.batchSizer = createBatchSizer(batchSize, extent, scanSession.scanInfo);
+      scanSession.readAhead = new ReadAheadStream<ScanTask<ScanBatch>>(getReadAheadWindow(extent, scanSession.scanInfo));
+      scanSession.batchCompression = getBatchCompression(scanSession.scanInfo);
 
       for (TColumn tcolumn : columns) {
         scanSession.columnSet.add(new Column(tcolumn));
       }
 
+      if (scanResultCache != null) {
+        ScanResultCache.CacheKey cacheKey = new ScanResultCache.CacheKey(scanSession.extent, new Range(range), scanSession.columnSet, scanSession.auths,
+            ssiList, ssio);
+        long dataVersion = tablet.getDataVersion();
+        List<KVEntry> cached = scanResultCache.get(cacheKey, dataVersion);
+        if (cached != null && cached.size() <= batchSize) {
+          if (scanMetrics.isEnabled())
+            scanMetrics.add(TabletServerScanMetrics.cachedScan, cached.size());
+          return new InitialScan(NO_SESSION_ID, new ScanResult(encodeResults(cached, scanSession.batchCompression), false));
+        }
+        scanSession.cacheKey = cacheKey;
+        scanSession.dataVersion = dataVersion;
+      }
+
       scanSession.scanner = tablet.createScanner(new Range(range), batchSize, scanSession.columnSet, scanSession.auths, ssiList, ssio, isolated,
           scanSession.interruptFlag);
 
@@ -1251,18 +1546,52 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
       }
     }
 
+    private AdaptiveBatchSizer createBatchSizer(int batchSize, KeyExtent extent, ScanInfo scanInfo) {
+      long maxResultsSize = TabletServer.this.getTableConfiguration(extent).getMemoryInBytes(Property.TABLE_SCAN_MAXMEM);
+      return new AdaptiveBatchSizer(batchSize, maxResultsSize, acuConf.getCount(Property.TSERV_SCAN_BATCH_GROWTH_MAX),
+          acuConf.getTimeInMillis(Property.TSERV_SCAN_BATCH_TIME_MAX), scanInfo);
+    }
+
+    private long estimateMemoryUsed(List<KVEntry> results) {
+      long size = 0;
+      for (KVEntry entry : results)
+        size += entry.estimateMemoryUsed();
+      return size;
+    }
+
     private ScanResult continueScan(TInfo tinfo, long scanID, ScanSession scanSession) throws NoSuchScanIDException, NotServingTabletException,
         org.apache.accumulo.core.tabletserver.thrift.TooManyFilesException {
 
+      scanSession.batchSizer.nextBatchRequested(System.currentTimeMillis(), resourceManager.isUnderMemoryPressure());
+
       if (scanSession.nextBatchTask == null) {
-        scanSession.nextBatchTask = new NextBatchTask(scanID, scanSession.interruptFlag);
-        resourceManager.executeReadAhead(scanSession.extent, scanSession.nextBatchTask);
+        scanSession.nextBatchTask = scanSession.readAhead.poll();
+        if (scanSession.nextBatchTask == null) {
+          scanSession.nextBatchTask = new NextBatchTask(scanID, scanSession.interruptFlag);
+          resourceManager.executeReadAhead(scanSession.extent, scanSession.scanInfo, scanSession.nextBatchTask);
+        }
       }
 
       ScanBatch bresult;
       try {
         bresult = scanSession.nextBatchTask.get(MAX_TIME_TO_WAIT_FOR_SCAN_RESULT_MILLIS, TimeUnit.MILLISECONDS);
         scanSession.nextBatchTask = null;
+
+        // send any batches already read ahead along with this one, saving round trips, as long as the response stays within the memory limit
+        long maxSize = scanSession.batchSizer.getByteLimit();
+        long size = estimateMemoryUsed(bresult.results);
+        ScanTask<ScanBatch> ready = scanSession.readAhead.peek();
+        while (bresult.more && ready != null && ready.hasResult()) {
+          long nextSize = estimateMemoryUsed(ready.peekResult().results);
+          if (size + nextSize > maxSize)
+            break;
+          ScanBatch next = scanSession.readAhead.poll().get(0, TimeUnit.MILLISECONDS);
+          bresult.results.addAll(next.results);
+          bresult.more = next.more;
+          bresult.full = next.full;
+          size += nextSize;
+          ready = scanSession.readAhead.peek();
+        }
       } catch (ExecutionException e) {
         sessionManager.removeSession(scanID);
         if (e.getCause() instanceof NotServingTabletException)
@@ -1289,19 +1618,29 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
         throw new RuntimeException(t);
       }
 
-      ScanResult scanResult = new ScanResult(Key.compress(bresult.results), bresult.more);
+      ScanResult scanResult = new ScanResult(encodeResults(bresult.results, scanSession.batchCompression), bresult.more);
+
+      if (scanSession.cacheKey != null && scanSession.batchCount == 0 && !bresult.more) {
+        // only cache results read while the tablet did not change
+        Tablet tablet = onlineTablets.get(scanSession.extent);
+        if (tablet != null && tablet.getDataVersion() == scanSession.dataVersion)
+          scanResultCache.put(scanSession.cacheKey, scanSession.dataVersion, bresult.results);
+      }
 
-      scanSession.entriesReturned += scanResult.results.size();
+      scanSession.entriesReturned += bresult.results.size();
 
       scanSession.batchCount++;
 
       if (scanResult.more && scanSession.batchCount > scanSession.readaheadThreshold) {
         // start reading next batch while current batch is transmitted
         // to client
-        scanSession.nextBatchTask = new NextBatchTask(scanID, scanSession.interruptFlag);
-        resourceManager.executeReadAhead(scanSession.extent, scanSession.nextBatchTask);
+        readAheadNextBatch(scanID, scanSession);
       }
 
+      scanSession.batchSizer.batchReturned(System.currentTimeMillis(), bresult.full);
+      if (scanMetrics.isEnabled())
+        scanMetrics.add(TabletServerScanMetrics.batchSize, bresult.results.size());
+
       if (!scanResult.more)
         closeScan(tinfo, scanID);
 
@@ -1319,6 +1658,7 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
         if (scanMetrics.isEnabled()) {
           scanMetrics.add(TabletServerScanMetrics.scan, t2 - ss.startTime);
           scanMetrics.add(TabletServerScanMetrics.resultSize, ss.entriesReturned);
+          scanMetrics.add(TabletServerScanMetrics.batches, ss.batchCount);
         }
       }
     }
@@ -1373,6 +1713,12 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
         mss.columnSet.add(new Column(tcolumn));
 
       mss.threadPoolExtent = threadPoolExtent;
+      mss.scanInfo = new ScanInfo(threadPoolExtent.getTableId().toString(), mss.user, ScanInfo.Type.MULTI, ScanInfo.getHints(ssio),
+          System.currentTimeMillis());
+      // batch scans are only limited by size and time
+      mss.batchSizer = createBatchSizer(Integer.MAX_VALUE, threadPoolExtent, mss.scanInfo);
+      mss.readAhead = new ReadAheadStream<ScanTask<MultiScanResult>>(getReadAheadWindow(threadPoolExtent, mss.scanInfo));
+      mss.batchCompression = getBatchCompression(mss.scanInfo);
 
       long sid = sessionManager.createSession(mss, true);
 
@@ -1408,13 +1754,24 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
     private MultiScanResult continueMultiScan(TInfo tinfo, long scanID, MultiScanSession session) throws NoSuchScanIDException {
 
       if (session.lookupTask == null) {
-        session.lookupTask = new LookupTask(scanID);
-        resourceManager.executeReadAhead(session.threadPoolExtent, session.lookupTask);
+        session.batchSizer.nextBatchRequested(System.currentTimeMillis(), resourceManager.isUnderMemoryPressure());
+        session.lookupTask = session.readAhead.poll();
+        if (session.lookupTask == null) {
+          session.lookupTask = new LookupTask(scanID);
+          resourceManager.executeReadAhead(session.threadPoolExtent, session.scanInfo, session.lookupTask);
+        }
       }
 
       try {
         MultiScanResult scanResult = session.lookupTask.get(MAX_TIME_TO_WAIT_FOR_SCAN_RESULT_MILLIS, TimeUnit.MILLISECONDS);
         session.lookupTask = null;
+        session.batchCount++;
+        session.batchSizer.batchReturned(System.currentTimeMillis(), session.lastBatchFull);
+        if (scanMetrics.isEnabled())
+          scanMetrics.add(TabletServerScanMetrics.batchSize, ScanBatchEncoding.getEntryCount(scanResult.results));
+        // only read ahead when the client asked for more than one batch at a time
+        if (scanResult.more && session.readAhead.getWindow() > 1)
+          readAheadNextLookup(scanID, session);
         return scanResult;
       } catch (TimeoutException e1) {
         long timeout = acuConf.getTimeInMillis(Property.TSERV_CLIENT_TIMEOUT);
@@ -1438,8 +1795,11 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
       }
 
       long t2 = System.currentTimeMillis();
-      log.debug(String.format("MultiScanSess %s %,d entries in %.2f secs (lookup_time:%.2f secs tablets:%,d ranges:%,d) ", TServerUtils.clientAddress.get(),
-          session.numEntries, (t2 - session.startTime) / 1000.0, session.totalLookupTime / 1000.0, session.numTablets, session.numRanges));
+      log.debug(String.format("MultiScanSess %s %,d entries in %.2f secs (lookup_time:%.2f secs tablets:%,d ranges:%,d batches:%,d) ",
+          TServerUtils.clientAddress.get(), session.numEntries, (t2 - session.startTime) / 1000.0, session.totalLookupTime / 1000.0, session.numTablets,
+          session.numRanges, session.batchCount));
+      if (scanMetrics.isEnabled())
+        scanMetrics.add(TabletServerScanMetrics.batches, session.batchCount);
     }
 
     @Override
@@ -1809,9 +2169,20 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
         } else {
           List<ServerConditionalMutation> okMutations = new ArrayList<ServerConditionalMutation>(entry.getValue().size());
 
-          for (ServerConditionalMutation scm : entry.getValue()) {
-            if (checkCondition(results, cs, compressedIters, tablet, scm))
-              okMutations.add(scm);
+          // the mutations are sorted by row, so each reader seeks forward through the tablet
+          Map<IterConfig,ConditionReader> readers = new HashMap<IterConfig,ConditionReader>();
+          boolean sawErrors = false;
+          try {
+            for (ServerConditionalMutation scm : entry.getValue()) {
+              if (checkCondition(results, cs, compressedIters, tablet, readers, scm))
+                okMutations.add(scm);
+            }
+          } catch (IOException ioe) {
+            sawErrors = true;
+            throw ioe;
+          } finally {
+            for (ConditionReader reader : readers.values())
+              reader.close(sawErrors);
           }
 
           entry.setValue(okMutations);
@@ -1820,33 +2191,49 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
       }
     }
 
+    private class ConditionRange implements Comparable<ConditionRange> {
+      final TCondition condition;
+      final Range range;
+
+      ConditionRange(byte[] row, TCondition tc) {
+        this.condition = tc;
+        if (tc.hasTimestamp)
+          range = Range.exact(new Text(row), new Text(tc.getCf()), new Text(tc.getCq()), new Text(tc.getCv()), tc.getTs());
+        else
+          range = Range.exact(new Text(row), new Text(tc.getCf()), new Text(tc.getCq()), new Text(tc.getCv()));
+      }
+
+      @Override
+      public int compareTo(ConditionRange o) {
+        return range.getStartKey().compareTo(o.range.getStartKey());
+      }
+    }
+
     boolean checkCondition(ArrayList<TCMResult> results, ConditionalSession cs, CompressedIterators compressedIters, Tablet tablet,
-        ServerConditionalMutation scm) throws IOException {
+        Map<IterConfig,ConditionReader> readers, ServerConditionalMutation scm) throws IOException {
       boolean add = true;
 
-      Set<Column> emptyCols = Collections.emptySet();
+      List<ConditionRange> conditions = new ArrayList<ConditionRange>(scm.getConditions().size());
+      for (TCondition tc : scm.getConditions())
+        conditions.add(new ConditionRange(scm.getRow(), tc));
+      // the readers only move forward when the conditions of a row are read in sorted order
+      Collections.sort(conditions);
 
-      for (TCondition tc : scm.getConditions()) {
-
-        Range range;
-        if (tc.hasTimestamp)
-          range = Range.exact(new Text(scm.getRow()), new Text(tc.getCf()), new Text(tc.getCq()), new Text(tc.getCv()), tc.getTs());
-        else
-          range = Range.exact(new Text(scm.getRow()), new Text(tc.getCf()), new Text(tc.getCq()), new Text(tc.getCv()));
+      for (ConditionRange cr : conditions) {
+        TCondition tc = cr.condition;
+        Range range = cr.range;
 
+        // conditions with the same iterators share an iterator stack, the decompressed configuration is cached so it can be used as the key
         IterConfig ic = compressedIters.decompress(tc.iterators);
 
-        Scanner scanner = tablet.createScanner(range, 1, emptyCols, cs.auths, ic.ssiList, ic.ssio, false, cs.interruptFlag);
+        ConditionReader reader = readers.get(ic);
+        if (reader == null) {
+          reader = tablet.createConditionReader(cs.auths, ic.ssiList, ic.ssio, cs.interruptFlag);
+          readers.put(ic, reader);
+        }
 
         try {
-          ScanBatch batch = scanner.read();
-
-          Value val = null;
-
-          for (KVEntry entry2 : batch.results) {
-            val = entry2.getValue();
-            break;
-          }
+          Value val = reader.read(range);
 
           if ((val == null ^ tc.getVal() == null) || (val != null && !Arrays.equals(tc.getVal(), val.get()))) {
             results.add(new TCMResult(scm.getID(), TCMStatus.REJECTED));
@@ -1857,14 +2244,18 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
         } catch (TabletClosedException e) {
           results.add(new TCMResult(scm.getID(), TCMStatus.IGNORED));
           add = false;
-          break;
         } catch (IterationInterruptedException iie) {
           results.add(new TCMResult(scm.getID(), TCMStatus.IGNORED));
           add = false;
-          break;
         } catch (TooManyFilesException tmfe) {
           results.add(new TCMResult(scm.getID(), TCMStatus.IGNORED));
           add = false;
+        }
+
+        if (!add) {
+          // the reader can not be used after an exception, the next condition that needs one will create another
+          readers.remove(ic);
+          reader.close(false);
           break;
         }
       }
@@ -2673,6 +3064,8 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
     // lose the reference to the old tablet and open two new ones
     synchronized (onlineTablets) {
       onlineTablets.remove(tablet.getExtent());
+      if (scanResultCache != null)
+        scanResultCache.remove(tablet.getExtent());
       onlineTablets.put(newTablets[0].getExtent(), newTablets[0]);
       onlineTablets.put(newTablets[1].getExtent(), newTablets[1]);
     }
@@ -2760,6 +3153,8 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
       // exceptions
       recentlyUnloadedCache.put(extent, System.currentTimeMillis());
       onlineTablets.remove(extent);
+      if (scanResultCache != null)
+        scanResultCache.remove(extent);
 
       try {
         TServerInstance instance = new TServerInstance(clientAddress, getLock().getSessionId());
@@ -3064,9 +3459,12 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
     ThriftUtil.returnClient(client);
   }
 
+  private volatile ThriftClientHandler clientHandler;
+
   private HostAndPort startTabletClientService() throws UnknownHostException {
     // start listening for client connection last
-    Iface tch = TraceWrap.service(new ThriftClientHandler());
+    clientHandler = new ThriftClientHandler();
+    Iface tch = TraceWrap.service(clientHandler);
     Processor<Iface> processor = new Processor<Iface>(tch);
     HostAndPort address = startServer(getSystemConfiguration(), clientAddress.getHostText(), Property.TSERV_CLIENTPORT, processor, "Thrift Client Server");
     log.info("address = " + address);
@@ -3832,6 +4230,20 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
     return 0;
   }
 
+  @Override
+  public int getMinorCompactionConcurrency() {
+    if (this.isEnabled())
+      return this.resourceManager.getMinorCompactionConcurrency();
+    return 0;
+  }
+
+  @Override
+  public double getMinorCompactionThroughput() {
+    if (this.isEnabled())
+      return this.resourceManager.getMinorCompactionThroughput();
+    return 0;
+  }
+
   @Override
   public double getAverageFilesPerTablet() {
     if (this.isEnabled()) {
@@ -3848,6 +4260,38 @@ public class TabletServer extends AbstractMetricsImpl implements org.apache.accu
     return 0;
   }
 
+  @Override
+  public int getSessions() {
+    ThriftClientHandler handler = clientHandler;
+    if (this.isEnabled() && handler != null)
+      return handler.sessionManager.getSessionCount();
+    return 0;
+  }
+
+  @Override
+  public long getSessionReservationConflicts() {
+    ThriftClientHandler handler = clientHandler;
+    if (this.isEnabled() && handler != null)
+      return handler.sessionManager.getReservationConflicts();
+    return 0;
+  }
+
+  @Override
+  public long getSessionReservationWaitTime() {
+    ThriftClientHandler handler = clientHandler;
+    if (this.isEnabled() && handler != null)
+      return handler.sessionManager.getReservationWaitTime();
+    return 0;
+  }
+
+  @Override
+  public long getSessionsExpired() {
+    ThriftClientHandler handler = clientHandler;
+    if (this.isEnabled() && handler != null)
+      return handler.sessionManager.getExpiredCount();
+    return 0;
+  }
+
   @Override
   protected ObjectName getObjectName() {
     return OBJECT_NAME;
@@ -49,6 +49,7 @@ import org.apache.accumulo.server.fs.VolumeManager;
 import org.apache.accumulo.server.tabletserver.LargestFirstMemoryManager;
 import org.apache.accumulo.server.tabletserver.MemoryManagementActions;
 import org.apache.accumulo.server.tabletserver.MemoryManager;
+import org.apache.accumulo.server.tabletserver.MemoryManagerSimulator;
 import org.apache.accumulo.server.tabletserver.TabletState;
 import org.apache.accumulo.server.util.time.SimpleTimer;
 import org.apache.accumulo.trace.instrument.TraceExecutorService;
@@ -58,6 +59,9 @@ import org.apache.accumulo.tserver.compaction.CompactionStrategy;
 import org.apache.accumulo.tserver.compaction.DefaultCompactionStrategy;
 import org.apache.accumulo.tserver.compaction.MajorCompactionReason;
 import org.apache.accumulo.tserver.compaction.MajorCompactionRequest;
+import org.apache.accumulo.tserver.scan.ScanExecutor;
+import org.apache.accumulo.tserver.scan.ScanExecutorConfig;
+import org.apache.accumulo.tserver.scan.ScanInfo;
 import org.apache.log4j.Logger;
 
 /**
@@ -78,7 +82,9 @@ public class TabletServerResourceManager {
   private ExecutorService migrationPool;
   private ExecutorService assignmentPool;
   private ExecutorService assignMetaDataPool;
-  private ExecutorService readAheadThreadPool;
+  private final Map<String,ScanExecutor> scanExecutors = new TreeMap<String,ScanExecutor>();
+  private ThreadPoolExecutor readAheadPool;
+  private MinorCompactionConcurrencyController mincConcurrency;
   private ExecutorService defaultReadAheadThreadPool;
   private Map<String,ExecutorService> threadPools = new TreeMap<String,ExecutorService>();
 
@@ -175,7 +181,37 @@ public class TabletServerResourceManager {
       log.warn("In-memory map may not fit into local memory space.");
     }
 
-    minorCompactionThreadPool = createEs(Property.TSERV_MINC_MAXCONCURRENT, "minor compactor");
+    int maxMincs = acuConf.getCount(Property.TSERV_MINC_MAXCONCURRENT);
+    ThreadPoolExecutor mincPool = new ThreadPoolExecutor(maxMincs, maxMincs, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+        new NamingThreadFactory("minor compactor"));
+    minorCompactionThreadPool = addEs("minor compactor", mincPool);
+    mincConcurrency = new MinorCompactionConcurrencyController(mincPool, new MinorCompactionConcurrencyController.Environment() {
+      @Override
+      public int getMinConcurrency() {
+        return conf.getConfiguration().getCount(Property.TSERV_MINC_MINCONCURRENT);
+      }
+
+      @Override
+      public int getMaxConcurrency() {
+        return conf.getConfiguration().getCount(Property.TSERV_MINC_MAXCONCURRENT);
+      }
+
+      @Override
+      public boolean isHoldingCommits() {
+        return holdCommits;
+      }
+
+      @Override
+      public double getMemoryUsed() {
+        return memMgmt == null ? 0 : memMgmt.getMemoryUsed();
+      }
+
+      @Override
+      public boolean areScansSaturated() {
+        return readAheadPool.getQueue().size() > 0;
+      }
+    });
+    SimpleTimer.getInstance().schedule(mincConcurrency, 5000, 5000);
 
     // make this thread pool have a priority queue... and execute tablets with the most
     // files first!
@@ -196,7 +232,32 @@ public class TabletServerResourceManager {
 
     assignMetaDataPool = createEs(0, 1, 60, "metadata tablet assignment");
 
-    readAheadThreadPool = createEs(Property.TSERV_READ_AHEAD_MAXCONCURRENT, "tablet read ahead");
+    for (ScanExecutorConfig sec : ScanExecutorConfig.getScanExecutorConfigs(acuConf).values()) {
+      // the default executor keeps the name of the read ahead pool it replaced
+      String name = sec.getName().equals(ScanExecutorConfig.DEFAULT_EXECUTOR) ? "tablet read ahead" : "scan executor " + sec.getName();
+      ThreadPoolExecutor tp = ScanExecutor.createPool(name, sec.getThreads());
+      scanExecutors.put(sec.getName(), new ScanExecutor(sec.getName(), tp, addEs(name, tp), sec.createPrioritizer()));
+      log.info("Created scan executor " + sec.getName() + " with " + sec.getThreads() + " threads and prioritizer " + sec.getPrioritizerClass());
+    }
+    readAheadPool = scanExecutors.get(ScanExecutorConfig.DEFAULT_EXECUTOR).getPool();
+    SimpleTimer.getInstance().schedule(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          for (ScanExecutorConfig sec : ScanExecutorConfig.getScanExecutorConfigs(conf.getConfiguration()).values()) {
+            ScanExecutor executor = scanExecutors.get(sec.getName());
+            if (executor == null) {
+              log.warn("Scan executor " + sec.getName() + " will not be created until the tablet server restarts");
+            } else if (executor.getPool().getMaximumPoolSize() != sec.getThreads()) {
+              log.info("Changing threads of scan executor " + sec.getName() + " to " + sec.getThreads());
+              executor.resize(sec.getThreads());
+            }
+          }
+        } catch (Throwable t) {
+          log.error(t, t);
+        }
+      }
+    }, 1000, 10 * 1000);
     defaultReadAheadThreadPool = createEs(Property.TSERV_METADATA_READ_AHEAD_MAXCONCURRENT, "metadata tablets read ahead");
 
     tabletResources = new HashSet<TabletResourceManager>();
@@ -216,12 +277,14 @@ public class TabletServerResourceManager {
     private Tablet tablet;
     private long mts;
     private long mcmts;
+    private int logCount;
 
-    public TabletStateImpl(Tablet t, long mts, long lct, long mcmts) {
+    public TabletStateImpl(Tablet t, long mts, long lct, long mcmts, int logCount) {
       this.tablet = t;
       this.mts = mts;
       this.lct = lct;
       this.mcmts = mcmts;
+      this.logCount = logCount;
     }
 
     @Override
@@ -247,6 +310,11 @@ public class TabletServerResourceManager {
     public long getMinorCompactingMemTableSize() {
       return mcmts;
     }
+
+    @Override
+    public int getLogCount() {
+      return logCount;
+    }
   }
 
   private class MemoryManagementFramework {
@@ -285,7 +353,14 @@ public class TabletServerResourceManager {
 
     }
 
-    private long lastMemTotal = 0;
+    private volatile long lastMemTotal = 0;
+
+    /**
+     * @return the fraction of the memory for in memory maps that was used when last checked
+     */
+    double getMemoryUsed() {
+      return maxMem <= 0 ? 0 : lastMemTotal / (double) maxMem;
+    }
 
     private void processTabletMemStats() {
       while (true) {
@@ -335,6 +410,13 @@ public class TabletServerResourceManager {
           synchronized (tabletReports) {
             tablets = new ArrayList<TabletState>(tabletReports.values());
           }
+
+          if (MemoryManagerSimulator.sampleLog.isTraceEnabled()) {
+            long now = System.currentTimeMillis();
+            for (TabletState tablet : tablets)
+              MemoryManagerSimulator.sampleLog.trace(MemoryManagerSimulator.formatSample(now, tablet));
+          }
+
           mma = memoryManager.getMemoryManagementActions(tablets);
 
         } catch (Throwable t) {
@@ -372,7 +454,8 @@ public class TabletServerResourceManager {
     }
 
     public void updateMemoryUsageStats(Tablet tablet, long size, long lastCommitTime, long mincSize) {
-      memUsageReports.add(new TabletStateImpl(tablet, size, lastCommitTime, mincSize));
+      // tablets report while holding their lock, so getting the log count will not block
+      memUsageReports.add(new TabletStateImpl(tablet, size, lastCommitTime, mincSize, tablet.getLogCount()));
     }
 
     public void tabletClosed(KeyExtent extent) {
@@ -425,6 +508,14 @@ public class TabletServerResourceManager {
     }
   }
 
+  public int getMinorCompactionConcurrency() {
+    return mincConcurrency.getConcurrency();
+  }
+
+  public double getMinorCompactionThroughput() {
+    return mincConcurrency.getThroughput();
+  }
+
   public void close() {
     for (ExecutorService executorService : threadPools.values()) {
       executorService.shutdown();
@@ -565,6 +656,7 @@ public class TabletServerResourceManager {
       strategy.init(Property.getCompactionStrategyOptions(tableConf));
       MajorCompactionRequest request = new MajorCompactionRequest(tablet.getExtent(), reason, TabletServerResourceManager.this.fs, tableConf);
       request.setFiles(tabletFiles);
+      request.setFileStatisticsCache(tablet.getFileStatisticsCache());
       try {
         return strategy.shouldCompact(request);
       } catch (IOException ex) {
@@ -581,6 +673,12 @@ public class TabletServerResourceManager {
       minorCompactionThreadPool.execute(new LoggingRunnable(log, r));
     }
 
+    // tablets call this method when a minor compaction completes, so the
+    // number of concurrent minor compactions can adapt to how much was written
+    void minorCompactionFinished(long bytes) {
+      mincConcurrency.minorCompactionFinished(bytes);
+    }
+
     void close() throws IOException {
       // always obtain locks in same order to avoid deadlock
       synchronized (TabletServerResourceManager.this) {
@@ -632,13 +730,29 @@ public class TabletServerResourceManager {
     }
   }
 
-  public void executeReadAhead(KeyExtent tablet, Runnable task) {
+  /**
+   * The fraction of the heap in use above which scans are considered to be under memory pressure.
+   */
+  private static final double SCAN_MEMORY_PRESSURE = 0.90;
+
+  /**
+   * @return true when commits are held or the heap is nearly full, in which case scans should buffer smaller batches
+   */
+  public boolean isUnderMemoryPressure() {
+    if (holdCommits)
+      return true;
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory() > SCAN_MEMORY_PRESSURE * runtime.maxMemory();
+  }
+
+  public void executeReadAhead(KeyExtent tablet, ScanInfo scan, Runnable task) {
     if (tablet.isRootTablet()) {
       task.run();
     } else if (tablet.isMeta()) {
       defaultReadAheadThreadPool.execute(task);
     } else {
-      readAheadThreadPool.execute(task);
+      String tableExecutor = conf.getTableConfiguration(tablet).get(Property.TABLE_SCAN_EXECUTOR);
+      scanExecutors.get(ScanExecutor.select(scan, tableExecutor, scanExecutors.keySet())).execute(scan, task);
     }
   }
 
@@ -25,6 +25,7 @@ import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.KeyExtent;
 import org.apache.accumulo.core.file.FileOperations;
 import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.rfile.FileStatistics;
 import org.apache.accumulo.core.metadata.schema.DataFileValue;
 import org.apache.accumulo.server.fs.FileRef;
 import org.apache.accumulo.server.fs.VolumeManager;
@@ -41,6 +42,10 @@ public class MajorCompactionRequest implements Cloneable {
   final private VolumeManager volumeManager;
   final private AccumuloConfiguration tableConfig;
   private Map<FileRef,DataFileValue> files;
+  // statistics already read from the tablet's files, files without statistics map to NO_STATISTICS
+  private Map<FileRef,FileStatistics> fileStatistics = null;
+
+  private static final FileStatistics NO_STATISTICS = new FileStatistics();
 
   public MajorCompactionRequest(KeyExtent extent, MajorCompactionReason reason, VolumeManager manager, AccumuloConfiguration tabletConfig) {
     this.extent = extent;
@@ -54,6 +59,7 @@ public class MajorCompactionRequest implements Cloneable {
     this(mcr.extent, mcr.reason, mcr.volumeManager, mcr.tableConfig);
     // know this is already unmodifiable, no need to wrap again
     this.files = mcr.files;
+    this.fileStatistics = mcr.fileStatistics;
   }
 
   public KeyExtent getExtent() {
@@ -86,6 +92,55 @@ public class MajorCompactionRequest implements Cloneable {
     return openReader;
   }
 
+  /**
+   * Sets where the statistics read from the tablet's files are remembered. Files are immutable, so the statistics of a file never change.
+   */
+  public void setFileStatisticsCache(Map<FileRef,FileStatistics> cache) {
+    this.fileStatistics = cache;
+  }
+
+  /**
+   * @return true if the statistics of the file were already read, so {@link #getCachedFileStatistics(FileRef)} can be used
+   */
+  public boolean hasCachedFileStatistics(FileRef ref) {
+    return fileStatistics != null && fileStatistics.containsKey(ref);
+  }
+
+  /**
+   * Returns statistics that were already read, without doing any I/O, so it can be used from {@link CompactionStrategy#shouldCompact(MajorCompactionRequest)}.
+   * 
+   * @return the file statistics, or null if they were not read yet or the file does not have any
+   */
+  public FileStatistics getCachedFileStatistics(FileRef ref) {
+    FileStatistics stats = fileStatistics == null ? null : fileStatistics.get(ref);
+    return stats == NO_STATISTICS ? null : stats;
+  }
+
+  /**
+   * Reads the statistics recorded when a file was written, such as its number of delete markers and range of timestamps, unless they were already read. This
+   * does I/O, so it should only be called from {@link CompactionStrategy#gatherInformation(MajorCompactionRequest)}.
+   * 
+   * @return the file statistics, or null if the file does not have any
+   */
+  public FileStatistics getFileStatistics(FileRef ref) throws IOException {
+    if (hasCachedFileStatistics(ref))
+      return getCachedFileStatistics(ref);
+
+    FileStatistics stats = readFileStatistics(ref);
+    if (fileStatistics != null)
+      fileStatistics.put(ref, stats == null ? NO_STATISTICS : stats);
+    return stats;
+  }
+
+  protected FileStatistics readFileStatistics(FileRef ref) throws IOException {
+    FileSKVIterator reader = openReader(ref);
+    try {
+      return FileStatistics.read(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
   public Map<String,String> getTableProperties() {
     return tableConfig.getAllPropertiesWithPrefix(Property.TABLE_PREFIX);
   }
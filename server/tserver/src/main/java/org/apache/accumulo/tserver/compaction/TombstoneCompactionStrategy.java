@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.compaction;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.file.rfile.FileStatistics;
+import org.apache.accumulo.server.fs.FileRef;
+
+/**
+ * A compaction strategy that, in addition to the default behavior, compacts files that are mostly delete markers or expired data. It relies on the
+ * {@link FileStatistics} recorded when a file is written; files written before statistics were recorded are only considered by the default strategy.
+ * <p>
+ * Delete markers are only dropped when all of a tablet's files are compacted, so when the ratio of delete markers to entries across the tablet reaches
+ * {@value #DELETE_RATIO_OPT} all files are selected. When {@value #TTL_OPT} is set, each file where the estimated fraction of entries that expired since the
+ * file was created is at least {@value #EXPIRED_RATIO_OPT} is selected, so an age off iterator configured for major compactions can remove them. Entries that
+ * had already expired when the file was created are not counted, so files are not compacted over and over when nothing removes the expired data. The estimate
+ * assumes timestamps are evenly spread between the minimum and maximum timestamp of the file.
+ * <p>
+ * Statistics are only read in {@link #gatherInformation(MajorCompactionRequest)}, and the tablet remembers them. {@link #shouldCompact(MajorCompactionRequest)}
+ * only looks at statistics already read, and asks for a compaction when a file's statistics have not been read yet so they are read on a compaction thread.
+ */
+public class TombstoneCompactionStrategy extends DefaultCompactionStrategy {
+
+  public static final String DELETE_RATIO_OPT = "deleteRatio";
+  public static final String TTL_OPT = "ttl";
+  public static final String EXPIRED_RATIO_OPT = "expiredRatio";
+
+  static final double DEFAULT_DELETE_RATIO = 0.2;
+  static final double DEFAULT_EXPIRED_RATIO = 0.5;
+
+  private double deleteRatio = DEFAULT_DELETE_RATIO;
+  private double expiredRatio = DEFAULT_EXPIRED_RATIO;
+  private long ttl = -1;
+
+  private Map<FileRef,FileStatistics> gatheredStats = null;
+
+  @Override
+  public void init(Map<String,String> options) {
+    if (options.containsKey(DELETE_RATIO_OPT))
+      deleteRatio = Double.parseDouble(options.get(DELETE_RATIO_OPT));
+    if (options.containsKey(EXPIRED_RATIO_OPT))
+      expiredRatio = Double.parseDouble(options.get(EXPIRED_RATIO_OPT));
+    if (options.containsKey(TTL_OPT))
+      ttl = AccumuloConfiguration.getTimeInMillis(options.get(TTL_OPT));
+  }
+
+  private static Map<FileRef,FileStatistics> loadStatistics(MajorCompactionRequest request) throws IOException {
+    Map<FileRef,FileStatistics> result = new HashMap<FileRef,FileStatistics>();
+    for (FileRef ref : request.getFiles().keySet()) {
+      FileStatistics stats = request.getFileStatistics(ref);
+      if (stats != null)
+        result.put(ref, stats);
+    }
+    return result;
+  }
+
+  /**
+   * @return the statistics of the files that were already read, or null if some have not been read yet
+   */
+  private static Map<FileRef,FileStatistics> cachedStatistics(MajorCompactionRequest request) {
+    Map<FileRef,FileStatistics> result = new HashMap<FileRef,FileStatistics>();
+    for (FileRef ref : request.getFiles().keySet()) {
+      if (!request.hasCachedFileStatistics(ref))
+        return null;
+      FileStatistics stats = request.getCachedFileStatistics(ref);
+      if (stats != null)
+        result.put(ref, stats);
+    }
+    return result;
+  }
+
+  /**
+   * Estimates the fraction of entries in a file with a timestamp older than the cutoff.
+   */
+  static double estimateExpiredRatio(FileStatistics stats, long cutoff) {
+    if (stats.getNumEntries() == 0 || stats.getMinTimestamp() >= cutoff)
+      return 0;
+    if (stats.getMaxTimestamp() < cutoff)
+      return 1;
+    return (cutoff - stats.getMinTimestamp()) / (double) (stats.getMaxTimestamp() - stats.getMinTimestamp() + 1);
+  }
+
+  List<FileRef> findFilesToCompact(MajorCompactionRequest request, Map<FileRef,FileStatistics> stats) {
+    List<FileRef> result = new ArrayList<FileRef>();
+
+    long entries = 0;
+    long deletes = 0;
+    for (FileStatistics fs : stats.values()) {
+      entries += fs.getNumEntries();
+      deletes += fs.getNumDeletes();
+    }
+
+    if (deletes > 0 && deletes >= deleteRatio * entries) {
+      result.addAll(request.getFiles().keySet());
+      return result;
+    }
+
+    if (ttl >= 0) {
+      long cutoff = System.currentTimeMillis() - ttl;
+      for (Entry<FileRef,FileStatistics> entry : stats.entrySet()) {
+        FileStatistics fs = entry.getValue();
+        double newlyExpired = estimateExpiredRatio(fs, cutoff) - estimateExpiredRatio(fs, fs.getCreationTime() - ttl);
+        if (request.getFiles().containsKey(entry.getKey()) && newlyExpired >= expiredRatio)
+          result.add(entry.getKey());
+      }
+    }
+
+    return result;
+  }
+
+  @Override
+  public boolean shouldCompact(MajorCompactionRequest request) throws IOException {
+    // super.shouldCompact() would call the getCompactionPlan() of this class
+    if (!super.getCompactionPlan(request).inputFiles.isEmpty())
+      return true;
+    Map<FileRef,FileStatistics> stats = cachedStatistics(request);
+    // the statistics of new files are read by gatherInformation(), outside of the tablet lock
+    if (stats == null)
+      return true;
+    return !findFilesToCompact(request, stats).isEmpty();
+  }
+
+  @Override
+  public void gatherInformation(MajorCompactionRequest request) throws IOException {
+    super.gatherInformation(request);
+    gatheredStats = loadStatistics(request);
+  }
+
+  @Override
+  public CompactionPlan getCompactionPlan(MajorCompactionRequest request) throws IOException {
+    CompactionPlan plan = super.getCompactionPlan(request);
+    if (!plan.inputFiles.isEmpty() || gatheredStats == null)
+      return plan;
+
+    plan.inputFiles.addAll(findFilesToCompact(request, gatheredStats));
+    return plan;
+  }
+}
@@ -32,6 +32,10 @@ public interface TabletServerMBean {
   
   public int getMinorCompactionsQueued();
   
+  public int getMinorCompactionConcurrency();
+  
+  public double getMinorCompactionThroughput();
+  
   public long getEntries();
   
   public long getEntriesInMemory();
@@ -47,4 +51,12 @@ public interface TabletServerMBean {
   public String getName();
   
   public double getAverageFilesPerTablet();
+  
+  public int getSessions();
+  
+  public long getSessionReservationConflicts();
+  
+  public long getSessionReservationWaitTime();
+  
+  public long getSessionsExpired();
 }
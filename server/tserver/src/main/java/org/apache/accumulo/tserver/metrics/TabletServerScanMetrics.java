@@ -80,9 +80,40 @@ public class TabletServerScanMetrics extends AbstractMetricsImpl implements Tabl
     return this.getMetricMin(scan);
   }
   
+  public long getBatchAvgSize() {
+    return this.getMetricAvg(batchSize);
+  }
+  
+  public long getBatchMinSize() {
+    return this.getMetricMin(batchSize);
+  }
+  
+  public long getBatchMaxSize() {
+    return this.getMetricMax(batchSize);
+  }
+  
+  public long getBatchesPerScanAvg() {
+    return this.getMetricAvg(batches);
+  }
+  
+  public long getBatchesPerScanMax() {
+    return this.getMetricMax(batches);
+  }
+  
+  public long getCachedScanCount() {
+    return this.getMetricCount(cachedScan);
+  }
+  
+  public long getCachedScanAvgSize() {
+    return this.getMetricAvg(cachedScan);
+  }
+  
   public void reset() {
     createMetric(scan);
     createMetric(resultSize);
+    createMetric(batchSize);
+    createMetric(batches);
+    createMetric(cachedScan);
   }
   
 }
@@ -20,6 +20,9 @@ public interface TabletServerScanMetricsMBean {
   
   public static final String scan = "scan";
   public static final String resultSize = "result";
+  public static final String batchSize = "batchSize";
+  public static final String batches = "batches";
+  public static final String cachedScan = "cachedScan";
   
   public long getScanCount();
   
@@ -37,6 +40,20 @@ public interface TabletServerScanMetricsMBean {
   
   public long getResultMaxSize();
   
+  public long getBatchAvgSize();
+  
+  public long getBatchMinSize();
+  
+  public long getBatchMaxSize();
+  
+  public long getBatchesPerScanAvg();
+  
+  public long getBatchesPerScanMax();
+  
+  public long getCachedScanCount();
+  
+  public long getCachedScanAvgSize();
+  
   public void reset();
   
 }
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+/**
+ * Decides how many entries and bytes the next batch of a scan session may hold. Batches start at the size the client asked for. The number of entries is
+ * doubled, up to a maximum growth factor, while batches keep filling up and the client keeps asking for the next one quickly. The number of bytes never grows
+ * past the configured maximum, so batches of small entries grow but memory used by a batch stays bounded. Both are halved, down to the same factor below the
+ * starting size, while the tablet server is under memory pressure.
+ * <p>
+ * The first batch may also be bounded in time using the {@value ScanInfo#FIRST_BATCH_TIME_HINT} hint, so clients that want to show something quickly are not
+ * held up by a full batch.
+ */
+public class AdaptiveBatchSizer {
+
+  /**
+   * A client that asks for the next batch within this many milliseconds of receiving the previous one is considered to be draining batches quickly.
+   */
+  static final long QUICK_DRAIN_TIME = 100;
+
+  private final int minEntries;
+  private final int maxEntries;
+  private final long minBytes;
+  private final long maxBytes;
+  private final boolean adaptive;
+  private final long maxTime;
+  private final long firstBatchTime;
+
+  private int entries;
+  private long bytes;
+  private long batches = 0;
+  private long lastReturnTime = -1;
+  private boolean lastFull = false;
+
+  /**
+   * @param entries
+   *          the number of entries the client asked for in each batch
+   * @param bytes
+   *          the configured maximum size of a batch in bytes, which is never exceeded
+   * @param growth
+   *          how many times more entries than asked for batches may hold, and how many times smaller than configured they may become, 1 disables adapting
+   * @param maxTime
+   *          the most time in milliseconds to spend filling a batch
+   * @param scan
+   *          the scan, whose hints may bound the time spent on the first batch
+   */
+  public AdaptiveBatchSizer(int entries, long bytes, int growth, long maxTime, ScanInfo scan) {
+    growth = Math.max(1, growth);
+    this.entries = Math.max(1, entries);
+    this.bytes = Math.max(1, bytes);
+    this.minEntries = Math.max(1, this.entries / growth);
+    this.maxEntries = (int) Math.min(Integer.MAX_VALUE, (long) this.entries * growth);
+    this.minBytes = Math.max(1, this.bytes / growth);
+    this.maxBytes = this.bytes;
+    this.adaptive = growth > 1;
+    this.maxTime = maxTime;
+    this.firstBatchTime = parseTime(scan == null ? null : scan.getHints().get(ScanInfo.FIRST_BATCH_TIME_HINT));
+  }
+
+  private static long parseTime(String hint) {
+    if (hint == null)
+      return -1;
+    try {
+      return Long.parseLong(hint.trim());
+    } catch (NumberFormatException nfe) {
+      return -1;
+    }
+  }
+
+  public synchronized int getEntryLimit() {
+    return entries;
+  }
+
+  public synchronized long getByteLimit() {
+    return bytes;
+  }
+
+  /**
+   * @return the most time in milliseconds to spend filling the next batch
+   */
+  public synchronized long getTimeLimit() {
+    if (batches == 0 && firstBatchTime > 0)
+      return Math.min(firstBatchTime, maxTime);
+    return maxTime;
+  }
+
+  /**
+   * Called when a batch is returned to the client.
+   * 
+   * @param full
+   *          true when the batch stopped because it reached the entry or byte limit
+   */
+  public synchronized void batchReturned(long now, boolean full) {
+    batches++;
+    lastReturnTime = now;
+    lastFull = full;
+  }
+
+  /**
+   * Called when the client asks for the next batch, before it is read.
+   */
+  public synchronized void nextBatchRequested(long now, boolean memoryPressure) {
+    if (!adaptive || lastReturnTime < 0)
+      return;
+
+    if (memoryPressure) {
+      entries = Math.max(minEntries, entries / 2);
+      bytes = Math.max(minBytes, bytes / 2);
+    } else if (lastFull && now - lastReturnTime <= QUICK_DRAIN_TIME) {
+      entries = (int) Math.min(maxEntries, (long) entries * 2);
+      // recover from memory pressure, but never past the configured size
+      bytes = Math.min(maxBytes, bytes * 2);
+    }
+  }
+
+  public synchronized long getBatchCount() {
+    return batches;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Gives each scan an integer priority, where lower values run first, based on its table, user and type. The options are:
+ * <ul>
+ * <li><tt>table.&lt;table id&gt;</tt> the priority of scans of a table</li>
+ * <li><tt>user.&lt;user&gt;</tt> the priority of scans by a user</li>
+ * <li><tt>type.single</tt> and <tt>type.multi</tt> the priority of scanner and batch scanner scans</li>
+ * <li><tt>default</tt> the priority of scans no other option matches, 0 when not set</li>
+ * <li><tt>hints</tt> whether a scan may set its own priority with the {@value ScanInfo#PRIORITY_HINT} hint, true when not set</li>
+ * <li><tt>hint.min</tt> the lowest priority a hint may set, so clients can not jump ahead of scans the administrator favored</li>
+ * </ul>
+ * When several options match a scan, the lowest priority is used. Scans with the same priority run in the order they were queued.
+ */
+public class ConfigurableScanPrioritizer extends ScanPrioritizer {
+
+  private static final Logger log = Logger.getLogger(ConfigurableScanPrioritizer.class);
+
+  private final Map<String,Integer> tablePriorities = new HashMap<String,Integer>();
+  private final Map<String,Integer> userPriorities = new HashMap<String,Integer>();
+  private final Map<ScanInfo.Type,Integer> typePriorities = new HashMap<ScanInfo.Type,Integer>();
+  private int defaultPriority = 0;
+  private boolean allowHints = true;
+  private int minHintPriority = Integer.MIN_VALUE;
+
+  @Override
+  public void init(Map<String,String> options) {
+    for (Entry<String,String> entry : options.entrySet()) {
+      String key = entry.getKey();
+      String value = entry.getValue().trim();
+      if (key.startsWith("table.")) {
+        tablePriorities.put(key.substring("table.".length()), Integer.parseInt(value));
+      } else if (key.startsWith("user.")) {
+        userPriorities.put(key.substring("user.".length()), Integer.parseInt(value));
+      } else if (key.startsWith("type.")) {
+        typePriorities.put(ScanInfo.Type.valueOf(key.substring("type.".length()).toUpperCase()), Integer.parseInt(value));
+      } else if (key.equals("default")) {
+        defaultPriority = Integer.parseInt(value);
+      } else if (key.equals("hints")) {
+        allowHints = Boolean.parseBoolean(value);
+      } else if (key.equals("hint.min")) {
+        minHintPriority = Integer.parseInt(value);
+      } else {
+        log.warn("Ignoring unknown scan prioritizer option " + key);
+      }
+    }
+  }
+
+  int getPriority(ScanInfo scan) {
+    if (allowHints) {
+      String hint = scan.getHints().get(ScanInfo.PRIORITY_HINT);
+      if (hint != null) {
+        try {
+          return Math.max(minHintPriority, Integer.parseInt(hint.trim()));
+        } catch (NumberFormatException nfe) {
+          log.debug("Ignoring invalid priority hint " + hint + " for " + scan);
+        }
+      }
+    }
+
+    Integer priority = null;
+    priority = lowest(priority, tablePriorities.get(scan.getTableId()));
+    priority = lowest(priority, userPriorities.get(scan.getUser()));
+    priority = lowest(priority, typePriorities.get(scan.getType()));
+    return priority == null ? defaultPriority : priority;
+  }
+
+  private static Integer lowest(Integer p1, Integer p2) {
+    if (p1 == null)
+      return p2;
+    if (p2 == null)
+      return p1;
+    return Math.min(p1, p2);
+  }
+
+  @Override
+  public int compare(ScanInfo s1, ScanInfo s2) {
+    int p1 = getPriority(s1);
+    int p2 = getPriority(s2);
+    return p1 < p2 ? -1 : (p1 == p2 ? 0 : 1);
+  }
+
+}
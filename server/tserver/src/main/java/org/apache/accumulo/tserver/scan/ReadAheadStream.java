@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks the batches a scan session reads ahead of its client, using credit based flow control. Batches are read one at a time, each one starting when the
+ * previous finishes, until the client's window of batches read but not yet returned is full. Each batch returned to the client gives back a credit, which
+ * resumes reading ahead.
+ * <p>
+ * Only one task reads at a time, so batches are read in order, and at most window batches are held in memory for a session.
+ */
+public class ReadAheadStream<T> {
+
+  private final int window;
+  private final ArrayDeque<T> tasks = new ArrayDeque<T>();
+  private boolean reading = false;
+  private boolean closed = false;
+
+  public ReadAheadStream(int window) {
+    this.window = Math.max(1, window);
+  }
+
+  public int getWindow() {
+    return window;
+  }
+
+  /**
+   * Queues a task to read the next batch ahead, when no batch is being read and the client has credit left. The caller should execute the task only when this
+   * returns true, and must call {@link #finished()} when the task is done.
+   */
+  public synchronized boolean offer(T task) {
+    if (closed || reading || tasks.size() >= window)
+      return false;
+    tasks.add(task);
+    reading = true;
+    return true;
+  }
+
+  /**
+   * Called when a task queued by {@link #offer(Object)} is done reading.
+   */
+  public synchronized void finished() {
+    reading = false;
+  }
+
+  /**
+   * @return the oldest batch read ahead, which may still be being read, or null
+   */
+  public synchronized T peek() {
+    return tasks.peek();
+  }
+
+  /**
+   * @return the newest batch read ahead, which is the one being read if any is, or null
+   */
+  public synchronized T peekLast() {
+    return tasks.peekLast();
+  }
+
+  /**
+   * Takes the oldest batch read ahead so it can be returned to the client, giving back its credit.
+   */
+  public synchronized T poll() {
+    return tasks.poll();
+  }
+
+  public synchronized int size() {
+    return tasks.size();
+  }
+
+  /**
+   * Stops reading ahead.
+   * 
+   * @return the tasks that were read ahead and not taken, which should be canceled
+   */
+  public synchronized List<T> close() {
+    closed = true;
+    List<T> remaining = new ArrayList<T>(tasks);
+    tasks.clear();
+    return remaining;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.util.NamingThreadFactory;
+
+/**
+ * A pool of threads that runs scans, taking queued scans in the order decided by a {@link ScanPrioritizer}.
+ */
+public class ScanExecutor {
+
+  private static final AtomicLong nextSequence = new AtomicLong(0);
+
+  /**
+   * Queued in the executor's priority queue. Ties are broken by the order tasks were queued, so scans the prioritizer considers equal run first in first out.
+   */
+  private static class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+    private final ScanInfo scan;
+    private final ScanPrioritizer prioritizer;
+    private final Runnable task;
+    private final long sequence = nextSequence.getAndIncrement();
+
+    PrioritizedTask(ScanInfo scan, ScanPrioritizer prioritizer, Runnable task) {
+      this.scan = scan;
+      this.prioritizer = prioritizer;
+      this.task = task;
+    }
+
+    @Override
+    public void run() {
+      task.run();
+    }
+
+    @Override
+    public int compareTo(PrioritizedTask o) {
+      int cmp = prioritizer.compare(scan, o.scan);
+      if (cmp != 0)
+        return cmp;
+      return sequence < o.sequence ? -1 : (sequence == o.sequence ? 0 : 1);
+    }
+  }
+
+  private final String name;
+  private final ThreadPoolExecutor pool;
+  private final ExecutorService service;
+  private final ScanPrioritizer prioritizer;
+
+  /**
+   * @param pool
+   *          a pool created by {@link #createPool(String, int)}
+   * @param service
+   *          the service tasks are submitted to, which may wrap the pool
+   */
+  public ScanExecutor(String name, ThreadPoolExecutor pool, ExecutorService service, ScanPrioritizer prioritizer) {
+    this.name = name;
+    this.pool = pool;
+    this.service = service;
+    this.prioritizer = prioritizer;
+  }
+
+  public static ThreadPoolExecutor createPool(String threadName, int threads) {
+    return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(), new NamingThreadFactory(threadName));
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public ThreadPoolExecutor getPool() {
+    return pool;
+  }
+
+  public void execute(ScanInfo scan, Runnable task) {
+    service.execute(new PrioritizedTask(scan, prioritizer, task));
+  }
+
+  public void resize(int threads) {
+    // the core size can never exceed the maximum size
+    if (threads > pool.getMaximumPoolSize()) {
+      pool.setMaximumPoolSize(threads);
+      pool.setCorePoolSize(threads);
+    } else if (threads < pool.getMaximumPoolSize()) {
+      pool.setCorePoolSize(threads);
+      pool.setMaximumPoolSize(threads);
+    }
+  }
+
+  /**
+   * Chooses the executor for a scan. The executor named by the scan's {@value ScanInfo#EXECUTOR_HINT} hint is used when it exists, then the executor configured
+   * for the table, and otherwise the default executor.
+   */
+  public static String select(ScanInfo scan, String tableExecutor, Set<String> executors) {
+    String hint = scan.getHints().get(ScanInfo.EXECUTOR_HINT);
+    if (hint != null && executors.contains(hint))
+      return hint;
+    if (tableExecutor != null && executors.contains(tableExecutor))
+      return tableExecutor;
+    return ScanExecutorConfig.DEFAULT_EXECUTOR;
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.start.classloader.vfs.AccumuloVFSClassLoader;
+import org.apache.log4j.Logger;
+
+/**
+ * The configuration of a named scan executor, from the <tt>tserver.scan.executors.</tt> properties.
+ */
+public class ScanExecutorConfig {
+
+  private static final Logger log = Logger.getLogger(ScanExecutorConfig.class);
+
+  /**
+   * The name of the executor that runs scans not dispatched to any other executor.
+   */
+  public static final String DEFAULT_EXECUTOR = "default";
+
+  private static final String THREADS = "threads";
+  private static final String PRIORITIZER = "prioritizer";
+  private static final String PRIORITIZER_OPTS = "prioritizer.opts.";
+
+  private final String name;
+  private int threads;
+  private String prioritizerClass = FifoScanPrioritizer.class.getName();
+  private final Map<String,String> prioritizerOptions = new HashMap<String,String>();
+
+  ScanExecutorConfig(String name, int threads) {
+    this.name = name;
+    this.threads = threads;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public String getPrioritizerClass() {
+    return prioritizerClass;
+  }
+
+  public Map<String,String> getPrioritizerOptions() {
+    return Collections.unmodifiableMap(prioritizerOptions);
+  }
+
+  /**
+   * Creates and initializes the configured prioritizer, falling back to running scans in the order they were queued when it can not be loaded.
+   */
+  public ScanPrioritizer createPrioritizer() {
+    try {
+      ScanPrioritizer prioritizer = AccumuloVFSClassLoader.loadClass(prioritizerClass, ScanPrioritizer.class).newInstance();
+      prioritizer.init(getPrioritizerOptions());
+      return prioritizer;
+    } catch (Exception e) {
+      log.warn("Failed to create scan prioritizer " + prioritizerClass + " for scan executor " + name + ", scans will run in the order queued", e);
+      return new FifoScanPrioritizer();
+    }
+  }
+
+  /**
+   * Reads the scan executors defined in the configuration. The default executor is always present, and uses {@link Property#TSERV_READ_AHEAD_MAXCONCURRENT}
+   * threads unless its thread count is configured.
+   */
+  public static Map<String,ScanExecutorConfig> getScanExecutorConfigs(AccumuloConfiguration conf) {
+    Map<String,ScanExecutorConfig> configs = new TreeMap<String,ScanExecutorConfig>();
+    configs.put(DEFAULT_EXECUTOR, new ScanExecutorConfig(DEFAULT_EXECUTOR, conf.getCount(Property.TSERV_READ_AHEAD_MAXCONCURRENT)));
+
+    String prefix = Property.TSERV_SCAN_EXECUTORS_PREFIX.getKey();
+    for (Entry<String,String> entry : conf.getAllPropertiesWithPrefix(Property.TSERV_SCAN_EXECUTORS_PREFIX).entrySet()) {
+      String suffix = entry.getKey().substring(prefix.length());
+      int dot = suffix.indexOf('.');
+      if (dot <= 0) {
+        log.warn("Ignoring invalid scan executor property " + entry.getKey());
+        continue;
+      }
+
+      String name = suffix.substring(0, dot);
+      String setting = suffix.substring(dot + 1);
+
+      ScanExecutorConfig config = configs.get(name);
+      if (config == null) {
+        config = new ScanExecutorConfig(name, 1);
+        configs.put(name, config);
+      }
+
+      if (setting.equals(THREADS)) {
+        config.threads = Math.max(1, Integer.parseInt(entry.getValue().trim()));
+      } else if (setting.equals(PRIORITIZER)) {
+        config.prioritizerClass = entry.getValue().trim();
+      } else if (setting.startsWith(PRIORITIZER_OPTS)) {
+        config.prioritizerOptions.put(setting.substring(PRIORITIZER_OPTS.length()), entry.getValue());
+      } else {
+        log.warn("Ignoring unknown scan executor property " + entry.getKey());
+      }
+    }
+
+    return configs;
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.accumulo.core.Constants;
+
+/**
+ * Describes a scan to the {@link ScanPrioritizer} of the scan executor running it.
+ */
+public class ScanInfo {
+
+  /**
+   * The hint naming the scan executor that should run a scan.
+   */
+  public static final String EXECUTOR_HINT = "executor";
+
+  /**
+   * The hint giving the priority of a scan, where lower values run first.
+   */
+  public static final String PRIORITY_HINT = "priority";
+
+  /**
+   * The hint giving the most time, in milliseconds, a tablet server should spend filling the first batch of a scan.
+   */
+  public static final String FIRST_BATCH_TIME_HINT = "first.batch.time";
+
+  /**
+   * The hint giving how many batches a tablet server may read ahead of the client, which are sent together when the client asks for the next batch.
+   */
+  public static final String STREAM_WINDOW_HINT = "stream.window";
+
+  public static enum Type {
+    /**
+     * A scan of a single tablet, started by a scanner.
+     */
+    SINGLE,
+    /**
+     * A lookup of ranges in one or more tablets, started by a batch scanner.
+     */
+    MULTI
+  }
+
+  private final String tableId;
+  private final String user;
+  private final Type type;
+  private final Map<String,String> hints;
+  private final long creationTime;
+
+  public ScanInfo(String tableId, String user, Type type, Map<String,String> hints, long creationTime) {
+    this.tableId = tableId;
+    this.user = user;
+    this.type = type;
+    this.hints = hints == null ? Collections.<String,String> emptyMap() : Collections.unmodifiableMap(hints);
+    this.creationTime = creationTime;
+  }
+
+  /**
+   * Extracts the execution hints a client sent with the server side iterator options.
+   */
+  public static Map<String,String> getHints(Map<String,Map<String,String>> ssio) {
+    Map<String,String> hints = ssio == null ? null : ssio.get(Constants.SCAN_EXECUTION_HINTS);
+    if (hints == null)
+      return Collections.emptyMap();
+    return hints;
+  }
+
+  public String getTableId() {
+    return tableId;
+  }
+
+  public String getUser() {
+    return user;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public Map<String,String> getHints() {
+    return hints;
+  }
+
+  /**
+   * @return the time, in milliseconds, the scan session was started
+   */
+  public long getCreationTime() {
+    return creationTime;
+  }
+
+  @Override
+  public String toString() {
+    return type + " scan of table " + tableId + " by " + user + " hints " + hints;
+  }
+}
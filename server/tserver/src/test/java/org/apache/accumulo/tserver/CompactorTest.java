@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.KeyExtent;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.metadata.schema.DataFileValue;
+import org.apache.accumulo.server.fs.FileRef;
+import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.server.fs.VolumeManagerImpl;
+import org.apache.accumulo.tserver.Compactor.CompactionEnv;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.io.Text;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompactorTest {
+
+  VolumeManager fs;
+  TemporaryFolder root = new TemporaryFolder(new File(System.getProperty("user.dir") + "/target"));
+  AccumuloConfiguration conf;
+  Map<FileRef,DataFileValue> files;
+
+  @Before
+  public void setUp() throws Exception {
+    fs = VolumeManagerImpl.getLocal();
+    root.create();
+
+    ConfigurationCopy copy = new ConfigurationCopy(AccumuloConfiguration.getDefaultConfiguration());
+    copy.set(Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE, "1K");
+    conf = copy;
+
+    // two files with rows that do not overlap, each spanning many blocks
+    files = new TreeMap<FileRef,DataFileValue>();
+    files.put(writeFile("b.rf", "b", 1001), new DataFileValue(0, 1001));
+    files.put(writeFile("a.rf", "a", 1000), new DataFileValue(0, 1000));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    root.delete();
+  }
+
+  private String path(String name) {
+    return "file://" + root.getRoot().getAbsolutePath() + "/" + name;
+  }
+
+  private static Key key(String prefix, int i) {
+    return new Key(new Text(String.format("%s%06d", prefix, i)), new Text("cf"), new Text("cq"));
+  }
+
+  private FileRef writeFile(String name, String prefix, int entries) throws IOException {
+    String file = path(name);
+    FileSystem ns = fs.getFileSystemByPath(new FileRef(file).path());
+    FileSKVWriter writer = FileOperations.getInstance().openWriter(file, ns, ns.getConf(), conf);
+    writer.startDefaultLocalityGroup();
+    for (int i = 0; i < entries; i++) {
+      writer.append(key(prefix, i), new Value(("v" + i).getBytes()));
+    }
+    writer.close();
+    return new FileRef(file);
+  }
+
+  private List<Key> readIndex(String file) throws IOException {
+    FileSystem ns = fs.getFileSystemByPath(new FileRef(file).path());
+    FileSKVIterator index = FileOperations.getInstance().openIndex(file, ns, ns.getConf(), conf);
+    List<Key> keys = new ArrayList<Key>();
+    while (index.hasTop()) {
+      keys.add(new Key(index.getTopKey()));
+      index.next();
+    }
+    index.close();
+    return keys;
+  }
+
+  private void verifyData(String file) throws IOException {
+    FileSystem ns = fs.getFileSystemByPath(new FileRef(file).path());
+    FileSKVIterator reader = FileOperations.getInstance().openReader(file, false, ns, ns.getConf(), conf);
+    reader.seek(new Range(), new HashSet<ByteSequence>(), false);
+    for (String prefix : new String[] {"a", "b"}) {
+      for (int i = 0; i < (prefix.equals("a") ? 1000 : 1001); i++) {
+        assertTrue(reader.hasTop());
+        assertEquals(key(prefix, i), reader.getTopKey());
+        assertEquals(new Value(("v" + i).getBytes()), reader.getTopValue());
+        reader.next();
+      }
+    }
+    assertFalse(reader.hasTop());
+    reader.close();
+  }
+
+  private String compact(String name) throws Exception {
+    String output = path(name);
+    CompactionEnv env = new CompactionEnv() {
+      @Override
+      public boolean isCompactionEnabled() {
+        return true;
+      }
+
+      @Override
+      public IteratorScope getIteratorScope() {
+        return IteratorScope.majc;
+      }
+    };
+    Compactor compactor = new Compactor(fs.getDefaultVolume().getConf(), fs, files, null, new FileRef(output), false, conf, new KeyExtent(new Text("1"),
+        null, null), env);
+    CompactionStats stats = compactor.call();
+    assertEquals(2001, stats.getEntriesRead());
+    assertEquals(2001, stats.getEntriesWritten());
+    return output;
+  }
+
+  @Test
+  public void testCopyDataBlocks() throws Exception {
+    List<Key> inputIndex = new ArrayList<Key>(readIndex(path("a.rf")));
+    inputIndex.addAll(readIndex(path("b.rf")));
+
+    // when blocks are copied the output has exactly the blocks of the inputs
+    String output = compact("copied.rf");
+    assertEquals(inputIndex, readIndex(output));
+    verifyData(output);
+
+    // merging key by key fills the last block of the first file with keys from the second
+    ((ConfigurationCopy) conf).set(Property.TABLE_MAJC_BLOCK_COPY, "false");
+    output = compact("merged.rf");
+    assertNotEquals(inputIndex, readIndex(output));
+    verifyData(output);
+  }
+}
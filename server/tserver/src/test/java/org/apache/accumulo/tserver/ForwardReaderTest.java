@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.util.LocalityGroupUtil;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class ForwardReaderTest {
+
+  private static TreeMap<Key,Value> data() {
+    TreeMap<Key,Value> data = new TreeMap<Key,Value>();
+    for (int r = 0; r < 100; r += 2)
+      for (int q = 0; q < 3; q++)
+        for (long ts = 1; ts <= 2; ts++)
+          data.put(new Key(row(r), "cf", "cq" + q, "", ts), new Value((r + " " + q + " " + ts).getBytes()));
+    return data;
+  }
+
+  private static String row(int r) {
+    return String.format("r%03d", r);
+  }
+
+  private static Range exact(int r, int q) {
+    return Range.exact(new Text(row(r)), new Text("cf"), new Text("cq" + q), new Text(""));
+  }
+
+  private static Range exact(int r, int q, long ts) {
+    return Range.exact(new Text(row(r)), new Text("cf"), new Text("cq" + q), new Text(""), ts);
+  }
+
+  private static String seekAndRead(TreeMap<Key,Value> data, Range range) throws IOException {
+    SortedMapIterator iter = new SortedMapIterator(data);
+    iter.seek(range, LocalityGroupUtil.EMPTY_CF_SET, false);
+    return iter.hasTop() ? iter.getTopValue().toString() : null;
+  }
+
+  private static List<String> check(ForwardReader reader, SortedMapIterator iter, TreeMap<Key,Value> data, Range... ranges) throws IOException {
+    List<String> values = new ArrayList<String>();
+    for (Range range : ranges) {
+      String value = reader.read(range) ? iter.getTopValue().toString() : null;
+      assertEquals(range.toString(), seekAndRead(data, range), value);
+      values.add(value);
+    }
+    return values;
+  }
+
+  @Test
+  public void testSameAsSeeking() throws IOException {
+    TreeMap<Key,Value> data = data();
+    SortedMapIterator iter = new SortedMapIterator(data);
+    ForwardReader reader = new ForwardReader(iter, new Range());
+
+    List<String> values = check(reader, iter, data, exact(0, 0), exact(0, 2), exact(1, 0), exact(2, 1, 1), exact(2, 1, 3), exact(4, 0), exact(4, 0),
+        exact(98, 2), exact(99, 0));
+    assertEquals("0 0 2", values.get(0));
+    assertEquals("0 2 2", values.get(1));
+    assertEquals(null, values.get(2));
+    assertEquals("2 1 1", values.get(3));
+    assertEquals(null, values.get(4));
+    assertEquals("4 0 2", values.get(5));
+    assertEquals("4 0 2", values.get(6));
+    assertEquals("98 2 2", values.get(7));
+    assertEquals(null, values.get(8));
+  }
+
+  @Test
+  public void testSeeks() throws IOException {
+    TreeMap<Key,Value> data = data();
+    SortedMapIterator iter = new SortedMapIterator(data);
+    ForwardReader reader = new ForwardReader(iter, new Range());
+
+    // adjacent conditions only need the first seek
+    check(reader, iter, data, exact(10, 0), exact(10, 1), exact(10, 2), exact(12, 0));
+    assertEquals(1, reader.getSeeks());
+    assertTrue(reader.getNexts() > 0);
+
+    // jumping far ahead seeks instead of calling next many times
+    check(reader, iter, data, exact(60, 1));
+    assertEquals(2, reader.getSeeks());
+    assertTrue(reader.getNexts() <= 4 * ForwardReader.MAX_NEXTS);
+
+    // going backwards seeks
+    check(reader, iter, data, exact(20, 0));
+    assertEquals(3, reader.getSeeks());
+  }
+
+  @Test
+  public void testTabletRange() throws IOException {
+    TreeMap<Key,Value> data = data();
+    SortedMapIterator iter = new SortedMapIterator(data);
+    ForwardReader reader = new ForwardReader(iter, new Range(null, false, row(50), true));
+
+    check(reader, iter, data, exact(48, 2));
+    // nothing past the end of the tablet is read
+    assertFalse(iter.hasTop() && iter.getTopKey().getRow().toString().compareTo(row(50)) > 0);
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.tserver.MinorCompactionConcurrencyController.State;
+import org.junit.Test;
+
+public class MinorCompactionConcurrencyControllerTest {
+
+  private static State state(int current, int queued, boolean held, double memoryUsed, boolean scansSaturated, double... throughput) {
+    State state = new State();
+    state.current = current;
+    state.min = 1;
+    state.max = 8;
+    state.queued = queued;
+    state.held = held;
+    state.memoryUsed = memoryUsed;
+    state.scansSaturated = scansSaturated;
+    state.throughput = throughput;
+    return state;
+  }
+
+  private static int compute(State state) {
+    return MinorCompactionConcurrencyController.computeConcurrency(state);
+  }
+
+  @Test
+  public void testMemoryPressure() {
+    // work is queued and memory is filling up
+    assertEquals(3, compute(state(2, 5, false, .85, true)));
+    // commits are held, so ramp up quickly
+    assertEquals(4, compute(state(2, 5, true, .96, true)));
+    assertEquals(8, compute(state(6, 5, true, .96, true)));
+    // nothing queued and plenty of memory
+    assertEquals(1, compute(state(2, 0, false, .3, false)));
+    assertEquals(1, compute(state(1, 0, false, .3, false)));
+    // nothing queued, but memory use is in between
+    assertEquals(2, compute(state(2, 0, false, .6, false)));
+  }
+
+  @Test
+  public void testScans() {
+    // with queued work and no scans competing for the disks, run more
+    assertEquals(3, compute(state(2, 1, false, .4, false)));
+    // but not when scans are saturating the read ahead threads
+    assertEquals(2, compute(state(2, 1, false, .4, true)));
+    assertEquals(1, compute(state(2, 0, false, .6, true)));
+    // unless memory is under pressure
+    assertEquals(3, compute(state(2, 1, false, .85, true)));
+  }
+
+  @Test
+  public void testThroughput() {
+    // running 3 was no faster than running 2, so do not go further
+    assertEquals(3, compute(state(3, 5, false, .85, false, 0, 10, 20, 21)));
+    // running 3 was faster than running 2
+    assertEquals(4, compute(state(3, 5, false, .85, false, 0, 10, 20, 30)));
+    // running 3 was slower than running 2
+    assertEquals(2, compute(state(3, 5, true, .96, false, 0, 10, 20, 15)));
+    // not measured
+    assertEquals(4, compute(state(3, 5, false, .85, false, 0, 10)));
+  }
+
+  @Test
+  public void testBounds() {
+    State state = state(6, 5, true, .96, true);
+    state.max = 4;
+    assertEquals(4, compute(state));
+
+    state = state(1, 0, false, .1, false);
+    state.min = 3;
+    assertEquals(3, compute(state));
+  }
+
+  @Test
+  public void testResize() {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+    MinorCompactionConcurrencyController.resize(pool, 5);
+    assertEquals(5, pool.getCorePoolSize());
+    assertEquals(5, pool.getMaximumPoolSize());
+    MinorCompactionConcurrencyController.resize(pool, 1);
+    assertEquals(1, pool.getCorePoolSize());
+    assertEquals(1, pool.getMaximumPoolSize());
+    pool.shutdown();
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.KeyExtent;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.thrift.TCondition;
+import org.apache.accumulo.core.data.thrift.TConditionalMutation;
+import org.apache.accumulo.tserver.RowLocks.RowLock;
+import org.apache.accumulo.tserver.data.ServerConditionalMutation;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class RowLocksTest {
+
+  private static final KeyExtent EXTENT = new KeyExtent(new Text("1"), null, null);
+
+  private static Map<KeyExtent,List<ServerConditionalMutation>> updates(String... rows) {
+    List<ServerConditionalMutation> scml = new ArrayList<ServerConditionalMutation>();
+    long id = 0;
+    for (String row : rows) {
+      Mutation m = new Mutation(row);
+      m.put("cf", "cq", "v");
+      scml.add(new ServerConditionalMutation(new TConditionalMutation(Collections.<TCondition> emptyList(), m.toThrift(), id++)));
+    }
+    Map<KeyExtent,List<ServerConditionalMutation>> updates = new HashMap<KeyExtent,List<ServerConditionalMutation>>();
+    updates.put(EXTENT, scml);
+    return updates;
+  }
+
+  private static List<String> rows(Map<KeyExtent,List<ServerConditionalMutation>> updates) {
+    List<String> rows = new ArrayList<String>();
+    List<ServerConditionalMutation> scml = updates.get(EXTENT);
+    if (scml != null)
+      for (ServerConditionalMutation scm : scml)
+        rows.add(new String(scm.getRow()));
+    return rows;
+  }
+
+  /**
+   * Holds the locks for rows in another thread, because the locks are reentrant.
+   */
+  private static class Holder extends Thread {
+    final CountDownLatch locked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final RowLocks rowLocks;
+    final String[] rows;
+
+    Holder(RowLocks rowLocks, String... rows) {
+      this.rowLocks = rowLocks;
+      this.rows = rows;
+    }
+
+    @Override
+    public void run() {
+      List<RowLock> locks = rowLocks.acquireRowlocks(updates(rows), new HashMap<KeyExtent,List<ServerConditionalMutation>>());
+      locked.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      } finally {
+        rowLocks.releaseRowLocks(locks);
+      }
+    }
+
+    void lockRows() throws InterruptedException {
+      start();
+      locked.await();
+    }
+
+    void releaseRows() throws InterruptedException {
+      release.countDown();
+      join();
+    }
+  }
+
+  @Test
+  public void testStripes() {
+    RowLocks rowLocks = new RowLocks(1000);
+    int stripe = rowLocks.getStripe(new ArrayByteSequence("row1"));
+    assertEquals(stripe, rowLocks.getStripe(new ArrayByteSequence("row1")));
+    for (int i = 0; i < 10000; i++) {
+      stripe = rowLocks.getStripe(new ArrayByteSequence("row" + i));
+      assertTrue(stripe >= 0 && stripe < 1024);
+    }
+  }
+
+  @Test
+  public void testDeferLockedRows() throws Exception {
+    RowLocks rowLocks = new RowLocks();
+    Holder holder = new Holder(rowLocks, "b");
+    holder.lockRows();
+
+    Map<KeyExtent,List<ServerConditionalMutation>> updates = updates("a", "b", "c");
+    Map<KeyExtent,List<ServerConditionalMutation>> deferred = new HashMap<KeyExtent,List<ServerConditionalMutation>>();
+    List<RowLock> locks = rowLocks.acquireRowlocks(updates, deferred);
+    assertEquals(2, locks.size());
+    assertEquals(Arrays.asList("a", "c"), rows(updates));
+    assertEquals(Collections.singletonList("b"), rows(deferred));
+    rowLocks.releaseRowLocks(locks);
+
+    holder.releaseRows();
+
+    locks = rowLocks.acquireRowlocks(deferred, new HashMap<KeyExtent,List<ServerConditionalMutation>>());
+    assertEquals(1, locks.size());
+    rowLocks.releaseRowLocks(locks);
+  }
+
+  @Test
+  public void testSharedStripe() throws Exception {
+    // every row shares the one stripe
+    RowLocks rowLocks = new RowLocks(1);
+    Holder holder = new Holder(rowLocks, "x", "y");
+    holder.lockRows();
+
+    Map<KeyExtent,List<ServerConditionalMutation>> updates = updates("a", "b");
+    Map<KeyExtent,List<ServerConditionalMutation>> deferred = new HashMap<KeyExtent,List<ServerConditionalMutation>>();
+    List<RowLock> locks = rowLocks.acquireRowlocks(updates, deferred);
+    assertEquals(0, locks.size());
+    assertEquals(2, rows(deferred).size());
+    holder.releaseRows();
+
+    // rows of one batch that share a stripe do not block each other
+    updates = updates("a", "b", "c");
+    deferred = new HashMap<KeyExtent,List<ServerConditionalMutation>>();
+    locks = rowLocks.acquireRowlocks(updates, deferred);
+    assertEquals(3, locks.size());
+    assertTrue(deferred.isEmpty());
+    rowLocks.releaseRowLocks(locks);
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.Column;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.KeyExtent;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.data.thrift.IterInfo;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.tserver.ScanResultCache.CacheKey;
+import org.apache.accumulo.tserver.Tablet.KVEntry;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class ScanResultCacheTest {
+
+  private static class TestCache extends ScanResultCache {
+    long time = 1000;
+
+    TestCache(long maxSize, long maxAge) {
+      // one segment, so eviction is strictly least recently used
+      super(maxSize, maxAge, 1);
+    }
+
+    @Override
+    protected long currentTimeMillis() {
+      return time;
+    }
+  }
+
+  private static final KeyExtent EXTENT = new KeyExtent(new Text("1"), null, null);
+
+  private static CacheKey key(KeyExtent extent, String row, String... auths) {
+    return new CacheKey(extent, new Range(row), new HashSet<Column>(), new Authorizations(auths), new ArrayList<IterInfo>(),
+        new HashMap<String,Map<String,String>>());
+  }
+
+  private static List<KVEntry> results(String row, int count) {
+    List<KVEntry> results = new ArrayList<KVEntry>();
+    for (int i = 0; i < count; i++)
+      results.add(new KVEntry(new Key(row, "cf", "cq" + i), new Value(("v" + i).getBytes())));
+    return results;
+  }
+
+  @Test
+  public void testDataVersion() {
+    TestCache cache = new TestCache(1 << 20, 1000);
+    List<KVEntry> results = results("a", 3);
+    cache.put(key(EXTENT, "a"), 5, results);
+
+    assertSame(results, cache.get(key(EXTENT, "a"), 5));
+    assertNull(cache.get(key(EXTENT, "a", "A"), 5));
+    assertNull(cache.get(key(EXTENT, "b"), 5));
+    assertEquals(1, cache.getHits());
+    assertEquals(2, cache.getMisses());
+
+    // the tablet changed, the results are never valid again
+    assertNull(cache.get(key(EXTENT, "a"), 6));
+    assertNull(cache.get(key(EXTENT, "a"), 5));
+    assertEquals(0, cache.getNumEntries());
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void testMaxAge() {
+    TestCache cache = new TestCache(1 << 20, 1000);
+    cache.put(key(EXTENT, "a"), 5, results("a", 3));
+    cache.time += 1000;
+    assertEquals(3, cache.get(key(EXTENT, "a"), 5).size());
+    cache.time += 1;
+    assertNull(cache.get(key(EXTENT, "a"), 5));
+  }
+
+  @Test
+  public void testEviction() {
+    long entrySize = ScanResultCache.estimateSize(results("r00", 10));
+    TestCache cache = new TestCache(entrySize * 10, 1000);
+    for (int i = 0; i < 10; i++)
+      cache.put(key(EXTENT, String.format("r%02d", i)), 5, results(String.format("r%02d", i), 10));
+    assertEquals(10, cache.getNumEntries());
+    assertEquals(entrySize * 10, cache.getSize());
+
+    // use the oldest, so the second oldest is evicted
+    assertEquals(10, cache.get(key(EXTENT, "r00"), 5).size());
+    cache.put(key(EXTENT, "r10"), 5, results("r10", 10));
+    assertEquals(10, cache.getNumEntries());
+    assertEquals(10, cache.get(key(EXTENT, "r00"), 5).size());
+    assertNull(cache.get(key(EXTENT, "r01"), 5));
+    assertEquals(10, cache.get(key(EXTENT, "r10"), 5).size());
+
+    // results too large to be worth caching
+    cache.put(key(EXTENT, "big"), 5, results("big", 20));
+    assertNull(cache.get(key(EXTENT, "big"), 5));
+  }
+
+  @Test
+  public void testRemoveExtent() {
+    TestCache cache = new TestCache(1 << 20, 1000);
+    KeyExtent other = new KeyExtent(new Text("2"), null, null);
+    cache.put(key(EXTENT, "a"), 5, results("a", 3));
+    cache.put(key(other, "a"), 5, Collections.<KVEntry> emptyList());
+    cache.remove(EXTENT);
+    assertNull(cache.get(key(EXTENT, "a"), 5));
+    assertEquals(0, cache.get(key(other, "a"), 5).size());
+    assertEquals(ScanResultCache.estimateSize(Collections.<KVEntry> emptyList()), cache.getSize());
+  }
+
+  @Test
+  public void testConcurrent() throws Exception {
+    long entrySize = ScanResultCache.estimateSize(results("r00", 1));
+    final ScanResultCache cache = new ScanResultCache(entrySize * 1000, 1000);
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      final int id = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 2000; i++) {
+            String row = String.format("r%d_%04d", id, i % 500);
+            if (cache.get(key(EXTENT, row), 5) == null)
+              cache.put(key(EXTENT, row), 5, results(row, 1));
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread t : threads)
+      t.join();
+
+    assertEquals(16000, cache.getHits() + cache.getMisses());
+    assertTrue(cache.getNumEntries() > 0);
+    assertTrue(cache.getSize() <= entrySize * 1000);
+    cache.remove(EXTENT);
+    assertEquals(0, cache.getNumEntries());
+    assertEquals(0, cache.getSize());
+  }
+}
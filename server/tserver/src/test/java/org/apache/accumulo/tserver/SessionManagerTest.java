@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.accumulo.tserver.TabletServer.Session;
+import org.apache.accumulo.tserver.TabletServer.SessionManager;
+import org.junit.Test;
+
+public class SessionManagerTest {
+
+  private static class TestSession extends Session {
+    int cleanups = 0;
+
+    @Override
+    public void cleanup() {
+      cleanups++;
+    }
+  }
+
+  @Test
+  public void testReserve() {
+    SessionManager sm = new SessionManager(60000);
+    TestSession session = new TestSession();
+    long sid = sm.createSession(session, true);
+
+    try {
+      sm.reserveSession(sid);
+      fail("reserved twice");
+    } catch (IllegalStateException e) {}
+    assertEquals(1, sm.getReservationConflicts());
+
+    sm.unreserveSession(session);
+    assertSame(session, sm.reserveSession(sid));
+    sm.unreserveSession(sid);
+
+    try {
+      sm.unreserveSession(session);
+      fail("unreserved twice");
+    } catch (IllegalStateException e) {}
+
+    assertNull(sm.reserveSession(sid + 1));
+  }
+
+  @Test
+  public void testWait() throws Exception {
+    final SessionManager sm = new SessionManager(60000);
+    final TestSession session = new TestSession();
+    final long sid = sm.createSession(session, true);
+
+    final Session[] reserved = new Session[1];
+    Thread t = new Thread() {
+      @Override
+      public void run() {
+        reserved[0] = sm.reserveSession(sid, true);
+      }
+    };
+    t.start();
+
+    while (sm.getReservationConflicts() == 0)
+      Thread.sleep(5);
+
+    sm.unreserveSession(session);
+    t.join();
+    assertSame(session, reserved[0]);
+  }
+
+  @Test
+  public void testRemove() {
+    SessionManager sm = new SessionManager(60000);
+    TestSession session = new TestSession();
+    long sid = sm.createSession(session, true);
+
+    assertSame(session, sm.removeSession(sid, true));
+    assertEquals(1, session.cleanups);
+    assertNull(sm.reserveSession(sid));
+    assertNull(sm.getSession(sid));
+    assertNull(sm.removeSession(sid));
+    assertEquals(0, sm.getSessionCount());
+  }
+
+  @Test
+  public void testExpiration() {
+    SessionManager sm = new SessionManager(1000);
+    TestSession idle = new TestSession();
+    TestSession reserved = new TestSession();
+    TestSession active = new TestSession();
+    long idleId = sm.createSession(idle, false);
+    long reservedId = sm.createSession(reserved, true);
+    long activeId = sm.createSession(active, false);
+
+    long now = System.currentTimeMillis();
+    active.lastAccessTime = now + 5000;
+
+    sm.sweep(now + 2000);
+    assertEquals(1, sm.getExpiredCount());
+    assertEquals(1, idle.cleanups);
+    assertNull(sm.getSession(idleId));
+    assertNotNull(sm.getSession(reservedId));
+    assertNotNull(sm.getSession(activeId));
+
+    // reserved sessions expire once they are unreserved and idle
+    sm.unreserveSession(reserved);
+    reserved.lastAccessTime = now + 2000;
+    sm.sweep(now + 4000);
+    assertEquals(2, sm.getExpiredCount());
+    assertEquals(1, reserved.cleanups);
+    assertNotNull(sm.getSession(activeId));
+
+    // the wheel is only swept once when the sweep falls far behind
+    active.lastAccessTime = now + 5000;
+    sm.sweep(now + 600000);
+    assertEquals(3, sm.getExpiredCount());
+    assertEquals(1, active.cleanups);
+    assertEquals(0, sm.getSessionCount());
+  }
+
+  @Test
+  public void testUnique() {
+    SessionManager sm = new SessionManager(60000);
+    Set<Long> ids = new HashSet<Long>();
+    for (int i = 0; i < 1000; i++) {
+      long sid = sm.createSession(new TestSession(), false);
+      assertTrue(sid != TabletServer.NO_SESSION_ID);
+      assertTrue(ids.add(sid));
+    }
+    assertEquals(1000, sm.getSessionCount());
+  }
+}
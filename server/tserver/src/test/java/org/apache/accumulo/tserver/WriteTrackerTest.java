@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.accumulo.core.client.impl.TabletType;
+import org.apache.accumulo.tserver.TabletServer.WriteTracker;
+import org.junit.Test;
+
+public class WriteTrackerTest {
+
+  private static Thread waitForWrites(final WriteTracker tracker, final TabletType ttype) {
+    Thread t = new Thread() {
+      @Override
+      public void run() {
+        tracker.waitForWrites(ttype);
+      }
+    };
+    t.start();
+    return t;
+  }
+
+  @Test
+  public void testNoWrites() {
+    WriteTracker tracker = new WriteTracker();
+    tracker.waitForWrites(TabletType.ROOT);
+    tracker.waitForWrites(TabletType.METADATA);
+    tracker.waitForWrites(TabletType.USER);
+
+    tracker.finishWrite(tracker.startWrite(TabletType.USER));
+    tracker.waitForWrites(TabletType.USER);
+  }
+
+  @Test
+  public void testOtherType() {
+    WriteTracker tracker = new WriteTracker();
+    long opid = tracker.startWrite(TabletType.USER);
+    // writes to user tablets do not hold up scans of the metadata table
+    tracker.waitForWrites(TabletType.METADATA);
+    tracker.finishWrite(opid);
+  }
+
+  @Test
+  public void testWait() throws Exception {
+    WriteTracker tracker = new WriteTracker();
+    long opid1 = tracker.startWrite(TabletType.USER);
+    long opid2 = tracker.startWrite(TabletType.USER);
+
+    Thread scan = waitForWrites(tracker, TabletType.USER);
+    scan.join(100);
+    assertTrue(scan.isAlive());
+
+    tracker.finishWrite(opid2);
+    scan.join(100);
+    assertTrue(scan.isAlive());
+
+    // writes started after the scan do not hold it up
+    long opid3 = tracker.startWrite(TabletType.USER);
+
+    tracker.finishWrite(opid1);
+    scan.join(10000);
+    assertFalse(scan.isAlive());
+
+    tracker.finishWrite(opid3);
+  }
+
+  @Test
+  public void testFinishTwice() {
+    WriteTracker tracker = new WriteTracker();
+    long opid = tracker.startWrite(TabletType.USER);
+    tracker.finishWrite(opid);
+    try {
+      tracker.finishWrite(opid);
+      fail("finished write twice");
+    } catch (IllegalArgumentException e) {}
+    // not a write
+    tracker.finishWrite(-1);
+  }
+}
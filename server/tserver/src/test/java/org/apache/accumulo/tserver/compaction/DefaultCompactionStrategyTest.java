@@ -41,6 +41,7 @@ import org.apache.accumulo.core.file.NoSuchMetaStoreException;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.metadata.schema.DataFileValue;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.core.util.Pair;
 import org.apache.accumulo.server.fs.FileRef;
 import org.apache.hadoop.io.Text;
@@ -77,6 +78,12 @@ public class DefaultCompactionStrategyTest {
     @Override
     public void setInterruptFlag(AtomicBoolean flag) {}
 
+    @Override
+    public void setTimeRange(long minTimestamp, long maxTimestamp) {}
+
+    @Override
+    public void setAuthorizations(Authorizations authorizations, byte[] defaultVisibility) {}
+
     @Override
     public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {}
 
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.compaction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.KeyExtent;
+import org.apache.accumulo.core.file.rfile.FileStatistics;
+import org.apache.accumulo.core.metadata.schema.DataFileValue;
+import org.apache.accumulo.server.fs.FileRef;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TombstoneCompactionStrategyTest {
+
+  private static final Map<String,FileStatistics> fakeStats = new HashMap<String,FileStatistics>();
+
+  private static FileStatistics stats(long created, int entries, int deletes, long minTs, long maxTs) throws IOException {
+    FileStatistics fs = new FileStatistics(created);
+    for (int i = 0; i < entries; i++) {
+      Key k = new Key(new Text("r" + i), new Text("cf"), new Text("cq"), minTs + (maxTs - minTs) * i / Math.max(1, entries - 1));
+      k.setDeleted(i < deletes);
+      fs.update(k);
+    }
+
+    // round trip through serialization, like reading it from a file
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    fs.write(new DataOutputStream(baos));
+    FileStatistics copy = new FileStatistics();
+    copy.readFields(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+    return copy;
+  }
+
+  private static class TestCompactionRequest extends MajorCompactionRequest {
+    int reads = 0;
+
+    TestCompactionRequest(MajorCompactionReason reason, String... files) {
+      super(new KeyExtent(new Text("0"), null, null), reason, null, AccumuloConfiguration.getDefaultConfiguration());
+      // use very different sizes so the default strategy does not select anything
+      Map<FileRef,DataFileValue> fileMap = new HashMap<FileRef,DataFileValue>();
+      long size = 1000;
+      for (String file : files) {
+        fileMap.put(new FileRef(file), new DataFileValue(size, 100));
+        size *= 10;
+      }
+      setFiles(fileMap);
+      setFileStatisticsCache(new HashMap<FileRef,FileStatistics>());
+    }
+
+    @Override
+    protected FileStatistics readFileStatistics(FileRef ref) throws IOException {
+      reads++;
+      return fakeStats.get(ref.path().toString());
+    }
+  }
+
+  private static HashSet<FileRef> refs(String... files) {
+    HashSet<FileRef> result = new HashSet<FileRef>();
+    for (String file : files)
+      result.add(new FileRef(file));
+    return result;
+  }
+
+  @Test
+  public void testDeletes() throws Exception {
+    fakeStats.put("tcs_d1", stats(0, 100, 5, 0, 10));
+    fakeStats.put("tcs_d2", stats(0, 100, 0, 0, 10));
+    fakeStats.put("tcs_d3", stats(0, 100, 80, 0, 10));
+
+    TombstoneCompactionStrategy s = new TombstoneCompactionStrategy();
+    s.init(new HashMap<String,String>());
+
+    // the statistics have not been read yet, so they have to be gathered
+    TestCompactionRequest request = new TestCompactionRequest(MajorCompactionReason.NORMAL, "tcs_d1", "tcs_d2");
+    Assert.assertTrue(s.shouldCompact(request));
+    Assert.assertEquals(0, request.reads);
+    s.gatherInformation(request);
+    Assert.assertEquals(2, request.reads);
+    // 5 deletes out of 200 entries is below the default ratio
+    Assert.assertTrue(s.getCompactionPlan(request).inputFiles.isEmpty());
+    Assert.assertFalse(s.shouldCompact(request));
+    // statistics are only read once
+    s.gatherInformation(request);
+    Assert.assertEquals(2, request.reads);
+
+    // all files are compacted so the deletes can be dropped
+    request = new TestCompactionRequest(MajorCompactionReason.NORMAL, "tcs_d1", "tcs_d2", "tcs_d3");
+    s.gatherInformation(request);
+    Assert.assertTrue(s.shouldCompact(request));
+    Assert.assertEquals(refs("tcs_d1", "tcs_d2", "tcs_d3"), new HashSet<FileRef>(s.getCompactionPlan(request).inputFiles));
+
+    // files without statistics are ignored
+    request = new TestCompactionRequest(MajorCompactionReason.NORMAL, "tcs_d2", "tcs_none");
+    s.gatherInformation(request);
+    Assert.assertNull(request.getCachedFileStatistics(new FileRef("tcs_none")));
+    Assert.assertFalse(s.shouldCompact(request));
+  }
+
+  @Test
+  public void testExpired() throws Exception {
+    long now = System.currentTimeMillis();
+    fakeStats.put("tcs_e1", stats(now - 2000000, 100, 0, now - 3000000, now - 2000000));
+    fakeStats.put("tcs_e2", stats(now, 100, 0, now - 10000, now));
+    // data was already expired when written, so compacting it again would not help
+    fakeStats.put("tcs_e3", stats(now, 100, 0, now - 3000000, now - 2000000));
+
+    TombstoneCompactionStrategy s = new TombstoneCompactionStrategy();
+    HashMap<String,String> opts = new HashMap<String,String>();
+    opts.put(TombstoneCompactionStrategy.TTL_OPT, "1000s");
+    s.init(opts);
+
+    MajorCompactionRequest request = new TestCompactionRequest(MajorCompactionReason.NORMAL, "tcs_e1", "tcs_e2", "tcs_e3");
+    s.gatherInformation(request);
+    Assert.assertTrue(s.shouldCompact(request));
+    Assert.assertEquals(refs("tcs_e1"), new HashSet<FileRef>(s.getCompactionPlan(request).inputFiles));
+
+    // no ttl configured
+    s = new TombstoneCompactionStrategy();
+    s.init(new HashMap<String,String>());
+    Assert.assertFalse(s.shouldCompact(request));
+  }
+
+  @Test
+  public void testEstimateExpired() throws Exception {
+    FileStatistics fs = stats(0, 100, 0, 0, 99);
+    Assert.assertEquals(0.0, TombstoneCompactionStrategy.estimateExpiredRatio(fs, 0), 0.0);
+    Assert.assertEquals(0.5, TombstoneCompactionStrategy.estimateExpiredRatio(fs, 50), 0.0);
+    Assert.assertEquals(1.0, TombstoneCompactionStrategy.estimateExpiredRatio(fs, 100), 0.0);
+  }
+}
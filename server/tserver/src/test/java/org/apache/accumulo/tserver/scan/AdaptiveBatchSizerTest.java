@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class AdaptiveBatchSizerTest {
+
+  private static ScanInfo scan(String... hints) {
+    return new ScanInfo("1", "user", ScanInfo.Type.SINGLE, hints.length == 0 ? null : Collections.singletonMap(hints[0], hints[1]), 0);
+  }
+
+  @Test
+  public void testGrowth() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 1 << 20, 4, 4000, scan());
+    // nothing to adapt to before the first batch
+    sizer.nextBatchRequested(0, false);
+    assertEquals(1000, sizer.getEntryLimit());
+    assertEquals(1 << 20, sizer.getByteLimit());
+
+    // full batches drained quickly grow
+    sizer.batchReturned(1000, true);
+    sizer.nextBatchRequested(1010, false);
+    assertEquals(2000, sizer.getEntryLimit());
+    // the configured memory limit is never exceeded
+    assertEquals(1 << 20, sizer.getByteLimit());
+
+    for (int i = 0; i < 5; i++) {
+      sizer.batchReturned(2000 + i * 100, true);
+      sizer.nextBatchRequested(2000 + i * 100 + 50, false);
+    }
+    assertEquals(4000, sizer.getEntryLimit());
+    assertEquals(1 << 20, sizer.getByteLimit());
+    assertEquals(6, sizer.getBatchCount());
+  }
+
+  @Test
+  public void testNoGrowth() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 1 << 20, 4, 4000, scan());
+    // the client is slow to ask for more
+    sizer.batchReturned(1000, true);
+    sizer.nextBatchRequested(5000, false);
+    assertEquals(1000, sizer.getEntryLimit());
+    // the batch was not full
+    sizer.batchReturned(6000, false);
+    sizer.nextBatchRequested(6001, false);
+    assertEquals(1000, sizer.getEntryLimit());
+
+    // a growth of one disables adapting
+    sizer = new AdaptiveBatchSizer(1000, 1 << 20, 1, 4000, scan());
+    sizer.batchReturned(1000, true);
+    sizer.nextBatchRequested(1001, false);
+    assertEquals(1000, sizer.getEntryLimit());
+    sizer.batchReturned(1002, true);
+    sizer.nextBatchRequested(1003, true);
+    assertEquals(1000, sizer.getEntryLimit());
+    assertEquals(1 << 20, sizer.getByteLimit());
+  }
+
+  @Test
+  public void testMemoryPressure() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 1 << 20, 4, 4000, scan());
+    for (int i = 0; i < 5; i++) {
+      sizer.batchReturned(i * 100, true);
+      sizer.nextBatchRequested(i * 100 + 10, true);
+    }
+    assertEquals(250, sizer.getEntryLimit());
+    assertEquals(1 << 18, sizer.getByteLimit());
+
+    // once the pressure is gone, batches grow back to the configured memory limit
+    for (int i = 5; i < 10; i++) {
+      sizer.batchReturned(i * 100, true);
+      sizer.nextBatchRequested(i * 100 + 10, false);
+    }
+    assertEquals(4000, sizer.getEntryLimit());
+    assertEquals(1 << 20, sizer.getByteLimit());
+  }
+
+  @Test
+  public void testFirstBatchTime() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 1 << 20, 4, 4000, scan(ScanInfo.FIRST_BATCH_TIME_HINT, "50"));
+    assertEquals(50, sizer.getTimeLimit());
+    sizer.batchReturned(100, false);
+    assertEquals(4000, sizer.getTimeLimit());
+
+    // can not ask for more than the maximum
+    assertEquals(4000, new AdaptiveBatchSizer(1000, 1 << 20, 4, 4000, scan(ScanInfo.FIRST_BATCH_TIME_HINT, "10000")).getTimeLimit());
+    assertEquals(4000, new AdaptiveBatchSizer(1000, 1 << 20, 4, 4000, scan(ScanInfo.FIRST_BATCH_TIME_HINT, "soon")).getTimeLimit());
+    assertEquals(4000, new AdaptiveBatchSizer(1000, 1 << 20, 4, 4000, scan()).getTimeLimit());
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ReadAheadStreamTest {
+
+  @Test
+  public void testWindow() {
+    ReadAheadStream<String> stream = new ReadAheadStream<String>(3);
+    assertTrue(stream.offer("b1"));
+    // only one batch is read at a time
+    assertFalse(stream.offer("b2"));
+    stream.finished();
+    assertTrue(stream.offer("b2"));
+    stream.finished();
+    assertTrue(stream.offer("b3"));
+    stream.finished();
+    // the window is full until the client takes a batch
+    assertFalse(stream.offer("b4"));
+    assertEquals(3, stream.size());
+    assertEquals("b1", stream.peek());
+    assertEquals("b3", stream.peekLast());
+
+    assertEquals("b1", stream.poll());
+    assertTrue(stream.offer("b4"));
+    assertEquals("b4", stream.peekLast());
+    // the client may take a batch that is still being read
+    assertEquals("b2", stream.poll());
+    assertEquals("b3", stream.poll());
+    assertEquals("b4", stream.poll());
+    assertNull(stream.poll());
+    assertFalse(stream.offer("b5"));
+    stream.finished();
+    assertTrue(stream.offer("b5"));
+  }
+
+  @Test
+  public void testClose() {
+    ReadAheadStream<String> stream = new ReadAheadStream<String>(0);
+    assertEquals(1, stream.getWindow());
+    assertTrue(stream.offer("b1"));
+    assertEquals(Arrays.asList("b1"), stream.close());
+    assertEquals(0, stream.size());
+    stream.finished();
+    assertFalse(stream.offer("b2"));
+  }
+}
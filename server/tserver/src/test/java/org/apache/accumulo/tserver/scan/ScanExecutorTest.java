@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.Constants;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.Property;
+import org.junit.Test;
+
+public class ScanExecutorTest {
+
+  private static ScanInfo scan(String table, String user, ScanInfo.Type type, String... hints) {
+    Map<String,String> hintMap = new HashMap<String,String>();
+    for (int i = 0; i < hints.length; i += 2)
+      hintMap.put(hints[i], hints[i + 1]);
+    return new ScanInfo(table, user, type, hintMap, 0);
+  }
+
+  private static ConfigurableScanPrioritizer prioritizer(String... options) {
+    Map<String,String> opts = new HashMap<String,String>();
+    for (int i = 0; i < options.length; i += 2)
+      opts.put(options[i], options[i + 1]);
+    ConfigurableScanPrioritizer prioritizer = new ConfigurableScanPrioritizer();
+    prioritizer.init(opts);
+    return prioritizer;
+  }
+
+  @Test
+  public void testHints() {
+    assertTrue(ScanInfo.getHints(null).isEmpty());
+    Map<String,Map<String,String>> ssio = new HashMap<String,Map<String,String>>();
+    ssio.put("iter", Collections.singletonMap("opt", "val"));
+    assertTrue(ScanInfo.getHints(ssio).isEmpty());
+    ssio.put(Constants.SCAN_EXECUTION_HINTS, Collections.singletonMap(ScanInfo.EXECUTOR_HINT, "fast"));
+    assertEquals("fast", ScanInfo.getHints(ssio).get(ScanInfo.EXECUTOR_HINT));
+  }
+
+  @Test
+  public void testConfig() {
+    ConfigurationCopy conf = new ConfigurationCopy();
+    conf.set(Property.TSERV_READ_AHEAD_MAXCONCURRENT, "7");
+    conf.set("tserver.scan.executors.fast.threads", "3");
+    conf.set("tserver.scan.executors.fast.prioritizer", ConfigurableScanPrioritizer.class.getName());
+    conf.set("tserver.scan.executors.fast.prioritizer.opts.table.1", "-1");
+    conf.set("tserver.scan.executors.slow.prioritizer.opts.default", "1");
+    conf.set("tserver.scan.executors.bogus", "1");
+
+    Map<String,ScanExecutorConfig> configs = ScanExecutorConfig.getScanExecutorConfigs(conf);
+    assertEquals(new HashSet<String>(Arrays.asList("default", "fast", "slow")), configs.keySet());
+
+    assertEquals(7, configs.get("default").getThreads());
+    assertEquals(FifoScanPrioritizer.class.getName(), configs.get("default").getPrioritizerClass());
+    assertTrue(configs.get("default").createPrioritizer() instanceof FifoScanPrioritizer);
+
+    ScanExecutorConfig fast = configs.get("fast");
+    assertEquals(3, fast.getThreads());
+    assertEquals(Collections.singletonMap("table.1", "-1"), fast.getPrioritizerOptions());
+    assertTrue(fast.createPrioritizer() instanceof ConfigurableScanPrioritizer);
+
+    assertEquals(1, configs.get("slow").getThreads());
+    assertEquals(Collections.singletonMap("default", "1"), configs.get("slow").getPrioritizerOptions());
+
+    conf.set("tserver.scan.executors.default.threads", "2");
+    conf.set("tserver.scan.executors.default.prioritizer", "org.example.Missing");
+    configs = ScanExecutorConfig.getScanExecutorConfigs(conf);
+    assertEquals(2, configs.get("default").getThreads());
+    assertTrue(configs.get("default").createPrioritizer() instanceof FifoScanPrioritizer);
+  }
+
+  @Test
+  public void testSelect() {
+    Set<String> executors = new HashSet<String>(Arrays.asList("default", "fast", "slow"));
+    assertEquals("default", ScanExecutor.select(scan("1", "u", ScanInfo.Type.SINGLE), null, executors));
+    assertEquals("slow", ScanExecutor.select(scan("1", "u", ScanInfo.Type.SINGLE), "slow", executors));
+    assertEquals("default", ScanExecutor.select(scan("1", "u", ScanInfo.Type.SINGLE), "missing", executors));
+    assertEquals("fast", ScanExecutor.select(scan("1", "u", ScanInfo.Type.SINGLE, ScanInfo.EXECUTOR_HINT, "fast"), "slow", executors));
+    assertEquals("slow", ScanExecutor.select(scan("1", "u", ScanInfo.Type.SINGLE, ScanInfo.EXECUTOR_HINT, "missing"), "slow", executors));
+  }
+
+  @Test
+  public void testPriority() {
+    ConfigurableScanPrioritizer prioritizer = prioritizer("table.1", "5", "user.ops", "-2", "type.single", "1", "default", "3", "hint.min", "0");
+    assertEquals(3, prioritizer.getPriority(scan("2", "u", ScanInfo.Type.MULTI)));
+    assertEquals(1, prioritizer.getPriority(scan("2", "u", ScanInfo.Type.SINGLE)));
+    assertEquals(5, prioritizer.getPriority(scan("1", "u", ScanInfo.Type.MULTI)));
+    // the lowest matching priority is used
+    assertEquals(1, prioritizer.getPriority(scan("1", "u", ScanInfo.Type.SINGLE)));
+    assertEquals(-2, prioritizer.getPriority(scan("1", "ops", ScanInfo.Type.SINGLE)));
+    // hints override, but can not go below the minimum
+    assertEquals(7, prioritizer.getPriority(scan("1", "ops", ScanInfo.Type.SINGLE, ScanInfo.PRIORITY_HINT, "7")));
+    assertEquals(0, prioritizer.getPriority(scan("2", "u", ScanInfo.Type.MULTI, ScanInfo.PRIORITY_HINT, "-9")));
+    assertEquals(3, prioritizer.getPriority(scan("2", "u", ScanInfo.Type.MULTI, ScanInfo.PRIORITY_HINT, "high")));
+
+    prioritizer = prioritizer("hints", "false");
+    assertEquals(0, prioritizer.getPriority(scan("2", "u", ScanInfo.Type.MULTI, ScanInfo.PRIORITY_HINT, "-9")));
+    assertTrue(prioritizer("user.a", "1").compare(scan("1", "b", ScanInfo.Type.SINGLE), scan("1", "a", ScanInfo.Type.SINGLE)) < 0);
+  }
+
+  @Test
+  public void testExecutionOrder() throws Exception {
+    ThreadPoolExecutor pool = ScanExecutor.createPool("test scan executor", 1);
+    ScanExecutor executor = new ScanExecutor("test", pool, pool, prioritizer("user.interactive", "-1"));
+
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+    // occupy the only thread so the rest queue up
+    executor.execute(scan("1", "batch", ScanInfo.Type.MULTI), new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+
+    String[] users = {"batch1", "interactive", "batch2", "batch3"};
+    for (final String user : users) {
+      String scanUser = user.startsWith("batch") ? "batch" : user;
+      executor.execute(scan("1", scanUser, ScanInfo.Type.SINGLE), new Runnable() {
+        @Override
+        public void run() {
+          order.add(user);
+        }
+      });
+    }
+
+    release.countDown();
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(Arrays.asList("interactive", "batch1", "batch2", "batch3"), order);
+  }
+
+  @Test
+  public void testResize() {
+    ThreadPoolExecutor pool = ScanExecutor.createPool("test scan executor", 2);
+    ScanExecutor executor = new ScanExecutor("test", pool, pool, new FifoScanPrioritizer());
+    executor.resize(5);
+    assertEquals(5, pool.getCorePoolSize());
+    assertEquals(5, pool.getMaximumPoolSize());
+    executor.resize(1);
+    assertEquals(1, pool.getCorePoolSize());
+    assertEquals(1, pool.getMaximumPoolSize());
+    pool.shutdown();
+  }
+}
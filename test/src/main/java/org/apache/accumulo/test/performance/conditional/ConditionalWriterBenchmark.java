@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.performance.conditional;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.cli.ClientOnRequiredTable;
+import org.apache.accumulo.core.client.ConditionalWriter;
+import org.apache.accumulo.core.client.ConditionalWriter.Result;
+import org.apache.accumulo.core.client.ConditionalWriter.Status;
+import org.apache.accumulo.core.client.ConditionalWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.data.Condition;
+import org.apache.accumulo.core.data.ConditionalMutation;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+
+import com.beust.jcommander.Parameter;
+
+/**
+ * Measures compare and set throughput of the conditional writer at varying levels of contention. Each thread increments counters in randomly chosen rows,
+ * conditioned on the value it last saw. The fewer rows there are, the more often threads update the same row at the same time, so more mutations wait on row
+ * locks or are rejected and retried.
+ * 
+ * <pre>
+ * ConditionalWriterBenchmark -i instance -z zookeepers -u user -p password -t table [--rows 1,16,1024,65536] [--threads 16] [--batch 100] [--seconds 30]
+ * </pre>
+ */
+public class ConditionalWriterBenchmark {
+
+  static class Opts extends ClientOnRequiredTable {
+    @Parameter(names = "--rows", description = "comma separated numbers of rows to update, one test is run for each")
+    public String rows = "1,16,1024,65536";
+    @Parameter(names = "--threads", description = "number of threads writing")
+    public int threads = 16;
+    @Parameter(names = "--batch", description = "conditional mutations written at a time by each thread")
+    public int batch = 100;
+    @Parameter(names = "--seconds", description = "how long each test runs")
+    public int seconds = 30;
+  }
+
+  private static final String CF = "c";
+  private static final String CQ = "count";
+
+  private static String row(String prefix, int row) {
+    return String.format("%s_%08d", prefix, row);
+  }
+
+  private static class Writer implements Runnable {
+    final ConditionalWriter cw;
+    final Connector conn;
+    final String table;
+    final String prefix;
+    final int numRows;
+    final int batch;
+    final long end;
+    final ConcurrentHashMap<String,Long> seen;
+    final AtomicLong accepted;
+    final AtomicLong rejected;
+    final Random random = new Random();
+
+    Writer(ConditionalWriter cw, Connector conn, String table, String prefix, int numRows, int batch, long end, ConcurrentHashMap<String,Long> seen,
+        AtomicLong accepted, AtomicLong rejected) {
+      this.cw = cw;
+      this.conn = conn;
+      this.table = table;
+      this.prefix = prefix;
+      this.numRows = numRows;
+      this.batch = batch;
+      this.end = end;
+      this.seen = seen;
+      this.accepted = accepted;
+      this.rejected = rejected;
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (System.currentTimeMillis() < end) {
+          List<ConditionalMutation> mutations = new ArrayList<ConditionalMutation>(batch);
+          for (int i = 0; i < batch; i++) {
+            String row = row(prefix, random.nextInt(numRows));
+            Long count = seen.get(row);
+            Condition condition = new Condition(CF, CQ);
+            if (count != null)
+              condition.setValue(count.toString());
+            ConditionalMutation cm = new ConditionalMutation(row, condition);
+            cm.put(CF, CQ, Long.toString(count == null ? 1 : count + 1));
+            mutations.add(cm);
+          }
+
+          Iterator<Result> results = cw.write(mutations.iterator());
+          while (results.hasNext()) {
+            Result result = results.next();
+            String row = new String(result.getMutation().getRow());
+            if (result.getStatus() == Status.ACCEPTED) {
+              accepted.incrementAndGet();
+              seen.put(row, Long.parseLong(new String(result.getMutation().getUpdates().get(0).getValue())));
+            } else {
+              rejected.incrementAndGet();
+              refresh(row);
+            }
+          }
+        }
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    private void refresh(String row) throws Exception {
+      Scanner scanner = conn.createScanner(table, Authorizations.EMPTY);
+      scanner.setRange(new Range(row));
+      for (Entry<Key,Value> entry : scanner) {
+        seen.put(row, Long.parseLong(entry.getValue().toString()));
+        return;
+      }
+      seen.remove(row);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Opts opts = new Opts();
+    opts.parseArgs(ConditionalWriterBenchmark.class.getName(), args);
+
+    Connector conn = opts.getConnector();
+    if (!conn.tableOperations().exists(opts.tableName))
+      conn.tableOperations().create(opts.tableName);
+
+    for (String rows : opts.rows.split(",")) {
+      int numRows = Integer.parseInt(rows.trim());
+      // each test uses its own rows, so earlier tests do not leave values behind
+      String prefix = "r" + numRows;
+
+      ConditionalWriter cw = conn.createConditionalWriter(opts.tableName, new ConditionalWriterConfig());
+      ConcurrentHashMap<String,Long> seen = new ConcurrentHashMap<String,Long>();
+      AtomicLong accepted = new AtomicLong();
+      AtomicLong rejected = new AtomicLong();
+
+      long start = System.currentTimeMillis();
+      long end = start + opts.seconds * 1000L;
+      List<Thread> threads = new ArrayList<Thread>();
+      for (int i = 0; i < opts.threads; i++) {
+        Thread thread = new Thread(new Writer(cw, conn, opts.tableName, prefix, numRows, opts.batch, end, seen, accepted, rejected));
+        thread.start();
+        threads.add(thread);
+      }
+      for (Thread thread : threads)
+        thread.join();
+      long elapsed = System.currentTimeMillis() - start;
+      cw.close();
+
+      System.out.printf("rows %,9d  threads %3d  accepted %,10.0f/s  rejected %,10.0f/s%n", numRows, opts.threads, accepted.get() * 1000.0 / elapsed,
+          rejected.get() * 1000.0 / elapsed);
+    }
+  }
+}
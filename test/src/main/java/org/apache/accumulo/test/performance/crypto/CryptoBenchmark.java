@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.performance.crypto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.security.crypto.BufferedCryptoModule;
+import org.apache.accumulo.core.security.crypto.CryptoModule;
+import org.apache.accumulo.core.security.crypto.CryptoModuleFactory;
+import org.apache.accumulo.core.security.crypto.CryptoModuleParameters;
+import org.apache.accumulo.core.security.crypto.DefaultCryptoModule;
+
+/**
+ * Compares the throughput of encrypted and plaintext data, for each crypto module and cipher suite, the way RFiles and write ahead logs use the crypto
+ * modules. Nothing is compressed or written to disk, so the differences are all in the crypto layers.
+ * <ul>
+ * <li>RFiles encrypt every block with a new initialization vector and a new stream. Blocks are written with many small writes, as keys and values are
+ * appended, and read back the same way during a scan.</li>
+ * <li>Write ahead logs are one long stream, with the parameters recorded at its start, where a small mutation is written and flushed at a time.</li>
+ * </ul>
+ * 
+ * <pre>
+ * CryptoBenchmark [MB per test] [rounds]
+ * </pre>
+ */
+public class CryptoBenchmark {
+
+  private static final int BLOCK_SIZE = 100 * 1024;
+  private static final int ENTRY_SIZE = 50;
+  private static final int MUTATION_SIZE = 200;
+  private static final int MUTATIONS_PER_FLUSH = 10;
+
+  private static CryptoModuleParameters params(String suite) {
+    Map<String,String> options = new HashMap<String,String>();
+    options.put(Property.CRYPTO_CIPHER_SUITE.getKey(), suite);
+    options.put(Property.CRYPTO_CIPHER_ALGORITHM_NAME.getKey(), "AES");
+    options.put(Property.CRYPTO_CIPHER_KEY_LENGTH.getKey(), "128");
+    options.put(Property.CRYPTO_SECURE_RNG.getKey(), "SHA1PRNG");
+    options.put(Property.CRYPTO_SECURE_RNG_PROVIDER.getKey(), "SUN");
+    options.put(Property.CRYPTO_SECRET_KEY_ENCRYPTION_STRATEGY_CLASS.getKey(), "NullSecretKeyEncryptionStrategy");
+    return CryptoModuleFactory.fillParamsObjectFromStringMap(new CryptoModuleParameters(), options);
+  }
+
+  /**
+   * Writes blocks the way the BCFile writer does, returning each encrypted block. Blocks are written in plaintext when there is no module.
+   */
+  static List<byte[]> writeBlocks(CryptoModule module, CryptoModuleParameters params, byte[] entry, int numBlocks) throws IOException {
+    List<byte[]> blocks = new ArrayList<byte[]>(numBlocks);
+    for (int b = 0; b < numBlocks; b++) {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream(BLOCK_SIZE + 64);
+      if (module == null) {
+        for (int written = 0; written < BLOCK_SIZE; written += entry.length)
+          baos.write(entry);
+        blocks.add(baos.toByteArray());
+        continue;
+      }
+      DataOutputStream plain = new DataOutputStream(baos);
+      params.setCloseUnderylingStreamAfterCryptoStreamClose(false);
+      params.setRecordParametersToStream(false);
+      params.setInitializationVector(null);
+      module.initializeCipher(params);
+      if (params.getInitializationVector() != null) {
+        plain.writeInt(params.getInitializationVector().length);
+        plain.write(params.getInitializationVector());
+      }
+      params.setPlaintextOutputStream(plain);
+      module.getEncryptingOutputStream(params);
+      OutputStream out = params.getEncryptedOutputStream() == plain ? baos : params.getEncryptedOutputStream();
+      for (int written = 0; written < BLOCK_SIZE; written += entry.length)
+        out.write(entry);
+      out.close();
+      blocks.add(baos.toByteArray());
+    }
+    return blocks;
+  }
+
+  /**
+   * Reads blocks the way the BCFile reader does, returning the number of bytes read.
+   */
+  static long readBlocks(CryptoModule module, CryptoModuleParameters params, List<byte[]> blocks, byte[] entry) throws IOException {
+    long read = 0;
+    for (byte[] block : blocks) {
+      InputStream in = new ByteArrayInputStream(block);
+      if (module != null) {
+        DataInputStream dataIn = new DataInputStream(in);
+        byte[] iv = new byte[dataIn.readInt()];
+        dataIn.readFully(iv);
+        params.setInitializationVector(iv);
+        params.setEncryptedInputStream(in);
+        params.setCloseUnderylingStreamAfterCryptoStreamClose(false);
+        params.setRecordParametersToStream(false);
+        in = module.getDecryptingInputStream(params).getPlaintextInputStream();
+      }
+      DataInputStream dataIn = new DataInputStream(in);
+      for (int r = 0; r < BLOCK_SIZE; r += entry.length) {
+        dataIn.readFully(entry);
+        read += entry.length;
+      }
+      dataIn.close();
+    }
+    return read;
+  }
+
+  static byte[] writeLog(CryptoModule module, CryptoModuleParameters params, byte[] mutation, int numMutations) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream(numMutations * mutation.length + 1024);
+    OutputStream out = baos;
+    if (module != null) {
+      params.setPlaintextOutputStream(baos);
+      out = module.getEncryptingOutputStream(params).getEncryptedOutputStream();
+    }
+    DataOutputStream dataOut = new DataOutputStream(out);
+    for (int m = 0; m < numMutations; m++) {
+      dataOut.writeInt(mutation.length);
+      dataOut.write(mutation);
+      if (m % MUTATIONS_PER_FLUSH == MUTATIONS_PER_FLUSH - 1)
+        dataOut.flush();
+    }
+    dataOut.close();
+    return baos.toByteArray();
+  }
+
+  static long readLog(CryptoModule module, CryptoModuleParameters params, byte[] log, byte[] mutation, int numMutations) throws IOException {
+    InputStream in = new ByteArrayInputStream(log);
+    if (module != null) {
+      params.setEncryptedInputStream(in);
+      in = module.getDecryptingInputStream(params).getPlaintextInputStream();
+    }
+    DataInputStream dataIn = new DataInputStream(in);
+    long read = 0;
+    for (int m = 0; m < numMutations; m++) {
+      byte[] bytes = new byte[dataIn.readInt()];
+      dataIn.readFully(bytes);
+      read += bytes.length;
+    }
+    dataIn.close();
+    return read;
+  }
+
+  private static void report(int round, String test, String name, long bytes, long nanos) {
+    System.out.printf("round %2d %-5s %-52s %,8.1f MB/s%n", round, test, name, bytes / (1024.0 * 1024.0) / (nanos / 1000000000.0));
+  }
+
+  public static void main(String[] args) throws IOException {
+    int mb = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+    byte[] entry = new byte[ENTRY_SIZE];
+    byte[] mutation = new byte[MUTATION_SIZE];
+    Random random = new Random(42);
+    random.nextBytes(entry);
+    random.nextBytes(mutation);
+
+    int numBlocks = mb * 1024 * 1024 / BLOCK_SIZE;
+    int numMutations = mb * 1024 * 1024 / MUTATION_SIZE;
+    long bytes = (long) numBlocks * BLOCK_SIZE;
+
+    String[] suites = new String[] {"AES/CTR/NoPadding", "AES/CFB/PKCS5Padding"};
+    // null is the plaintext baseline
+    CryptoModule[] modules = new CryptoModule[] {null, new DefaultCryptoModule(), new BufferedCryptoModule()};
+
+    for (int round = 0; round < rounds; round++) {
+      for (String suite : suites) {
+        for (CryptoModule module : modules) {
+          if (module == null && suite != suites[0])
+            continue;
+          String name = module == null ? "plaintext" : module.getClass().getSimpleName() + " " + suite;
+
+          CryptoModuleParameters params = params(suite);
+          if (module != null)
+            module.generateNewRandomSessionKey(params);
+          long t1 = System.nanoTime();
+          List<byte[]> blocks = writeBlocks(module, params, entry, numBlocks);
+          long t2 = System.nanoTime();
+          readBlocks(module, params, blocks, entry);
+          long t3 = System.nanoTime();
+          report(round, "write", "rfile " + name, bytes, t2 - t1);
+          report(round, "scan", "rfile " + name, bytes, t3 - t2);
+
+          t1 = System.nanoTime();
+          byte[] log = writeLog(module, params(suite), mutation, numMutations);
+          t2 = System.nanoTime();
+          readLog(module, params(suite), log, mutation, numMutations);
+          t3 = System.nanoTime();
+          report(round, "write", "wal " + name, (long) numMutations * MUTATION_SIZE, t2 - t1);
+          report(round, "read", "wal " + name, (long) numMutations * MUTATION_SIZE, t3 - t2);
+        }
+      }
+    }
+  }
+}
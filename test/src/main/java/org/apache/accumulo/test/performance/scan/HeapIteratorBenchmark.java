@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.performance.scan;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.system.MultiIterator;
+import org.apache.accumulo.core.util.FastFormat;
+
+/**
+ * Measures the cost per entry of merging sorted sources with {@link MultiIterator}, compared to merging them with a binary heap that removes and adds the
+ * source with the smallest key for every entry. Entries are either spread randomly over the sources, or each source holds runs of consecutive rows, like files
+ * written by successive minor compactions of a table with sequential row ids.
+ * 
+ * <pre>
+ * HeapIteratorBenchmark [num entries] [num sources] [run length] [rounds]
+ * </pre>
+ */
+public class HeapIteratorBenchmark {
+
+  private static class Source implements Comparable<Source> {
+    SortedKeyValueIterator<Key,Value> iter;
+
+    Source(SortedKeyValueIterator<Key,Value> iter) {
+      this.iter = iter;
+    }
+
+    @Override
+    public int compareTo(Source o) {
+      return iter.getTopKey().compareTo(o.iter.getTopKey());
+    }
+  }
+
+  private static final byte ROW_PREFIX[] = new byte[] {'r'};
+
+  static List<TreeMap<Key,Value>> createData(int numEntries, int numSources, int runLength) {
+    List<TreeMap<Key,Value>> maps = new ArrayList<TreeMap<Key,Value>>();
+    for (int i = 0; i < numSources; i++)
+      maps.add(new TreeMap<Key,Value>());
+
+    Random random = new Random(42);
+    Value value = new Value("0123456789".getBytes());
+    for (int i = 0; i < numEntries; i++) {
+      int source = runLength <= 1 ? random.nextInt(numSources) : (i / runLength) % numSources;
+      byte[] row = FastFormat.toZeroPaddedString(i, 9, 10, ROW_PREFIX);
+      maps.get(source).put(new Key(row, "cf".getBytes(), "cq".getBytes(), new byte[0], 1, false), value);
+    }
+    return maps;
+  }
+
+  static List<SortedKeyValueIterator<Key,Value>> createSources(List<TreeMap<Key,Value>> maps) throws IOException {
+    List<SortedKeyValueIterator<Key,Value>> sources = new ArrayList<SortedKeyValueIterator<Key,Value>>();
+    for (TreeMap<Key,Value> map : maps) {
+      SortedMapIterator iter = new SortedMapIterator(map);
+      iter.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+      sources.add(iter);
+    }
+    return sources;
+  }
+
+  static long mergeWithMultiIterator(List<TreeMap<Key,Value>> maps) throws IOException {
+    MultiIterator iter = new MultiIterator(createSources(maps), true);
+    iter.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+    long count = 0;
+    while (iter.hasTop()) {
+      iter.getTopKey();
+      iter.getTopValue();
+      count++;
+      iter.next();
+    }
+    return count;
+  }
+
+  static long mergeWithPriorityQueue(List<TreeMap<Key,Value>> maps) throws IOException {
+    PriorityQueue<Source> heap = new PriorityQueue<Source>(maps.size());
+    for (SortedKeyValueIterator<Key,Value> iter : createSources(maps))
+      if (iter.hasTop())
+        heap.add(new Source(iter));
+
+    long count = 0;
+    while (!heap.isEmpty()) {
+      Source top = heap.remove();
+      top.iter.getTopKey();
+      top.iter.getTopValue();
+      count++;
+      top.iter.next();
+      if (top.iter.hasTop())
+        heap.add(top);
+    }
+    return count;
+  }
+
+  public static void main(String[] args) throws IOException {
+    int numEntries = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    int numSources = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+    int runLength = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+    int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+    List<TreeMap<Key,Value>> maps = createData(numEntries, numSources, runLength);
+
+    for (int round = 0; round < rounds; round++) {
+      // alternate the order, so neither is favored by warm up
+      boolean heapFirst = round % 2 == 1;
+      for (int i = 0; i < 2; i++) {
+        boolean heap = heapFirst == (i == 0);
+        long t1 = System.nanoTime();
+        long count = heap ? mergeWithPriorityQueue(maps) : mergeWithMultiIterator(maps);
+        long t2 = System.nanoTime();
+        System.out.printf("round %2d %-8s merged %,d entries from %d sources in %,6.1f ms, %6.1f ns per entry%n", round, heap ? "heap" : "multi", count,
+            numSources, (t2 - t1) / 1000000.0, (t2 - t1) / (double) count);
+      }
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.performance.scan;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Column;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.KeyValueBatch;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.system.ColumnFamilySkippingIterator;
+import org.apache.accumulo.core.iterators.system.ColumnQualifierFilter;
+import org.apache.accumulo.core.iterators.system.DeletingIterator;
+import org.apache.accumulo.core.iterators.system.SourceSwitchingIterator;
+import org.apache.accumulo.core.iterators.system.SourceSwitchingIterator.DataSource;
+import org.apache.accumulo.core.iterators.system.StatsIterator;
+import org.apache.accumulo.core.iterators.system.VisibilityFilter;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.util.FastFormat;
+
+/**
+ * Measures the cost per entry of reading through the system iterator stack a tablet server builds for a scan, one entry at a time and a batch at a time.
+ * 
+ * <pre>
+ * IteratorBatchBenchmark [num entries] [batch size] [rounds]
+ * </pre>
+ */
+public class IteratorBatchBenchmark {
+
+  private static class StaticDataSource implements DataSource {
+    private final SortedKeyValueIterator<Key,Value> iter;
+
+    StaticDataSource(SortedKeyValueIterator<Key,Value> iter) {
+      this.iter = iter;
+    }
+
+    @Override
+    public boolean isCurrent() {
+      return true;
+    }
+
+    @Override
+    public DataSource getNewDataSource() {
+      return this;
+    }
+
+    @Override
+    public DataSource getDeepCopyDataSource(IteratorEnvironment env) {
+      return new StaticDataSource(iter.deepCopy(env));
+    }
+
+    @Override
+    public SortedKeyValueIterator<Key,Value> iterator() {
+      return iter;
+    }
+  }
+
+  private static final byte ROW_PREFIX[] = new byte[] {'r'};
+
+  static TreeMap<Key,Value> createData(int numEntries) {
+    TreeMap<Key,Value> data = new TreeMap<Key,Value>();
+    String[] visibilities = {"", "A", "A|B", "B"};
+    Value value = new Value("0123456789".getBytes());
+    for (int i = 0; i < numEntries; i++) {
+      byte[] row = FastFormat.toZeroPaddedString(i / 10, 9, 10, ROW_PREFIX);
+      data.put(new Key(row, ("cf" + (i % 2)).getBytes(), ("cq" + (i % 10)).getBytes(), visibilities[i % visibilities.length].getBytes(), 1, false), value);
+    }
+    return data;
+  }
+
+  // the same stack Tablet.ScanDataSource builds, with a map in place of the files and in memory map, where all entries are visible
+  static SortedKeyValueIterator<Key,Value> createStack(TreeMap<Key,Value> data) throws IOException {
+    StatsIterator statsIter = new StatsIterator(new SortedMapIterator(data), new AtomicLong(), new AtomicLong());
+    DeletingIterator delIter = new DeletingIterator(statsIter, false);
+    ColumnFamilySkippingIterator cfsi = new ColumnFamilySkippingIterator(delIter);
+    ColumnQualifierFilter colFilter = new ColumnQualifierFilter(cfsi, Collections.<Column> emptySet());
+    VisibilityFilter visFilter = new VisibilityFilter(colFilter, new Authorizations("A", "B"), new byte[0]);
+    return new SourceSwitchingIterator(new StaticDataSource(visFilter));
+  }
+
+  static long readEntries(SortedKeyValueIterator<Key,Value> iter) throws IOException {
+    long count = 0;
+    iter.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+    while (iter.hasTop()) {
+      iter.getTopKey();
+      iter.getTopValue();
+      count++;
+      iter.next();
+    }
+    return count;
+  }
+
+  static long readBatches(SortedKeyValueIterator<Key,Value> iter, int batchSize) throws IOException {
+    long count = 0;
+    iter.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+    KeyValueBatch batch = new KeyValueBatch(batchSize, false);
+    while (true) {
+      batch.clear();
+      int read = batch.fill(iter);
+      if (read == 0)
+        break;
+      count += read;
+    }
+    return count;
+  }
+
+  public static void main(String[] args) throws IOException {
+    int numEntries = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+    TreeMap<Key,Value> data = createData(numEntries);
+
+    for (int round = 0; round < rounds; round++) {
+      // alternate the order, so neither is favored by warm up
+      boolean batchFirst = round % 2 == 1;
+      for (int i = 0; i < 2; i++) {
+        boolean batched = batchFirst == (i == 0);
+        SortedKeyValueIterator<Key,Value> iter = createStack(data);
+        long t1 = System.nanoTime();
+        long count = batched ? readBatches(iter, batchSize) : readEntries(iter);
+        long t2 = System.nanoTime();
+        System.out.printf("round %2d %-8s read %,d of %,d entries in %,6.1f ms, %6.1f ns per entry read from the map%n", round, batched ? "batch" : "single",
+            count, numEntries, (t2 - t1) / 1000000.0, (t2 - t1) / (double) numEntries);
+      }
+    }
+  }
+}
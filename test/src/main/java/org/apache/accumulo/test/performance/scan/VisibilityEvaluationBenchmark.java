@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.performance.scan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.accumulo.core.security.CompiledVisibility;
+import org.apache.accumulo.core.security.VisibilityEvaluator;
+import org.apache.accumulo.core.security.VisibilityParseException;
+
+/**
+ * Measures the cost of evaluating column visibilities by walking their parse trees, compared to evaluating them compiled with {@link CompiledVisibility}.
+ * Labels are drawn from a mix of shapes seen in practice: single terms, conjunctions of a classification and a few compartments, conjunctions of
+ * alternatives, and wide disjunctions listing many groups. Parsing is not measured.
+ * 
+ * <pre>
+ * VisibilityEvaluationBenchmark [num labels] [num terms] [rounds]
+ * </pre>
+ */
+public class VisibilityEvaluationBenchmark {
+
+  static String term(Random random, int numTerms) {
+    return "term" + random.nextInt(numTerms);
+  }
+
+  static String join(Random random, int numTerms, int count, String op) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++)
+      sb.append(i == 0 ? "" : op).append(term(random, numTerms));
+    return sb.toString();
+  }
+
+  static String createLabel(Random random, int numTerms) {
+    switch (random.nextInt(5)) {
+      case 0:
+        return term(random, numTerms);
+      case 1:
+        return join(random, numTerms, 2 + random.nextInt(3), "&");
+      case 2:
+        return "(" + join(random, numTerms, 2, "|") + ")&(" + join(random, numTerms, 2, "|") + ")&" + term(random, numTerms);
+      case 3:
+        return join(random, numTerms, 10, "|");
+      default:
+        return "(" + join(random, numTerms, 3, "&") + ")|(" + join(random, numTerms, 2, "&") + ")";
+    }
+  }
+
+  public static void main(String[] args) throws VisibilityParseException {
+    int numLabels = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    int numTerms = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+    Random random = new Random(42);
+    List<String> auths = new ArrayList<String>();
+    for (int i = 0; i < numTerms; i++)
+      if (random.nextInt(3) != 0)
+        auths.add("term" + i);
+    VisibilityEvaluator ve = new VisibilityEvaluator(new Authorizations(auths.toArray(new String[auths.size()])));
+
+    ColumnVisibility[] labels = new ColumnVisibility[numLabels];
+    CompiledVisibility[] compiled = new CompiledVisibility[numLabels];
+    int notCompiled = 0;
+    for (int i = 0; i < numLabels; i++) {
+      labels[i] = new ColumnVisibility(createLabel(random, numTerms));
+      compiled[i] = CompiledVisibility.compile(labels[i]);
+      if (!compiled[i].isCompiled())
+        notCompiled++;
+    }
+    System.out.printf("%,d labels over %d terms, %d authorizations, %d not compiled%n", numLabels, numTerms, auths.size(), notCompiled);
+
+    for (int round = 0; round < rounds; round++) {
+      // alternate the order, so neither is favored by warm up
+      boolean treeFirst = round % 2 == 1;
+      for (int i = 0; i < 2; i++) {
+        boolean tree = treeFirst == (i == 0);
+        int visible = 0;
+        long t1 = System.nanoTime();
+        for (int j = 0; j < numLabels; j++)
+          if (tree ? ve.evaluate(labels[j]) : ve.evaluate(compiled[j]))
+            visible++;
+        long t2 = System.nanoTime();
+        System.out.printf("round %2d %-8s %,d of %,d visible in %,6.1f ms, %6.1f ns per label%n", round, tree ? "tree" : "compiled", visible, numLabels,
+            (t2 - t1) / 1000000.0, (t2 - t1) / (double) numLabels);
+      }
+    }
+  }
+}
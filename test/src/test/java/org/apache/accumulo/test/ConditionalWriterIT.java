@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
@@ -31,11 +32,14 @@ import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.AsyncConditionalWriter;
 import org.apache.accumulo.core.client.BatchWriter;
 import org.apache.accumulo.core.client.BatchWriterConfig;
 import org.apache.accumulo.core.client.ConditionalWriter;
@@ -773,6 +777,72 @@ public class ConditionalWriterIT extends SimpleMacIT {
     cw.close();
   }
 
+  @Test
+  public void testAsync() throws Exception {
+    Connector conn = getConnector();
+    String tableName = getTableNames(1)[0];
+
+    conn.tableOperations().create(tableName);
+
+    AsyncConditionalWriter cw = conn.createAsyncConditionalWriter(tableName, new ConditionalWriterConfig().setMaxBatchesInFlight(3));
+
+    List<Future<Result>> futures = new ArrayList<Future<Result>>();
+    for (int i = 0; i < 100; i++) {
+      ConditionalMutation cm = new ConditionalMutation(String.format("r%03d", i), new Condition("tx", "seq"));
+      cm.put("tx", "seq", "1");
+      futures.add(cw.writeAsync(cm));
+    }
+
+    for (Future<Result> future : futures)
+      Assert.assertEquals(Status.ACCEPTED, future.get().getStatus());
+
+    final LinkedBlockingQueue<Result> received = new LinkedBlockingQueue<Result>();
+    List<ConditionalMutation> mutations = new ArrayList<ConditionalMutation>();
+    for (int i = 0; i < 100; i++) {
+      // the even rows were written above with seq 1
+      ConditionalMutation cm = new ConditionalMutation(String.format("r%03d", i), new Condition("tx", "seq").setValue(i % 2 == 0 ? "1" : "0"));
+      cm.put("tx", "seq", "2");
+      mutations.add(cm);
+    }
+    ConditionalMutation invisible = new ConditionalMutation("r000", new Condition("tx", "seq").setVisibility(new ColumnVisibility("A")));
+    invisible.put("tx", "seq", "3");
+    mutations.add(invisible);
+
+    cw.write(mutations.iterator(), new AsyncConditionalWriter.ResultReceiver() {
+      @Override
+      public void receive(Result result) {
+        received.add(result);
+      }
+    });
+
+    int accepted = 0;
+    int rejected = 0;
+    int invisibleCount = 0;
+    for (int i = 0; i < mutations.size(); i++) {
+      Result result = received.poll(60, TimeUnit.SECONDS);
+      Assert.assertNotNull(result);
+      switch (result.getStatus()) {
+        case ACCEPTED:
+          accepted++;
+          break;
+        case REJECTED:
+          rejected++;
+          break;
+        case INVISIBLE_VISIBILITY:
+          invisibleCount++;
+          break;
+        default:
+          Assert.fail("Unexpected status " + result.getStatus());
+      }
+    }
+
+    Assert.assertEquals(50, accepted);
+    Assert.assertEquals(50, rejected);
+    Assert.assertEquals(1, invisibleCount);
+
+    cw.close();
+  }
+
   private static class Stats {
 
     ByteSequence row = null;